@@ -0,0 +1,66 @@
+package com.example.notificationservice.benchmarks;
+
+import com.example.notificationservice.entity.JwtSecret;
+import com.example.notificationservice.metrics.NotificationMetrics;
+import com.example.notificationservice.repository.JwtSecretRepository;
+import com.example.notificationservice.security.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de autenticar una petición: cada POST valida el token y extrae el usuario (dos parseos con HS512),
+ * y el login firma uno nuevo. La clave ya está cacheada, así que no se mide Mongo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String USERNAME = "user@example.com";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        String secret = Base64.getEncoder().encodeToString(new byte[64]);
+        // Solo se llama a findFirstByOrderByIdAsc para cargar la clave la primera vez
+        JwtSecretRepository secrets = (JwtSecretRepository) Proxy.newProxyInstance(
+                JwtSecretRepository.class.getClassLoader(), new Class<?>[]{JwtSecretRepository.class},
+                (proxy, method, args) -> Mono.just(new JwtSecret("1", secret)));
+        jwtUtil = new JwtUtil(secrets, null, new NotificationMetrics(new SimpleMeterRegistry()));
+        token = jwtUtil.generateToken(USERNAME, TimeUnit.DAYS.toMillis(1)).block();
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token).block();
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtUtil.extractUsername(token).block();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(USERNAME).block();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.notificationservice.benchmarks;
+
+import com.example.notificationservice.HttpResponse.CustomApiResponse;
+import com.example.notificationservice.HttpResponse.ResponseUtil;
+import com.example.notificationservice.dto.NotificationResponseDto;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de lo que sale por SSE y por la API REST, con el ObjectMapper que configura Spring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Notification notification;
+    private NotificationResponseDto responseDto;
+    private List<NotificationResponseDto> responseDtos;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        notification = new Notification("01J9ZK8Q5W3XH2M7N4P6R8T0VB", "66f1c2a9e4b0a1b2c3d4e5f6",
+                "Tu pedido #48213 ha sido enviado y llegará mañana", Instant.parse("2024-10-01T12:00:00Z"), false);
+        notification.setType("orders");
+        notification.setPriority(NotificationPriority.NORMAL);
+        responseDto = new NotificationResponseDto(notification, "Vera");
+        responseDtos = List.of(responseDto, responseDto, responseDto, responseDto, responseDto,
+                responseDto, responseDto, responseDto, responseDto, responseDto);
+    }
+
+    @Benchmark
+    public byte[] serializeNotification() throws Exception {
+        return objectMapper.writeValueAsBytes(notification);
+    }
+
+    @Benchmark
+    public byte[] serializeNotificationResponseDto() throws Exception {
+        return objectMapper.writeValueAsBytes(responseDto);
+    }
+
+    // Lo que hace un endpoint que devuelve una lista: envolver en CustomApiResponse/ResponseEntity y serializar el cuerpo
+    @Benchmark
+    public byte[] wrapAndSerializeApiResponse() throws Exception {
+        ResponseEntity<CustomApiResponse<List<NotificationResponseDto>>> response =
+                ResponseUtil.createSuccessResponse("Usuarios encontrados con el mismo mensaje", responseDtos).block();
+        return objectMapper.writeValueAsBytes(response.getBody());
+    }
+
+    // Solo el envoltorio (Mono + ResponseEntity + CustomApiResponse), sin serializar
+    @Benchmark
+    public ResponseEntity<CustomApiResponse<Notification>> wrapApiResponse() {
+        return ResponseUtil.createSuccessResponse("Notificación creada exitosamente", notification).block();
+    }
+}
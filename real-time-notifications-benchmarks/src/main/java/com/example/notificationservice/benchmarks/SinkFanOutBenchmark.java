@@ -0,0 +1,68 @@
+package com.example.notificationservice.benchmarks;
+
+import com.example.notificationservice.entity.Notification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emisión en el sink multicast de NotificationService con 1, 100 y 10k suscriptores.
+ * Cada suscriptor filtra por usuario como el flujo SSE por usuario, así que una emisión cuesta O(suscriptores).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SinkFanOutBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int subscribers;
+
+    private Sinks.Many<Notification> sink;
+    private final List<Disposable> subscriptions = new ArrayList<>();
+    private Notification notification;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        // Mismo sink que NotificationService: multicast con buffer y sin autoCancel
+        sink = Sinks.many().multicast().onBackpressureBuffer(Queues.SMALL_BUFFER_SIZE, false);
+        for (int i = 0; i < subscribers; i++) {
+            String userId = "user" + i;
+            subscriptions.add(sink.asFlux()
+                    .filter(n -> userId.equals(n.getUserReferenceId()))
+                    .subscribe(blackhole::consume));
+        }
+        notification = new Notification("01J9ZK8Q5W3XH2M7N4P6R8T0VB", "user0", "Mensaje", Instant.now(), false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        subscriptions.forEach(Disposable::dispose);
+        subscriptions.clear();
+    }
+
+    @Benchmark
+    public Sinks.EmitResult emit() {
+        return sink.tryEmitNext(notification);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.notificationservice.benchmarks;
+
+import com.example.notificationservice.HttpResponse.CustomApiResponse;
+import com.example.notificationservice.HttpResponse.ResponseUtil;
+import com.example.notificationservice.codec.BinaryObjectMappers;
+import com.example.notificationservice.codec.LengthPrefixedCbor;
+import com.example.notificationservice.dto.NotificationResponseDto;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por notificación de cada formato de la negociación de contenido: JSON (por defecto), CBOR y Smile.
+ * Codificar y decodificar la notificación, el frame del flujo binario y una respuesta REST con una lista.
+ * Los tamaños de cada formato los imprime {@link #main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper mapper;
+    private Notification notification;
+    private LengthPrefixedCbor.Envelope envelope;
+    private CustomApiResponse<List<NotificationResponseDto>> apiResponse;
+    private byte[] encodedNotification;
+    private byte[] encodedApiResponse;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = mapper(format);
+        notification = sampleNotification();
+        envelope = new LengthPrefixedCbor.Envelope(notification.getId(), null, notification);
+        apiResponse = sampleApiResponse(notification);
+        encodedNotification = mapper.writeValueAsBytes(notification);
+        encodedApiResponse = mapper.writeValueAsBytes(apiResponse);
+    }
+
+    @Benchmark
+    public byte[] encodeNotification() throws Exception {
+        return mapper.writeValueAsBytes(notification);
+    }
+
+    @Benchmark
+    public Notification decodeNotification() throws Exception {
+        return mapper.readValue(encodedNotification, Notification.class);
+    }
+
+    // Cuerpo de un evento del flujo: id + notificación (en SSE el id va además en la línea id:)
+    @Benchmark
+    public byte[] encodeStreamEnvelope() throws Exception {
+        return mapper.writeValueAsBytes(envelope);
+    }
+
+    @Benchmark
+    public byte[] encodeApiResponse() throws Exception {
+        return mapper.writeValueAsBytes(apiResponse);
+    }
+
+    @Benchmark
+    public JsonNode decodeApiResponse() throws Exception {
+        return mapper.readTree(encodedApiResponse);
+    }
+
+    private static ObjectMapper mapper(String format) {
+        BinaryObjectMappers binary = BinaryObjectMappers.standalone();
+        return switch (format) {
+            case "cbor" -> binary.cbor();
+            case "smile" -> binary.smile();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+    }
+
+    private static Notification sampleNotification() {
+        Notification notification = new Notification("01J9ZK8Q5W3XH2M7N4P6R8T0VB", "66f1c2a9e4b0a1b2c3d4e5f6",
+                "Tu pedido #48213 ha sido enviado y llegará mañana", Instant.parse("2024-10-01T12:00:00Z"), false);
+        notification.setType("orders");
+        notification.setPriority(NotificationPriority.NORMAL);
+        return notification;
+    }
+
+    private static CustomApiResponse<List<NotificationResponseDto>> sampleApiResponse(Notification notification) {
+        NotificationResponseDto dto = new NotificationResponseDto(notification, "Vera");
+        return ResponseUtil.createSuccessResponse("Usuarios encontrados con el mismo mensaje",
+                List.of(dto, dto, dto, dto, dto, dto, dto, dto, dto, dto)).block().getBody();
+    }
+
+    // Bytes en el cable por formato: java -cp target/benchmarks.jar com.example.notificationservice.benchmarks.WireFormatBenchmark
+    public static void main(String[] args) throws Exception {
+        Notification notification = sampleNotification();
+        CustomApiResponse<List<NotificationResponseDto>> apiResponse = sampleApiResponse(notification);
+        LengthPrefixedCbor.Envelope envelope = new LengthPrefixedCbor.Envelope(notification.getId(), null, notification);
+        System.out.printf("%-6s %14s %14s %14s%n", "format", "notification", "stream frame", "api response");
+        for (String format : List.of("json", "cbor", "smile")) {
+            ObjectMapper mapper = mapper(format);
+            // Frame SSE: "id:<id>\ndata:<json>\n\n"; frame binario: prefijo de 4 bytes + sobre CBOR. Smile no tiene flujo
+            String frame = switch (format) {
+                case "json" -> String.valueOf("id:".length() + notification.getId().length() + "\ndata:".length()
+                        + mapper.writeValueAsBytes(notification).length + "\n\n".length());
+                case "cbor" -> String.valueOf(LengthPrefixedCbor.LENGTH_BYTES + mapper.writeValueAsBytes(envelope).length);
+                default -> "-";
+            };
+            System.out.printf("%-6s %14d %14s %14d%n", format, mapper.writeValueAsBytes(notification).length, frame,
+                    mapper.writeValueAsBytes(apiResponse).length);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.notificationservice.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de carga autocontenida: Mongo en memoria, el servicio en una JVM hija, N streams SSE abiertos
+ * y creaciones a ritmo fijo. Informa del throughput, los percentiles de latencia de entrega vistos por
+ * los clientes (timestamp de la notificación -> recepción, mismo reloj), el heap por conexión y las pausas de GC.
+ * <p>
+ * Uso: {@code java -jar target/loadtest.jar --user-streams=5000 --unread-streams=50 --create-rate=500 --duration=2m}
+ */
+public final class LoadTest {
+
+    private static final String API = "/api-clients/v1.0";
+    private static final ParameterizedTypeReference<ServerSentEvent<JsonNode>> EVENT_TYPE = new ParameterizedTypeReference<>() {
+    };
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    // El servicio no envía las cabeceras SSE hasta el primer evento; un heartbeat corto confirma antes las conexiones
+    static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(5);
+
+    private final LoadTestOptions options;
+    private final StringWriter summary = new StringWriter();
+    private final PrintWriter out = new PrintWriter(summary, true);
+
+    private final AtomicReference<String> token = new AtomicReference<>();
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private final LongAdder rejectedStreams = new LongAdder();
+    private final LongAdder failedStreams = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder createErrors = new LongAdder();
+    private final LongAdder createDropped = new LongAdder();
+    private final Recorder deliveryLatency = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Recorder createLatency = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram totalDelivery = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram totalCreate = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private WebClient api;
+
+    private LoadTest(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(LoadTestOptions.parse(args)).run();
+    }
+
+    private void run() throws Exception {
+        MongoServer mongo = new MongoServer(new MemoryBackend());
+        InetSocketAddress mongoAddress = mongo.bind();
+        String mongoUri = "mongodb://127.0.0.1:" + mongoAddress.getPort() + "/real-time-notifications";
+        report("Mongo en memoria en %s, arrancando el servicio (heap %s)...", mongoUri, options.serverHeap());
+
+        Disposable.Composite streams = Disposables.composite();
+        ConnectionProvider connections = ConnectionProvider.builder("loadtest")
+                .maxConnections(options.totalStreams() + options.maxInFlight() + 64)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        try (ServerProcess server = ServerProcess.start(options, mongoUri)) {
+            server.awaitHealthy(Duration.ofMinutes(2));
+            api = WebClient.builder()
+                    .baseUrl("http://127.0.0.1:" + server.port())
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                    .build();
+
+            List<String> users = createUsers();
+            server.authorizeWith(token::get);
+            Disposable tokenRefresh = Flux.interval(Duration.ofSeconds(60))
+                    .concatMap(tick -> refreshToken(users.get(0)))
+                    .subscribe();
+
+            ServerProcess.HeapSample heapBefore = server.heapAfterGc();
+            openStreams(users, streams);
+            ServerProcess.HeapSample heapAfter = server.heapAfterGc();
+
+            ServerProcess.GcSample gcStart = server.gcPauses();
+            long loadStart = System.nanoTime();
+            drive(users.subList(1, users.size()));
+            double loadSeconds = (System.nanoTime() - loadStart) / 1e9;
+            // Las entregas en vuelo terminan de llegar antes del informe final
+            Thread.sleep(2000);
+            ServerProcess.GcSample gc = server.gcPauses().minus(gcStart);
+
+            printSummary(loadSeconds, heapBefore, heapAfter, gc);
+            printServerLatency();
+            tokenRefresh.dispose();
+        } finally {
+            streams.dispose();
+            connections.dispose();
+            mongo.shutdownNow();
+            Files.createDirectories(options.outputDir());
+            Files.writeString(options.outputDir().resolve("summary.txt"), summary.toString());
+        }
+    }
+
+    // El primero es el productor (su JWT firma todas las peticiones); el resto, los destinatarios
+    private List<String> createUsers() {
+        report("Creando %d usuarios...", options.users() + 1);
+        List<JsonNode> saved = Flux.range(0, options.users() + 1)
+                .flatMapSequential(i -> api.post().uri(API + "/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(Map.of("name", "Carga " + i, "email", "load" + i + "@example.com", "password", "loadtest-" + i))
+                        .retrieve()
+                        .bodyToMono(JsonNode.class), 8)
+                .collectList()
+                .block();
+        token.set(saved.get(0).path("data").path("token").asText());
+        return saved.stream().map(body -> body.path("data").path("id").asText()).toList();
+    }
+
+    // El token inicial dura 2 minutos; se renueva antes de que caduque
+    private Mono<Void> refreshToken(String producerId) {
+        return api.post().uri(API + "/users/refresh-token/{userId}", producerId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token.get())
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .doOnNext(body -> token.set(body.path("data").path("refreshToken").asText()))
+                .onErrorResume(e -> {
+                    report("No se pudo renovar el token: %s", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void openStreams(List<String> users, Disposable.Composite streams) throws InterruptedException {
+        int total = options.totalStreams();
+        report("Abriendo %d streams por usuario y %d globales a %d/s...", options.userStreams(), options.unreadStreams(), options.connectRate());
+        Flux.interval(Duration.ofNanos(TimeUnit.SECONDS.toNanos(1) / Math.max(1, options.connectRate())))
+                .take(total)
+                .doOnNext(i -> streams.add(openStream(i < options.userStreams()
+                        ? "/notifications/stream/" + users.get(1 + (int) (i % (users.size() - 1)))
+                        : "/notifications/users/unread-stream")))
+                .blockLast();
+
+        long deadline = System.nanoTime() + HEARTBEAT_INTERVAL.plusSeconds(30).toNanos();
+        while (openStreams.get() + rejectedStreams.intValue() + failedStreams.intValue() < total && System.nanoTime() < deadline) {
+            Thread.sleep(250);
+        }
+        report("Streams abiertos: %d (rechazados %d, fallidos %d)", openStreams.get(), rejectedStreams.sum(), failedStreams.sum());
+    }
+
+    private Disposable openStream(String path) {
+        return api.get().uri(API + path)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token.get())
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchangeToFlux(response -> {
+                    if (!response.statusCode().is2xxSuccessful()) {
+                        rejectedStreams.increment();
+                        return response.releaseBody().thenMany(Flux.<ServerSentEvent<JsonNode>>empty());
+                    }
+                    openStreams.incrementAndGet();
+                    return response.bodyToFlux(EVENT_TYPE).doFinally(signal -> openStreams.decrementAndGet());
+                })
+                .subscribe(this::onEvent, e -> failedStreams.increment());
+    }
+
+    private void onEvent(ServerSentEvent<JsonNode> event) {
+        JsonNode data = event.data();
+        if (data == null) {
+            return;  // heartbeat
+        }
+        Instant now = Instant.now();
+        if ("digest".equals(event.event())) {
+            data.path("latest").forEach(notification -> recordDelivery(notification, now));
+        } else {
+            recordDelivery(data, now);
+        }
+    }
+
+    private void recordDelivery(JsonNode notification, Instant now) {
+        received.increment();
+        Instant timestamp = Instant.parse(notification.path("timestamp").asText());
+        deliveryLatency.recordValue(clamp(ChronoUnit.MICROS.between(timestamp, now)));
+    }
+
+    // Creaciones a ritmo fijo repartidas en round-robin entre los destinatarios; si el servicio no da abasto
+    // (más de max-in-flight pendientes) los ticks se descartan y se cuentan, no se acumulan
+    private void drive(List<String> targets) {
+        report("Creando notificaciones a %d/s durante %s...", options.createRate(), options.duration());
+        Disposable reporter = Flux.interval(options.reportInterval())
+                .subscribe(tick -> printInterval());
+        Flux.interval(Duration.ofNanos(TimeUnit.SECONDS.toNanos(1) / Math.max(1, options.createRate())))
+                .take(options.duration())
+                .onBackpressureDrop(tick -> createDropped.increment())
+                .flatMap(i -> create(targets.get((int) (i % targets.size())), i), options.maxInFlight())
+                .blockLast();
+        reporter.dispose();
+    }
+
+    private Mono<Void> create(String userId, long sequence) {
+        long start = System.nanoTime();
+        return api.post().uri(API + "/notifications/users/{userId}", userId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token.get())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("message", "Notificación de carga #" + sequence, "type", "loadtest"))
+                .exchangeToMono(response -> {
+                    if (response.statusCode().is2xxSuccessful()) {
+                        created.increment();
+                    } else {
+                        createErrors.increment();
+                    }
+                    return response.releaseBody();
+                })
+                .doOnError(e -> createErrors.increment())
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(signal -> createLatency.recordValue(clamp(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start))));
+    }
+
+    private synchronized void printInterval() {
+        Histogram delivery = deliveryLatency.getIntervalHistogram();
+        Histogram create = createLatency.getIntervalHistogram();
+        totalDelivery.add(delivery);
+        totalCreate.add(create);
+        double seconds = options.reportInterval().toMillis() / 1000.0;
+        report("creadas %.0f/s (errores %d, descartadas %d) | recibidas %.0f/s | entrega p50 %s p99 %s p99.9 %s | POST p99 %s | streams %d",
+                create.getTotalCount() / seconds, createErrors.sum(), createDropped.sum(), delivery.getTotalCount() / seconds,
+                millis(delivery.getValueAtPercentile(50)), millis(delivery.getValueAtPercentile(99)),
+                millis(delivery.getValueAtPercentile(99.9)), millis(create.getValueAtPercentile(99)), openStreams.get());
+    }
+
+    private synchronized void printSummary(double loadSeconds, ServerProcess.HeapSample heapBefore,
+                                           ServerProcess.HeapSample heapAfter, ServerProcess.GcSample gc) {
+        totalDelivery.add(deliveryLatency.getIntervalHistogram());
+        totalCreate.add(createLatency.getIntervalHistogram());
+        int streams = Math.max(1, openStreams.get());
+        report("");
+        report("==== Resumen ====");
+        report("Streams abiertos:        %d de %d (rechazados %d, fallidos %d)", openStreams.get(), options.totalStreams(),
+                rejectedStreams.sum(), failedStreams.sum());
+        report("Creaciones:              %d ok, %d errores, %d descartadas -> %.1f/s (objetivo %d/s)",
+                created.sum(), createErrors.sum(), createDropped.sum(), created.sum() / loadSeconds, options.createRate());
+        report("Entregas recibidas:      %d -> %.1f/s", received.sum(), received.sum() / loadSeconds);
+        report("Latencia de entrega:     p50 %s  p99 %s  p99.9 %s  máx %s", millis(totalDelivery.getValueAtPercentile(50)),
+                millis(totalDelivery.getValueAtPercentile(99)), millis(totalDelivery.getValueAtPercentile(99.9)),
+                millis(totalDelivery.getMaxValue()));
+        report("Latencia del POST:       p50 %s  p99 %s  p99.9 %s  máx %s", millis(totalCreate.getValueAtPercentile(50)),
+                millis(totalCreate.getValueAtPercentile(99)), millis(totalCreate.getValueAtPercentile(99.9)),
+                millis(totalCreate.getMaxValue()));
+        report("Heap por conexión:       %.1f KiB (%d -> %d MiB%s)",
+                (heapAfter.usedBytes() - heapBefore.usedBytes()) / 1024.0 / streams,
+                heapBefore.usedBytes() >> 20, heapAfter.usedBytes() >> 20,
+                heapBefore.afterGc() && heapAfter.afterGc() ? "" : ", sin GC forzado: incluye basura");
+        report("Pausas de GC (servidor): %d pausas, %.0f ms en total, máx reciente %.1f ms (detalle en server-gc.log)",
+                gc.count(), gc.totalSeconds() * 1000, gc.maxSeconds() * 1000);
+    }
+
+    // Percentiles acumulados que mide el propio servicio (desde la llegada del POST hasta la escritura en la conexión)
+    private void printServerLatency() {
+        JsonNode body = api.get().uri(API + "/notifications/latency")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token.get())
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .onErrorResume(e -> Mono.empty())
+                .block(Duration.ofSeconds(10));
+        if (body == null) {
+            return;
+        }
+        for (JsonNode series : body.path("data")) {
+            report("Latencia en el servidor: %-13s %-6s p50 %s  p99 %s  p99.9 %s (%d entregas)",
+                    series.path("endpoint").asText(), series.path("priority").asText(),
+                    millis(series.path("totalP50Micros").asLong()), millis(series.path("totalP99Micros").asLong()),
+                    millis(series.path("totalP999Micros").asLong()), series.path("totalCount").asLong());
+        }
+    }
+
+    private void report(String format, Object... args) {
+        String line = String.format(format, args);
+        System.out.println(line);
+        out.println(line);
+    }
+
+    private static long clamp(long micros) {
+        return Math.min(Math.max(micros, 0), HIGHEST_TRACKABLE_MICROS);
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2fms", micros / 1000.0);
+    }
+}
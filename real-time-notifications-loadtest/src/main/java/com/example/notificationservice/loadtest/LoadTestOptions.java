@@ -0,0 +1,53 @@
+package com.example.notificationservice.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parámetros de la prueba en formato {@code --clave=valor}; todos tienen un valor por defecto razonable para un portátil.
+ */
+record LoadTestOptions(int users,
+                       int userStreams,
+                       int unreadStreams,
+                       int connectRate,
+                       int createRate,
+                       int maxInFlight,
+                       Duration duration,
+                       Duration reportInterval,
+                       String serverHeap,
+                       Path outputDir) {
+
+    private static final Set<String> KEYS = Set.of("users", "user-streams", "unread-streams", "connect-rate", "create-rate",
+            "max-in-flight", "duration", "report-interval", "server-heap", "output-dir");
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0 || !KEYS.contains(arg.substring(2, separator))) {
+                throw new IllegalArgumentException("Argumento no reconocido: " + arg + " (admitidos: --" + String.join("=, --", KEYS) + "=)");
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new LoadTestOptions(
+                Integer.parseInt(values.getOrDefault("users", "200")),
+                Integer.parseInt(values.getOrDefault("user-streams", "2000")),
+                Integer.parseInt(values.getOrDefault("unread-streams", "20")),
+                Integer.parseInt(values.getOrDefault("connect-rate", "500")),
+                Integer.parseInt(values.getOrDefault("create-rate", "200")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "1024")),
+                DurationStyle.detectAndParse(values.getOrDefault("duration", "60s")),
+                DurationStyle.detectAndParse(values.getOrDefault("report-interval", "5s")),
+                values.getOrDefault("server-heap", "1g"),
+                Path.of(values.getOrDefault("output-dir", "target/loadtest")));
+    }
+
+    int totalStreams() {
+        return userStreams + unreadStreams;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.notificationservice.loadtest;
+
+import com.example.notificationservice.RealTimeNotificationsMicroserviceApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * El microservicio en una JVM propia (mismo classpath que la herramienta), para que el heap y las pausas de GC
+ * que se miden sean solo las del servidor y no las de los clientes de carga.
+ * Las métricas se leen de Actuator; para medir el heap retenido se fuerza un GC con {@code jcmd}.
+ */
+final class ServerProcess implements AutoCloseable {
+
+    private final Process process;
+    private final WebClient actuator;
+    private final Path jcmd;
+    private final int port;
+    // /actuator/metrics pide un token; lo aporta el primer usuario que crea la prueba
+    private volatile Supplier<String> token = () -> null;
+
+    private ServerProcess(Process process, int port) {
+        this.process = process;
+        this.port = port;
+        this.actuator = WebClient.create("http://127.0.0.1:" + port + "/actuator");
+        this.jcmd = Path.of(System.getProperty("java.home"), "bin", "jcmd");
+    }
+
+    static ServerProcess start(LoadTestOptions options, String mongoUri) throws IOException {
+        int port = freePort();
+        Files.createDirectories(options.outputDir());
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+
+        List<String> command = new ArrayList<>();
+        command.add(java.toString());
+        command.add("-Xms" + options.serverHeap());
+        command.add("-Xmx" + options.serverHeap());
+        command.add("-Xlog:gc:file=" + options.outputDir().resolve("server-gc.log"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(RealTimeNotificationsMicroserviceApplication.class.getName());
+        command.add("--server.port=" + port);
+        command.add("--spring.data.mongodb.uri=" + mongoUri);
+        // La prueba mide capacidad, no las protecciones: sin limitador y con cupos de conexiones por encima de la carga
+        command.add("--notifications.rate-limit.enabled=false");
+        command.add("--notifications.sse.max-connections=" + (options.totalStreams() + 1000));
+        command.add("--notifications.sse.max-connections-per-user=" + Math.max(options.totalStreams(), 5));
+        command.add("--notifications.lanes.normal.queue-capacity=" + Math.max(10000, options.maxInFlight() * 2));
+        command.add("--notifications.sse.heartbeat-interval-ms=" + LoadTest.HEARTBEAT_INTERVAL.toMillis());
+        // mongo-java-server no implementa el comando "hello" del health check de Mongo
+        command.add("--management.health.mongo.enabled=false");
+        command.add("--logging.level.root=WARN");
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(options.outputDir().resolve("server.log").toFile());
+        builder.environment().put("MONGO_URI", mongoUri);
+        return new ServerProcess(builder.start(), port);
+    }
+
+    int port() {
+        return port;
+    }
+
+    void authorizeWith(Supplier<String> token) {
+        this.token = token;
+    }
+
+    void awaitHealthy(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("El servicio terminó al arrancar (código " + process.exitValue() + "), ver server.log");
+            }
+            String status = actuator.get().uri("/health").retrieve().bodyToMono(JsonNode.class)
+                    .map(health -> health.path("status").asText())
+                    .onErrorResume(e -> Mono.empty())
+                    .block(Duration.ofSeconds(2));
+            if ("UP".equals(status)) {
+                return;
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException("El servicio no respondió UP en " + timeout);
+    }
+
+    // Heap ocupado tras un GC completo; sin jcmd (JRE) se lee sin forzar el GC y el valor incluye basura
+    HeapSample heapAfterGc() throws InterruptedException {
+        boolean collected = false;
+        if (Files.isExecutable(jcmd)) {
+            try {
+                Process gc = new ProcessBuilder(jcmd.toString(), String.valueOf(process.pid()), "GC.run")
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                collected = gc.waitFor(30, TimeUnit.SECONDS) && gc.exitValue() == 0;
+            } catch (IOException e) {
+                collected = false;
+            }
+        }
+        return new HeapSample((long) metric("jvm.memory.used", "area:heap", "VALUE"), collected);
+    }
+
+    GcSample gcPauses() {
+        return new GcSample((long) metric("jvm.gc.pause", null, "COUNT"),
+                metric("jvm.gc.pause", null, "TOTAL_TIME"),
+                metric("jvm.gc.pause", null, "MAX"));
+    }
+
+    // Valor de una estadística de /actuator/metrics; 0 si el medidor aún no existe (p. ej. todavía no hubo GC)
+    private double metric(String name, String tag, String statistic) {
+        JsonNode body = actuator.get()
+                .uri(builder -> {
+                    builder.path("/metrics/{name}");
+                    if (tag != null) {
+                        builder.queryParam("tag", tag);
+                    }
+                    return builder.build(name);
+                })
+                .headers(headers -> {
+                    String bearer = token.get();
+                    if (bearer != null) {
+                        headers.setBearerAuth(bearer);
+                    }
+                })
+                .retrieve()
+                .onStatus(status -> status == HttpStatus.NOT_FOUND, response -> Mono.empty())
+                .bodyToMono(JsonNode.class)
+                .block(Duration.ofSeconds(10));
+        if (body == null) {
+            return 0;
+        }
+        for (JsonNode measurement : body.path("measurements")) {
+            if (statistic.equals(measurement.path("statistic").asText())) {
+                return measurement.path("value").asDouble();
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(20, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    record HeapSample(long usedBytes, boolean afterGc) {
+    }
+
+    // Pausas acumuladas desde el arranque: número, tiempo total (s) y máximo reciente (s)
+    record GcSample(long count, double totalSeconds, double maxSeconds) {
+
+        GcSample minus(GcSample start) {
+            return new GcSample(count - start.count, totalSeconds - start.totalSeconds, maxSeconds);
+        }
+    }
+}
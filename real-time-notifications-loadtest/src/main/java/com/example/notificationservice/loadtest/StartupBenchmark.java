@@ -0,0 +1,218 @@
+package com.example.notificationservice.loadtest;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo desde que se lanza la JVM hasta la primera petición con éxito ({@code POST /users}: Mongo, BCrypt y JWT),
+ * con el arranque normal y con cada paso del modo de arranque rápido (perfil {@code fast-start} del microservicio):
+ * archivo AppCDS, definiciones de beans de Spring AOT e inicialización diferida.
+ * <p>
+ * Las ejecuciones de los modos se intercalan (una ronda = un arranque de cada modo) para que la caché de ficheros y
+ * el resto de la máquina les afecten por igual; la primera ronda solo calienta y no cuenta.
+ * <p>
+ * Uso, desde la raíz del repositorio:
+ * <pre>
+ * mvn -f real-time-notifications-microservice/pom.xml -Pfast-start install -DskipTests
+ * mvn -f real-time-notifications-loadtest/pom.xml package
+ * java -cp real-time-notifications-loadtest/target/loadtest.jar com.example.notificationservice.loadtest.StartupBenchmark --runs=5
+ * </pre>
+ */
+public final class StartupBenchmark {
+
+    private static final Set<String> KEYS = Set.of("jar", "fast-start-dir", "runs", "output-dir");
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    private enum Mode {
+        DEFAULT("java -jar", false, false, false),
+        CDS("AppCDS", true, false, false),
+        CDS_AOT("AppCDS + AOT", true, true, false),
+        FAST_START("AppCDS + AOT + lazy", true, true, true);
+
+        final String label;
+        final boolean cds;
+        final boolean aot;
+        final boolean lazy;
+
+        Mode(String label, boolean cds, boolean aot, boolean lazy) {
+            this.label = label;
+            this.cds = cds;
+            this.aot = aot;
+            this.lazy = lazy;
+        }
+    }
+
+    private final Path jar;
+    private final Path fastStartDir;
+    private final int runs;
+    private final Path outputDir;
+    private final StringWriter summary = new StringWriter();
+    private final PrintWriter out = new PrintWriter(summary, true);
+
+    private StartupBenchmark(Map<String, String> options) {
+        this.jar = Path.of(options.getOrDefault("jar",
+                "real-time-notifications-microservice/target/real-time-notifications-microservice-0.0.1-SNAPSHOT.jar"));
+        this.fastStartDir = Path.of(options.getOrDefault("fast-start-dir", "real-time-notifications-microservice/target/fast-start"));
+        this.runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        this.outputDir = Path.of(options.getOrDefault("output-dir", "target/startup"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0 || !KEYS.contains(arg.substring(2, separator))) {
+                throw new IllegalArgumentException("Argumento no reconocido: " + arg + " (admitidos: --" + String.join("=, --", KEYS) + "=)");
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        new StartupBenchmark(options).run();
+    }
+
+    private void run() throws Exception {
+        Path archive = fastStartDir.resolve("application.jsa");
+        if (!Files.exists(jar) || !Files.exists(archive)) {
+            throw new IllegalStateException("Faltan " + jar + " o " + archive + ": compilar el microservicio con -Pfast-start");
+        }
+        Files.createDirectories(outputDir);
+        MongoServer mongo = new MongoServer(new MemoryBackend());
+        InetSocketAddress mongoAddress = mongo.bind();
+        String mongoUri = "mongodb://127.0.0.1:" + mongoAddress.getPort() + "/real-time-notifications";
+        Map<Mode, long[]> results = new EnumMap<>(Mode.class);
+        for (Mode mode : Mode.values()) {
+            results.put(mode, new long[runs]);
+        }
+        try {
+            report("Mongo en memoria en %s; %d rondas de %d modos (más una de calentamiento)", mongoUri, runs, Mode.values().length);
+            for (int round = -1; round < runs; round++) {
+                for (Mode mode : Mode.values()) {
+                    long millis = timeToFirstRequest(mode, mongoUri);
+                    if (round >= 0) {
+                        results.get(mode)[round] = millis;
+                        report("ronda %d  %-20s %6d ms", round + 1, mode.label, millis);
+                    }
+                }
+            }
+        } finally {
+            mongo.shutdownNow();
+        }
+
+        long baseline = median(results.get(Mode.DEFAULT));
+        report("");
+        report("==== Tiempo hasta la primera petición con éxito ====");
+        for (Mode mode : Mode.values()) {
+            long[] times = results.get(mode);
+            long median = median(times);
+            report("%-20s mediana %6d ms  mín %6d ms  máx %6d ms  (%+.0f%%)", mode.label, median,
+                    Arrays.stream(times).min().orElse(0), Arrays.stream(times).max().orElse(0),
+                    100.0 * (median - baseline) / baseline);
+        }
+        Files.writeString(outputDir.resolve("startup.txt"), summary.toString());
+    }
+
+    private long timeToFirstRequest(Mode mode, String mongoUri) throws IOException, InterruptedException {
+        int port = freePort();
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        List<String> command = new ArrayList<>();
+        command.add(java.toString());
+        if (mode.cds) {
+            command.add("-XX:SharedArchiveFile=" + fastStartDir.resolve("application.jsa"));
+        }
+        if (mode.aot) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        if (mode.lazy) {
+            command.add("-Dspring.main.lazy-initialization=true");
+        }
+        command.add("-jar");
+        // CDS necesita el jar extraído: las clases de los jars anidados del ejecutable no se pueden archivar
+        command.add((mode.cds ? fastStartDir.resolve(jar.getFileName()) : jar).toString());
+        command.add("--server.port=" + port);
+        command.add("--spring.rsocket.server.port=0");
+        command.add("--spring.data.mongodb.uri=" + mongoUri);
+        // El bus con el que se hizo el procesamiento AOT; en los demás modos se usa el mismo para comparar igual
+        command.add("--notifications.bus.type=mongo");
+        command.add("--notifications.audit.directory=" + outputDir.resolve("audit"));
+        command.add("--management.health.mongo.enabled=false");
+        command.add("--logging.level.root=WARN");
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(outputDir.resolve("server.log").toFile()));
+        builder.environment().put("MONGO_URI", mongoUri);
+        WebClient client = WebClient.create("http://127.0.0.1:" + port);
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            long deadline = start + TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("El servicio terminó al arrancar en modo " + mode.label + ", ver server.log");
+                }
+                if (signUp(client)) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("Sin respuesta en " + TIMEOUT + " en modo " + mode.label);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(20, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static boolean signUp(WebClient client) {
+        Boolean ok = client.post().uri("/api-clients/v1.0/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("name", "Arranque", "email", UUID.randomUUID() + "@example.com", "password", "startup-1"))
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().is2xxSuccessful()))
+                .onErrorResume(e -> Mono.just(false))
+                .block(Duration.ofSeconds(30));
+        return Boolean.TRUE.equals(ok);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted.length == 0 ? 0 : sorted[sorted.length / 2];
+    }
+
+    private void report(String format, Object... args) {
+        String line = String.format(format, args);
+        System.out.println(line);
+        out.println(line);
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
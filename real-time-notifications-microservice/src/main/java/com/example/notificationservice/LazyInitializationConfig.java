@@ -0,0 +1,39 @@
+package com.example.notificationservice;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.web.reactive.server.ReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Controller;
+
+/**
+ * Arranque rápido con {@code spring.main.lazy-initialization=true} (lo activa el Dockerfile): los beans de
+ * infraestructura que no hacen falta para servir (endpoints de Actuator sin usar, ...) no se crean al arrancar.
+ * Se crean al arrancar, en el hilo principal:
+ * <ul>
+ *     <li>Los de la aplicación: varios solo hacen su trabajo si existen (tareas {@code @Scheduled}, suscripción al
+ *     bus, instantáneas del almacenamiento en memoria).</li>
+ *     <li>La factoría del servidor web: si es diferida Spring Boot construye el {@code HttpHandler} (filtros, handler
+ *     mappings, resolutores de argumentos, codecs) con la primera petición, en el event loop, leyendo clases del
+ *     classpath. Si no lo es, lo construye al arrancar con todo lo que cuelga de él.</li>
+ *     <li>Los controladores, también los de librerías (springdoc): el handler mapping los tiene por nombre y los
+ *     crearía en el event loop con la primera petición que les llega.</li>
+ * </ul>
+ */
+@Configuration(proxyBeanMethods = false)
+public class LazyInitializationConfig {
+
+    private static final String APPLICATION_PACKAGE = LazyInitializationConfig.class.getPackageName() + ".";
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerApplicationBeans() {
+        return (beanName, beanDefinition, beanType) -> beanType.getName().startsWith(APPLICATION_PACKAGE);
+    }
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerRequestPath() {
+        return (beanName, beanDefinition, beanType) -> ReactiveWebServerFactory.class.isAssignableFrom(beanType)
+                || AnnotatedElementUtils.hasAnnotation(beanType, Controller.class);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.notificationservice.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cola circular acotada sin bloqueos para muchos productores y un solo consumidor.
+ * <p>
+ * Cada celda lleva un número de secuencia: el productor reserva una posición con un CAS sobre {@code tail},
+ * escribe el elemento y publica la celda avanzando su secuencia; el consumidor solo lee celdas ya publicadas.
+ * Si la cola está llena {@link #offer} devuelve false al momento, nunca espera.
+ */
+final class AuditRingBuffer<T> {
+
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Solo lo toca el consumidor; volatile para que size() se pueda leer desde otros hilos
+    private volatile long head;
+
+    AuditRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1) << 1);
+        this.mask = capacity - 1;
+        this.elements = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(T element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.setRelease(index, position + 1);  // Publica el elemento al consumidor
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;  // La celda aún no la ha vaciado el consumidor: cola llena
+            } else {
+                position = tail.get();  // Otro productor se llevó esta posición
+            }
+        }
+    }
+
+    // Solo desde el hilo consumidor
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.getAcquire(index) != position + 1) {
+            return null;
+        }
+        T element = (T) elements[index];
+        elements[index] = null;
+        sequences.setRelease(index, position + elements.length);  // Deja la celda libre para la siguiente vuelta
+        head = position + 1;
+        return element;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+}
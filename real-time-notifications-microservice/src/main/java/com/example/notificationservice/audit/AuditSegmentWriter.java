@@ -0,0 +1,96 @@
+package com.example.notificationservice.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Segmentos del registro de auditoría: ficheros de tamaño fijo ({@code delivery-audit-N.seg}) mapeados en memoria.
+ * Escribir un registro es copiar bytes al mapeo; el sistema operativo los lleva a disco. Cuando un registro no cabe
+ * se abre el segmento siguiente y se borran los más antiguos por encima de {@code max-segments}.
+ * <p>
+ * Cabecera de 8 bytes (magic y versión) seguida de registros {@link DeliveryAuditRecord}; el resto del fichero
+ * queda a cero, que es lo que marca el final. Solo lo usa el hilo que vacía la cola.
+ */
+final class AuditSegmentWriter {
+
+    static final int MAGIC = 0x4E415544;  // "NAUD"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    private static final Pattern SEGMENT_FILE = Pattern.compile("delivery-audit-(\\d+)\\.seg");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private MappedByteBuffer current;
+    private long sequence = -1;
+
+    AuditSegmentWriter(Path directory, int segmentSize, int maxSegments) {
+        this.directory = directory;
+        this.segmentSize = Math.max(segmentSize, HEADER_BYTES + DeliveryAuditRecord.MAX_ENCODED_BYTES);
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    void append(DeliveryAuditRecord record) throws IOException {
+        if (current == null) {
+            // Nunca se sigue escribiendo en un segmento de un arranque anterior: se empieza uno nuevo
+            Files.createDirectories(directory);
+            TreeMap<Long, Path> existing = segments(directory);
+            open(existing.isEmpty() ? 0 : existing.lastKey() + 1);
+        }
+        if (!record.writeTo(current)) {
+            current.force();
+            open(sequence + 1);
+            record.writeTo(current);
+        }
+    }
+
+    void force() {
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    private void open(long next) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(next), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // El mapeo sigue siendo válido después de cerrar el canal
+            current = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        current.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+        sequence = next;
+        TreeMap<Long, Path> segments = segments(directory);
+        while (segments.size() > maxSegments) {
+            Files.deleteIfExists(segments.pollFirstEntry().getValue());
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("delivery-audit-%020d.seg", segment));
+    }
+
+    // Segmentos del directorio ordenados por número
+    static TreeMap<Long, Path> segments(Path directory) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.notificationservice.audit;
+
+import com.example.notificationservice.dto.NotificationDigest;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro de auditoría de entregas: qué notificación se escribió a qué usuario, por qué endpoint y cuándo.
+ * <ul>
+ *     <li>En el camino de entrega solo se decide el muestreo y se deja el registro en una cola circular sin bloqueos;
+ *     si la cola está llena el registro se descarta y se cuenta, la entrega nunca espera.</li>
+ *     <li>Un hilo de fondo vacía la cola cada {@code drain-interval} y añade los registros, en binario compacto,
+ *     a segmentos rotatorios mapeados en memoria ({@link AuditSegmentWriter}).</li>
+ *     <li>Muestreo por notificación ({@code sample-rate}), igual en todos los endpoints y réplicas: una notificación
+ *     muestreada queda registrada en todas sus entregas. Las prioridades de {@code always-priorities} se auditan siempre.</li>
+ * </ul>
+ * Los segmentos se leen con {@link DeliveryAuditReader}.
+ */
+@Component
+public class DeliveryAuditLog {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryAuditLog.class);
+
+    private final boolean enabled;
+    private final long sampleThreshold;
+    private final Set<NotificationPriority> alwaysAudited;
+    private final AuditRingBuffer<DeliveryAuditRecord> ring;
+    private final AuditSegmentWriter writer;
+    private final ScheduledExecutorService drainer;
+
+    private final AtomicLong dropped = new AtomicLong();
+    // Solo lo incrementa el hilo que vacía la cola
+    private volatile long written;
+
+    @Autowired
+    public DeliveryAuditLog(@Value("${notifications.audit.enabled:true}") boolean enabled,
+                            @Value("${notifications.audit.directory:data/audit}") String directory,
+                            @Value("${notifications.audit.ring-size:65536}") int ringSize,
+                            @Value("${notifications.audit.drain-interval:10ms}") Duration drainInterval,
+                            @Value("${notifications.audit.segment-size-bytes:16777216}") int segmentSize,
+                            @Value("${notifications.audit.max-segments:16}") int maxSegments,
+                            @Value("${notifications.audit.sample-rate:1.0}") double sampleRate,
+                            @Value("${notifications.audit.always-priorities:HIGH}") String alwaysPriorities) {
+        this.enabled = enabled;
+        // Umbral sobre el hash de 32 bits del id: rate 1.0 lo deja por encima de cualquier valor
+        this.sampleThreshold = (long) (Math.min(Math.max(sampleRate, 0.0), 1.0) * (1L << 32));
+        this.alwaysAudited = parsePriorities(alwaysPriorities);
+        this.ring = new AuditRingBuffer<>(enabled ? ringSize : 2);
+        this.writer = new AuditSegmentWriter(Path.of(directory), segmentSize, maxSegments);
+        if (enabled) {
+            this.drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "delivery-audit");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalNanos = drainInterval.toNanos();
+            drainer.scheduleWithFixedDelay(this::drain, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            this.drainer = null;
+        }
+    }
+
+    // Registro desactivado, para componentes que se construyen a mano (pruebas)
+    public static DeliveryAuditLog disabled() {
+        return new DeliveryAuditLog(false, "data/audit", 2, Duration.ofSeconds(1), 0, 1, 0.0, "");
+    }
+
+    private static Set<NotificationPriority> parsePriorities(String value) {
+        Set<NotificationPriority> priorities = EnumSet.noneOf(NotificationPriority.class);
+        Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .forEach(name -> priorities.add(NotificationPriority.valueOf(name.toUpperCase())));
+        return priorities;
+    }
+
+    // Se llama justo antes de escribir el evento en la conexión, como la medida de latencia
+    public void recordDelivery(String endpoint, String userId, Object payload) {
+        if (payload instanceof Notification notification) {
+            record(endpoint, userId, notification);
+        } else if (payload instanceof NotificationDigest digest && digest.getLatest() != null) {
+            digest.getLatest().forEach(notification -> record(endpoint, userId, notification));
+        }
+    }
+
+    public void record(String endpoint, String userId, Notification notification) {
+        if (!enabled || !sampled(notification)) {
+            return;
+        }
+        DeliveryAuditRecord record = new DeliveryAuditRecord(System.currentTimeMillis(), endpoint, userId,
+                notification.getId(), notification.getPriority());
+        if (!ring.offer(record)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private boolean sampled(Notification notification) {
+        if (alwaysAudited.contains(NotificationPriority.orDefault(notification.getPriority()))) {
+            return true;
+        }
+        String id = notification.getId();
+        return (mix(id != null ? id.hashCode() : 0) & 0xFFFFFFFFL) < sampleThreshold;
+    }
+
+    // Mezcla de murmur3: los hashCode de ids consecutivos quedan repartidos por todo el rango
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    // Vacía la cola en los segmentos. Lo llama el hilo de fondo (y el cierre); nunca hay dos consumidores a la vez
+    public synchronized void drain() {
+        long count = 0;
+        try {
+            DeliveryAuditRecord record;
+            while ((record = ring.poll()) != null) {
+                writer.append(record);
+                count++;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Error al escribir el registro de auditoría de entregas", e);
+        } finally {
+            written += count;
+        }
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public int getBacklog() {
+        return ring.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (drainer == null) {
+            return;
+        }
+        drainer.shutdown();
+        try {
+            drainer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            drain();
+            writer.force();
+        }
+    }
+}
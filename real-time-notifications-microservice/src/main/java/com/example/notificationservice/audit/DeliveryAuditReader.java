@@ -0,0 +1,74 @@
+package com.example.notificationservice.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Lector de los segmentos del registro de auditoría, en orden de escritura. También se puede usar desde la línea
+ * de comandos con el jar de la aplicación:
+ * <pre>
+ * java -cp real-time-notifications-microservice.jar -Dloader.main=com.example.notificationservice.audit.DeliveryAuditReader \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher data/audit [--user id] [--notification id] [--endpoint nombre]
+ * </pre>
+ * Imprime un registro por línea. Se puede leer mientras la aplicación escribe: un registro a medio escribir aún no
+ * tiene longitud y se ve en la siguiente lectura.
+ */
+public final class DeliveryAuditReader {
+
+    private DeliveryAuditReader() {
+    }
+
+    public static List<DeliveryAuditRecord> read(Path directory) throws IOException {
+        List<DeliveryAuditRecord> records = new ArrayList<>();
+        read(directory, records::add);
+        return records;
+    }
+
+    public static void read(Path directory, Consumer<DeliveryAuditRecord> consumer) throws IOException {
+        for (Path segment : AuditSegmentWriter.segments(directory).values()) {
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (buffer.remaining() < AuditSegmentWriter.HEADER_BYTES || buffer.getInt() != AuditSegmentWriter.MAGIC
+                    || buffer.getShort() != AuditSegmentWriter.VERSION) {
+                throw new IOException("No es un segmento de auditoría válido: " + segment);
+            }
+            buffer.position(AuditSegmentWriter.HEADER_BYTES);
+            DeliveryAuditRecord record;
+            while ((record = DeliveryAuditRecord.readFrom(buffer)) != null) {
+                consumer.accept(record);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Uso: DeliveryAuditReader <directorio> [--user id] [--notification id] [--endpoint nombre]");
+            System.exit(2);
+        }
+        Predicate<DeliveryAuditRecord> filter = record -> true;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            filter = filter.and(switch (args[i]) {
+                case "--user" -> record -> value.equals(record.userId());
+                case "--notification" -> record -> value.equals(record.notificationId());
+                case "--endpoint" -> record -> value.equals(record.endpoint());
+                default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            });
+        }
+        Predicate<DeliveryAuditRecord> selected = filter;
+        read(Path.of(args[0]), record -> {
+            if (selected.test(record)) {
+                System.out.println(record);
+            }
+        });
+    }
+}
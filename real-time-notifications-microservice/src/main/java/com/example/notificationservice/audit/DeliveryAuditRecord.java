@@ -0,0 +1,94 @@
+package com.example.notificationservice.audit;
+
+import com.example.notificationservice.entity.NotificationPriority;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Una entrega auditada: qué notificación se escribió a qué usuario, por qué endpoint y cuándo.
+ * <p>
+ * En disco: {@code [u16 longitud][i64 epoch ms][u8 prioridad][texto endpoint][texto usuario][texto notificación]},
+ * cada texto como {@code [u8 longitud][UTF-8]} (se corta a 255 bytes). La longitud se escribe después del cuerpo,
+ * así un lector que encuentra una longitud distinta de cero siempre tiene el registro completo.
+ */
+public record DeliveryAuditRecord(long timestampMillis, String endpoint, String userId, String notificationId,
+                                  NotificationPriority priority) {
+
+    static final int LENGTH_BYTES = Short.BYTES;
+    private static final int MAX_TEXT_BYTES = 255;
+    private static final NotificationPriority[] PRIORITIES = NotificationPriority.values();
+
+    // Tamaño máximo de un registro codificado: longitud, cabecera fija y tres textos
+    static final int MAX_ENCODED_BYTES = LENGTH_BYTES + Long.BYTES + 1 + 3 * (1 + MAX_TEXT_BYTES);
+
+    // Escribe el registro en la posición actual; devuelve false (sin escribir nada) si no cabe
+    boolean writeTo(ByteBuffer buffer) {
+        byte[] endpointBytes = text(endpoint);
+        byte[] userBytes = text(userId);
+        byte[] notificationBytes = text(notificationId);
+        int bodyLength = Long.BYTES + 1 + 3 + endpointBytes.length + userBytes.length + notificationBytes.length;
+        if (buffer.remaining() < LENGTH_BYTES + bodyLength) {
+            return false;
+        }
+        int start = buffer.position();
+        buffer.position(start + LENGTH_BYTES);
+        buffer.putLong(timestampMillis);
+        buffer.put((byte) NotificationPriority.orDefault(priority).ordinal());
+        putText(buffer, endpointBytes);
+        putText(buffer, userBytes);
+        putText(buffer, notificationBytes);
+        buffer.putShort(start, (short) bodyLength);
+        return true;
+    }
+
+    // Lee el registro de la posición actual; null si no hay más (longitud cero o fin del buffer)
+    static DeliveryAuditRecord readFrom(ByteBuffer buffer) {
+        if (buffer.remaining() < LENGTH_BYTES) {
+            return null;
+        }
+        int bodyLength = Short.toUnsignedInt(buffer.getShort(buffer.position()));
+        if (bodyLength == 0 || buffer.remaining() < LENGTH_BYTES + bodyLength) {
+            return null;
+        }
+        buffer.position(buffer.position() + LENGTH_BYTES);
+        long timestamp = buffer.getLong();
+        int priority = Byte.toUnsignedInt(buffer.get());
+        String endpoint = getText(buffer);
+        String user = getText(buffer);
+        String notification = getText(buffer);
+        return new DeliveryAuditRecord(timestamp, endpoint, user, notification,
+                priority < PRIORITIES.length ? PRIORITIES[priority] : null);
+    }
+
+    @Override
+    public String toString() {
+        return Instant.ofEpochMilli(timestampMillis) + " " + endpoint + " user=" + userId
+                + " notification=" + notificationId + " priority=" + priority;
+    }
+
+    private static byte[] text(String value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_TEXT_BYTES) {
+            return bytes;
+        }
+        byte[] truncated = new byte[MAX_TEXT_BYTES];
+        System.arraycopy(bytes, 0, truncated, 0, MAX_TEXT_BYTES);
+        return truncated;
+    }
+
+    private static void putText(ByteBuffer buffer, byte[] bytes) {
+        buffer.put((byte) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getText(ByteBuffer buffer) {
+        byte[] bytes = new byte[Byte.toUnsignedInt(buffer.get())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.notificationservice.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.CodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.util.MimeType;
+
+/**
+ * Formatos binarios por negociación de contenido: {@code application/cbor} y {@code application/x-jackson-smile}
+ * en los endpoints REST, y los frames de {@link LengthPrefixedCbor} en los flujos. JSON sigue siendo la respuesta
+ * cuando el cliente no pide otro formato.
+ */
+@Configuration
+public class BinaryCodecsConfig {
+
+    // Hay que indicarlos: sin tipos explícitos los codecs de Jackson anuncian los de JSON
+    private static final MimeType[] SMILE_MIME_TYPES = {
+            new MimeType("application", "x-jackson-smile"), new MimeType("application", "*+x-jackson-smile")};
+    private static final MimeType[] CBOR_MIME_TYPES = {MediaType.APPLICATION_CBOR};
+
+    @Bean
+    public CodecCustomizer binaryCodecsCustomizer(ObjectMapper objectMapper, BinaryObjectMappers binaryMappers) {
+        return configurer -> configure(configurer, objectMapper, binaryMappers);
+    }
+
+    public static void configure(CodecConfigurer configurer, ObjectMapper objectMapper, BinaryObjectMappers binaryMappers) {
+        // Smile ya tiene sitio en los codecs por defecto, detrás de JSON; solo se le da la configuración de Spring Boot
+        configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(binaryMappers.smile(), SMILE_MIME_TYPES));
+        configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(binaryMappers.smile(), SMILE_MIME_TYPES));
+        // Los codecs propios se consultan antes que los por defecto y, con Accept: */*, gana el primero que pueda
+        // escribir la respuesta: JSON se registra delante de CBOR para seguir siendo el formato por defecto
+        configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+        configurer.customCodecs().register(new CborHttpEncoder(binaryMappers.cbor(), CBOR_MIME_TYPES));
+        configurer.customCodecs().register(new Jackson2CborDecoder(binaryMappers.cbor(), CBOR_MIME_TYPES));
+        configurer.customCodecs().register(new LengthPrefixedCborEncoder(binaryMappers.cbor()));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.notificationservice.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+/**
+ * ObjectMappers de CBOR y Smile construidos con la misma configuración que el de JSON (módulos, fechas, nulos),
+ * así los tres formatos representan igual cada campo. No se publican como beans ObjectMapper para no
+ * desplazar al de JSON que crea Spring Boot.
+ */
+@Component
+public class BinaryObjectMappers {
+
+    private final ObjectMapper cbor;
+    private final ObjectMapper smile;
+
+    // El builder de Spring Boot es prototype: cada getObject() devuelve uno nuevo con la configuración de spring.jackson.*
+    @Autowired
+    public BinaryObjectMappers(ObjectProvider<Jackson2ObjectMapperBuilder> builders) {
+        this(builders.getObject().factory(new CBORFactory()).build(),
+                builders.getObject().factory(new SmileFactory()).build());
+    }
+
+    BinaryObjectMappers(ObjectMapper cbor, ObjectMapper smile) {
+        this.cbor = cbor;
+        this.smile = smile;
+    }
+
+    // Sin contexto de Spring (pruebas y benchmarks): la configuración por defecto del builder
+    public static BinaryObjectMappers standalone() {
+        return new BinaryObjectMappers(Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build(),
+                Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build());
+    }
+
+    public ObjectMapper cbor() {
+        return cbor;
+    }
+
+    public ObjectMapper smile() {
+        return smile;
+    }
+}
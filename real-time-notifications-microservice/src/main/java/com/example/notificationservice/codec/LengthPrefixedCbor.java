@@ -0,0 +1,36 @@
+package com.example.notificationservice.codec;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.http.MediaType;
+
+/**
+ * Alternativa binaria a SSE para consumidores internos: una secuencia de frames con un prefijo de longitud.
+ * <pre>
+ * frame      = longitud cuerpo
+ * longitud   = 4 bytes, entero big-endian sin signo: tamaño del cuerpo
+ * cuerpo     = CBOR de {"id": ..., "event": ..., "data": ...}   (event solo en eventos con nombre, p. ej. "digest")
+ * heartbeat  = frame de longitud 0 (sin cuerpo)
+ * </pre>
+ * El cliente lo pide con {@code Accept: application/vnd.notifications.frames+cbor}; {@code id} cumple el papel de
+ * Last-Event-ID para reanudar el flujo.
+ */
+public final class LengthPrefixedCbor {
+
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.notifications.frames+cbor";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    public static final int LENGTH_BYTES = 4;
+
+    private LengthPrefixedCbor() {
+    }
+
+    // Los frames de heartbeat son solo el prefijo a cero
+    public static byte[] heartbeat() {
+        return new byte[LENGTH_BYTES];
+    }
+
+    // Cuerpo de cada frame
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Envelope(String id, String event, Object data) {
+    }
+}
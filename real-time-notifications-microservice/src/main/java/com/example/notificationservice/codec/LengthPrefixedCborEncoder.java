@@ -0,0 +1,80 @@
+package com.example.notificationservice.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codifica los flujos de eventos en el formato de {@link LengthPrefixedCbor}. Acepta {@link ServerSentEvent}
+ * (se conservan id y nombre de evento; los que no llevan datos, como los heartbeats, salen como frame vacío) o
+ * cualquier objeto, que va como {@code data}.
+ * <p>
+ * Solo se usa cuando el cliente pide ese tipo de forma explícita: con un tipo nulo o genérico no se ofrece,
+ * así que nunca desplaza a SSE ni a JSON.
+ */
+public class LengthPrefixedCborEncoder implements HttpMessageEncoder<Object> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(LengthPrefixedCbor.MEDIA_TYPE);
+
+    private final ObjectWriter writer;
+
+    public LengthPrefixedCborEncoder(ObjectMapper cborMapper) {
+        this.writer = cborMapper.writerFor(LengthPrefixedCbor.Envelope.class);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return mimeType != null && LengthPrefixedCbor.MEDIA_TYPE.equalsTypeAndSubtype(mimeType);
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    // Un flush por frame, como el codec SSE
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return List.of(LengthPrefixedCbor.MEDIA_TYPE);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                   MimeType mimeType, Map<String, Object> hints) {
+        return Flux.from(inputStream).map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  MimeType mimeType, Map<String, Object> hints) {
+        LengthPrefixedCbor.Envelope envelope = value instanceof ServerSentEvent<?> event
+                ? (event.data() != null ? new LengthPrefixedCbor.Envelope(event.id(), event.event(), event.data()) : null)
+                : new LengthPrefixedCbor.Envelope(null, null, value);
+        if (envelope == null) {
+            return bufferFactory.wrap(LengthPrefixedCbor.heartbeat());
+        }
+        byte[] body;
+        try {
+            body = writer.writeValueAsBytes(envelope);
+        } catch (JsonProcessingException e) {
+            throw new EncodingException("No se pudo codificar el frame CBOR", e);
+        }
+        DataBuffer buffer = bufferFactory.allocateBuffer(LengthPrefixedCbor.LENGTH_BYTES + body.length);
+        buffer.write(new byte[] {(byte) (body.length >>> 24), (byte) (body.length >>> 16), (byte) (body.length >>> 8), (byte) body.length});
+        buffer.write(body);
+        return buffer;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.notificationservice.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * springdoc genera el documento de la API con la primera petición a {@code springdoc.api-docs.path}, y para ello
+ * escanea el classpath (lee los .class del jar). Esas peticiones se atienden en boundedElastic y no en el event loop;
+ * las siguientes usan el documento en caché y el salto de hilo solo afecta a esta ruta.
+ */
+@Component
+public class GeneratedApiDocsFilter implements WebFilter {
+
+    private final String apiDocsPath;
+
+    public GeneratedApiDocsFilter(@Value("${springdoc.api-docs.path:/v3/api-docs}") String apiDocsPath) {
+        this.apiDocsPath = apiDocsPath;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (path.equals(apiDocsPath) || path.startsWith(apiDocsPath + "/")) {
+            return chain.filter(exchange).subscribeOn(Schedulers.boundedElastic());
+        }
+        return chain.filter(exchange);
+    }
+}
@@ -2,13 +2,31 @@ package com.example.notificationservice.controller;
 
 import com.example.notificationservice.HttpResponse.CustomApiResponse;
 import com.example.notificationservice.HttpResponse.ResponseUtil;
+import com.example.notificationservice.codec.LengthPrefixedCbor;
+import com.example.notificationservice.delivery.RedeliveryQueue;
+import com.example.notificationservice.dto.ConnectionStatsDto;
+import com.example.notificationservice.dto.DeliveryAckRequestDto;
+import com.example.notificationservice.dto.LatencyStatsDto;
+import com.example.notificationservice.dto.NotificationDigest;
 import com.example.notificationservice.dto.NotificationDto;
 import com.example.notificationservice.dto.NotificationRequestDto;
 import com.example.notificationservice.dto.NotificationResponseDto;
+import com.example.notificationservice.dto.RateLimitStatsDto;
+import com.example.notificationservice.dto.SeenReceiptsRequestDto;
 import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.User;
+import com.example.notificationservice.metrics.DeliveryLatencyTracker;
+import com.example.notificationservice.ratelimit.NotificationRateLimiter;
+import com.example.notificationservice.ratelimit.NotificationRateLimiter.RateLimitDecision;
+import com.example.notificationservice.receipts.DeliveryReceiptTracker;
 import com.example.notificationservice.repository.NotificationRepository;
 import com.example.notificationservice.security.JwtUtil;
+import com.example.notificationservice.service.NotificationCoalescer;
 import com.example.notificationservice.service.NotificationService;
+import com.example.notificationservice.sse.SseConnectionRegistry;
+import com.example.notificationservice.sse.SseFrameBroadcaster;
+import com.example.notificationservice.sse.SseFrameBroadcaster.Format;
+import com.example.notificationservice.sse.SubscriptionFilter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -17,14 +35,23 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.security.Principal;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
@@ -37,12 +64,30 @@ public class NotificationController {
     private final NotificationService notificationService;
     private final NotificationRepository notificationRepository;
     private final JwtUtil jwtUtil;
+    private final SseConnectionRegistry connectionRegistry;
+    private final NotificationCoalescer notificationCoalescer;
+    private final NotificationRateLimiter rateLimiter;
+    private final DeliveryLatencyTracker latencyTracker;
+    private final SseFrameBroadcaster frameBroadcaster;
+    private final DeliveryReceiptTracker receipts;
+    private final RedeliveryQueue redeliveryQueue;
 
     @Autowired
-    public NotificationController(NotificationService notificationService, NotificationRepository notificationRepository, JwtUtil jwtUtil) {
+    public NotificationController(NotificationService notificationService, NotificationRepository notificationRepository, JwtUtil jwtUtil,
+                                  SseConnectionRegistry connectionRegistry, NotificationCoalescer notificationCoalescer,
+                                  NotificationRateLimiter rateLimiter, DeliveryLatencyTracker latencyTracker,
+                                  SseFrameBroadcaster frameBroadcaster, DeliveryReceiptTracker receipts,
+                                  RedeliveryQueue redeliveryQueue) {
         this.notificationService = notificationService;
         this.notificationRepository = notificationRepository;
         this.jwtUtil = jwtUtil;
+        this.connectionRegistry = connectionRegistry;
+        this.notificationCoalescer = notificationCoalescer;
+        this.rateLimiter = rateLimiter;
+        this.latencyTracker = latencyTracker;
+        this.frameBroadcaster = frameBroadcaster;
+        this.receipts = receipts;
+        this.redeliveryQueue = redeliveryQueue;
     }
 
 
@@ -50,13 +95,104 @@ public class NotificationController {
             @Operation(summary = "Stream unread notifications for all users", description = "Stream unread notifications in real time for all users in the system")
             @ApiResponses(value = {
                     @ApiResponse(responseCode = "200", description = "Successfully streaming unread notifications",
-                            content = @Content(schema = @Schema(implementation = Notification.class)))
+                            content = @Content(schema = @Schema(implementation = Notification.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid filter"),
+                    @ApiResponse(responseCode = "429", description = "Too many open streams")
             })
 
             // Endpoint SSE para transmitir notificaciones no leídas en tiempo real de todos los usuarios existentes en bdd
-            @GetMapping(value = "/users/unread-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-            public Flux<Notification> streamUnreadNotifications() {
-                return notificationService.getUnreadNotificationStream();  // Flujo global de notificaciones no leídas
+            // Cada notificación se codifica una sola vez y el mismo frame se escribe en todas las conexiones
+            // Con Accept: application/vnd.notifications.frames+cbor se sirven frames CBOR con prefijo de longitud
+            // Filtros opcionales en el servidor: userId, prefix, priority, from y to (ver SubscriptionFilter)
+            @GetMapping(value = "/users/unread-stream", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, LengthPrefixedCbor.MEDIA_TYPE_VALUE})
+            public Mono<Void> streamUnreadNotifications(ServerWebExchange exchange) {
+                ServerHttpResponse response = exchange.getResponse();
+                SubscriptionFilter filter;
+                try {
+                    filter = SubscriptionFilter.fromQuery(exchange.getRequest().getQueryParams());
+                } catch (IllegalArgumentException e) {
+                    // Respuesta directa: un error propagado acabaría en la cadena de seguridad como 401
+                    response.setStatusCode(HttpStatus.BAD_REQUEST);
+                    return response.setComplete();
+                }
+                // El formato binario solo se sirve si se pide de forma explícita; un Accept genérico recibe SSE
+                boolean binary = exchange.getRequest().getHeaders().getAccept().stream()
+                        .anyMatch(LengthPrefixedCbor.MEDIA_TYPE::equalsTypeAndSubtype);
+                Format format = binary ? Format.LENGTH_PREFIXED_CBOR : Format.SSE;
+                // Las conexiones del flujo global se limitan por el usuario autenticado que las abre
+                return exchange.getPrincipal()
+                        .map(this::principalId)
+                        .defaultIfEmpty("anonymous")
+                        .flatMap(principalId -> {
+                            response.getHeaders().setContentType(binary ? LengthPrefixedCbor.MEDIA_TYPE : MediaType.TEXT_EVENT_STREAM);
+                            Flux<DataBuffer> frames = frameBroadcaster.connect("unread-stream", principalId, format, filter, response.bufferFactory());
+                            return response.writeAndFlushWith(frames.map(Mono::just));  // Un flush por evento, como el codec SSE
+                        });
+            }
+
+            // Límites de creación vigentes y rechazos acumulados
+            @Operation(summary = "Rate limit status", description = "Current creation limits and rejection counts on this instance")
+            @GetMapping("/rate-limits")
+            public Mono<ResponseEntity<CustomApiResponse<RateLimitStatsDto>>> getRateLimitStats() {
+                return ResponseUtil.createSuccessResponse("Límites de creación de notificaciones", rateLimiter.getStats());
+            }
+
+            // Percentiles de latencia de creación a entrega por endpoint y prioridad (último intervalo y acumulado)
+            @Operation(summary = "Delivery latency", description = "p50/p99/p99.9 from POST to the event being written to each connection on this instance")
+            @GetMapping("/latency")
+            public Mono<ResponseEntity<CustomApiResponse<List<LatencyStatsDto>>>> getDeliveryLatency() {
+                return ResponseUtil.createSuccessResponse("Latencia de creación a entrega", latencyTracker.getStats());
+            }
+
+            // Conexiones SSE abiertas en esta réplica
+            @Operation(summary = "Open SSE connections", description = "Live count of the SSE streams open on this instance")
+            @GetMapping("/connections")
+            public Mono<ResponseEntity<CustomApiResponse<ConnectionStatsDto>>> getConnectionStats() {
+                return ResponseUtil.createSuccessResponse("Conexiones SSE abiertas", connectionRegistry.getStats());
+            }
+
+            // Acuse de visto: el cliente informa de lo que mostró; se escribe en bloque junto con los acuses de entrega
+            @Operation(summary = "Report seen notifications", description = "Records that the authenticated user's client displayed these notifications; stored asynchronously in batches")
+            @ApiResponses(value = {
+                    @ApiResponse(responseCode = "202", description = "Receipts accepted"),
+                    @ApiResponse(responseCode = "400", description = "No notification IDs"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid token")
+            })
+            @PostMapping("/seen")
+            public Mono<ResponseEntity<CustomApiResponse<Void>>> reportSeen(@Valid @RequestBody SeenReceiptsRequestDto request,
+                                                                            ServerWebExchange exchange) {
+                // Solo cuentan las notificaciones del usuario autenticado: las de otros no cambian al escribir
+                return exchange.getPrincipal()
+                        .map(this::principalId)
+                        .map(userId -> {
+                            receipts.seen(userId, request.getNotificationIds());
+                            redeliveryQueue.acknowledge(userId, request.getNotificationIds());  // Vista implica recibida
+                            return ResponseEntity.status(HttpStatus.ACCEPTED).body(new CustomApiResponse<Void>(
+                                    "success", "Acuses de visto registrados", null, HttpStatus.ACCEPTED.value()));
+                        })
+                        .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new CustomApiResponse<Void>(
+                                "error", "Se requiere un usuario autenticado", null, HttpStatus.UNAUTHORIZED.value())));
+            }
+
+            // Confirmación de entrega de los flujos abiertos con acks=true: lo confirmado deja de reenviarse
+            @Operation(summary = "Acknowledge delivered notifications", description = "Confirms that the authenticated user's client received these notifications so they are not redelivered")
+            @ApiResponses(value = {
+                    @ApiResponse(responseCode = "202", description = "Acknowledgements accepted"),
+                    @ApiResponse(responseCode = "400", description = "No notification IDs"),
+                    @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid token")
+            })
+            @PostMapping("/acks")
+            public Mono<ResponseEntity<CustomApiResponse<Void>>> acknowledgeDelivery(@Valid @RequestBody DeliveryAckRequestDto request,
+                                                                                     ServerWebExchange exchange) {
+                return exchange.getPrincipal()
+                        .map(this::principalId)
+                        .map(userId -> {
+                            redeliveryQueue.acknowledge(userId, request.getNotificationIds());
+                            return ResponseEntity.status(HttpStatus.ACCEPTED).body(new CustomApiResponse<Void>(
+                                    "success", "Entregas confirmadas", null, HttpStatus.ACCEPTED.value()));
+                        })
+                        .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new CustomApiResponse<Void>(
+                                "error", "Se requiere un usuario autenticado", null, HttpStatus.UNAUTHORIZED.value())));
             }
 
                     // Anotaciones para documentar el el edpoint de II-.  getNotificationsUserIdByMessage
@@ -64,7 +200,9 @@ public class NotificationController {
                     @ApiResponses(value = {
                             @ApiResponse(responseCode = "200", description = "Notification created successfully"),
                             @ApiResponse(responseCode = "401", description = "Unauthorized - Invalid token"),
-                            @ApiResponse(responseCode = "500", description = "Internal server error")
+                            @ApiResponse(responseCode = "429", description = "Rate limit exceeded for the producer or the target user (see Retry-After)"),
+                            @ApiResponse(responseCode = "500", description = "Internal server error"),
+                            @ApiResponse(responseCode = "503", description = "Priority lane is full, retry later")
                     })
 
                     @PostMapping("/users/{userId}")
@@ -73,8 +211,11 @@ public class NotificationController {
                             @Valid @RequestBody NotificationRequestDto notificationRequest,
                             @RequestHeader("Authorization") String token) {
 
+                        long ingestNanos = System.nanoTime();  // La latencia de entrega se mide desde la llegada del POST
+                        String jwtToken = token.replace("Bearer ", "").trim();
+
                         // Validar el token recibido
-                        return jwtUtil.validateToken(token.replace("Bearer ", "").trim())
+                        return jwtUtil.validateToken(jwtToken)
                                 .flatMap(isValid -> {
                                     if (!Boolean.TRUE.equals(isValid)) {
                                         CustomApiResponse<Notification> errorResponse = new CustomApiResponse<>(
@@ -86,35 +227,64 @@ public class NotificationController {
                                         return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse));
                                     }
 
-                                    // Si el token es válido, creamos la notificación
-                                    Notification notification = new Notification();
-                                    notification.setUserReferenceId(userId);
-                                    notification.setMessage(notificationRequest.getMessage());
-                                    notification.setTimestamp(Instant.now());
-                                    notification.setRead(false);
-
-                                    return notificationService.createNotification(userId, notification)
-                                            .flatMap(createdNotification -> {
-                                                CustomApiResponse<Notification> response = new CustomApiResponse<>(
-                                                        "success",
-                                                        "Notificación creada exitosamente",
-                                                        createdNotification,
-                                                        HttpStatus.OK.value()
-                                                );
-                                                return Mono.just(ResponseEntity.ok(response));
-                                            })
-                                            .onErrorResume(e -> {
-                                                CustomApiResponse<Notification> errorResponse = new CustomApiResponse<>(
-                                                        "error",
-                                                        "Error al crear la notificación: " + e.getMessage(),
-                                                        null,
-                                                        HttpStatus.INTERNAL_SERVER_ERROR.value()
-                                                );
-                                                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse));
-                                            });
+                                    // Admisión: un token del productor (usuario del JWT) y otro del usuario destino
+                                    return jwtUtil.extractUsername(jwtToken)
+                                            .map(producer -> rateLimiter.tryAcquire(producer, userId))
+                                            .flatMap(decision -> decision.allowed()
+                                                    ? createAdmittedNotification(userId, notificationRequest, ingestNanos)
+                                                    : Mono.just(tooManyRequests(decision)));
+                                });
+                    }
+
+                    private Mono<ResponseEntity<CustomApiResponse<Notification>>> createAdmittedNotification(
+                            String userId, NotificationRequestDto notificationRequest, long ingestNanos) {
+                        // Token válido y admitido por el limitador: creamos la notificación
+                        Notification notification = new Notification();
+                        notification.setUserReferenceId(userId);
+                        notification.setMessage(notificationRequest.getMessage());
+                        notification.setType(notificationRequest.getType());
+                        notification.setPriority(notificationRequest.getPriority());
+                        notification.setDeliverAt(notificationRequest.getDeliverAt());
+                        notification.setTimestamp(Instant.now());
+                        notification.setRead(false);
+                        notification.setIngestNanos(ingestNanos);
+
+                        return notificationService.createNotification(userId, notification)
+                                .flatMap(createdNotification -> {
+                                    CustomApiResponse<Notification> response = new CustomApiResponse<>(
+                                            "success",
+                                            "Notificación creada exitosamente",
+                                            createdNotification,
+                                            HttpStatus.OK.value()
+                                    );
+                                    return Mono.just(ResponseEntity.ok(response));
+                                })
+                                .onErrorResume(e -> {
+                                    // Un carril lleno responde 503; cualquier otro error, 500
+                                    HttpStatusCode status = e instanceof ResponseStatusException statusException
+                                            ? statusException.getStatusCode() : HttpStatus.INTERNAL_SERVER_ERROR;
+                                    CustomApiResponse<Notification> errorResponse = new CustomApiResponse<>(
+                                            "error",
+                                            "Error al crear la notificación: " + e.getMessage(),
+                                            null,
+                                            status.value()
+                                    );
+                                    return Mono.just(ResponseEntity.status(status).body(errorResponse));
                                 });
                     }
 
+                    private ResponseEntity<CustomApiResponse<Notification>> tooManyRequests(RateLimitDecision decision) {
+                        CustomApiResponse<Notification> errorResponse = new CustomApiResponse<>(
+                                "error",
+                                "Demasiadas notificaciones (límite por " + decision.limitedBy() + "), reintente en " + decision.retryAfterSeconds() + " s",
+                                null,
+                                HttpStatus.TOO_MANY_REQUESTS.value()
+                        );
+                        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()))
+                                .body(errorResponse);
+                    }
+
                             @PutMapping("/{notificationId}/read-and-delete")
                             @Operation(summary = "Mark a notification as read and delete it", description = "Marks a notification as read and then deletes it from both the notification collection and the user's notification list")
                             @ApiResponses(value = {
@@ -168,11 +338,40 @@ public class NotificationController {
                                         @ApiResponses(value = {
                                                 @ApiResponse(responseCode = "200", description = "Successfully streaming notifications",
                                                         content = @Content(schema = @Schema(implementation = Notification.class))),
-                                                @ApiResponse(responseCode = "404", description = "Notifications for a user not found")
+                                                @ApiResponse(responseCode = "404", description = "Notifications for a user not found"),
+                                                @ApiResponse(responseCode = "429", description = "Too many open streams for the user")
                                         })
-                                        @GetMapping(value = "/stream/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-                                        public Flux<Notification> streamNotifications(@PathVariable String userId) {
-                                            return notificationService.getNotificationsStream(userId);  // Flujo de notificaciones para un usuario específico
+                                        // Mismos eventos como frames CBOR con prefijo de longitud si se pide application/vnd.notifications.frames+cbor
+                                        // Con acks=true lo escrito se reenvía hasta que el cliente lo confirma (POST /acks, /seen o read-and-delete)
+                                        @GetMapping(value = "/stream/{userId}", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, LengthPrefixedCbor.MEDIA_TYPE_VALUE})
+                                        public Flux<ServerSentEvent<Object>> streamNotifications(@PathVariable String userId,
+                                                                                                 @RequestParam(name = "acks", defaultValue = "false") boolean acks) {
+                                            return Flux.using(() -> redeliveryQueue.open(userId, acks),
+                                                    deliveries -> connectionRegistry.register("user-stream", userId,
+                                                            Flux.merge(
+                                                                            // Las ráfagas se entregan como un evento "digest" según las políticas de agrupación por tipo
+                                                                            notificationCoalescer.coalesce(notificationService.getNotificationsStream(userId),  // Flujo de notificaciones para un usuario específico
+                                                                                    this::toEvent, this::toDigestEvent),
+                                                                            deliveries.redeliveries().map(this::toEvent))
+                                                                    .doOnNext(event -> deliveries.sent(event.data()))),
+                                                    RedeliveryQueue.Session::close);
+                                        }
+
+                                        private ServerSentEvent<Object> toEvent(Notification notification) {
+                                            return ServerSentEvent.<Object>builder(notification).id(notification.getId()).build();
+                                        }
+
+                                        // El id del resumen es el de su notificación más reciente, así Last-Event-ID sigue siendo válido
+                                        private ServerSentEvent<Object> toDigestEvent(NotificationDigest digest) {
+                                            Notification latest = digest.getLatest().get(digest.getLatest().size() - 1);
+                                            return ServerSentEvent.<Object>builder(digest).event("digest").id(latest.getId()).build();
+                                        }
+
+                                        private String principalId(Principal principal) {
+                                            if (principal instanceof Authentication authentication && authentication.getPrincipal() instanceof User user) {
+                                                return user.getId();
+                                            }
+                                            return principal.getName();
                                         }
 
 }
\ No newline at end of file
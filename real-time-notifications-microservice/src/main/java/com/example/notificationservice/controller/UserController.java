@@ -6,6 +6,7 @@
     import com.example.notificationservice.entity.User;
     import com.example.notificationservice.repository.UserRepository;
     import com.example.notificationservice.security.JwtUtil;
+    import com.example.notificationservice.security.PasswordHashingService;
     import com.example.notificationservice.service.NotificationService;
     import com.example.notificationservice.service.UserService;
     import io.swagger.v3.oas.annotations.Operation;
@@ -18,9 +19,10 @@
     import org.slf4j.Logger;
     import org.springframework.http.HttpHeaders;
     import org.springframework.http.HttpStatus;
+    import org.springframework.http.HttpStatusCode;
     import org.springframework.http.ResponseEntity;
-    import org.springframework.security.crypto.password.PasswordEncoder;
     import org.springframework.web.bind.annotation.*;
+    import org.springframework.web.server.ResponseStatusException;
     import reactor.core.publisher.Mono;
     import java.util.List;
 
@@ -33,15 +35,15 @@
         private final UserRepository userRepository;
         private final NotificationService notificationService;
         private final JwtUtil jwtUtil;
-        private final PasswordEncoder passwordEncoder;
+        private final PasswordHashingService passwordHashing;
         private static final Logger log = org.slf4j.LoggerFactory.getLogger(UserController.class);
 
-        public UserController(UserService userService, UserRepository userRepository, NotificationService notificationService, JwtUtil jwtUtil, PasswordEncoder passwordEncoder) {
+        public UserController(UserService userService, UserRepository userRepository, NotificationService notificationService, JwtUtil jwtUtil, PasswordHashingService passwordHashing) {
             this.userService = userService;
             this.userRepository = userRepository;
             this.notificationService = notificationService;
             this.jwtUtil = jwtUtil;
-            this.passwordEncoder = passwordEncoder;
+            this.passwordHashing = passwordHashing;
         }
 
                 @Operation(summary = "Get a user with their notifications", description = "Retrieve a user along with their notifications and refresh token")
@@ -193,16 +195,21 @@
                                                                     @ApiResponses(value = {
                                                                             @ApiResponse(responseCode = "201", description = "User successfully saved",
                                                                                     content = @Content(schema = @Schema(implementation = User.class))),
-                                                                            @ApiResponse(responseCode = "500", description = "Error saving the user")
+                                                                            @ApiResponse(responseCode = "500", description = "Error saving the user"),
+                                                                            @ApiResponse(responseCode = "503", description = "Password hashing pool saturated, retry later")
                                                                     })
                                                                     @PostMapping
                                                                     public Mono<ResponseEntity<CustomApiResponse<User>>> saveUser(@Valid @RequestBody UserDto userDto) {
                                                                         User user = new User();
                                                                         user.setName(userDto.getName());
                                                                         user.setEmail(userDto.getEmail());
-                                                                        user.setPassword(passwordEncoder.encode(userDto.getPassword()));
 
-                                                                        return userService.saveUser(user)
+                                                                        // El hash BCrypt se calcula en el pool de contraseñas, no en el event loop
+                                                                        return passwordHashing.encode(userDto.getPassword())
+                                                                                .flatMap(hash -> {
+                                                                                    user.setPassword(hash);
+                                                                                    return userService.saveUser(user);
+                                                                                })
                                                                                 .flatMap(savedUser -> jwtUtil.generateToken(savedUser.getEmail())
                                                                                         .flatMap(token -> {
                                                                                             savedUser.setToken(token); // Establecemos el token en el usuario
@@ -220,13 +227,16 @@
                                                                                                     });
                                                                                         }))
                                                                                 .onErrorResume(e -> {
+                                                                                    // Pool de contraseñas saturado: 503; cualquier otro error, 500
+                                                                                    HttpStatusCode status = e instanceof ResponseStatusException statusException
+                                                                                            ? statusException.getStatusCode() : HttpStatus.INTERNAL_SERVER_ERROR;
                                                                                     CustomApiResponse<User> errorResponse = new CustomApiResponse<>(
                                                                                             "error",
                                                                                             "Error al guardar el usuario: " + e.getMessage(),
                                                                                             null,  // Mantener `User` como tipo, con `data` igual a `null`
-                                                                                            HttpStatus.INTERNAL_SERVER_ERROR.value()
+                                                                                            status.value()
                                                                                     );
-                                                                                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse));
+                                                                                    return Mono.just(ResponseEntity.status(status).body(errorResponse));
                                                                                 });
                                                                     }
 
@@ -0,0 +1,19 @@
+package com.example.notificationservice.delivery;
+
+import java.time.Instant;
+
+/**
+ * Cambio pendiente de escribir en el reenvío guardado de una notificación: marcarla para reenviar a partir de
+ * {@code redeliverAt} con las escrituras sin confirmar que llevaba, o quitar la marca ({@code redeliverAt} null)
+ * porque el cliente ya la confirmó. El usuario va en el filtro de la escritura, como en los acuses.
+ */
+public record RedeliveryMark(String notificationId, String userReferenceId, Instant redeliverAt, int redeliveries) {
+
+    public static RedeliveryMark spill(String notificationId, String userReferenceId, Instant redeliverAt, int redeliveries) {
+        return new RedeliveryMark(notificationId, userReferenceId, redeliverAt, redeliveries);
+    }
+
+    public static RedeliveryMark clear(String notificationId, String userReferenceId) {
+        return new RedeliveryMark(notificationId, userReferenceId, null, 0);
+    }
+}
@@ -0,0 +1,433 @@
+package com.example.notificationservice.delivery;
+
+import com.example.notificationservice.dto.NotificationDigest;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.repository.NotificationRepository;
+import com.example.notificationservice.scheduling.WheelTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Entrega al menos una vez para las conexiones SSE y WebSocket que la piden ({@code acks=true}).
+ * <ul>
+ *     <li>Cada conexión abre una {@link Session}. Lo que se escribe en ella queda en vuelo hasta que el cliente lo
+ *     confirma (recibido, visto o leído) desde cualquiera de las conexiones de su usuario.</li>
+ *     <li>Sin confirmación en {@code ack-timeout} (multiplicado por el número de intento) se reenvía por otra conexión
+ *     abierta del usuario, o por la misma si es la única; tras {@code max-attempts} escrituras se deja de insistir.</li>
+ *     <li>Lo que estaba en vuelo en una conexión que se cierra se reenvía en el acto por otra del usuario. Si era la
+ *     última se olvida: sigue sin leer en la base de datos y llega con el historial al reconectar. Sus marcas sin
+ *     escribir no se pierden: las escribe el siguiente barrido.</li>
+ *     <li>Lo que descarta la cola de entrega por estar llena se reenvía a los usuarios con conexiones en esta réplica.</li>
+ *     <li>En memoria hay como mucho {@code max-in-flight-per-user} notificaciones por usuario. Al pasarse, la más
+ *     antigua sale de memoria y se marca en la base de datos ({@code redeliverAt}); el barrido escribe las marcas en
+ *     bloque y, cuando el usuario vuelve a tener hueco, reclama las vencidas y las reenvía. Al abrir la primera
+ *     conexión de un usuario se da por hecho que puede tener marcas de conexiones anteriores.</li>
+ * </ul>
+ * Los vencimientos van a la {@link WheelTimer} compartida y solo tocan memoria; no hay un temporizador por conexión.
+ */
+@Component
+public class RedeliveryQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(RedeliveryQueue.class);
+    private static final int MARK_BATCH_SIZE = 1000;
+
+    // Una notificación en vuelo: la conexión que la tiene y cuántas veces se escribió sin confirmación
+    private static final class InFlight {
+        private final Notification notification;
+        private Session session;
+        private int attempts;
+
+        private InFlight(Notification notification, Session session, int attempts) {
+            this.notification = notification;
+            this.session = session;
+            this.attempts = attempts;
+        }
+    }
+
+    // Estado de un usuario con conexiones con acks en esta réplica; todo se modifica con su monitor
+    private static final class UserDeliveries {
+        private final String userId;
+        private final List<Session> sessions = new ArrayList<>();
+        // Orden de llegada: la primera es la más antigua y la primera en salir a la base de datos
+        private final LinkedHashMap<String, InFlight> inFlight = new LinkedHashMap<>();
+        // Marcas pendientes de escribir en el siguiente barrido
+        private final Map<String, RedeliveryMark> marks = new HashMap<>();
+        // Hay (o puede haber) marcas suyas en la base de datos, la última vence en spilledUntil
+        private boolean spilled;
+        private Instant spilledUntil;
+        private int nextSession;
+        private boolean closed;
+
+        // Una conexión anterior pudo dejar marcas en la base de datos, que vencen como tarde ackTimeout después
+        private UserDeliveries(String userId, Duration ackTimeout) {
+            this.userId = userId;
+            this.spilled = true;
+            this.spilledUntil = Instant.now().plus(ackTimeout);
+        }
+
+        // Reparto de los reenvíos entre sus conexiones, saltándose avoid si hay otra
+        private Session next(Session avoid) {
+            if (sessions.isEmpty()) {
+                return null;
+            }
+            Session session = sessions.get(Math.floorMod(nextSession++, sessions.size()));
+            if (session == avoid && sessions.size() > 1) {
+                session = sessions.get(Math.floorMod(nextSession++, sessions.size()));
+            }
+            return session;
+        }
+    }
+
+    private final NotificationRepository notificationRepository;
+    private final WheelTimer timer;
+    private final boolean enabled;
+    private final Duration ackTimeout;
+    private final int maxAttempts;
+    private final int maxInFlightPerUser;
+
+    private final ConcurrentHashMap<String, UserDeliveries> users = new ConcurrentHashMap<>();
+    // Marcas de usuarios que cerraron su última conexión antes del barrido
+    private final Queue<RedeliveryMark> orphanedMarks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder acknowledged = new LongAdder();
+    private final LongAdder redelivered = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+
+    public RedeliveryQueue(NotificationRepository notificationRepository, WheelTimer timer,
+                           @Value("${notifications.redelivery.enabled:true}") boolean enabled,
+                           @Value("${notifications.redelivery.ack-timeout:10s}") Duration ackTimeout,
+                           @Value("${notifications.redelivery.max-attempts:5}") int maxAttempts,
+                           @Value("${notifications.redelivery.max-in-flight-per-user:256}") int maxInFlightPerUser) {
+        this.notificationRepository = notificationRepository;
+        this.timer = timer;
+        this.enabled = enabled;
+        this.ackTimeout = ackTimeout;
+        this.maxAttempts = maxAttempts;
+        this.maxInFlightPerUser = maxInFlightPerUser;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            notificationRepository.ensureRedeliveryIndex()
+                    .subscribe(null, e -> log.error("No se pudo crear el índice de reenvíos pendientes", e));
+        }
+    }
+
+    /**
+     * Sesión de una conexión que se acaba de abrir. Sin {@code acks} (o con la entrega al menos una vez desactivada)
+     * la sesión no hace nada y la conexión se comporta como siempre.
+     */
+    public Session open(String userId, boolean acks) {
+        if (!enabled || !acks) {
+            return new Session(null);
+        }
+        while (true) {
+            UserDeliveries user = users.computeIfAbsent(userId, id -> new UserDeliveries(id, ackTimeout));
+            synchronized (user) {
+                if (!user.closed) {  // Si se cerró entre medias se crea otro estado
+                    Session session = new Session(user);
+                    user.sessions.add(session);
+                    return session;
+                }
+            }
+        }
+    }
+
+    // El cliente de userId confirmó estas notificaciones desde cualquiera de sus conexiones (o por REST)
+    public void acknowledge(String userId, Collection<String> notificationIds) {
+        UserDeliveries user = users.get(userId);
+        if (user == null) {
+            return;
+        }
+        synchronized (user) {
+            for (String id : notificationIds) {
+                if (user.inFlight.remove(id) != null) {
+                    inFlight.decrementAndGet();
+                    acknowledged.increment();
+                }
+                if (user.spilled) {
+                    user.marks.put(id, RedeliveryMark.clear(id, user.userId));  // Puede tener la marca ya escrita
+                } else {
+                    user.marks.remove(id);
+                }
+            }
+        }
+    }
+
+    // La cola de entrega descartó la notificación: se reenvía si su usuario tiene conexiones con acks aquí
+    public void missed(Notification notification) {
+        UserDeliveries user = notification.getUserReferenceId() != null ? users.get(notification.getUserReferenceId()) : null;
+        if (user == null || notification.getId() == null) {
+            return;
+        }
+        synchronized (user) {
+            if (!user.closed && !user.inFlight.containsKey(notification.getId())) {
+                redeliver(user, track(user, notification, null, notification.getRedeliveries()), null);
+            }
+        }
+    }
+
+    private void sent(Session session, Notification notification) {
+        UserDeliveries user = session.user;
+        if (notification.getId() == null || !user.userId.equals(notification.getUserReferenceId())) {
+            return;  // Solo cuentan las notificaciones del usuario de la conexión
+        }
+        synchronized (user) {
+            // Si ya estaba en vuelo es un reenvío (o la copia de otra conexión): su plazo ya está programado
+            if (!session.closed && !user.inFlight.containsKey(notification.getId())) {
+                schedule(user, track(user, notification, session, notification.getRedeliveries() + 1));
+            }
+        }
+    }
+
+    private void close(Session session) {
+        UserDeliveries user = session.user;
+        synchronized (user) {
+            if (session.closed) {
+                return;
+            }
+            session.closed = true;
+            user.sessions.remove(session);
+            if (user.sessions.isEmpty()) {
+                // Lo que quedaba sin confirmar sigue sin leer en la base de datos: llega con el historial al reconectar
+                user.closed = true;
+                users.remove(user.userId, user);
+                inFlight.addAndGet(-user.inFlight.size());
+                user.inFlight.clear();
+                orphanedMarks.addAll(user.marks.values());
+                user.marks.clear();
+            } else {
+                for (InFlight entry : user.inFlight.values()) {
+                    if (entry.session == session) {
+                        redeliver(user, entry, null);
+                    }
+                }
+            }
+        }
+        session.redeliveries.tryEmitComplete();
+    }
+
+    // Se ejecuta en el hilo de la rueda: solo memoria y, como mucho, un reenvío
+    private void expire(UserDeliveries user, InFlight entry, int attempts) {
+        synchronized (user) {
+            if (user.closed || user.inFlight.get(entry.notification.getId()) != entry || entry.attempts != attempts) {
+                return;  // Confirmada, reenviada o fuera de memoria desde entonces
+            }
+            if (attempts >= maxAttempts) {
+                user.inFlight.remove(entry.notification.getId());
+                inFlight.decrementAndGet();
+                expired.increment();
+                return;
+            }
+            redeliver(user, entry, entry.session);
+        }
+    }
+
+    // Con el monitor del usuario. Si se pasa del límite, la más antigua sale de memoria hacia la base de datos
+    private InFlight track(UserDeliveries user, Notification notification, Session session, int attempts) {
+        InFlight entry = new InFlight(notification, session, attempts);
+        user.inFlight.put(notification.getId(), entry);
+        inFlight.incrementAndGet();
+        if (user.inFlight.size() > maxInFlightPerUser) {
+            spillOldest(user);
+        }
+        return entry;
+    }
+
+    private void spillOldest(UserDeliveries user) {
+        Iterator<InFlight> oldest = user.inFlight.values().iterator();
+        InFlight entry = oldest.next();
+        oldest.remove();
+        inFlight.decrementAndGet();
+        if (entry.attempts >= maxAttempts) {
+            expired.increment();
+            return;
+        }
+        Instant at = Instant.now().plus(ackTimeout);
+        String id = entry.notification.getId();
+        user.marks.put(id, RedeliveryMark.spill(id, user.userId, at, entry.attempts));
+        user.spilled = true;
+        user.spilledUntil = at;
+        spilled.increment();
+    }
+
+    // Con el monitor del usuario: así las emisiones a una misma sesión nunca son concurrentes
+    private void redeliver(UserDeliveries user, InFlight entry, Session avoid) {
+        Session target = user.next(avoid);
+        if (target == null) {
+            return;
+        }
+        entry.session = target;
+        entry.attempts++;
+        schedule(user, entry);
+        redelivered.increment();
+        target.redeliveries.tryEmitNext(entry.notification);
+    }
+
+    private void schedule(UserDeliveries user, InFlight entry) {
+        int attempts = entry.attempts;
+        timer.schedule(Instant.now().plus(ackTimeout.multipliedBy(attempts)), () -> expire(user, entry, attempts));
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.redelivery.sweep-interval-ms:1000}")
+    public void sweep() {
+        sweepPending().subscribe(null, e -> log.error("Error en el barrido de reenvíos", e));
+    }
+
+    /**
+     * Escribe en lotes las marcas pendientes de todos los usuarios y después, para los que tienen marcas en la base de
+     * datos y vuelven a tener al menos la mitad de hueco, reclama las vencidas y las reenvía. Nunca hay dos barridos a
+     * la vez. Si una escritura falla sus marcas se pierden: las notificaciones siguen sin leer y llegan al reconectar.
+     * También escribe las marcas de los usuarios que se desconectaron desde el barrido anterior.
+     */
+    public Mono<Void> sweepPending() {
+        if (!enabled || !sweeping.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        List<RedeliveryMark> marks = new ArrayList<>();
+        List<UserDeliveries> refills = new ArrayList<>();
+        for (RedeliveryMark mark; (mark = orphanedMarks.poll()) != null; ) {
+            marks.add(mark);
+        }
+        for (UserDeliveries user : users.values()) {
+            synchronized (user) {
+                marks.addAll(user.marks.values());
+                user.marks.clear();
+                if (user.spilled && user.inFlight.size() <= maxInFlightPerUser / 2) {
+                    refills.add(user);
+                }
+            }
+        }
+        return Flux.fromIterable(marks)
+                .buffer(MARK_BATCH_SIZE)
+                .concatMap(batch -> notificationRepository.applyRedeliveryMarks(batch)
+                        .onErrorResume(e -> {
+                            log.warn("No se pudieron escribir {} marcas de reenvío: {}", batch.size(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .thenMany(Flux.fromIterable(refills).concatMap(this::refill))
+                .then()
+                .doFinally(signal -> sweeping.set(false));
+    }
+
+    private Mono<Long> refill(UserDeliveries user) {
+        int room;
+        Instant now = Instant.now();
+        synchronized (user) {
+            room = maxInFlightPerUser - user.inFlight.size();
+        }
+        return notificationRepository.claimRedeliveries(user.userId, now, room)
+                .doOnNext(notification -> {
+                    synchronized (user) {
+                        if (user.closed) {
+                            // Se desconectó mientras se reclamaba: vuelve a marcarse para cuando se reconecte
+                            orphanedMarks.add(RedeliveryMark.spill(notification.getId(), user.userId,
+                                    Instant.now().plus(ackTimeout), notification.getRedeliveries()));
+                        } else if (!user.inFlight.containsKey(notification.getId())) {
+                            redeliver(user, track(user, notification, null, notification.getRedeliveries()), null);
+                        }
+                    }
+                })
+                .count()
+                .doOnNext(claimed -> {
+                    synchronized (user) {
+                        // Ya no quedan marcas suyas: ni vencidas por reclamar ni escritas después
+                        if (claimed < room && user.marks.isEmpty() && !user.spilledUntil.isAfter(now)) {
+                            user.spilled = false;
+                        }
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.warn("No se pudieron recuperar los reenvíos de {}: {}", user.userId, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    // Notificaciones sin confirmar en memoria
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAcknowledged() {
+        return acknowledged.sum();
+    }
+
+    public long getRedelivered() {
+        return redelivered.sum();
+    }
+
+    // Abandonadas tras max-attempts escrituras sin confirmación
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    // Sacadas de memoria a la base de datos por superar max-in-flight-per-user
+    public long getSpilled() {
+        return spilled.sum();
+    }
+
+    /**
+     * Una conexión con acks: {@link #redeliveries()} se mezcla con sus eventos, {@link #sent} se llama con cada evento
+     * escrito y {@link #close()} al terminar. Una sesión sin usuario (acks no pedidos) no hace nada.
+     */
+    public final class Session {
+
+        private final UserDeliveries user;
+        // Solo se emite con el monitor del usuario, así que un sink unicast basta
+        private final Sinks.Many<Notification> redeliveries = Sinks.many().unicast().onBackpressureBuffer();
+        private boolean closed;
+
+        private Session(UserDeliveries user) {
+            this.user = user;
+        }
+
+        public Flux<Notification> redeliveries() {
+            return user != null ? redeliveries.asFlux() : Flux.empty();
+        }
+
+        // Notificación o resumen escrito en la conexión; de un resumen cuentan las notificaciones que lleva
+        public void sent(Object payload) {
+            if (user == null) {
+                return;
+            }
+            if (payload instanceof Notification notification) {
+                RedeliveryQueue.this.sent(this, notification);
+            } else if (payload instanceof NotificationDigest digest && digest.getLatest() != null) {
+                digest.getLatest().forEach(notification -> RedeliveryQueue.this.sent(this, notification));
+            }
+        }
+
+        public void close() {
+            if (user != null) {
+                RedeliveryQueue.this.close(this);
+            }
+        }
+    }
+}
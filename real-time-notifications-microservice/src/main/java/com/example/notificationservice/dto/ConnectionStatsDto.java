@@ -0,0 +1,21 @@
+package com.example.notificationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Conexiones SSE abiertas en esta réplica
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConnectionStatsDto {
+    private int totalConnections;
+    private int connectedUsers;
+    private Map<String, Integer> connectionsByEndpoint;
+    private int maxConnections;
+    private int maxConnectionsPerUser;
+    private long rejectedConnections;
+    private long reapedConnections;
+}
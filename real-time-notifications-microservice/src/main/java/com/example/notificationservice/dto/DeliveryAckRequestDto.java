@@ -0,0 +1,17 @@
+package com.example.notificationservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryAckRequestDto {
+    // IDs de las notificaciones que el cliente recibió por su flujo con acks
+    @NotEmpty(message = "Debe indicar al menos una notificación")
+    private List<String> notificationIds;
+}
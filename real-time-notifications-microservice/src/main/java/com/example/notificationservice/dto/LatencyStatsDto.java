@@ -0,0 +1,39 @@
+package com.example.notificationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Latencia de creación a entrega (POST -> escritura en la conexión) de un endpoint y prioridad, en microsegundos
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencyStatsDto {
+
+    private String endpoint;
+
+    private String priority;
+
+    // Último intervalo cerrado
+    private long intervalCount;
+
+    private long intervalP50Micros;
+
+    private long intervalP99Micros;
+
+    private long intervalP999Micros;
+
+    private long intervalMaxMicros;
+
+    // Acumulado desde el arranque
+    private long totalCount;
+
+    private long totalP50Micros;
+
+    private long totalP99Micros;
+
+    private long totalP999Micros;
+
+    private long totalMaxMicros;
+
+}
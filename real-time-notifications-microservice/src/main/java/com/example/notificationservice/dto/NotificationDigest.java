@@ -0,0 +1,34 @@
+package com.example.notificationservice.dto;
+
+import com.example.notificationservice.entity.Notification;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Resumen que sustituye a una ráfaga de notificaciones del mismo tipo para un usuario.
+ * Las notificaciones siguen guardadas una a una; el resumen solo afecta a la entrega.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationDigest {
+
+    private String userReferenceId;
+
+    private String type;
+
+    // Número total de notificaciones agrupadas
+    private int count;
+
+    private Instant firstTimestamp;
+
+    private Instant lastTimestamp;
+
+    // Las N notificaciones más recientes de la ráfaga, de la más antigua a la más nueva
+    private List<Notification> latest;
+
+}
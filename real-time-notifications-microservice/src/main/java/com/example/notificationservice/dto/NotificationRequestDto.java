@@ -1,10 +1,13 @@
 package com.example.notificationservice.dto;
 
+import com.example.notificationservice.entity.NotificationPriority;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -13,4 +16,17 @@ public class NotificationRequestDto {
     @NotBlank(message = "El mensaje no puede estar vacío")
     private String message;
 
+    // Opcional: si no se indica se usa el tipo "general"
+    private String type;
+
+    // Opcional: HIGH, NORMAL (por defecto) o LOW
+    private NotificationPriority priority;
+
+    // Opcional: fecha de entrega programada (ISO-8601); si es pasada o no se indica la entrega es inmediata
+    private Instant deliverAt;
+
+    public NotificationRequestDto(String message) {
+        this.message = message;
+    }
+
 }
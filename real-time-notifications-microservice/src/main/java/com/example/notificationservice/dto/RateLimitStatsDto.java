@@ -0,0 +1,30 @@
+package com.example.notificationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitStatsDto {
+
+    private boolean enabled;
+
+    // Límites por defecto vigentes, "rate,burst" por segundo
+    private String producerLimit;
+
+    private String targetLimit;
+
+    private int overrides;
+
+    // Claves con un bucket activo (los buckets llenos se eliminan periódicamente)
+    private int trackedProducers;
+
+    private int trackedTargets;
+
+    private long rejectedByProducer;
+
+    private long rejectedByTarget;
+
+}
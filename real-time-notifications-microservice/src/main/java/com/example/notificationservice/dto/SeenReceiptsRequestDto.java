@@ -0,0 +1,17 @@
+package com.example.notificationservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeenReceiptsRequestDto {
+    // IDs de las notificaciones que el cliente ya mostró al usuario
+    @NotEmpty(message = "Debe indicar al menos una notificación")
+    private List<String> notificationIds;
+}
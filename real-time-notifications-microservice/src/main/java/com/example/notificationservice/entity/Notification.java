@@ -1,10 +1,14 @@
 package com.example.notificationservice.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -14,6 +18,9 @@ import java.time.Instant;
 @AllArgsConstructor
 @Document(collection = "notifications")
 public class Notification {
+
+    public static final String DEFAULT_TYPE = "general";
+
     @Id
     private String id;
 
@@ -25,6 +32,48 @@ public class Notification {
 
     private boolean read;
 
+    // Tipo de notificación (p. ej. "general", "marketing"); define cómo se agrupan las ráfagas al entregarlas
+    private String type;
+
+    // Carril de ingesta y entrega; null equivale a NORMAL
+    private NotificationPriority priority;
+
+    // Entrega programada: null = inmediata
+    private Instant deliverAt;
+
+    // true mientras la entrega programada no se ha hecho; solo estas entran en el índice parcial "pending_delivery"
+    private boolean pendingDelivery;
+
+    // Estado de los recordatorios: cuántos se enviaron, cuándo fue el último y cuándo toca el siguiente (null = ninguno más)
+    private int reminderCount;
+
+    private Instant lastRemindedAt;
+
+    private Instant nextReminderAt;
+
+    // Acuses: primera escritura en una conexión del usuario (SSE/WebSocket) y primera vez que el cliente la mostró.
+    // Los escribe DeliveryReceiptTracker en lotes; null = todavía no
+    private Instant deliveredAt;
+
+    private Instant seenAt;
+
+    // Reenvío guardado en la base de datos porque el usuario tenía demasiadas sin confirmar en memoria, y cuántas veces
+    // se le había escrito ya sin confirmación. Los gestiona RedeliveryQueue; null = nada pendiente
+    private Instant redeliverAt;
+
+    private int redeliveries;
+
+    // System.nanoTime() al recibir el POST; solo vive en memoria de esta réplica (0 = no se mide su latencia de entrega)
+    @Transient
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private long ingestNanos;
+
+    public Notification(String id, String userReferenceId, String message, Instant timestamp, boolean read) {
+        this(id, userReferenceId, message, timestamp, read, null, null, null, false, 0, null, null, null, null, null, 0, 0L);
+    }
+
 }
 
 
@@ -0,0 +1,15 @@
+package com.example.notificationservice.entity;
+
+/**
+ * Prioridad de una notificación. Cada prioridad tiene su propio carril de ingesta y de entrega,
+ * y HIGH siempre se entrega antes que NORMAL y LOW.
+ */
+public enum NotificationPriority {
+    HIGH,   // Alertas de seguridad, avisos urgentes
+    NORMAL, // Valor por defecto
+    LOW;    // Envíos masivos (marketing, boletines)
+
+    public static NotificationPriority orDefault(NotificationPriority priority) {
+        return priority != null ? priority : NORMAL;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.notificationservice.events;
+
+import com.example.notificationservice.entity.Notification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+
+/**
+ * Bus en memoria del propio proceso. Sirve para pruebas y despliegues de un solo nodo.
+ */
+@Component
+@ConditionalOnProperty(name = "notifications.bus.type", havingValue = "in-memory", matchIfMissing = true)
+public class InMemoryNotificationEventBus implements NotificationEventBus {
+
+    // autoCancel=false: el bus sigue vivo aunque el último suscriptor se desconecte
+    private final Sinks.Many<Notification> sink = Sinks.many().multicast().onBackpressureBuffer(Queues.SMALL_BUFFER_SIZE, false);
+
+    @Override
+    public Mono<Void> publish(Notification notification) {
+        return Mono.fromRunnable(() -> sink.emitNext(notification, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100))));
+    }
+
+    @Override
+    public Flux<Notification> events() {
+        return sink.asFlux();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.notificationservice.events;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.utils.IdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bus respaldado por una colección capada de MongoDB leída con un tailable cursor.
+ * No necesita replica set (a diferencia de los change streams): cada réplica inserta sus eventos
+ * en la colección y mantiene abierto un cursor que recibe los de todas las réplicas.
+ * <p>
+ * El cursor sigue la colección en orden de inserción ({@code $natural}) y la posición es el último evento visto, no
+ * un rango de IDs: los IDs los genera el reloj de cada réplica, así que un evento de una réplica atrasada (o del mismo
+ * milisegundo con una secuencia menor) puede tener un ID menor que otro insertado antes.
+ */
+@Component
+@ConditionalOnProperty(name = "notifications.bus.type", havingValue = "mongo")
+public class MongoNotificationEventBus implements NotificationEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoNotificationEventBus.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final IdGenerator idGenerator;
+    private final String collection;
+    private final Mono<Void> ready;
+    // Identifica los eventos publicados por esta réplica, los únicos cuya latencia de entrega se puede medir
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public MongoNotificationEventBus(ReactiveMongoTemplate mongoTemplate,
+                                     IdGenerator idGenerator,
+                                     @Value("${notifications.bus.mongo.collection:notificationEvents}") String collection,
+                                     @Value("${notifications.bus.mongo.capped-size-bytes:16777216}") long cappedSizeBytes,
+                                     @Value("${notifications.bus.mongo.capped-max-documents:100000}") long cappedMaxDocuments) {
+        this.mongoTemplate = mongoTemplate;
+        this.idGenerator = idGenerator;
+        this.collection = collection;
+        // La colección debe existir y ser capada antes del primer insert, si no Mongo la crearía normal
+        this.ready = mongoTemplate.collectionExists(collection)
+                .flatMap(exists -> exists
+                        ? Mono.<Void>empty()
+                        : mongoTemplate.createCollection(collection, CollectionOptions.empty()
+                                        .capped()
+                                        .size(cappedSizeBytes)
+                                        .maxDocuments(cappedMaxDocuments))
+                                .then()
+                                // Otra réplica pudo crearla al mismo tiempo
+                                .onErrorResume(e -> Mono.empty()))
+                .cache();
+    }
+
+    @Override
+    public Mono<Void> publish(Notification notification) {
+        NotificationEvent event = new NotificationEvent(idGenerator.nextId(), notification, instanceId, notification.getIngestNanos());
+        return ready.then(mongoTemplate.insert(event, collection)).then();
+    }
+
+    @Override
+    public Flux<Notification> events() {
+        return Flux.defer(() -> {
+            // Solo interesan los eventos publicados desde que esta réplica se suscribe: se empieza tras el último
+            // evento de la colección (ninguno: todo lo que llegue es nuevo)
+            AtomicReference<String> cursor = new AtomicReference<>();
+            return ready.then(lastEventId())
+                    .doOnNext(cursor::set)
+                    .thenMany(Flux.defer(() -> tailAfter(cursor))
+                            .doOnNext(event -> cursor.set(event.getId()))
+                            // El cursor termina si la colección está vacía o se invalida; se reabre desde el último evento visto
+                            .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                            .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                                    .maxBackoff(Duration.ofSeconds(30))
+                                    .doBeforeRetry(signal -> log.warn("Reabriendo el cursor del bus de notificaciones: {}", signal.failure().getMessage()))))
+                    .map(this::toNotification);
+        });
+    }
+
+    // Último evento de la colección en orden de inserción
+    private Mono<String> lastEventId() {
+        Query last = new Query().with(Sort.by(Sort.Direction.DESC, "$natural")).limit(1);
+        last.fields().include("_id");
+        return mongoTemplate.findOne(last, NotificationEvent.class, collection).map(NotificationEvent::getId);
+    }
+
+    /**
+     * Cursor sobre toda la colección en orden de inserción que descarta hasta pasar el evento {@code cursor}.
+     * Si ese evento ya salió de la colección capada (la réplica estuvo parada o atrasada más de lo que cabe), los
+     * intermedios se han perdido: se avisa y se sigue desde el último evento actual.
+     */
+    private Flux<NotificationEvent> tailAfter(AtomicReference<String> cursor) {
+        String lastSeen = cursor.get();
+        if (lastSeen == null) {
+            return mongoTemplate.tail(new Query(), NotificationEvent.class, collection);
+        }
+        return mongoTemplate.exists(Query.query(Criteria.where("_id").is(lastSeen)), collection)
+                .flatMapMany(found -> {
+                    if (found) {
+                        return mongoTemplate.tail(new Query(), NotificationEvent.class, collection)
+                                .skipUntil(event -> lastSeen.equals(event.getId()))
+                                .skip(1);
+                    }
+                    log.warn("El evento {} ya no está en la colección del bus; se pierden los publicados desde entonces", lastSeen);
+                    return lastEventId()
+                            .doOnNext(cursor::set)
+                            .switchIfEmpty(Mono.fromRunnable(() -> cursor.set(null)))
+                            .thenMany(Flux.defer(() -> tailAfter(cursor)));
+                });
+    }
+
+    private Notification toNotification(NotificationEvent event) {
+        Notification notification = event.getNotification();
+        if (instanceId.equals(event.getOrigin())) {
+            notification.setIngestNanos(event.getIngestNanos());
+        }
+        return notification;
+    }
+}
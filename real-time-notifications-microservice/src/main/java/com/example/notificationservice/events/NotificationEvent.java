@@ -0,0 +1,25 @@
+package com.example.notificationservice.events;
+
+import com.example.notificationservice.entity.Notification;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+
+// Documento que viaja por la colección capada del bus de MongoDB
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationEvent {
+
+    // ID ordenable por tiempo; el cursor del bus lo usa para reconocer el último evento visto, no como rango
+    @Id
+    private String id;
+
+    private Notification notification;
+
+    // Réplica que publicó el evento y su marca de llegada (System.nanoTime()); solo esa réplica puede usarla
+    private String origin;
+
+    private long ingestNanos;
+}
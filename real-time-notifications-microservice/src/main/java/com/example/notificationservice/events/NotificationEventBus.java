@@ -0,0 +1,19 @@
+package com.example.notificationservice.events;
+
+import com.example.notificationservice.entity.Notification;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bus de eventos de notificaciones compartido entre réplicas.
+ * Cada réplica publica las notificaciones que crea y se suscribe una sola vez a {@link #events()}
+ * para repartirlas localmente entre sus clientes SSE, sin importar en qué pod se crearon.
+ */
+public interface NotificationEventBus {
+
+    // Publica una notificación para todas las réplicas (incluida la propia)
+    Mono<Void> publish(Notification notification);
+
+    // Flujo de notificaciones publicadas a partir del momento de la suscripción
+    Flux<Notification> events();
+}
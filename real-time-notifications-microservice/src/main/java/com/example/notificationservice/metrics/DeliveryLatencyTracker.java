@@ -0,0 +1,153 @@
+package com.example.notificationservice.metrics;
+
+import com.example.notificationservice.dto.LatencyStatsDto;
+import com.example.notificationservice.dto.NotificationDigest;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Latencia de extremo a extremo: desde que llega el POST ({@link Notification#getIngestNanos()}) hasta que
+ * la notificación se escribe en cada conexión SSE o WebSocket.
+ * <ul>
+ *     <li>Un {@link Recorder} de HdrHistogram por endpoint y prioridad; registrar un valor no bloquea ni reserva memoria.</li>
+ *     <li>Cada {@code interval-ms} se cierra el intervalo: sus percentiles se publican como gauges
+ *     ({@code notifications.delivery.latency}) y se suman al histograma acumulado.</li>
+ *     <li>Solo se miden las notificaciones creadas en esta réplica: el reloj monótono no es comparable entre procesos.
+ *     Las entregas programadas y los recordatorios tampoco, su retraso es intencionado.</li>
+ * </ul>
+ */
+@Component
+public class DeliveryLatencyTracker {
+
+    // Por encima de una hora el valor se acota: ya no importa el detalle, solo que salga en el máximo
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final MeterRegistry registry;
+    private final int significantDigits;
+    private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<>();
+
+    public DeliveryLatencyTracker(MeterRegistry registry,
+                                  @Value("${notifications.latency.significant-digits:3}") int significantDigits) {
+        this.registry = registry;
+        this.significantDigits = significantDigits;
+    }
+
+    // Se llama justo antes de escribir el evento en la conexión
+    public void recordDelivery(String endpoint, Object payload) {
+        if (payload instanceof Notification notification) {
+            record(endpoint, notification);
+        } else if (payload instanceof NotificationDigest digest && digest.getLatest() != null) {
+            digest.getLatest().forEach(notification -> record(endpoint, notification));
+        }
+    }
+
+    public void record(String endpoint, Notification notification) {
+        long ingestNanos = notification.getIngestNanos();
+        if (ingestNanos != 0) {
+            record(endpoint, notification.getPriority(), System.nanoTime() - ingestNanos);
+        }
+    }
+
+    public void record(String endpoint, NotificationPriority priority, long latencyNanos) {
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(latencyNanos), 0), HIGHEST_TRACKABLE_MICROS);
+        seriesFor(endpoint, NotificationPriority.orDefault(priority)).recorder.recordValue(micros);
+    }
+
+    // Cierra el intervalo de todas las series; los escritores siguen registrando en el siguiente sin esperar
+    @Scheduled(fixedRateString = "${notifications.latency.interval-ms:10000}")
+    public void rollInterval() {
+        series.values().forEach(Series::roll);
+    }
+
+    public List<LatencyStatsDto> getStats() {
+        return series.values().stream()
+                .sorted(Comparator.comparing((Series s) -> s.endpoint).thenComparing(s -> s.priority))
+                .map(Series::toDto)
+                .toList();
+    }
+
+    private Series seriesFor(String endpoint, NotificationPriority priority) {
+        Series current = series.get(endpoint + ':' + priority.name());
+        return current != null ? current : series.computeIfAbsent(endpoint + ':' + priority.name(), key -> register(endpoint, priority));
+    }
+
+    private Series register(String endpoint, NotificationPriority priority) {
+        Series created = new Series(endpoint, priority, significantDigits);
+        registerGauge(created, "0.5", s -> s.interval.p50());
+        registerGauge(created, "0.99", s -> s.interval.p99());
+        registerGauge(created, "0.999", s -> s.interval.p999());
+        registerGauge(created, "1.0", s -> s.interval.max());
+        return created;
+    }
+
+    private void registerGauge(Series target, String quantile, ToLongFunction<Series> value) {
+        Gauge.builder("notifications.delivery.latency", target, s -> value.applyAsLong(s) / 1_000_000.0)
+                .description("Latencia de creación a entrega en el último intervalo")
+                .baseUnit("seconds")
+                .tag("endpoint", target.endpoint)
+                .tag("priority", target.priority.name())
+                .tag("quantile", quantile)
+                .register(registry);
+    }
+
+    // Percentiles de un histograma, en microsegundos
+    private record Snapshot(long count, long p50, long p99, long p999, long max) {
+
+        static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0);
+
+        static Snapshot of(Histogram histogram) {
+            if (histogram.getTotalCount() == 0) {
+                return EMPTY;
+            }
+            return new Snapshot(histogram.getTotalCount(), histogram.getValueAtPercentile(50.0),
+                    histogram.getValueAtPercentile(99.0), histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+        }
+    }
+
+    private static final class Series {
+
+        final String endpoint;
+        final NotificationPriority priority;
+        final Recorder recorder;
+        // Solo los toca el hilo que cierra el intervalo (roll está sincronizado)
+        private final Histogram total;
+        private Histogram recycled;
+        volatile Snapshot interval = Snapshot.EMPTY;
+        volatile Snapshot cumulative = Snapshot.EMPTY;
+
+        Series(String endpoint, NotificationPriority priority, int significantDigits) {
+            this.endpoint = endpoint;
+            this.priority = priority;
+            this.recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, significantDigits);
+            this.total = new Histogram(HIGHEST_TRACKABLE_MICROS, significantDigits);
+        }
+
+        synchronized void roll() {
+            Histogram closed = recorder.getIntervalHistogram(recycled);
+            total.add(closed);
+            interval = Snapshot.of(closed);
+            cumulative = Snapshot.of(total);
+            recycled = closed;
+        }
+
+        LatencyStatsDto toDto() {
+            Snapshot i = interval;
+            Snapshot c = cumulative;
+            return new LatencyStatsDto(endpoint, priority.name(), i.count(), i.p50(), i.p99(), i.p999(), i.max(),
+                    c.count(), c.p50(), c.p99(), c.p999(), c.max());
+        }
+    }
+}
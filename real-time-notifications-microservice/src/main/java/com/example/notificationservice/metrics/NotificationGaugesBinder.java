@@ -0,0 +1,157 @@
+package com.example.notificationservice.metrics;
+
+import com.example.notificationservice.audit.DeliveryAuditLog;
+import com.example.notificationservice.delivery.RedeliveryQueue;
+import com.example.notificationservice.entity.NotificationPriority;
+import com.example.notificationservice.ratelimit.NotificationRateLimiter;
+import com.example.notificationservice.receipts.DeliveryReceiptTracker;
+import com.example.notificationservice.scheduling.WheelTimer;
+import com.example.notificationservice.security.PasswordHashingService;
+import com.example.notificationservice.service.NotificationLanes;
+import com.example.notificationservice.service.NotificationService;
+import com.example.notificationservice.service.PriorityDeliveryQueue;
+import com.example.notificationservice.sse.SseConnectionRegistry;
+import com.example.notificationservice.sse.SseFrameBroadcaster;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges y contadores que se leen de los componentes al hacer scrape (sin coste por evento):
+ * conexiones SSE y canales del flujo global, colas de los carriles y de entrega, entregas programadas, rechazos del
+ * limitador, pool de contraseñas
+ * registro de auditoría de entregas, acuses de entrega/visto y reenvíos sin confirmar.
+ */
+@Component
+public class NotificationGaugesBinder implements MeterBinder {
+
+    private static final String[] SSE_ENDPOINTS = {"user-stream", "unread-stream"};
+
+    private final SseConnectionRegistry connectionRegistry;
+    private final NotificationLanes lanes;
+    private final NotificationService notificationService;
+    private final WheelTimer wheelTimer;
+    private final NotificationRateLimiter rateLimiter;
+    private final PasswordHashingService passwordHashing;
+    private final DeliveryAuditLog auditLog;
+    private final DeliveryReceiptTracker receipts;
+    private final RedeliveryQueue redeliveryQueue;
+    private final SseFrameBroadcaster frameBroadcaster;
+
+    public NotificationGaugesBinder(SseConnectionRegistry connectionRegistry, NotificationLanes lanes,
+                                    NotificationService notificationService, WheelTimer wheelTimer,
+                                    NotificationRateLimiter rateLimiter, PasswordHashingService passwordHashing,
+                                    DeliveryAuditLog auditLog, DeliveryReceiptTracker receipts,
+                                    RedeliveryQueue redeliveryQueue, SseFrameBroadcaster frameBroadcaster) {
+        this.connectionRegistry = connectionRegistry;
+        this.lanes = lanes;
+        this.notificationService = notificationService;
+        this.wheelTimer = wheelTimer;
+        this.rateLimiter = rateLimiter;
+        this.passwordHashing = passwordHashing;
+        this.auditLog = auditLog;
+        this.receipts = receipts;
+        this.redeliveryQueue = redeliveryQueue;
+        this.frameBroadcaster = frameBroadcaster;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String endpoint : SSE_ENDPOINTS) {
+            Gauge.builder("notifications.sse.connections", connectionRegistry, r -> r.getConnections(endpoint))
+                    .description("Conexiones SSE abiertas")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+        }
+        Gauge.builder("notifications.sse.channels", frameBroadcaster, SseFrameBroadcaster::getChannels)
+                .description("Canales distintos (formato y filtro) del flujo global; las conexiones con el mismo filtro lo comparten")
+                .register(registry);
+
+        PriorityDeliveryQueue deliveryQueue = notificationService.getDeliveryQueue();
+        for (NotificationPriority priority : NotificationPriority.values()) {
+            Gauge.builder("notifications.lanes.queued", lanes, l -> l.getQueued(priority))
+                    .description("Creaciones esperando en la cola del carril")
+                    .tag("priority", priority.name())
+                    .register(registry);
+            FunctionCounter.builder("notifications.lanes.rejected", lanes, l -> l.getRejected(priority))
+                    .description("Creaciones rechazadas con 503 por carril lleno")
+                    .tag("priority", priority.name())
+                    .register(registry);
+            Gauge.builder("notifications.delivery.queue.depth", deliveryQueue, q -> q.getDepth(priority))
+                    .description("Notificaciones esperando a entrar en el sink")
+                    .tag("priority", priority.name())
+                    .register(registry);
+        }
+        FunctionCounter.builder("notifications.delivery.dropped", deliveryQueue, PriorityDeliveryQueue::getDropped)
+                .description("Entregas en vivo descartadas por cola de entrega llena")
+                .register(registry);
+        FunctionCounter.builder("notifications.delivery.overflowed", deliveryQueue, PriorityDeliveryQueue::getOverflowed)
+                .description("Entregas en vivo descartadas porque el sink siguió lleno tras agotar los reintentos")
+                .register(registry);
+
+        Gauge.builder("notifications.scheduled.pending", wheelTimer, WheelTimer::getPending)
+                .description("Entregas programadas y recordatorios en la rueda de tiempo")
+                .register(registry);
+
+        FunctionCounter.builder("notifications.rate_limit.rejected", rateLimiter, l -> l.getStats().getRejectedByProducer())
+                .tag("limit", NotificationRateLimiter.PRODUCER)
+                .register(registry);
+        FunctionCounter.builder("notifications.rate_limit.rejected", rateLimiter, l -> l.getStats().getRejectedByTarget())
+                .tag("limit", NotificationRateLimiter.TARGET)
+                .register(registry);
+
+        Gauge.builder("password.hash.queued", passwordHashing, PasswordHashingService::getQueued)
+                .description("Hashes de contraseña esperando en la cola del pool")
+                .register(registry);
+        Gauge.builder("password.hash.active", passwordHashing, PasswordHashingService::getActive)
+                .description("Hilos del pool de contraseñas calculando un hash")
+                .register(registry);
+        FunctionCounter.builder("password.hash.rejected", passwordHashing, PasswordHashingService::getRejected)
+                .description("Operaciones rechazadas con el pool de contraseñas saturado")
+                .register(registry);
+
+        FunctionCounter.builder("notifications.audit.written", auditLog, DeliveryAuditLog::getWritten)
+                .description("Entregas escritas en el registro de auditoría")
+                .register(registry);
+        FunctionCounter.builder("notifications.audit.dropped", auditLog, DeliveryAuditLog::getDropped)
+                .description("Registros de auditoría descartados por cola llena")
+                .register(registry);
+        Gauge.builder("notifications.audit.backlog", auditLog, DeliveryAuditLog::getBacklog)
+                .description("Registros de auditoría esperando al hilo de escritura")
+                .register(registry);
+
+        FunctionCounter.builder("notifications.receipts.events", receipts, DeliveryReceiptTracker::getEvents)
+                .description("Acuses de entrega y de visto registrados")
+                .register(registry);
+        FunctionCounter.builder("notifications.receipts.writes", receipts, DeliveryReceiptTracker::getWrites)
+                .description("Operaciones masivas de escritura de acuses")
+                .register(registry);
+        FunctionCounter.builder("notifications.receipts.updated", receipts, DeliveryReceiptTracker::getUpdated)
+                .description("Notificaciones modificadas por los acuses")
+                .register(registry);
+        FunctionCounter.builder("notifications.receipts.dropped", receipts, DeliveryReceiptTracker::getDropped)
+                .description("Acuses descartados por demasiados pendientes")
+                .register(registry);
+        Gauge.builder("notifications.receipts.pending", receipts, DeliveryReceiptTracker::getPending)
+                .description("Notificaciones con acuses esperando a escribirse")
+                .register(registry);
+
+        Gauge.builder("notifications.redelivery.in_flight", redeliveryQueue, RedeliveryQueue::getInFlight)
+                .description("Notificaciones escritas sin confirmar en memoria")
+                .register(registry);
+        FunctionCounter.builder("notifications.redelivery.acknowledged", redeliveryQueue, RedeliveryQueue::getAcknowledged)
+                .description("Entregas confirmadas por los clientes")
+                .register(registry);
+        FunctionCounter.builder("notifications.redelivery.redelivered", redeliveryQueue, RedeliveryQueue::getRedelivered)
+                .description("Reenvíos por falta de confirmación, cierre de conexión o cola llena")
+                .register(registry);
+        FunctionCounter.builder("notifications.redelivery.expired", redeliveryQueue, RedeliveryQueue::getExpired)
+                .description("Notificaciones abandonadas tras el máximo de intentos")
+                .register(registry);
+        FunctionCounter.builder("notifications.redelivery.spilled", redeliveryQueue, RedeliveryQueue::getSpilled)
+                .description("Notificaciones sin confirmar sacadas de memoria a la base de datos")
+                .register(registry);
+    }
+}
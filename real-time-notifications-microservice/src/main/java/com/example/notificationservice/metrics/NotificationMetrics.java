@@ -0,0 +1,97 @@
+package com.example.notificationservice.metrics;
+
+import com.example.notificationservice.entity.NotificationPriority;
+import com.example.notificationservice.security.PasswordHashingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Sinks;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas de la ruta de notificaciones.
+ * Todos los medidores se registran al arrancar y se guardan en tablas por enum, así que registrar un evento
+ * no busca en el registro ni crea objetos.
+ */
+@Component
+public class NotificationMetrics {
+
+    private final Map<NotificationPriority, Timer> createSuccess = new EnumMap<>(NotificationPriority.class);
+    private final Map<NotificationPriority, Timer> createError = new EnumMap<>(NotificationPriority.class);
+    private final Map<Sinks.EmitResult, Counter> emitResults = new EnumMap<>(Sinks.EmitResult.class);
+    private final Timer jwtValidation;
+    private final Counter jwtKeyCacheHits;
+    private final Counter jwtKeyCacheMisses;
+    private final Map<PasswordHashingService.Operation, Timer> passwordHashWait = new EnumMap<>(PasswordHashingService.Operation.class);
+    private final Map<PasswordHashingService.Operation, Timer> passwordHash = new EnumMap<>(PasswordHashingService.Operation.class);
+
+    public NotificationMetrics(MeterRegistry registry) {
+        for (NotificationPriority priority : NotificationPriority.values()) {
+            createSuccess.put(priority, createTimer(registry, priority, "success"));
+            createError.put(priority, createTimer(registry, priority, "error"));
+        }
+        for (Sinks.EmitResult result : Sinks.EmitResult.values()) {
+            emitResults.put(result, Counter.builder("notifications.sink.emit")
+                    .description("Resultados de tryEmitNext en el sink de notificaciones")
+                    .tag("result", result.name())
+                    .register(registry));
+        }
+        jwtValidation = Timer.builder("jwt.validation")
+                .description("Tiempo de verificar la firma y los claims de un JWT")
+                .publishPercentileHistogram()
+                .register(registry);
+        jwtKeyCacheHits = Counter.builder("jwt.key.cache").tag("result", "hit").register(registry);
+        jwtKeyCacheMisses = Counter.builder("jwt.key.cache").tag("result", "miss").register(registry);
+        for (PasswordHashingService.Operation operation : PasswordHashingService.Operation.values()) {
+            String tag = operation.name().toLowerCase();
+            passwordHashWait.put(operation, Timer.builder("password.hash.queue.wait")
+                    .description("Espera en la cola del pool de contraseñas")
+                    .tag("operation", tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            passwordHash.put(operation, Timer.builder("password.hash")
+                    .description("Tiempo de calcular o verificar un hash BCrypt")
+                    .tag("operation", tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    private static Timer createTimer(MeterRegistry registry, NotificationPriority priority, String outcome) {
+        return Timer.builder("notifications.create")
+                .description("Tiempo de crear, guardar y publicar una notificación")
+                .tag("priority", priority.name())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void recordCreate(NotificationPriority priority, long startNanos, boolean success) {
+        NotificationPriority lane = NotificationPriority.orDefault(priority);
+        (success ? createSuccess : createError).get(lane).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordEmit(Sinks.EmitResult result) {
+        emitResults.get(result).increment();
+    }
+
+    public void recordJwtValidation(long startNanos) {
+        jwtValidation.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordJwtKeyCache(boolean hit) {
+        (hit ? jwtKeyCacheHits : jwtKeyCacheMisses).increment();
+    }
+
+    public void recordPasswordHashWait(PasswordHashingService.Operation operation, long nanos) {
+        passwordHashWait.get(operation).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPasswordHash(PasswordHashingService.Operation operation, long nanos) {
+        passwordHash.get(operation).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.notificationservice.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Envuelve los repositorios reactivos para medir cada método ({@code mongo.repository{repository,method}}).
+ * <p>
+ * Los métodos reactivos devuelven el Mono/Flux sin haber hablado con Mongo, así que el tiempo se mide desde la
+ * suscripción hasta la señal final, no alrededor de la llamada. Los timers se cachean por repositorio y método.
+ */
+@Component
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    // ObjectProvider: los BeanPostProcessor se crean antes que el MeterRegistry
+    public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof ReactiveCrudRepository<?, ?>)) {
+            return bean;
+        }
+        Class<?>[] interfaces = ClassUtils.getAllInterfaces(bean);
+        // Un mapa por repositorio: los métodos heredados (save, findById...) son el mismo Method en todos
+        ConcurrentHashMap<Method, Timer> timers = new ConcurrentHashMap<>();
+        return Proxy.newProxyInstance(bean.getClass().getClassLoader(), interfaces,
+                (proxy, method, args) -> invoke(bean, beanName, timers, method, args));
+    }
+
+    private Object invoke(Object target, String repository, ConcurrentHashMap<Method, Timer> timers,
+                          Method method, Object[] args) throws Throwable {
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+        if (result instanceof Mono<?> mono) {
+            Timer timer = timers.computeIfAbsent(method, m -> timer(repository, m));
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return mono.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+            });
+        }
+        if (result instanceof Flux<?> flux) {
+            Timer timer = timers.computeIfAbsent(method, m -> timer(repository, m));
+            return Flux.defer(() -> {
+                long start = System.nanoTime();
+                return flux.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+            });
+        }
+        return result;
+    }
+
+    private Timer timer(String repository, Method method) {
+        return Timer.builder("mongo.repository")
+                .description("Tiempo desde la suscripción hasta el final de cada método de repositorio")
+                .tag("repository", repository)
+                .tag("method", method.getName())
+                .publishPercentileHistogram()
+                .register(registry.getObject());
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.notificationservice.ratelimit;
+
+import com.example.notificationservice.dto.RateLimitStatsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Control de admisión para la creación de notificaciones.
+ * <p>
+ * Cada petición consume un token del bucket de su productor (el usuario del JWT) y otro del bucket del
+ * usuario destino, de modo que ni un productor desbocado ni un destino inundado afectan al resto.
+ * Los límites por defecto vienen de la configuración y se pueden sobrescribir por clave en un fichero
+ * ({@code notifications.rate-limit.overrides-file}) que se relee en caliente cuando cambia:
+ * <pre>
+ * producer.default=20,40
+ * target.default=10,20
+ * producer.batch-job@example.com=200,400
+ * target.64f1c2...=50,100
+ * </pre>
+ */
+@Component
+public class NotificationRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationRateLimiter.class);
+
+    public static final String PRODUCER = "producer";
+    public static final String TARGET = "target";
+
+    private final boolean enabled;
+    private final RateLimit baseProducerLimit;
+    private final RateLimit baseTargetLimit;
+    private final Path overridesFile;
+
+    private final TokenBucketLimiter producers = new TokenBucketLimiter();
+    private final TokenBucketLimiter targets = new TokenBucketLimiter();
+
+    // Se reemplaza entero al recargar: las lecturas nunca ven una configuración a medias
+    private volatile Limits limits;
+    private volatile long overridesLastModified = -1;
+
+    public NotificationRateLimiter(@Value("${notifications.rate-limit.enabled:true}") boolean enabled,
+                                   @Value("${notifications.rate-limit.producer:20,40}") String producerLimit,
+                                   @Value("${notifications.rate-limit.target:10,20}") String targetLimit,
+                                   @Value("${notifications.rate-limit.overrides-file:}") String overridesFile) {
+        this.enabled = enabled;
+        this.baseProducerLimit = RateLimit.parse(producerLimit);
+        this.baseTargetLimit = RateLimit.parse(targetLimit);
+        this.overridesFile = overridesFile.isBlank() ? null : Path.of(overridesFile);
+        this.limits = new Limits(baseProducerLimit, baseTargetLimit, Map.of(), Map.of());
+        reloadOverrides();
+    }
+
+    /**
+     * Intenta admitir una notificación del productor hacia el usuario destino.
+     */
+    public RateLimitDecision tryAcquire(String producer, String target) {
+        if (!enabled) {
+            return RateLimitDecision.ALLOWED;
+        }
+        Limits current = limits;
+        long now = System.nanoTime();
+        long wait = producers.tryAcquire(producer, current.producerLimit(producer), now);
+        if (wait > 0) {
+            return RateLimitDecision.rejected(PRODUCER, wait);
+        }
+        wait = targets.tryAcquire(target, current.targetLimit(target), now);
+        if (wait > 0) {
+            return RateLimitDecision.rejected(TARGET, wait);
+        }
+        return RateLimitDecision.ALLOWED;
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.rate-limit.reload-interval-ms:5000}")
+    public void reloadOverrides() {
+        if (overridesFile == null) {
+            return;
+        }
+        try {
+            if (!Files.exists(overridesFile)) {
+                return;
+            }
+            long lastModified = Files.getLastModifiedTime(overridesFile).toMillis();
+            if (lastModified == overridesLastModified) {
+                return;
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(overridesFile)) {
+                properties.load(reader);
+            }
+            limits = parse(properties);
+            overridesLastModified = lastModified;
+            log.info("Límites de creación de notificaciones recargados desde {}", overridesFile);
+        } catch (IOException | IllegalArgumentException e) {
+            // Un fichero mal formado no debe dejar el servicio sin límites: se mantienen los anteriores
+            log.error("No se pudieron recargar los límites desde {}: {}", overridesFile, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.rate-limit.evict-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        producers.evictIdle(now);
+        targets.evictIdle(now);
+    }
+
+    public RateLimitStatsDto getStats() {
+        Limits current = limits;
+        return new RateLimitStatsDto(enabled, current.producerDefault().toString(), current.targetDefault().toString(),
+                current.producerOverrides().size() + current.targetOverrides().size(),
+                producers.size(), targets.size(), producers.getRejected(), targets.getRejected());
+    }
+
+    private Limits parse(Properties properties) {
+        RateLimit producerDefault = baseProducerLimit;
+        RateLimit targetDefault = baseTargetLimit;
+        Map<String, RateLimit> producerOverrides = new HashMap<>();
+        Map<String, RateLimit> targetOverrides = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            RateLimit limit = RateLimit.parse(properties.getProperty(name));
+            if (name.equals(PRODUCER + ".default")) {
+                producerDefault = limit;
+            } else if (name.equals(TARGET + ".default")) {
+                targetDefault = limit;
+            } else if (name.startsWith(PRODUCER + ".")) {
+                producerOverrides.put(name.substring(PRODUCER.length() + 1), limit);
+            } else if (name.startsWith(TARGET + ".")) {
+                targetOverrides.put(name.substring(TARGET.length() + 1), limit);
+            } else {
+                throw new IllegalArgumentException("Clave desconocida: " + name);
+            }
+        }
+        return new Limits(producerDefault, targetDefault, Map.copyOf(producerOverrides), Map.copyOf(targetOverrides));
+    }
+
+    private record Limits(RateLimit producerDefault, RateLimit targetDefault,
+                          Map<String, RateLimit> producerOverrides, Map<String, RateLimit> targetOverrides) {
+
+        RateLimit producerLimit(String producer) {
+            return producerOverrides.getOrDefault(producer, producerDefault);
+        }
+
+        RateLimit targetLimit(String target) {
+            return targetOverrides.getOrDefault(target, targetDefault);
+        }
+    }
+
+    /**
+     * Resultado de la admisión: si se rechaza, qué límite se superó y cuándo volver a intentarlo.
+     */
+    public record RateLimitDecision(boolean allowed, String limitedBy, Duration retryAfter) {
+
+        static final RateLimitDecision ALLOWED = new RateLimitDecision(true, null, Duration.ZERO);
+
+        static RateLimitDecision rejected(String limitedBy, long waitNanos) {
+            return new RateLimitDecision(false, limitedBy, Duration.ofNanos(waitNanos));
+        }
+
+        // Segundos enteros para la cabecera Retry-After (como mínimo 1)
+        public long retryAfterSeconds() {
+            return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.notificationservice.ratelimit;
+
+/**
+ * Límite de un token bucket: {@code ratePerSecond} tokens repuestos por segundo y como mucho {@code burst} acumulados.
+ */
+public record RateLimit(double ratePerSecond, int burst) {
+
+    public RateLimit {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("El límite debe tener rate > 0 y burst >= 1");
+        }
+    }
+
+    // Formato "rate,burst", p. ej. "20,40"
+    public static RateLimit parse(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Límite inválido: '" + value + "' (se espera rate,burst)");
+        }
+        return new RateLimit(Double.parseDouble(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    }
+
+    @Override
+    public String toString() {
+        return ratePerSecond + "," + burst;
+    }
+
+    // Nanosegundos que tarda en reponerse un token
+    long emissionIntervalNanos() {
+        return (long) (1_000_000_000L / ratePerSecond);
+    }
+}
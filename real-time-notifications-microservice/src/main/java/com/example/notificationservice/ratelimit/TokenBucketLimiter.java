@@ -0,0 +1,70 @@
+package com.example.notificationservice.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets por clave sin bloqueos, implementados con GCRA (generic cell rate algorithm).
+ * <p>
+ * El estado de cada clave es un único long, el "theoretical arrival time" (TAT), que se actualiza con CAS:
+ * no hay hilo de recarga ni locks, y un bucket lleno equivale a TAT en el pasado, así que se puede borrar
+ * sin perder nada. El límite se pasa en cada llamada para que un cambio de configuración aplique al instante.
+ */
+final class TokenBucketLimiter {
+
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Consume un token de {@code key}. Devuelve 0 si se admite o los nanosegundos que faltan para que haya uno.
+     */
+    long tryAcquire(String key, RateLimit limit, long nowNanos) {
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(nowNanos));
+        long interval = limit.emissionIntervalNanos();
+        long burstWindow = interval * limit.burst();
+        while (true) {
+            long tat = bucket.tat.get();
+            long newTat = Math.max(tat, nowNanos) + interval;
+            long allowAt = newTat - burstWindow;
+            if (nowNanos < allowAt) {
+                bucket.rejected.increment();
+                rejected.increment();
+                return allowAt - nowNanos;
+            }
+            if (bucket.tat.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    // Los buckets llenos (TAT pasado) no guardan información: se eliminan para acotar la memoria a las claves activas
+    int evictIdle(long nowNanos) {
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.tat.get() <= nowNanos);
+        return before - buckets.size();
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    long getRejected() {
+        return rejected.sum();
+    }
+
+    long getRejected(String key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket.rejected.sum() : 0;
+    }
+
+    private static final class Bucket {
+
+        private final AtomicLong tat;
+        private final LongAdder rejected = new LongAdder();
+
+        private Bucket(long tat) {
+            this.tat = new AtomicLong(tat);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.notificationservice.receipts;
+
+import java.time.Instant;
+
+/**
+ * Acuses pendientes de escribir de una notificación. Cada campo guarda el instante más temprano visto (null = sin
+ * acuse de ese tipo); la escritura usa {@code $min}, así que aplicar dos veces o en otro orden da lo mismo.
+ * El usuario va en el filtro de la escritura: nadie puede marcar notificaciones de otro.
+ */
+public record DeliveryReceipt(String notificationId, String userReferenceId, Instant deliveredAt, Instant seenAt) {
+
+    public static DeliveryReceipt delivered(String notificationId, String userReferenceId, Instant at) {
+        return new DeliveryReceipt(notificationId, userReferenceId, at, null);
+    }
+
+    // Vista implica entregada: si no se registró la entrega (p. ej. se leyó por REST) cuenta desde que se vio
+    public static DeliveryReceipt seen(String notificationId, String userReferenceId, Instant at) {
+        return new DeliveryReceipt(notificationId, userReferenceId, at, at);
+    }
+
+    public DeliveryReceipt merge(DeliveryReceipt other) {
+        return new DeliveryReceipt(notificationId, userReferenceId, earliest(deliveredAt, other.deliveredAt),
+                earliest(seenAt, other.seenAt));
+    }
+
+    private static Instant earliest(Instant a, Instant b) {
+        return a == null ? b : b == null || a.isBefore(b) ? a : b;
+    }
+}
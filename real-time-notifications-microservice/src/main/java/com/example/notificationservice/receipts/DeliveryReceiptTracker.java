@@ -0,0 +1,204 @@
+package com.example.notificationservice.receipts;
+
+import com.example.notificationservice.dto.NotificationDigest;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Acuses de entrega ({@code deliveredAt}: la notificación se escribió en una conexión SSE/WebSocket de su usuario)
+ * y de visto ({@code seenAt}: lo informa el cliente).
+ * <ul>
+ *     <li>Registrar un acuse no toca la base de datos: se combina en un mapa por notificación con lo pendiente de
+ *     esa notificación (el instante más temprano de cada tipo). Mil entregas de la misma notificación en varios
+ *     dispositivos son una sola escritura.</li>
+ *     <li>Cada {@code flush-interval} se vacía el mapa en lotes de {@code batch-size} y cada lote es una operación
+ *     masiva ({@link NotificationRepository#applyReceipts}). Un lote que falla vuelve al mapa para el siguiente ciclo.</li>
+ *     <li>Con {@code max-pending} notificaciones esperando (la base de datos no da abasto o no responde) los acuses
+ *     de notificaciones nuevas se descartan y se cuentan; la entrega nunca espera.</li>
+ * </ul>
+ */
+@Component
+public class DeliveryReceiptTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryReceiptTracker.class);
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+    // Un acuse es de un usuario: el de otro sobre el mismo ID no se combina con él
+    private record Key(String userReferenceId, String notificationId) {
+    }
+
+    private final NotificationRepository notificationRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxPending;
+
+    private final ConcurrentHashMap<Key, DeliveryReceipt> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+
+    @Autowired
+    public DeliveryReceiptTracker(NotificationRepository notificationRepository,
+                                  @Value("${notifications.receipts.enabled:true}") boolean enabled,
+                                  @Value("${notifications.receipts.batch-size:1000}") int batchSize,
+                                  @Value("${notifications.receipts.max-pending:200000}") int maxPending) {
+        this.notificationRepository = notificationRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+    }
+
+    // Acuses desactivados, para componentes que se construyen a mano (pruebas)
+    public static DeliveryReceiptTracker disabled() {
+        return new DeliveryReceiptTracker(null, false, 1, 0);
+    }
+
+    // Se llama al escribir el evento en una conexión de userId; las de otros usuarios (flujo global) no son entregas
+    public void recordDelivery(String userId, Object payload) {
+        if (payload instanceof Notification notification) {
+            delivered(userId, notification);
+        } else if (payload instanceof NotificationDigest digest && digest.getLatest() != null) {
+            digest.getLatest().forEach(notification -> delivered(userId, notification));
+        }
+    }
+
+    public void delivered(String userId, Notification notification) {
+        if (enabled && notification.getId() != null && Objects.equals(userId, notification.getUserReferenceId())) {
+            record(DeliveryReceipt.delivered(notification.getId(), userId, Instant.now()));
+        }
+    }
+
+    // El cliente de userId mostró estas notificaciones; las que no son suyas no cambian al escribir
+    public void seen(String userId, Collection<String> notificationIds) {
+        if (!enabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        for (String id : notificationIds) {
+            record(DeliveryReceipt.seen(id, userId, now));
+        }
+    }
+
+    private void record(DeliveryReceipt receipt) {
+        events.increment();
+        Key key = key(receipt);
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            dropped.increment();
+            return;
+        }
+        pending.merge(key, receipt, DeliveryReceipt::merge);
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.receipts.flush-interval-ms:1000}")
+    public void flush() {
+        flushPending().subscribe(null, e -> log.error("Error al escribir los acuses de entrega", e));
+    }
+
+    /**
+     * Escribe lo pendiente en lotes, uno detrás de otro. Los lotes se sacan del mapa al pedirlos, así que lo que
+     * llega mientras se escribe entra en un lote posterior o en el siguiente ciclo. Si un lote falla se para: ese lote
+     * vuelve al mapa al terminar y el resto no se llegó a sacar. Si se cancela (al cerrar, por tiempo) vuelve al mapa
+     * todo lo sacado que no se confirmó, también el lote en curso: aplicarlo dos veces no cambia nada porque se queda
+     * el instante más temprano. Nunca hay dos vaciados a la vez.
+     */
+    public Mono<Long> flushPending() {
+        if (!enabled || pending.isEmpty() || !flushing.compareAndSet(false, true)) {
+            return Mono.just(0L);
+        }
+        Iterator<Key> keys = pending.keySet().iterator();
+        // Sacado del mapa y aún sin confirmar en la base de datos
+        Map<Key, DeliveryReceipt> taken = new ConcurrentHashMap<>();
+        return Flux.<DeliveryReceipt>generate(sink -> {
+                    while (keys.hasNext()) {
+                        Key key = keys.next();
+                        DeliveryReceipt receipt = pending.remove(key);
+                        if (receipt != null) {
+                            taken.put(key, receipt);
+                            sink.next(receipt);
+                            return;
+                        }
+                    }
+                    sink.complete();
+                })
+                .buffer(batchSize)
+                .concatMap(batch -> notificationRepository.applyReceipts(batch)
+                        .doOnNext(count -> {
+                            batch.forEach(receipt -> taken.remove(key(receipt)));
+                            writes.incrementAndGet();
+                            updated.addAndGet(count);
+                        }))
+                .reduce(0L, Long::sum)
+                .onErrorResume(e -> {
+                    log.warn("No se pudo escribir un lote de {} acuses, se reintenta en el siguiente ciclo: {}",
+                            taken.size(), e.getMessage());
+                    return Mono.just(0L);
+                })
+                .doFinally(signal -> {
+                    taken.forEach((key, receipt) -> pending.merge(key, receipt, DeliveryReceipt::merge));
+                    flushing.set(false);
+                });
+    }
+
+    private static Key key(DeliveryReceipt receipt) {
+        return new Key(receipt.userReferenceId(), receipt.notificationId());
+    }
+
+    // Acuses registrados (entregas + vistos)
+    public long getEvents() {
+        return events.sum();
+    }
+
+    // Operaciones masivas ejecutadas
+    public long getWrites() {
+        return writes.get();
+    }
+
+    public long getUpdated() {
+        return updated.get();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int getPending() {
+        return pending.size();
+    }
+
+    // Espera al vaciado programado que esté en curso y escribe lo que quede
+    @PreDestroy
+    public void close() {
+        long deadline = System.nanoTime() + CLOSE_TIMEOUT.toNanos();
+        while (flushing.get() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(Duration.ofMillis(10).toNanos());
+        }
+        try {
+            flushPending().block(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+        } catch (RuntimeException e) {
+            log.warn("No se escribieron {} acuses pendientes al cerrar: {}", pending.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.notificationservice.repository;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.OffsetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link FluentQuery.ReactiveFluentQuery} de {@code findBy(Example, ...)} para los repositorios que no delegan en
+ * Spring Data (el de memoria y el particionado). Cada uno aporta cómo buscar con un orden y un límite
+ * ({@link Finder}); aquí se resuelven el resto de operaciones y la conversión al tipo pedido.
+ * <p>
+ * {@code project(...)} no recorta campos: se devuelven los documentos completos, que contienen lo proyectado.
+ * El desplazamiento por keyset no está soportado, solo por offset.
+ */
+public final class InProcessFluentQuery<S, R> implements FluentQuery.ReactiveFluentQuery<R> {
+
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    @FunctionalInterface
+    public interface Finder<S> {
+
+        // limit = 0: sin límite
+        Flux<S> find(Sort sort, int limit);
+    }
+
+    private final Finder<S> finder;
+    private final Class<R> resultType;
+    private final Sort sort;
+    private final int limit;
+
+    private InProcessFluentQuery(Finder<S> finder, Class<R> resultType, Sort sort, int limit) {
+        this.finder = finder;
+        this.resultType = resultType;
+        this.sort = sort;
+        this.limit = limit;
+    }
+
+    public static <S> InProcessFluentQuery<S, S> of(Class<S> domainType, Finder<S> finder) {
+        return new InProcessFluentQuery<>(finder, domainType, Sort.unsorted(), 0);
+    }
+
+    @Override
+    public ReactiveFluentQuery<R> sortBy(Sort sort) {
+        return new InProcessFluentQuery<>(finder, resultType, this.sort.and(sort), limit);
+    }
+
+    @Override
+    public ReactiveFluentQuery<R> limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("El límite no puede ser negativo");
+        }
+        return new InProcessFluentQuery<>(finder, resultType, sort, limit);
+    }
+
+    @Override
+    public <N> ReactiveFluentQuery<N> as(Class<N> resultType) {
+        return new InProcessFluentQuery<>(finder, resultType, sort, limit);
+    }
+
+    @Override
+    public ReactiveFluentQuery<R> project(Collection<String> properties) {
+        return this;
+    }
+
+    @Override
+    public Mono<R> one() {
+        return finder.find(sort, 2).collectList().flatMap(found -> found.size() > 1
+                ? Mono.error(new IncorrectResultSizeDataAccessException(1, found.size()))
+                : Mono.justOrEmpty(found.isEmpty() ? null : convert(found.get(0))));
+    }
+
+    @Override
+    public Mono<R> first() {
+        return finder.find(sort, 1).next().map(this::convert);
+    }
+
+    @Override
+    public Flux<R> all() {
+        return finder.find(sort, limit).map(this::convert);
+    }
+
+    @Override
+    public Mono<Window<R>> scroll(ScrollPosition position) {
+        if (!(position instanceof OffsetScrollPosition offset)) {
+            return ReactiveFluentQuery.super.scroll(position);
+        }
+        // Desde una posición no inicial se sigue con el elemento siguiente; se pide uno más para saber si hay otra ventana
+        long skip = offset.isInitial() ? 0 : offset.getOffset() + 1;
+        int size = limit > 0 ? limit : Integer.MAX_VALUE - 1;
+        return finder.find(sort, (int) Math.min(Integer.MAX_VALUE, skip + size + 1))
+                .skip(skip)
+                .map(this::convert)
+                .collectList()
+                .map(found -> Window.from(found.subList(0, Math.min(size, found.size())), offset.positionFunction(),
+                        found.size() > size));
+    }
+
+    @Override
+    public Mono<Page<R>> page(Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return finder.find(sort.and(pageable.getSort()), 0).map(this::convert).collectList()
+                    .map(content -> new PageImpl<>(content, pageable, content.size()));
+        }
+        Mono<List<R>> content = finder.find(sort.and(pageable.getSort()),
+                        (int) Math.min(Integer.MAX_VALUE, pageable.getOffset() + pageable.getPageSize()))
+                .skip(pageable.getOffset())
+                .map(this::convert)
+                .collectList();
+        return content.zipWith(count(), (found, total) -> new PageImpl<>(found, pageable, total));
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return finder.find(Sort.unsorted(), 0).count();
+    }
+
+    @Override
+    public Mono<Boolean> exists() {
+        return finder.find(Sort.unsorted(), 1).hasElements();
+    }
+
+    // La entidad tal cual si ya es del tipo pedido; una interfaz como proyección y una clase copiando propiedades
+    private R convert(S document) {
+        if (resultType.isInstance(document)) {
+            return resultType.cast(document);
+        }
+        if (resultType.isInterface()) {
+            return PROJECTIONS.createProjection(resultType, document);
+        }
+        R result = BeanUtils.instantiateClass(resultType);
+        BeanUtils.copyProperties(document, result);
+        return result;
+    }
+}
@@ -1,18 +1,37 @@
 package com.example.notificationservice.repository;
 
 import com.example.notificationservice.entity.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+
 @Repository
-public interface NotificationRepository extends ReactiveMongoRepository<Notification, String> {
+public interface NotificationRepository extends ReactiveMongoRepository<Notification, String>, NotificationRepositoryCustom {
     // Devuelve todas las notificaciones para un usuario específico
     Flux<Notification> findByUserReferenceId(String userReferenceId);
 
     //Devuelve todos los  userID o los mutiples userID que tienen el mismo mensaje
     Flux<Notification> findByMessage(String message);
 
+    // Paginación por cursor (keyset) sobre los IDs ordenados por tiempo: notificaciones no leídas de un usuario después de un ID
+    Flux<Notification> findByUserReferenceIdAndReadFalseAndIdGreaterThanOrderByIdAsc(String userReferenceId, String id, Pageable pageable);
+
+    // Igual que el anterior pero para todos los usuarios
+    Flux<Notification> findByReadFalseAndIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
+
+    // Entregas programadas pendientes (usan el índice parcial "pending_delivery")
+    Flux<Notification> findByPendingDeliveryTrue();
+
+    Flux<Notification> findByPendingDeliveryTrueAndDeliverAtBefore(Instant deliverAt);
+
+    // Recordatorios pendientes (el rango sobre nextReminderAt usa el índice parcial "pending_reminder")
+    Flux<Notification> findByNextReminderAtAfter(Instant nextReminderAt);
+
+    Flux<Notification> findByNextReminderAtBetween(Instant from, Instant to);
+
     //Mono<Notification> findByMessage(String message);
 }
@@ -0,0 +1,48 @@
+package com.example.notificationservice.repository;
+
+import com.example.notificationservice.delivery.RedeliveryMark;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.receipts.DeliveryReceipt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Operaciones atómicas que no se pueden derivar del nombre del método. Cada motor de almacenamiento las implementa
+ * a su manera (findAndModify en Mongo, compute sobre el mapa en memoria); los servicios solo ven el repositorio.
+ */
+public interface NotificationRepositoryCustom {
+
+    // Pasa pendingDelivery de true a false; vacío si otra réplica ya la reclamó
+    Mono<Notification> claimScheduledDelivery(String notificationId);
+
+    /**
+     * Registra el recordatorio número {@code reminderCount + 1} si la notificación sigue sin leer, ya se entregó,
+     * nadie lo ha enviado (mismo reminderCount) y ya venció. {@code nextReminderAt} null = era el último.
+     */
+    Mono<Notification> claimReminder(String notificationId, int reminderCount, Instant now, Instant nextReminderAt);
+
+    /**
+     * Aplica un lote de acuses en una sola operación: cada campo solo baja (el primer instante gana) y solo en
+     * notificaciones del usuario del acuse. Devuelve cuántas notificaciones cambiaron.
+     */
+    Mono<Long> applyReceipts(Collection<DeliveryReceipt> receipts);
+
+    // Pone o quita en una sola operación las marcas de reenvío de un lote (solo en notificaciones del usuario de la marca)
+    Mono<Long> applyRedeliveryMarks(Collection<RedeliveryMark> marks);
+
+    /**
+     * Quita la marca de reenvío a hasta {@code limit} notificaciones sin leer del usuario cuya marca ya venció y las
+     * devuelve; cada una la reclama una sola vez aunque dos réplicas lo intenten a la vez.
+     */
+    Flux<Notification> claimRedeliveries(String userReferenceId, Instant now, int limit);
+
+    // Índices parciales de las entregas programadas, de los recordatorios y de los reenvíos pendientes
+    Mono<Void> ensurePendingDeliveryIndex();
+
+    Mono<Void> ensureReminderIndex();
+
+    Mono<Void> ensureRedeliveryIndex();
+}
@@ -0,0 +1,153 @@
+package com.example.notificationservice.repository;
+
+import com.example.notificationservice.delivery.RedeliveryMark;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.receipts.DeliveryReceipt;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+
+// Implementación MongoDB de NotificationRepositoryCustom; Spring Data la combina con el repositorio derivado y el
+// almacenamiento particionado crea una por partición
+public class NotificationRepositoryCustomImpl implements NotificationRepositoryCustom {
+
+    static final String PENDING_INDEX = "pending_delivery";
+    static final String REMINDER_INDEX = "pending_reminder";
+    static final String REDELIVERY_INDEX = "pending_redelivery";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final String collection;
+
+    @Autowired
+    public NotificationRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) {
+        this(mongoTemplate, mongoTemplate.getCollectionName(Notification.class));
+    }
+
+    public NotificationRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate, String collection) {
+        this.mongoTemplate = mongoTemplate;
+        this.collection = collection;
+    }
+
+    @Override
+    public Mono<Notification> claimScheduledDelivery(String notificationId) {
+        Query pending = Query.query(Criteria.where("_id").is(notificationId).and("pendingDelivery").is(true));
+        return mongoTemplate.findAndModify(pending, Update.update("pendingDelivery", false),
+                FindAndModifyOptions.options().returnNew(true), Notification.class, collection);
+    }
+
+    @Override
+    public Mono<Notification> claimReminder(String notificationId, int reminderCount, Instant now, Instant nextReminderAt) {
+        Query query = Query.query(Criteria.where("_id").is(notificationId)
+                .and("read").is(false)
+                .and("pendingDelivery").is(false)
+                .and("reminderCount").is(reminderCount)
+                .and("nextReminderAt").lte(now));
+        Update update = new Update()
+                .set("reminderCount", reminderCount + 1)
+                .set("lastRemindedAt", now);
+        if (nextReminderAt != null) {
+            update.set("nextReminderAt", nextReminderAt);
+        } else {
+            update.unset("nextReminderAt");  // Sale del índice parcial: no habrá más recordatorios
+        }
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Notification.class, collection);
+    }
+
+    // Un bulkWrite desordenado con un updateOne por notificación; $min deja el primer instante aunque otra réplica escriba antes
+    @Override
+    public Mono<Long> applyReceipts(Collection<DeliveryReceipt> receipts) {
+        if (receipts.isEmpty()) {
+            return Mono.just(0L);
+        }
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class, collection);
+        for (DeliveryReceipt receipt : receipts) {
+            Update update = new Update();
+            if (receipt.deliveredAt() != null) {
+                update.min("deliveredAt", receipt.deliveredAt());
+            }
+            if (receipt.seenAt() != null) {
+                update.min("seenAt", receipt.seenAt());
+            }
+            bulk.updateOne(Query.query(Criteria.where("_id").is(receipt.notificationId())
+                    .and("userReferenceId").is(receipt.userReferenceId())), update);
+        }
+        return bulk.execute().map(result -> (long) result.getModifiedCount());
+    }
+
+    @Override
+    public Mono<Long> applyRedeliveryMarks(Collection<RedeliveryMark> marks) {
+        if (marks.isEmpty()) {
+            return Mono.just(0L);
+        }
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class, collection);
+        for (RedeliveryMark mark : marks) {
+            Update update = mark.redeliverAt() != null
+                    ? new Update().set("redeliverAt", mark.redeliverAt()).set("redeliveries", mark.redeliveries())
+                    : new Update().unset("redeliverAt");  // Sale del índice parcial
+            bulk.updateOne(Query.query(Criteria.where("_id").is(mark.notificationId())
+                    .and("userReferenceId").is(mark.userReferenceId())), update);
+        }
+        return bulk.execute().map(result -> (long) result.getModifiedCount());
+    }
+
+    // Lectura por el índice parcial y un findAndModify por notificación: solo devuelve las que esta llamada desmarcó
+    @Override
+    public Flux<Notification> claimRedeliveries(String userReferenceId, Instant now, int limit) {
+        Query candidates = Query.query(Criteria.where("userReferenceId").is(userReferenceId)
+                        .and("read").is(false)
+                        .and("redeliverAt").gt(Instant.EPOCH).lte(now))  // Mismo filtro que el índice parcial
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit);
+        candidates.fields().include("_id");
+        return mongoTemplate.find(candidates, Notification.class, collection)
+                .concatMap(candidate -> mongoTemplate.findAndModify(
+                        Query.query(Criteria.where("_id").is(candidate.getId()).and("redeliverAt").gt(Instant.EPOCH).lte(now)),
+                        new Update().unset("redeliverAt"),
+                        FindAndModifyOptions.options().returnNew(true), Notification.class, collection));
+    }
+
+    @Override
+    public Mono<Void> ensurePendingDeliveryIndex() {
+        Index index = new Index()
+                .on("pendingDelivery", Sort.Direction.ASC)
+                .on("deliverAt", Sort.Direction.ASC)
+                .named(PENDING_INDEX)
+                .partial(PartialIndexFilter.of(new Document("pendingDelivery", true)));
+        return mongoTemplate.indexOps(collection).ensureIndex(index).then();
+    }
+
+    @Override
+    public Mono<Void> ensureReminderIndex() {
+        // Mismo filtro que las consultas (nextReminderAt > EPOCH) para que Mongo pueda usar el índice parcial
+        Index index = new Index()
+                .on("nextReminderAt", Sort.Direction.ASC)
+                .named(REMINDER_INDEX)
+                .partial(PartialIndexFilter.of(new Document("nextReminderAt", new Document("$gt", Date.from(Instant.EPOCH)))));
+        return mongoTemplate.indexOps(collection).ensureIndex(index).then();
+    }
+
+    @Override
+    public Mono<Void> ensureRedeliveryIndex() {
+        Index index = new Index()
+                .on("userReferenceId", Sort.Direction.ASC)
+                .on("redeliverAt", Sort.Direction.ASC)
+                .named(REDELIVERY_INDEX)
+                .partial(PartialIndexFilter.of(new Document("redeliverAt", new Document("$gt", Date.from(Instant.EPOCH)))));
+        return mongoTemplate.indexOps(collection).ensureIndex(index).then();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.notificationservice.repository;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Sort;
+
+import java.util.Comparator;
+
+/**
+ * Un {@link Sort} de Spring Data como {@link Comparator} sobre entidades, para ordenar en memoria lo que no ordena
+ * Mongo (el almacenamiento en memoria, la mezcla de particiones). Sigue el orden de Mongo: los null van primero en
+ * ascendente y últimos en descendente, salvo que el {@code Sort.Order} indique otra cosa.
+ */
+public final class SortComparators {
+
+    private SortComparators() {
+    }
+
+    public static <T> Comparator<T> of(Sort sort) {
+        Comparator<T> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            comparator = comparator.thenComparing(of(order));
+        }
+        return comparator;
+    }
+
+    private static <T> Comparator<T> of(Sort.Order order) {
+        // "_id" es el nombre en Mongo de la propiedad id
+        String property = order.getProperty().equals("_id") ? "id" : order.getProperty();
+        Comparator<Object> values = order.isIgnoreCase() ? SortComparators::compareIgnoringCase : SortComparators::compare;
+        boolean nullsFirst = switch (order.getNullHandling()) {
+            case NULLS_FIRST -> true;
+            case NULLS_LAST -> false;
+            case NATIVE -> order.isAscending();
+        };
+        Comparator<Object> directed = order.isAscending() ? values : values.reversed();
+        Comparator<Object> withNulls = nullsFirst ? Comparator.nullsFirst(directed) : Comparator.nullsLast(directed);
+        return (a, b) -> withNulls.compare(read(a, property), read(b, property));
+    }
+
+    // Acepta rutas anidadas ("a.b"); un tramo intermedio null cuenta como valor null, como un campo ausente en Mongo
+    private static Object read(Object entity, String property) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+        try {
+            return wrapper.getPropertyValue(property);
+        } catch (NullValueInNestedPathException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private static int compareIgnoringCase(Object a, Object b) {
+        return a instanceof String left && b instanceof String right ? left.compareToIgnoreCase(right) : compare(a, b);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.notificationservice.repository.memory;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.support.ExampleMatcherAccessor;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Un {@link Example} como condición sobre los documentos en memoria, con la semántica de {@code Criteria.byExample}
+ * en Mongo: cuenta cada propiedad persistida de la sonda que tenga valor (los tipos primitivos siempre lo tienen),
+ * salvo las ignoradas, y con {@code NullHandler.INCLUDE} también las null. Las cadenas se comparan con el
+ * {@code StringMatcher} y el ignoreCase de su ruta; el resto con equals, también los objetos anidados.
+ */
+final class ExampleMatching {
+
+    private ExampleMatching() {
+    }
+
+    static <T> Predicate<T> predicate(Example<?> example) {
+        Object probe = example.getProbe();
+        ExampleMatcher matcher = example.getMatcher();
+        ExampleMatcherAccessor accessor = new ExampleMatcherAccessor(matcher);
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(probe);
+
+        List<Predicate<Object>> checks = new ArrayList<>();
+        for (PropertyDescriptor descriptor : wrapper.getPropertyDescriptors()) {
+            String path = descriptor.getName();
+            if (descriptor.getReadMethod() == null || !isPersisted(probe.getClass(), path) || accessor.isIgnoredPath(path)) {
+                continue;
+            }
+            Object expected = accessor.getValueTransformerForPath(path)
+                    .apply(Optional.ofNullable(wrapper.getPropertyValue(path)))
+                    .orElse(null);
+            if (expected != null) {
+                Predicate<Object> matches = matches(accessor, path, expected);
+                checks.add(document -> matches.test(read(document, path)));
+            } else if (accessor.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE) {
+                checks.add(document -> read(document, path) == null);
+            }
+        }
+
+        Class<?> type = example.getProbeType();
+        Predicate<Object> criteria = checks.stream()
+                .reduce(matcher.isAllMatching() ? Predicate::and : Predicate::or)
+                .orElse(document -> true);
+        return document -> type.isInstance(document) && criteria.test(document);
+    }
+
+    // Lo que Spring Data guarda: campos propios o heredados que no son estáticos ni transitorios
+    private static boolean isPersisted(Class<?> type, String property) {
+        Field field = ReflectionUtils.findField(type, property);
+        return field != null
+                && !Modifier.isStatic(field.getModifiers())
+                && !Modifier.isTransient(field.getModifiers())
+                && !field.isAnnotationPresent(Transient.class);
+    }
+
+    private static Predicate<Object> matches(ExampleMatcherAccessor accessor, String path, Object expected) {
+        if (!(expected instanceof String pattern)) {
+            return actual -> Objects.equals(expected, actual);
+        }
+        boolean ignoreCase = accessor.isIgnoreCaseForPath(path);
+        Predicate<String> matches = switch (accessor.getStringMatcherForPath(path)) {
+            case DEFAULT, EXACT -> ignoreCase ? pattern::equalsIgnoreCase : pattern::equals;
+            case STARTING -> text -> text.regionMatches(ignoreCase, 0, pattern, 0, pattern.length());
+            case ENDING -> text -> text.regionMatches(ignoreCase, text.length() - pattern.length(), pattern, 0, pattern.length());
+            case CONTAINING -> {
+                String lower = pattern.toLowerCase(Locale.ROOT);
+                yield ignoreCase ? text -> text.toLowerCase(Locale.ROOT).contains(lower) : text -> text.contains(pattern);
+            }
+            case REGEX -> Pattern.compile(pattern, ignoreCase ? Pattern.CASE_INSENSITIVE : 0).asPredicate();
+        };
+        return actual -> actual instanceof String text && matches.test(text);
+    }
+
+    private static Object read(Object document, String property) {
+        return PropertyAccessorFactory.forBeanPropertyAccess(document).getPropertyValue(property);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.notificationservice.repository.memory;
+
+import com.example.notificationservice.entity.JwtSecret;
+import com.example.notificationservice.repository.JwtSecretRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+
+// Secretos JWT en memoria; la colección tiene uno o muy pocos documentos, así que no lleva índices
+@Repository
+@Profile("memory")
+public class InMemoryJwtSecretRepository extends InMemoryRepository<JwtSecret> implements JwtSecretRepository {
+
+    public InMemoryJwtSecretRepository(MemoryStore store) {
+        super(store, JwtSecret.class);
+        recover();
+    }
+
+    @Override
+    protected String idOf(JwtSecret secret) {
+        return secret.getId();
+    }
+
+    @Override
+    protected void assignId(JwtSecret secret, String id) {
+        secret.setId(id);
+    }
+
+    @Override
+    protected JwtSecret copy(JwtSecret secret) {
+        return new JwtSecret(secret.getId(), secret.getSecret());
+    }
+
+    @Override
+    protected void index(JwtSecret secret) {
+    }
+
+    @Override
+    protected void unindex(JwtSecret secret) {
+    }
+
+    @Override
+    public Mono<JwtSecret> findFirstByOrderByIdAsc() {
+        return Mono.fromSupplier(() -> documents.values().stream()
+                .min(Comparator.comparing(JwtSecret::getId))
+                .map(this::copy)
+                .orElse(null));
+    }
+}
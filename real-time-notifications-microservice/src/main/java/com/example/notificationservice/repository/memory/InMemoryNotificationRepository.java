@@ -0,0 +1,245 @@
+package com.example.notificationservice.repository.memory;
+
+import com.example.notificationservice.delivery.RedeliveryMark;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.receipts.DeliveryReceipt;
+import com.example.notificationservice.repository.NotificationRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+/**
+ * Notificaciones en memoria. Índices: por usuario, por mensaje, no leídas (por usuario y globales, ordenadas
+ * por ID para la paginación por cursor), entregas programadas pendientes y recordatorios ordenados por
+ * nextReminderAt; son los mismos accesos que cubren los índices de Mongo.
+ */
+@Repository
+@Profile("memory")
+public class InMemoryNotificationRepository extends InMemoryRepository<Notification> implements NotificationRepository {
+
+    // Clave del índice de recordatorios; id null ordena detrás de cualquier ID del mismo instante (cota superior)
+    private record ReminderKey(Instant at, String id) {
+        static final Comparator<ReminderKey> ORDER = Comparator.comparing(ReminderKey::at)
+                .thenComparing(ReminderKey::id, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<String>> byUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> byMessage = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<String>> unreadByUser = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> unread = new ConcurrentSkipListSet<>();
+    private final Set<String> pendingDelivery = ConcurrentHashMap.newKeySet();
+    private final ConcurrentSkipListSet<ReminderKey> reminders = new ConcurrentSkipListSet<>(ReminderKey.ORDER);
+
+    public InMemoryNotificationRepository(MemoryStore store) {
+        super(store, Notification.class);
+        recover();
+    }
+
+    @Override
+    protected String idOf(Notification notification) {
+        return notification.getId();
+    }
+
+    @Override
+    protected void assignId(Notification notification, String id) {
+        notification.setId(id);
+    }
+
+    @Override
+    protected Notification copy(Notification n) {
+        return new Notification(n.getId(), n.getUserReferenceId(), n.getMessage(), n.getTimestamp(), n.isRead(), n.getType(),
+                n.getPriority(), n.getDeliverAt(), n.isPendingDelivery(), n.getReminderCount(), n.getLastRemindedAt(),
+                n.getNextReminderAt(), n.getDeliveredAt(), n.getSeenAt(), n.getRedeliverAt(), n.getRedeliveries(), 0L);
+    }
+
+    @Override
+    protected void index(Notification n) {
+        String id = n.getId();
+        addTo(byUser, n.getUserReferenceId(), id, ConcurrentSkipListSet::new);
+        addTo(byMessage, n.getMessage(), id, ConcurrentHashMap::newKeySet);
+        if (!n.isRead()) {
+            addTo(unreadByUser, n.getUserReferenceId(), id, ConcurrentSkipListSet::new);
+            unread.add(id);
+        }
+        if (n.isPendingDelivery()) {
+            pendingDelivery.add(id);
+        }
+        if (n.getNextReminderAt() != null) {
+            reminders.add(new ReminderKey(n.getNextReminderAt(), id));
+        }
+    }
+
+    @Override
+    protected void unindex(Notification n) {
+        String id = n.getId();
+        removeFrom(byUser, n.getUserReferenceId(), id);
+        removeFrom(byMessage, n.getMessage(), id);
+        if (!n.isRead()) {
+            removeFrom(unreadByUser, n.getUserReferenceId(), id);
+            unread.remove(id);
+        }
+        if (n.isPendingDelivery()) {
+            pendingDelivery.remove(id);
+        }
+        if (n.getNextReminderAt() != null) {
+            reminders.remove(new ReminderKey(n.getNextReminderAt(), id));
+        }
+    }
+
+    @Override
+    public Flux<Notification> findByUserReferenceId(String userReferenceId) {
+        return Flux.defer(() -> resolve(byUser.getOrDefault(userReferenceId, new ConcurrentSkipListSet<>()),
+                n -> Objects.equals(userReferenceId, n.getUserReferenceId())));
+    }
+
+    @Override
+    public Flux<Notification> findByMessage(String message) {
+        if (message == null) {
+            return scan(n -> n.getMessage() == null);
+        }
+        return Flux.defer(() -> resolve(byMessage.getOrDefault(message, Set.of()), n -> message.equals(n.getMessage())));
+    }
+
+    @Override
+    public Flux<Notification> findByUserReferenceIdAndReadFalseAndIdGreaterThanOrderByIdAsc(String userReferenceId, String id,
+                                                                                             Pageable pageable) {
+        return Flux.defer(() -> page(after(unreadByUser.getOrDefault(userReferenceId, new ConcurrentSkipListSet<>()), id),
+                n -> !n.isRead() && Objects.equals(userReferenceId, n.getUserReferenceId()), pageable));
+    }
+
+    @Override
+    public Flux<Notification> findByReadFalseAndIdGreaterThanOrderByIdAsc(String id, Pageable pageable) {
+        return Flux.defer(() -> page(after(unread, id), n -> !n.isRead(), pageable));
+    }
+
+    private static Set<String> after(ConcurrentSkipListSet<String> ids, String id) {
+        return id != null ? ids.tailSet(id, false) : ids;
+    }
+
+    private Flux<Notification> page(Set<String> ids, Predicate<Notification> condition, Pageable pageable) {
+        Flux<Notification> matches = resolve(ids, condition);
+        return pageable.isPaged() ? matches.skip(pageable.getOffset()).take(pageable.getPageSize()) : matches;
+    }
+
+    @Override
+    public Flux<Notification> findByPendingDeliveryTrue() {
+        return Flux.defer(() -> resolve(pendingDelivery, Notification::isPendingDelivery));
+    }
+
+    @Override
+    public Flux<Notification> findByPendingDeliveryTrueAndDeliverAtBefore(Instant deliverAt) {
+        return Flux.defer(() -> resolve(pendingDelivery,
+                n -> n.isPendingDelivery() && n.getDeliverAt() != null && n.getDeliverAt().isBefore(deliverAt)));
+    }
+
+    // After/Between derivados en Mongo son $gt / $gt + $lt: ambos extremos excluidos
+    @Override
+    public Flux<Notification> findByNextReminderAtAfter(Instant nextReminderAt) {
+        return Flux.defer(() -> resolve(reminderIds(nextReminderAt, null),
+                n -> n.getNextReminderAt() != null && n.getNextReminderAt().isAfter(nextReminderAt)));
+    }
+
+    @Override
+    public Flux<Notification> findByNextReminderAtBetween(Instant from, Instant to) {
+        return Flux.defer(() -> resolve(reminderIds(from, to),
+                n -> n.getNextReminderAt() != null && n.getNextReminderAt().isAfter(from) && n.getNextReminderAt().isBefore(to)));
+    }
+
+    private Iterable<String> reminderIds(Instant after, Instant before) {
+        return () -> reminders.tailSet(new ReminderKey(after, null), false).stream()
+                .takeWhile(key -> before == null || key.at().isBefore(before))
+                .map(ReminderKey::id)
+                .iterator();
+    }
+
+    @Override
+    public Mono<Notification> claimScheduledDelivery(String notificationId) {
+        return modify(notificationId, Notification::isPendingDelivery, n -> n.setPendingDelivery(false));
+    }
+
+    @Override
+    public Mono<Notification> claimReminder(String notificationId, int reminderCount, Instant now, Instant nextReminderAt) {
+        return modify(notificationId,
+                n -> !n.isRead() && !n.isPendingDelivery() && n.getReminderCount() == reminderCount
+                        && n.getNextReminderAt() != null && !n.getNextReminderAt().isAfter(now),
+                n -> {
+                    n.setReminderCount(reminderCount + 1);
+                    n.setLastRemindedAt(now);
+                    n.setNextReminderAt(nextReminderAt);
+                });
+    }
+
+    @Override
+    public Mono<Long> applyReceipts(Collection<DeliveryReceipt> receipts) {
+        return Flux.fromIterable(receipts)
+                .concatMap(receipt -> modify(receipt.notificationId(),
+                        n -> Objects.equals(receipt.userReferenceId(), n.getUserReferenceId())
+                                && (earlier(receipt.deliveredAt(), n.getDeliveredAt()) || earlier(receipt.seenAt(), n.getSeenAt())),
+                        n -> {
+                            if (earlier(receipt.deliveredAt(), n.getDeliveredAt())) {
+                                n.setDeliveredAt(receipt.deliveredAt());
+                            }
+                            if (earlier(receipt.seenAt(), n.getSeenAt())) {
+                                n.setSeenAt(receipt.seenAt());
+                            }
+                        }))
+                .count();
+    }
+
+    // Lo mismo que $min: el valor nuevo gana si no había ninguno o es anterior
+    private static boolean earlier(Instant candidate, Instant current) {
+        return candidate != null && (current == null || candidate.isBefore(current));
+    }
+
+    @Override
+    public Mono<Long> applyRedeliveryMarks(Collection<RedeliveryMark> marks) {
+        return Flux.fromIterable(marks)
+                .concatMap(mark -> modify(mark.notificationId(),
+                        n -> Objects.equals(mark.userReferenceId(), n.getUserReferenceId())
+                                && (mark.redeliverAt() != null || n.getRedeliverAt() != null),
+                        n -> {
+                            n.setRedeliverAt(mark.redeliverAt());
+                            if (mark.redeliverAt() != null) {
+                                n.setRedeliveries(mark.redeliveries());
+                            }
+                        }))
+                .count();
+    }
+
+    // Sin índice propio: se recorren las no leídas del usuario, que es donde están todas las marcadas
+    @Override
+    public Flux<Notification> claimRedeliveries(String userReferenceId, Instant now, int limit) {
+        Predicate<Notification> due = n -> !n.isRead() && n.getRedeliverAt() != null && !n.getRedeliverAt().isAfter(now);
+        return Flux.defer(() -> resolve(unreadByUser.getOrDefault(userReferenceId, new ConcurrentSkipListSet<>()),
+                        n -> due.test(n) && Objects.equals(userReferenceId, n.getUserReferenceId())))
+                .take(limit)
+                .concatMap(candidate -> modify(candidate.getId(), due, n -> n.setRedeliverAt(null)));
+    }
+
+    // Los índices se mantienen siempre; no hay nada que crear
+    @Override
+    public Mono<Void> ensurePendingDeliveryIndex() {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> ensureReminderIndex() {
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Void> ensureRedeliveryIndex() {
+        return Mono.empty();
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.notificationservice.repository.memory;
+
+import com.example.notificationservice.repository.InProcessFluentQuery;
+import com.example.notificationservice.repository.SortComparators;
+import org.bson.types.ObjectId;
+import org.reactivestreams.Publisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.repository.query.FluentQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Base de los repositorios del perfil {@code memory}: un {@link ConcurrentHashMap} por colección con índices
+ * secundarios que mantiene cada subclase.
+ * <p>
+ * Se guardan copias y se devuelven copias, como haría Mongo: quien modifica una entidad leída no altera lo
+ * almacenado ni deja los índices desfasados. Cada cambio se hace dentro de {@code compute} sobre su clave,
+ * que quita el documento viejo de los índices, pone el nuevo y lo anota en el diario. Los índices solo dan
+ * candidatos: las consultas vuelven a comprobar la condición sobre el documento, porque entre que un cambio
+ * toca un índice y termina su {@code compute} un lector puede ver el índice nuevo con el documento viejo.
+ * <p>
+ * Las consultas por {@link Example} y con {@link Sort} recorren la colección entera (no hay índices para ellas) y
+ * ordenan en memoria; ningún servicio las usa en caminos calientes.
+ */
+public abstract class InMemoryRepository<T> implements ReactiveMongoRepository<T, String>, MemoryCollection {
+
+    protected final ConcurrentHashMap<String, T> documents = new ConcurrentHashMap<>();
+    private final MemoryStore store;
+    private final Class<T> type;
+    private final String collection;
+
+    protected InMemoryRepository(MemoryStore store, Class<T> type) {
+        this.store = store;
+        this.type = type;
+        this.collection = type.getAnnotation(Document.class).collection();
+    }
+
+    // Carga lo recuperado del disco; lo llama cada subclase al final de su constructor, con sus índices ya creados
+    protected void recover() {
+        for (T document : store.recovered(collection, type)) {
+            documents.put(idOf(document), document);
+            index(document);
+        }
+    }
+
+    protected abstract String idOf(T entity);
+
+    protected abstract void assignId(T entity, String id);
+
+    // Copia profunda de todo lo que se persiste (lo @Transient no se copia, igual que no vuelve de Mongo)
+    protected abstract T copy(T entity);
+
+    protected abstract void index(T document);
+
+    protected abstract void unindex(T document);
+
+    @Override
+    public String collectionName() {
+        return collection;
+    }
+
+    @Override
+    public Collection<?> storedDocuments() {
+        return Collections.unmodifiableCollection(documents.values());
+    }
+
+    // Guarda (o borra, si stored es null) dentro del compute de su clave
+    private T replace(String id, T previous, T stored) {
+        if (previous != null) {
+            unindex(previous);
+        }
+        if (stored != null) {
+            index(stored);
+        }
+        store.append(collection, id, stored);
+        return stored;
+    }
+
+    private <S extends T> S put(S entity, boolean insert) {
+        if (idOf(entity) == null) {
+            assignId(entity, new ObjectId().toHexString());
+        }
+        String id = idOf(entity);
+        T stored = copy(entity);
+        store.write(() -> documents.compute(id, (key, previous) -> {
+            if (insert && previous != null) {
+                throw new DuplicateKeyException("Ya existe un documento con _id " + id + " en " + collection);
+            }
+            return replace(id, previous, stored);
+        }));
+        return entity;
+    }
+
+    private void remove(String id) {
+        store.write(() -> documents.computeIfPresent(id, (key, previous) -> replace(id, previous, null)));
+    }
+
+    /**
+     * Equivalente a findAndModify con returnNew: aplica el cambio solo si el documento cumple la condición
+     * en ese momento y devuelve el resultado; vacío si no existe o no la cumple.
+     */
+    protected Mono<T> modify(String id, Predicate<T> condition, Consumer<T> change) {
+        return Mono.fromSupplier(() -> {
+            Object[] updated = new Object[1];
+            store.write(() -> documents.computeIfPresent(id, (key, previous) -> {
+                if (!condition.test(previous)) {
+                    return previous;
+                }
+                T next = copy(previous);
+                change.accept(next);
+                updated[0] = replace(id, previous, next);
+                return next;
+            }));
+            @SuppressWarnings("unchecked")
+            T result = (T) updated[0];
+            return result != null ? copy(result) : null;
+        });
+    }
+
+    // Resuelve los IDs de un índice y vuelve a comprobar la condición sobre el documento actual
+    protected Flux<T> resolve(Iterable<String> ids, Predicate<T> condition) {
+        return Flux.fromIterable(ids)
+                .mapNotNull(documents::get)
+                .filter(condition)
+                .map(this::copy);
+    }
+
+    protected Flux<T> scan(Predicate<T> condition) {
+        return Flux.defer(() -> Flux.fromIterable(documents.values()))
+                .filter(condition)
+                .map(this::copy);
+    }
+
+    // Altas y bajas en índices "clave -> IDs": ambas dentro del compute de la clave para no añadir a un conjunto
+    // que otro hilo acaba de retirar por quedarse vacío
+    protected static <S extends Set<String>> void addTo(ConcurrentHashMap<String, S> index, String key, String id,
+                                                        Supplier<S> newSet) {
+        if (key != null) {
+            index.compute(key, (k, ids) -> {
+                S set = ids != null ? ids : newSet.get();
+                set.add(id);
+                return set;
+            });
+        }
+    }
+
+    protected static <S extends Set<String>> void removeFrom(ConcurrentHashMap<String, S> index, String key, String id) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, ids) -> ids.remove(id) && ids.isEmpty() ? null : ids);
+        }
+    }
+
+    @Override
+    public <S extends T> Mono<S> save(S entity) {
+        return Mono.fromSupplier(() -> put(entity, false));
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Publisher<S> entities) {
+        return Flux.from(entities).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends T> Mono<S> insert(S entity) {
+        return Mono.fromSupplier(() -> put(entity, true));
+    }
+
+    @Override
+    public <S extends T> Flux<S> insert(Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::insert);
+    }
+
+    @Override
+    public <S extends T> Flux<S> insert(Publisher<S> entities) {
+        return Flux.from(entities).concatMap(this::insert);
+    }
+
+    @Override
+    public Mono<T> findById(String id) {
+        return Mono.fromSupplier(() -> {
+            T document = documents.get(id);
+            return document != null ? copy(document) : null;
+        });
+    }
+
+    @Override
+    public Mono<T> findById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(String id) {
+        return Mono.fromSupplier(() -> documents.containsKey(id));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<T> findAll() {
+        return scan(document -> true);
+    }
+
+    @Override
+    public Flux<T> findAllById(Iterable<String> ids) {
+        return Flux.fromIterable(ids).concatMap(this::findById);
+    }
+
+    @Override
+    public Flux<T> findAllById(Publisher<String> ids) {
+        return Flux.from(ids).concatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(() -> (long) documents.size());
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        return Mono.fromRunnable(() -> remove(id));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(T entity) {
+        return Mono.fromRunnable(() -> remove(idOf(entity)));
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends String> ids) {
+        return Flux.fromIterable(ids).concatMap(this::deleteById).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends T> entities) {
+        return Flux.fromIterable(entities).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends T> entities) {
+        return Flux.from(entities).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.fromRunnable(() -> documents.keySet().forEach(this::remove));
+    }
+
+    @Override
+    public Flux<T> findAll(Sort sort) {
+        return scan(document -> true).sort(SortComparators.of(sort));
+    }
+
+    @Override
+    public <S extends T> Flux<S> findAll(Example<S> example) {
+        return findAll(example, Sort.unsorted());
+    }
+
+    @Override
+    public <S extends T> Flux<S> findAll(Example<S> example, Sort sort) {
+        Class<S> type = example.getProbeType();
+        Flux<S> found = scan(ExampleMatching.predicate(example)).map(type::cast);
+        return sort.isSorted() ? found.sort(SortComparators.of(sort)) : found;
+    }
+
+    @Override
+    public <S extends T> Mono<S> findOne(Example<S> example) {
+        return findAll(example).take(2).collectList().flatMap(found -> found.size() > 1
+                ? Mono.error(new IncorrectResultSizeDataAccessException(1, found.size()))
+                : Mono.justOrEmpty(found.isEmpty() ? null : found.get(0)));
+    }
+
+    @Override
+    public <S extends T> Mono<Long> count(Example<S> example) {
+        return findAll(example).count();
+    }
+
+    @Override
+    public <S extends T> Mono<Boolean> exists(Example<S> example) {
+        return findAll(example).hasElements();
+    }
+
+    @Override
+    public <S extends T, R, P extends Publisher<R>> P findBy(Example<S> example,
+                                                            Function<FluentQuery.ReactiveFluentQuery<S>, P> queryFunction) {
+        return queryFunction.apply(InProcessFluentQuery.of(example.getProbeType(), (sort, limit) -> {
+            Flux<S> found = findAll(example, sort);
+            return limit > 0 ? found.take(limit) : found;
+        }));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.notificationservice.repository.memory;
+
+import com.example.notificationservice.entity.User;
+import com.example.notificationservice.repository.UserRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Usuarios en memoria con índice por email (login y validación del JWT)
+@Repository
+@Profile("memory")
+public class InMemoryUserRepository extends InMemoryRepository<User> implements UserRepository {
+
+    private final ConcurrentHashMap<String, Set<String>> byEmail = new ConcurrentHashMap<>();
+
+    public InMemoryUserRepository(MemoryStore store) {
+        super(store, User.class);
+        recover();
+    }
+
+    @Override
+    protected String idOf(User user) {
+        return user.getId();
+    }
+
+    @Override
+    protected void assignId(User user, String id) {
+        user.setId(id);
+    }
+
+    @Override
+    protected User copy(User u) {
+        return new User(u.getId(), u.getName(), u.getEmail(), u.getPassword(), u.getToken(), u.getRefreshToken(),
+                u.getNotifications() != null ? new ArrayList<>(u.getNotifications()) : null);
+    }
+
+    @Override
+    protected void index(User user) {
+        addTo(byEmail, user.getEmail(), user.getId(), ConcurrentHashMap::newKeySet);
+    }
+
+    @Override
+    protected void unindex(User user) {
+        removeFrom(byEmail, user.getEmail(), user.getId());
+    }
+
+    @Override
+    public Mono<User> findByEmail(String email) {
+        if (email == null) {
+            return scan(user -> user.getEmail() == null).next();
+        }
+        return Mono.defer(() -> resolve(byEmail.getOrDefault(email, Set.of()), user -> email.equals(user.getEmail())).next());
+    }
+}
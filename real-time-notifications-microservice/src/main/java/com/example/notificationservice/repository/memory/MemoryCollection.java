@@ -0,0 +1,15 @@
+package com.example.notificationservice.repository.memory;
+
+import java.util.Collection;
+
+/**
+ * Colección del motor en memoria que entra en las instantáneas. Es una interfaz (y no la clase base) porque los
+ * repositorios se inyectan envueltos en el proxy de métricas, que solo expone interfaces.
+ */
+public interface MemoryCollection {
+
+    String collectionName();
+
+    // Vista de los documentos almacenados; son copias que nadie modifica, se pueden serializar sin bloquear
+    Collection<?> storedDocuments();
+}
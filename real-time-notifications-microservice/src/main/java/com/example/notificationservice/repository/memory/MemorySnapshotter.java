@@ -0,0 +1,45 @@
+package com.example.notificationservice.repository.memory;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+// Instantánea periódica de todas las colecciones en memoria; acota el diario que hay que reaplicar al arrancar
+@Component
+@Profile("memory")
+public class MemorySnapshotter {
+
+    private static final Logger log = LoggerFactory.getLogger(MemorySnapshotter.class);
+
+    private final MemoryStore store;
+    private final List<MemoryCollection> collections;
+
+    public MemorySnapshotter(MemoryStore store, List<MemoryCollection> collections) {
+        this.store = store;
+        this.collections = collections;
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.storage.memory.snapshot-interval-ms:60000}",
+            initialDelayString = "${notifications.storage.memory.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        long start = System.nanoTime();
+        try {
+            store.snapshot(collections);
+            log.debug("Instantánea del almacenamiento en memoria en {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.error("Error al escribir la instantánea del almacenamiento en memoria", e);
+        }
+    }
+
+    // Al parar de forma ordenada se deja una instantánea al día: el siguiente arranque no tiene diario que reaplicar
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        snapshot();
+    }
+}
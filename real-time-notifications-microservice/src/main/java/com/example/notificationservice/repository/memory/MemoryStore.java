@@ -0,0 +1,324 @@
+package com.example.notificationservice.repository.memory;
+
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Persistencia del motor en memoria: una instantánea ({@code snapshot.json}) más un diario de cambios en segmentos
+ * numerados ({@code journal-N.log}). Ambos son JSON por líneas con el mismo formato BSON que se guardaría en Mongo.
+ * <p>
+ * Los repositorios anotan cada cambio en una cola; un hilo de fondo la vuelca al segmento actual cada
+ * {@code flush-interval} (con fsync opcional), así que lo que se puede perder en una caída es esa ventana.
+ * Al arrancar se carga la instantánea y se reaplican los segmentos posteriores a ella; un segmento cortado a
+ * medias por una caída se lee hasta la última línea completa.
+ */
+@Component
+@Profile("memory")
+public class MemoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MemoryStore.class);
+
+    static final String SNAPSHOT_FILE = "snapshot.json";
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final JsonWriterSettings JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    private final Path directory;
+    private final boolean fsync;
+    private final MappingMongoConverter converter;
+
+    // Los cambios toman la parte compartida; rotar el diario toma la exclusiva, así cada cambio queda o bien
+    // visible para la instantánea que sigue a la rotación o bien en el segmento nuevo
+    private final ReentrantReadWriteLock rotation = new ReentrantReadWriteLock();
+    private final Object pendingLock = new Object();
+    private List<Change> pending = new ArrayList<>();
+    private final Object journalLock = new Object();
+    private FileChannel journalChannel;
+    private BufferedWriter journal;
+    private long sequence;
+
+    private final Map<String, Map<String, Document>> recovered = new HashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    private record Change(String collection, String id, Object document) {
+    }
+
+    public MemoryStore(@Value("${notifications.storage.memory.directory:data/memory}") String directory,
+                       @Value("${notifications.storage.memory.flush-interval:50ms}") Duration flushInterval,
+                       @Value("${notifications.storage.memory.fsync:false}") boolean fsync) throws IOException {
+        this.directory = Path.of(directory);
+        this.fsync = fsync;
+        this.converter = createConverter();
+        Files.createDirectories(this.directory);
+        this.sequence = recover();
+        openJournal();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "memory-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = flushInterval.toNanos();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Conversor de Spring Data sin cliente: mismas reglas de mapeo (_id, Instant -> Date, @Transient) que con Mongo
+    private static MappingMongoConverter createConverter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    // Documentos recuperados de una colección; cada repositorio los recoge una sola vez al construirse
+    public <T> List<T> recovered(String collection, Class<T> type) {
+        Map<String, Document> documents;
+        synchronized (recovered) {
+            documents = recovered.remove(collection);
+        }
+        if (documents == null) {
+            return List.of();
+        }
+        return documents.values().stream().map(document -> converter.read(type, document)).toList();
+    }
+
+    // Ejecuta un cambio (que llamará a append) sin dejar que una rotación lo parta en dos
+    public <R> R write(Supplier<R> change) {
+        rotation.readLock().lock();
+        try {
+            return change.get();
+        } finally {
+            rotation.readLock().unlock();
+        }
+    }
+
+    // document null = borrado. La serialización se hace en el hilo del diario, no en el del cambio
+    public void append(String collection, String id, Object document) {
+        synchronized (pendingLock) {
+            pending.add(new Change(collection, id, document));
+        }
+    }
+
+    public void flush() throws IOException {
+        synchronized (journalLock) {
+            List<Change> changes;
+            synchronized (pendingLock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                changes = pending;
+                pending = new ArrayList<>();
+            }
+            for (Change change : changes) {
+                Document line = new Document("c", change.collection()).append("i", change.id());
+                if (change.document() != null) {
+                    line.append("d", toDocument(change.document()));
+                }
+                journal.write(line.toJson(JSON));
+                journal.newLine();
+            }
+            journal.flush();
+            if (fsync) {
+                journalChannel.force(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            log.error("Error al escribir el diario del almacenamiento en memoria", e);
+        }
+    }
+
+    /**
+     * Empieza un segmento nuevo, vuelca las colecciones a un fichero temporal, lo mueve de forma atómica sobre
+     * la instantánea anterior y borra los segmentos que ya quedan cubiertos por ella.
+     */
+    public synchronized void snapshot(Collection<? extends MemoryCollection> collections) throws IOException {
+        long start = rotate();
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+            writer.write(new Document("journal", start).toJson(JSON));
+            writer.newLine();
+            for (MemoryCollection collection : collections) {
+                for (Object document : collection.storedDocuments()) {
+                    writer.write(new Document("c", collection.collectionName()).append("d", toDocument(document)).toJson(JSON));
+                    writer.newLine();
+                }
+            }
+            writer.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deleteJournalsBefore(start);
+    }
+
+    private long rotate() throws IOException {
+        rotation.writeLock().lock();
+        try {
+            synchronized (journalLock) {
+                flush();
+                journal.close();
+                sequence++;
+                openJournal();
+                return sequence;
+            }
+        } finally {
+            rotation.writeLock().unlock();
+        }
+    }
+
+    private void openJournal() throws IOException {
+        journalChannel = FileChannel.open(journalPath(sequence), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        journal = new BufferedWriter(Channels.newWriter(journalChannel, StandardCharsets.UTF_8));
+    }
+
+    // Carga la instantánea, reaplica los segmentos posteriores y devuelve el número del segmento en el que seguir
+    private long recover() throws IOException {
+        long start = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (BufferedReader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+                start = ((Number) Document.parse(reader.readLine()).get("journal")).longValue();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Document entry = Document.parse(line);
+                    Document document = entry.get("d", Document.class);
+                    collection(entry.getString("c")).put(String.valueOf(document.get("_id")), document);
+                }
+            }
+        }
+        TreeMap<Long, Path> journals = journals();
+        long replayed = 0;
+        for (Map.Entry<Long, Path> segment : journals.tailMap(start, true).entrySet()) {
+            replayed += replay(segment.getValue());
+        }
+        deleteJournalsBefore(start);
+        if (!recovered.isEmpty() || replayed > 0) {
+            log.info("Almacenamiento en memoria recuperado de {}: {} documentos, {} cambios del diario reaplicados",
+                    directory, recovered.values().stream().mapToInt(Map::size).sum(), replayed);
+        }
+        // Nunca se sigue escribiendo en un segmento existente: su última línea puede estar cortada
+        return journals.isEmpty() ? start : Math.max(start, journals.lastKey() + 1);
+    }
+
+    private long replay(Path segment) throws IOException {
+        long applied = 0;
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Document entry;
+                try {
+                    entry = Document.parse(line);
+                } catch (RuntimeException e) {
+                    log.warn("Línea incompleta al final de {}; se ignora el resto del segmento", segment.getFileName());
+                    break;
+                }
+                Map<String, Document> collection = collection(entry.getString("c"));
+                Document document = entry.get("d", Document.class);
+                if (document != null) {
+                    collection.put(entry.getString("i"), document);
+                } else {
+                    collection.remove(entry.getString("i"));
+                }
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private Map<String, Document> collection(String name) {
+        return recovered.computeIfAbsent(name, key -> new LinkedHashMap<>());
+    }
+
+    private TreeMap<Long, Path> journals() throws IOException {
+        TreeMap<Long, Path> journals = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = JOURNAL_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    journals.put(Long.parseLong(matcher.group(1)), file);
+                }
+            });
+        }
+        return journals;
+    }
+
+    private void deleteJournalsBefore(long start) throws IOException {
+        for (Path segment : journals().headMap(start, false).values()) {
+            Files.deleteIfExists(segment);
+        }
+    }
+
+    private Path journalPath(long segment) {
+        return directory.resolve(String.format("journal-%020d.log", segment));
+    }
+
+    private Document toDocument(Object entity) {
+        Document document = new Document();
+        converter.write(entity, document);
+        return document;
+    }
+
+    @PreDestroy
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+            synchronized (journalLock) {
+                flush();
+                journal.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
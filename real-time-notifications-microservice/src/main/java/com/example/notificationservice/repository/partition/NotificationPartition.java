@@ -0,0 +1,46 @@
+package com.example.notificationservice.repository.partition;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Una partición física: colección {@code collection} de la base de datos {@code database} (null = la de la
+ * conexión), con la plantilla que escribe en esa base de datos.
+ */
+public record NotificationPartition(String database, String collection, ReactiveMongoTemplate template) {
+
+    /**
+     * Abre las particiones de una disposición. Las de la base de datos de la conexión usan {@code connectionTemplate};
+     * para cada una de las demás se crea una plantilla sobre el mismo cliente y con el mismo conversor.
+     */
+    public static List<NotificationPartition> open(PartitionLayout layout, ReactiveMongoTemplate connectionTemplate,
+                                                   MongoClient client) {
+        Map<String, ReactiveMongoTemplate> templates = new HashMap<>();
+        List<NotificationPartition> partitions = new ArrayList<>(layout.partitions());
+        for (int i = 0; i < layout.partitions(); i++) {
+            String database = layout.database(i);
+            ReactiveMongoTemplate template = database == null ? connectionTemplate : templates.computeIfAbsent(database,
+                    name -> new ReactiveMongoTemplate(new SimpleReactiveMongoDatabaseFactory(client, name),
+                            connectionTemplate.getConverter()));
+            partitions.add(new NotificationPartition(database, layout.collection(i), template));
+        }
+        return List.copyOf(partitions);
+    }
+
+    // Misma colección de la misma base de datos (p. ej. notifications_p2 al pasar de 4 a 8 particiones)
+    public boolean samePlace(NotificationPartition other) {
+        return collection.equals(other.collection) && Objects.equals(database, other.database);
+    }
+
+    @Override
+    public String toString() {
+        return (database != null ? database + "." : "") + collection;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.notificationservice.repository.partition;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+/**
+ * Re-particionado en línea de las notificaciones. Pasos:
+ * <ol>
+ *     <li>Desplegar el servicio con la disposición nueva en {@code notifications.partitioning.partitions/databases}
+ *     y la actual en {@code notifications.partitioning.previous-partitions/previous-databases}: desde ese momento
+ *     escribe en la nueva y lee de las dos.</li>
+ *     <li>Ejecutar esta herramienta con las mismas dos disposiciones, con el servicio funcionando:
+ * <pre>
+ * java -cp real-time-notifications-microservice.jar -Dloader.main=com.example.notificationservice.repository.partition.NotificationRepartitioner \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher mongodb://host/db --from 1 --to 8[:db1,db2] [--batch-size 500] [--concurrency 4]
+ * </pre>
+ *     Se puede interrumpir y volver a lanzar: cada pasada solo mueve lo que sigue en la disposición anterior.</li>
+ *     <li>Quitar {@code previous-partitions} de la configuración.</li>
+ * </ol>
+ * La disposición {@code 1} sin bases de datos es la colección {@code notifications} sin particionar.
+ */
+public final class NotificationRepartitioner {
+
+    private NotificationRepartitioner() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Uso: NotificationRepartitioner <mongodb-uri> --from particiones[:bd,...] --to particiones[:bd,...]"
+                    + " [--batch-size n] [--concurrency n]");
+            System.exit(2);
+        }
+        PartitionLayout from = null;
+        PartitionLayout to = null;
+        int batchSize = 500;
+        int concurrency = 4;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--from" -> from = layout(value);
+                case "--to" -> to = layout(value);
+                case "--batch-size" -> batchSize = Integer.parseInt(value);
+                case "--concurrency" -> concurrency = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+            }
+        }
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Faltan --from o --to");
+        }
+
+        ConnectionString uri = new ConnectionString(args[0]);
+        try (MongoClient client = MongoClients.create(uri)) {
+            ReactiveMongoTemplate template = new ReactiveMongoTemplate(client, uri.getDatabase());
+            PartitionMigration migration = new PartitionMigration(from, NotificationPartition.open(from, template, client),
+                    to, NotificationPartition.open(to, template, client), concurrency);
+            long start = System.nanoTime();
+            Long moved = migration.moveAll(batchSize).block();
+            System.out.printf("%d notificaciones movidas de %s a %s particiones en %d ms%n",
+                    moved, from, to, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // "8" o "8:db1,db2"
+    static PartitionLayout layout(String value) {
+        int separator = value.indexOf(':');
+        return separator < 0
+                ? PartitionLayout.of(Integer.parseInt(value), "")
+                : PartitionLayout.of(Integer.parseInt(value.substring(0, separator)), value.substring(separator + 1));
+    }
+}
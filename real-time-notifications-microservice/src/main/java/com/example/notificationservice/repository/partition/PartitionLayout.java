@@ -0,0 +1,86 @@
+package com.example.notificationservice.repository.partition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Disposición física de las notificaciones: cuántas particiones hay y en qué bases de datos viven. La partición de
+ * un usuario sale del hash de su {@code userReferenceId}, así que todas sus notificaciones están en la misma.
+ * <p>
+ * El hash es FNV-1a de 64 bits sobre el UTF-8 del ID (estable entre JVMs y versiones, y con los 64 bits bien
+ * repartidos, que {@code String.hashCode} no da) y la partición se elige con el hash consistente de salto de
+ * Lamping y Veach: al pasar de N a N+1 particiones solo cambia de sitio 1/(N+1) de
+ * los usuarios, en lugar de casi todos como con el módulo.
+ * <p>
+ * Con una sola partición y sin bases de datos es la colección {@code notifications} de siempre. Con más, la
+ * partición {@code i} es la colección {@code notifications_p<i>} de la base de datos {@code databases[i % n]}
+ * (la base de datos de la conexión si la lista está vacía).
+ */
+public record PartitionLayout(int partitions, List<String> databases) {
+
+    public static final String COLLECTION = "notifications";
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    public PartitionLayout {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Hace falta al menos una partición: " + partitions);
+        }
+        databases = List.copyOf(databases);
+    }
+
+    // "a, b" -> [a, b]; vacío = la base de datos de la conexión
+    public static PartitionLayout of(int partitions, String databases) {
+        return new PartitionLayout(partitions, databases == null ? List.of() : Arrays.stream(databases.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList());
+    }
+
+    public static PartitionLayout single() {
+        return new PartitionLayout(1, List.of());
+    }
+
+    public int partitionOf(String userReferenceId) {
+        return partitions == 1 ? 0 : jump(hash(userReferenceId), partitions);
+    }
+
+    public String collection(int partition) {
+        return partitions == 1 ? COLLECTION : COLLECTION + "_p" + partition;
+    }
+
+    // null = la base de datos de la conexión
+    public String database(int partition) {
+        return databases.isEmpty() ? null : databases.get(partition % databases.size());
+    }
+
+    static long hash(String userReferenceId) {
+        long hash = FNV_OFFSET;
+        if (userReferenceId != null) {
+            for (byte b : userReferenceId.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    // "A Fast, Minimal Memory, Consistent Hash Algorithm" (Lamping, Veach 2014)
+    static int jump(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    @Override
+    public String toString() {
+        return partitions + (databases.isEmpty() ? "" : " en " + String.join(",", databases));
+    }
+}
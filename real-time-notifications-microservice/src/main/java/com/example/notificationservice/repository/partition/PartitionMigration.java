@@ -0,0 +1,186 @@
+package com.example.notificationservice.repository.partition;
+
+import com.example.notificationservice.entity.Notification;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Paso de una disposición de particiones a otra sin parar el servicio. Mientras dura, el repositorio particionado
+ * escribe solo en la disposición nueva, lee de las dos y, antes de modificar una notificación por ID, la trae a su
+ * partición nueva; {@link NotificationRepartitioner} mueve el resto en segundo plano.
+ * <p>
+ * Mover es insertar en la partición nueva y después borrar de la anterior: si el proceso cae entre medias la
+ * notificación queda en las dos (las lecturas se quedan con la nueva) y la siguiente pasada termina el trabajo.
+ * Si la inserción choca con el mismo ID, la copia nueva la escribió el servicio y es más reciente: se conserva.
+ * <p>
+ * Para que una notificación borrada mientras se copia no reaparezca en la partición nueva, el servicio deja antes de
+ * borrar una marca por ID en {@code <colección>_deleted} de la partición anterior ({@link #bury}); quien copia la
+ * busca después de insertar y, si está, retira su copia. Las marcas caducan solas al día.
+ */
+@Slf4j
+public class PartitionMigration {
+
+    static final String TOMBSTONES_SUFFIX = "_deleted";
+    // Mucho más de lo que tarda una copia en curso, que es lo único que necesita la marca
+    private static final Duration TOMBSTONE_TTL = Duration.ofDays(1);
+
+    private final PartitionLayout source;
+    private final PartitionLayout target;
+    private final List<NotificationPartition> sources;
+    private final List<NotificationPartition> targets;
+    private final List<NotificationPartition> places;
+    private final int concurrency;
+    private final Map<NotificationPartition, Mono<String>> tombstoneIndexes = new ConcurrentHashMap<>();
+
+    public PartitionMigration(PartitionLayout source, List<NotificationPartition> sources,
+                              PartitionLayout target, List<NotificationPartition> targets, int concurrency) {
+        this.source = source;
+        this.target = target;
+        this.sources = List.copyOf(sources);
+        this.targets = List.copyOf(targets);
+        this.concurrency = concurrency;
+        List<NotificationPartition> all = new ArrayList<>(targets);
+        for (NotificationPartition partition : sources) {
+            if (all.stream().noneMatch(partition::samePlace)) {
+                all.add(partition);
+            }
+        }
+        this.places = List.copyOf(all);
+    }
+
+    public PartitionLayout source() {
+        return source;
+    }
+
+    public PartitionLayout target() {
+        return target;
+    }
+
+    // Todas las colecciones de las dos disposiciones, sin repetir y primero las nuevas
+    public List<NotificationPartition> places() {
+        return places;
+    }
+
+    public NotificationPartition targetOf(String userReferenceId) {
+        return targets.get(target.partitionOf(userReferenceId));
+    }
+
+    public NotificationPartition sourceOf(String userReferenceId) {
+        return sources.get(source.partitionOf(userReferenceId));
+    }
+
+    // Quita de la disposición anterior lo que se acaba de escribir en la nueva
+    public Mono<Void> removeStale(Notification notification) {
+        NotificationPartition from = sourceOf(notification.getUserReferenceId());
+        if (from.samePlace(targetOf(notification.getUserReferenceId()))) {
+            return Mono.empty();
+        }
+        return from.template().remove(byId(notification.getId()), Notification.class, from.collection()).then();
+    }
+
+    /**
+     * Marca como borrado lo que {@code query} encuentra en las colecciones de {@code places} que son de la disposición
+     * anterior. Se llama antes de borrarlo: una copia que lo inserte en la nueva después del borrado verá la marca.
+     */
+    public Mono<Void> bury(List<NotificationPartition> places, Query query) {
+        return Flux.fromIterable(sources)
+                .filter(from -> places.stream().anyMatch(from::samePlace))
+                .flatMap(from -> bury(from, query), concurrency)
+                .then();
+    }
+
+    private Mono<Void> bury(NotificationPartition from, Query query) {
+        Query ids = Query.of(query);
+        ids.fields().include("_id");
+        String tombstones = tombstones(from);
+        return tombstoneIndex(from)
+                .thenMany(from.template().find(ids, Notification.class, from.collection()))
+                .flatMap(notification -> from.template().save(
+                        new Document("_id", notification.getId()).append("deletedAt", new Date()), tombstones), concurrency)
+                .then();
+    }
+
+    // Índice TTL de las marcas, una vez por colección; si falla se reintenta en el siguiente borrado sin impedir este
+    private Mono<String> tombstoneIndex(NotificationPartition from) {
+        return tombstoneIndexes.computeIfAbsent(from, partition -> partition.template().indexOps(tombstones(partition))
+                .ensureIndex(new Index("deletedAt", Sort.Direction.ASC).expire(TOMBSTONE_TTL))
+                .onErrorResume(e -> {
+                    log.warn("No se pudo crear el índice TTL de {}: {}", tombstones(partition), e.getMessage());
+                    tombstoneIndexes.remove(partition);
+                    return Mono.empty();
+                })
+                .cache());
+    }
+
+    private static String tombstones(NotificationPartition from) {
+        return from.collection() + TOMBSTONES_SUFFIX;
+    }
+
+    // Trae una notificación a su partición nueva si sigue en la anterior
+    public Mono<Void> moveById(String notificationId) {
+        return Flux.fromIterable(sources)
+                .flatMap(from -> from.template().findById(notificationId, Notification.class, from.collection())
+                        .flatMap(notification -> move(from, notification)), concurrency)
+                .then();
+    }
+
+    /**
+     * Recorre cada partición anterior por {@code _id} en lotes de {@code batchSize} y mueve lo que no está en su
+     * sitio; las particiones se recorren en paralelo, como mucho {@code concurrency} a la vez. Devuelve cuántas movió.
+     */
+    public Mono<Long> moveAll(int batchSize) {
+        return Flux.fromIterable(sources)
+                .flatMap(from -> moveAll(from, batchSize), concurrency)
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> moveAll(NotificationPartition from, int batchSize) {
+        return batch(from, null, batchSize)
+                .expand(page -> page.size() < batchSize ? Mono.empty() : batch(from, page.get(page.size() - 1).getId(), batchSize))
+                .concatMap(page -> Flux.fromIterable(page)
+                        .flatMap(notification -> move(from, notification), concurrency)
+                        .filter(Boolean::booleanValue)
+                        .count())
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<List<Notification>> batch(NotificationPartition from, String afterId, int batchSize) {
+        Query query = afterId == null ? new Query() : Query.query(Criteria.where("_id").gt(afterId));
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+        return from.template().find(query, Notification.class, from.collection()).collectList();
+    }
+
+    private Mono<Boolean> move(NotificationPartition from, Notification notification) {
+        NotificationPartition to = targetOf(notification.getUserReferenceId());
+        if (to.samePlace(from)) {
+            return Mono.just(false);
+        }
+        Query byId = byId(notification.getId());
+        // Si se borró mientras se copiaba, la copia insertada se retira
+        Mono<Boolean> copied = to.template().insert(notification, to.collection())
+                .then(from.template().exists(byId, tombstones(from)))
+                .flatMap(buried -> buried
+                        ? to.template().remove(byId, Notification.class, to.collection()).thenReturn(false)
+                        : Mono.just(true))
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.just(true));
+        return copied.flatMap(moved -> from.template().remove(byId, Notification.class, from.collection()).thenReturn(moved));
+    }
+
+    private static Query byId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+}
@@ -0,0 +1,475 @@
+package com.example.notificationservice.repository.partition;
+
+import com.example.notificationservice.delivery.RedeliveryMark;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.receipts.DeliveryReceipt;
+import com.example.notificationservice.repository.InProcessFluentQuery;
+import com.example.notificationservice.repository.NotificationRepository;
+import com.example.notificationservice.repository.NotificationRepositoryCustom;
+import com.example.notificationservice.repository.NotificationRepositoryCustomImpl;
+import com.example.notificationservice.repository.SortComparators;
+import com.mongodb.reactivestreams.client.MongoClient;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Notificaciones repartidas por hash de {@code userReferenceId} entre varias colecciones (y bases de datos), para
+ * que el índice y las escrituras de cada una crezcan con su parte de los usuarios y no con todos
+ * ({@link PartitionLayout}). Sustituye al repositorio derivado de Spring Data cuando hay más de una partición o un
+ * re-particionado en curso; con la configuración por defecto no se crea.
+ * <p>
+ * Lo que es de un usuario (sus notificaciones, sus no leídas por cursor, guardar, borrar una entidad) va a una sola
+ * partición. Lo que no tiene usuario (por ID, por mensaje, entregas programadas, recordatorios, el flujo global de no
+ * leídas) consulta todas en paralelo, como mucho {@code scan-concurrency} a la vez. Los IDs ordenados por tiempo
+ * permiten mezclar las páginas de cada partición en orden sin pedir más de una página a cada una.
+ * <p>
+ * Con {@code previous-partitions} hay un re-particionado en curso ({@link PartitionMigration}): se escribe en la
+ * disposición nueva y se lee de las dos, un usuario consulta como mucho dos particiones.
+ */
+@Slf4j
+@Repository
+@Primary
+@Profile("!memory")
+@ConditionalOnExpression("${notifications.partitioning.partitions:1} > 1 or ${notifications.partitioning.previous-partitions:0} > 0")
+public class PartitionedNotificationRepository implements NotificationRepository {
+
+    private static final Comparator<Notification> BY_ID = Comparator.comparing(Notification::getId);
+
+    private final PartitionLayout layout;
+    private final List<NotificationPartition> partitions;
+    private final List<NotificationRepositoryCustom> custom;
+    private final PartitionMigration migration;
+    private final int concurrency;
+
+    @Autowired
+    public PartitionedNotificationRepository(ReactiveMongoTemplate mongoTemplate, MongoClient mongoClient,
+                                             @Value("${notifications.partitioning.partitions:1}") int partitions,
+                                             @Value("${notifications.partitioning.databases:}") String databases,
+                                             @Value("${notifications.partitioning.previous-partitions:0}") int previousPartitions,
+                                             @Value("${notifications.partitioning.previous-databases:}") String previousDatabases,
+                                             @Value("${notifications.partitioning.scan-concurrency:8}") int concurrency) {
+        this(PartitionLayout.of(partitions, databases),
+                previousPartitions > 0 ? PartitionLayout.of(previousPartitions, previousDatabases) : null,
+                mongoTemplate, mongoClient, concurrency);
+    }
+
+    private PartitionedNotificationRepository(PartitionLayout layout, PartitionLayout previous, ReactiveMongoTemplate mongoTemplate,
+                                              MongoClient mongoClient, int concurrency) {
+        this(layout, NotificationPartition.open(layout, mongoTemplate, mongoClient),
+                previous, previous != null ? NotificationPartition.open(previous, mongoTemplate, mongoClient) : null, concurrency);
+    }
+
+    // previous = null: sin re-particionado en curso
+    public PartitionedNotificationRepository(PartitionLayout layout, List<NotificationPartition> partitions,
+                                             PartitionLayout previous, List<NotificationPartition> previousPartitions, int concurrency) {
+        this.layout = layout;
+        this.partitions = List.copyOf(partitions);
+        this.custom = this.partitions.stream()
+                .<NotificationRepositoryCustom>map(p -> new NotificationRepositoryCustomImpl(p.template(), p.collection()))
+                .toList();
+        this.migration = previous != null
+                ? new PartitionMigration(previous, previousPartitions, layout, this.partitions, concurrency)
+                : null;
+        this.concurrency = concurrency;
+        log.info("Notificaciones en {} particiones{}", layout,
+                previous != null ? " (re-particionado en curso desde " + previous + ")" : "");
+    }
+
+    private NotificationPartition partitionOf(String userReferenceId) {
+        return partitions.get(layout.partitionOf(userReferenceId));
+    }
+
+    // Colecciones que pueden tener notificaciones, primero las de la disposición actual
+    private List<NotificationPartition> places() {
+        return migration != null ? migration.places() : partitions;
+    }
+
+    // La partición del usuario y, durante un re-particionado, la anterior si es otra
+    private List<NotificationPartition> placesOf(String userReferenceId) {
+        NotificationPartition current = partitionOf(userReferenceId);
+        if (migration == null) {
+            return List.of(current);
+        }
+        NotificationPartition previous = migration.sourceOf(userReferenceId);
+        return previous.samePlace(current) ? List.of(current) : List.of(current, previous);
+    }
+
+    /**
+     * Misma consulta en varias colecciones, como mucho {@code concurrency} a la vez. Durante un re-particionado una
+     * notificación puede estar un momento en las dos disposiciones: se entrega una vez (la primera que llegue; quien
+     * la modifica por ID vuelve a leerla de su partición nueva).
+     */
+    private Flux<Notification> scan(List<NotificationPartition> places, Function<NotificationPartition, Flux<Notification>> query) {
+        Flux<Notification> results = places.size() == 1
+                ? query.apply(places.get(0))
+                : Flux.fromIterable(places).flatMap(query, concurrency);
+        return migration != null ? results.distinct(Notification::getId) : results;
+    }
+
+    private Flux<Notification> scan(Query query) {
+        return scan(places(), partition -> find(partition, query));
+    }
+
+    private static Flux<Notification> find(NotificationPartition partition, Query query) {
+        return partition.template().find(query, Notification.class, partition.collection());
+    }
+
+    // Durante un re-particionado se marca antes lo borrado para que una copia en curso no lo resucite
+    private Mono<Void> remove(List<NotificationPartition> places, Query query) {
+        Mono<Void> buried = migration != null ? migration.bury(places, query) : Mono.empty();
+        return buried.thenMany(Flux.fromIterable(places)
+                        .flatMap(partition -> partition.template().remove(query, Notification.class, partition.collection()), concurrency))
+                .then();
+    }
+
+    /**
+     * Consulta en todas las colecciones con el orden y el límite aplicados en cada una; con orden, las partes se mezclan
+     * en ese orden, igual que las páginas de no leídas.
+     */
+    private <S extends Notification> Flux<S> scan(Query query, Class<S> type, Sort sort, int limit) {
+        query.with(sort);
+        if (limit > 0) {
+            query.limit(limit);
+        }
+        List<NotificationPartition> places = places();
+        Flux<S> results;
+        if (places.size() == 1) {
+            results = places.get(0).template().find(query, type, places.get(0).collection());
+        } else if (sort.isSorted()) {
+            @SuppressWarnings("unchecked")
+            Publisher<S>[] parts = places.stream()
+                    .map(partition -> partition.template().find(query, type, partition.collection()))
+                    .toArray(Publisher[]::new);
+            results = Flux.mergeComparing(SortComparators.of(sort), parts);
+        } else {
+            results = Flux.fromIterable(places).flatMap(partition -> partition.template().find(query, type, partition.collection()), concurrency);
+        }
+        if (migration != null) {
+            results = results.distinct(Notification::getId);
+        }
+        return limit > 0 ? results.take(limit) : results;
+    }
+
+    private static Query byId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+
+    private static Query byIds(Iterable<? extends String> ids) {
+        List<String> list = new ArrayList<>();
+        ids.forEach(list::add);
+        return Query.query(Criteria.where("_id").in(list));
+    }
+
+    @Override
+    public <S extends Notification> Mono<S> save(S entity) {
+        NotificationPartition partition = partitionOf(entity.getUserReferenceId());
+        Mono<S> saved = partition.template().save(entity, partition.collection());
+        return migration != null ? saved.flatMap(s -> migration.removeStale(s).thenReturn(s)) : saved;
+    }
+
+    @Override
+    public <S extends Notification> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.fromIterable(entities).flatMapSequential(this::save, concurrency);
+    }
+
+    @Override
+    public <S extends Notification> Flux<S> saveAll(Publisher<S> entities) {
+        return Flux.from(entities).flatMapSequential(this::save, concurrency);
+    }
+
+    @Override
+    public <S extends Notification> Mono<S> insert(S entity) {
+        NotificationPartition partition = partitionOf(entity.getUserReferenceId());
+        return partition.template().insert(entity, partition.collection());
+    }
+
+    @Override
+    public <S extends Notification> Flux<S> insert(Iterable<S> entities) {
+        return Flux.fromIterable(entities).flatMapSequential(this::insert, concurrency);
+    }
+
+    @Override
+    public <S extends Notification> Flux<S> insert(Publisher<S> entities) {
+        return Flux.from(entities).flatMapSequential(this::insert, concurrency);
+    }
+
+    // En orden de colecciones: durante un re-particionado gana la copia de la disposición nueva
+    @Override
+    public Mono<Notification> findById(String id) {
+        return Flux.fromIterable(places())
+                .flatMapSequential(partition -> partition.template().findById(id, Notification.class, partition.collection()), concurrency)
+                .next();
+    }
+
+    @Override
+    public Mono<Notification> findById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(String id) {
+        return findById(id).hasElement();
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<Notification> findAll() {
+        return scan(new Query());
+    }
+
+    @Override
+    public Flux<Notification> findAllById(Iterable<String> ids) {
+        return scan(byIds(ids));
+    }
+
+    @Override
+    public Flux<Notification> findAllById(Publisher<String> ids) {
+        return Flux.from(ids).collectList().flatMapMany(this::findAllById);
+    }
+
+    // Durante un re-particionado puede contar dos veces lo que se está moviendo en ese momento
+    @Override
+    public Mono<Long> count() {
+        return Flux.fromIterable(places())
+                .flatMap(partition -> partition.template().count(new Query(), Notification.class, partition.collection()), concurrency)
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        return remove(places(), byId(id));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(Notification entity) {
+        return remove(placesOf(entity.getUserReferenceId()), byId(entity.getId()));
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends String> ids) {
+        return remove(places(), byIds(ids));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends Notification> entities) {
+        return Flux.fromIterable(entities).flatMap(this::delete, concurrency).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends Notification> entities) {
+        return Flux.from(entities).flatMap(this::delete, concurrency).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return remove(places(), new Query());
+    }
+
+    @Override
+    public Flux<Notification> findByUserReferenceId(String userReferenceId) {
+        Query query = Query.query(Criteria.where("userReferenceId").is(userReferenceId));
+        return scan(placesOf(userReferenceId), partition -> find(partition, query));
+    }
+
+    @Override
+    public Flux<Notification> findByMessage(String message) {
+        return scan(Query.query(Criteria.where("message").is(message)));
+    }
+
+    @Override
+    public Flux<Notification> findByUserReferenceIdAndReadFalseAndIdGreaterThanOrderByIdAsc(String userReferenceId, String id,
+                                                                                             Pageable pageable) {
+        return unreadPage(placesOf(userReferenceId), Criteria.where("userReferenceId").is(userReferenceId).and("read").is(false),
+                id, pageable);
+    }
+
+    @Override
+    public Flux<Notification> findByReadFalseAndIdGreaterThanOrderByIdAsc(String id, Pageable pageable) {
+        return unreadPage(places(), Criteria.where("read").is(false), id, pageable);
+    }
+
+    /**
+     * Cada colección devuelve su página ordenada por ID y se mezclan en orden: la página global son los primeros de
+     * la mezcla, así que basta con pedir a cada una {@code offset + size}. Con la misma notificación en las dos
+     * disposiciones, la mezcla deja primero la de la nueva (empate = primera fuente) y se descarta la otra.
+     */
+    private Flux<Notification> unreadPage(List<NotificationPartition> places, Criteria unread, String id, Pageable pageable) {
+        Query query = Query.query(id != null ? unread.and("_id").gt(id) : unread).with(Sort.by(Sort.Direction.ASC, "_id"));
+        if (pageable.isPaged()) {
+            query.limit((int) (pageable.getOffset() + pageable.getPageSize()));
+        }
+        if (places.size() == 1) {
+            return find(places.get(0), query.skip(pageable.isPaged() ? pageable.getOffset() : 0));
+        }
+        @SuppressWarnings("unchecked")
+        Publisher<Notification>[] pages = places.stream().map(partition -> find(partition, query)).toArray(Publisher[]::new);
+        Flux<Notification> merged = Flux.mergeComparing(BY_ID, pages).distinctUntilChanged(Notification::getId);
+        return pageable.isPaged() ? merged.skip(pageable.getOffset()).take(pageable.getPageSize()) : merged;
+    }
+
+    @Override
+    public Flux<Notification> findByPendingDeliveryTrue() {
+        return scan(Query.query(Criteria.where("pendingDelivery").is(true)));
+    }
+
+    @Override
+    public Flux<Notification> findByPendingDeliveryTrueAndDeliverAtBefore(Instant deliverAt) {
+        return scan(Query.query(Criteria.where("pendingDelivery").is(true).and("deliverAt").lt(deliverAt)));
+    }
+
+    @Override
+    public Flux<Notification> findByNextReminderAtAfter(Instant nextReminderAt) {
+        return scan(Query.query(Criteria.where("nextReminderAt").gt(nextReminderAt)));
+    }
+
+    @Override
+    public Flux<Notification> findByNextReminderAtBetween(Instant from, Instant to) {
+        return scan(Query.query(Criteria.where("nextReminderAt").gt(from).lt(to)));
+    }
+
+    // Solo una partición tiene el ID; durante un re-particionado se trae antes a la nueva para no reclamarla dos veces
+    @Override
+    public Mono<Notification> claimScheduledDelivery(String notificationId) {
+        return claim(notificationId, partition -> partition.claimScheduledDelivery(notificationId));
+    }
+
+    @Override
+    public Mono<Notification> claimReminder(String notificationId, int reminderCount, Instant now, Instant nextReminderAt) {
+        return claim(notificationId, partition -> partition.claimReminder(notificationId, reminderCount, now, nextReminderAt));
+    }
+
+    private Mono<Notification> claim(String notificationId, Function<NotificationRepositoryCustom, Mono<Notification>> claim) {
+        Mono<Void> moved = migration != null ? migration.moveById(notificationId) : Mono.empty();
+        return moved.then(Flux.fromIterable(custom).flatMap(claim, concurrency).next());
+    }
+
+    // Una operación masiva por colección; durante un re-particionado se aplican en las dos copias ($min no se pisa)
+    @Override
+    public Mono<Long> applyReceipts(Collection<DeliveryReceipt> receipts) {
+        Map<NotificationPartition, List<DeliveryReceipt>> byPartition = new LinkedHashMap<>();
+        for (DeliveryReceipt receipt : receipts) {
+            for (NotificationPartition partition : placesOf(receipt.userReferenceId())) {
+                byPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(receipt);
+            }
+        }
+        return Flux.fromIterable(byPartition.entrySet())
+                .flatMap(batch -> new NotificationRepositoryCustomImpl(batch.getKey().template(), batch.getKey().collection())
+                        .applyReceipts(batch.getValue()), concurrency)
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public Mono<Long> applyRedeliveryMarks(Collection<RedeliveryMark> marks) {
+        Map<NotificationPartition, List<RedeliveryMark>> byPartition = new LinkedHashMap<>();
+        for (RedeliveryMark mark : marks) {
+            for (NotificationPartition partition : placesOf(mark.userReferenceId())) {
+                byPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(mark);
+            }
+        }
+        return Flux.fromIterable(byPartition.entrySet())
+                .flatMap(batch -> new NotificationRepositoryCustomImpl(batch.getKey().template(), batch.getKey().collection())
+                        .applyRedeliveryMarks(batch.getValue()), concurrency)
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public Flux<Notification> claimRedeliveries(String userReferenceId, Instant now, int limit) {
+        return scan(placesOf(userReferenceId), partition -> new NotificationRepositoryCustomImpl(partition.template(), partition.collection())
+                .claimRedeliveries(userReferenceId, now, limit))
+                .take(limit);
+    }
+
+    @Override
+    public Mono<Void> ensurePendingDeliveryIndex() {
+        return Flux.fromIterable(custom).flatMap(NotificationRepositoryCustom::ensurePendingDeliveryIndex, concurrency).then();
+    }
+
+    @Override
+    public Mono<Void> ensureReminderIndex() {
+        return Flux.fromIterable(custom).flatMap(NotificationRepositoryCustom::ensureReminderIndex, concurrency).then();
+    }
+
+    @Override
+    public Mono<Void> ensureRedeliveryIndex() {
+        return Flux.fromIterable(custom).flatMap(NotificationRepositoryCustom::ensureRedeliveryIndex, concurrency).then();
+    }
+
+    @Override
+    public Flux<Notification> findAll(Sort sort) {
+        return scan(new Query(), Notification.class, sort, 0);
+    }
+
+    @Override
+    public <S extends Notification> Flux<S> findAll(Example<S> example) {
+        return findAll(example, Sort.unsorted());
+    }
+
+    @Override
+    public <S extends Notification> Flux<S> findAll(Example<S> example, Sort sort) {
+        return scan(Query.query(Criteria.byExample(example)), example.getProbeType(), sort, 0);
+    }
+
+    @Override
+    public <S extends Notification> Mono<S> findOne(Example<S> example) {
+        return scan(Query.query(Criteria.byExample(example)), example.getProbeType(), Sort.unsorted(), 2)
+                .collectList()
+                .flatMap(found -> found.size() > 1
+                        ? Mono.error(new IncorrectResultSizeDataAccessException(1, found.size()))
+                        : Mono.justOrEmpty(found.isEmpty() ? null : found.get(0)));
+    }
+
+    // Como count(): durante un re-particionado puede contar dos veces lo que se está moviendo
+    @Override
+    public <S extends Notification> Mono<Long> count(Example<S> example) {
+        Query query = Query.query(Criteria.byExample(example));
+        return Flux.fromIterable(places())
+                .flatMap(partition -> partition.template().count(query, example.getProbeType(), partition.collection()), concurrency)
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public <S extends Notification> Mono<Boolean> exists(Example<S> example) {
+        return scan(Query.query(Criteria.byExample(example)), example.getProbeType(), Sort.unsorted(), 1).hasElements();
+    }
+
+    @Override
+    public <S extends Notification, R, P extends Publisher<R>> P findBy(Example<S> example,
+                                                                       Function<FluentQuery.ReactiveFluentQuery<S>, P> queryFunction) {
+        return queryFunction.apply(InProcessFluentQuery.of(example.getProbeType(),
+                (sort, limit) -> scan(Query.query(Criteria.byExample(example)), example.getProbeType(), sort, limit)));
+    }
+}
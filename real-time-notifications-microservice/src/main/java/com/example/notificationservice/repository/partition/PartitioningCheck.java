@@ -0,0 +1,26 @@
+package com.example.notificationservice.repository.partition;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Con Spring AOT (perfil fast-start) la condición de {@link PartitionedNotificationRepository} se evalúa al compilar,
+ * con {@code -Dfast-start.partitions} y {@code -Dfast-start.previous-partitions}. Un jar compilado sin particiones
+ * que arranca con ellas escribiría en la colección sin particionar: se detecta al arrancar y no se levanta el servicio.
+ */
+@Component
+@Profile("!memory")
+public class PartitioningCheck {
+
+    public PartitioningCheck(ObjectProvider<PartitionedNotificationRepository> partitioned,
+                             @Value("${notifications.partitioning.partitions:1}") int partitions,
+                             @Value("${notifications.partitioning.previous-partitions:0}") int previousPartitions) {
+        if ((partitions > 1 || previousPartitions > 0) && partitioned.getIfAvailable() == null) {
+            throw new IllegalStateException("notifications.partitioning pide " + partitions + " particiones (anteriores: "
+                    + previousPartitions + ") pero el repositorio particionado no se compiló con Spring AOT; "
+                    + "recompilar con mvn -Pfast-start -Dfast-start.partitions=" + Math.max(partitions, 2) + " package");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.notificationservice.rsocket;
+
+import com.example.notificationservice.dto.NotificationRequestDto;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.User;
+import com.example.notificationservice.ratelimit.NotificationRateLimiter;
+import com.example.notificationservice.ratelimit.NotificationRateLimiter.RateLimitDecision;
+import com.example.notificationservice.repository.UserRepository;
+import com.example.notificationservice.security.JwtUtil;
+import com.example.notificationservice.service.DemandDrivenNotificationSource;
+import com.example.notificationservice.service.NotificationService;
+import io.rsocket.exceptions.RejectedException;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.annotation.ConnectMapping;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transporte RSocket para consumidores internos (dashboards, workers).
+ * Los request-stream propagan {@code request(n)} hasta la lectura en MongoDB, así que cada consumidor
+ * recibe solo lo que pide. El JWT se envía como dato del SETUP y se valida al abrir la conexión; el usuario del token
+ * queda asociado a la conexión y las rutas con {@code {userId}} solo se aceptan para ese usuario, como en el WebSocket.
+ */
+@Controller
+public class NotificationRSocketController {
+
+    // MessageHeaders siembra su generador de IDs leyendo /dev/urandom al inicializarse la clase. Se inicializa al crear
+    // este bean, al arrancar, y no en el event loop con el primer SETUP
+    static {
+        new MessageHeaders(null);
+    }
+
+    private final NotificationService notificationService;
+    private final DemandDrivenNotificationSource notificationSource;
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepository;
+    private final NotificationRateLimiter rateLimiter;
+
+    // Usuario autenticado de cada conexión abierta; se quita al cerrarse
+    private final Map<RSocketRequester, User> principals = new ConcurrentHashMap<>();
+
+    public NotificationRSocketController(NotificationService notificationService, DemandDrivenNotificationSource notificationSource, JwtUtil jwtUtil,
+                                         UserRepository userRepository, NotificationRateLimiter rateLimiter) {
+        this.notificationService = notificationService;
+        this.notificationSource = notificationSource;
+        this.jwtUtil = jwtUtil;
+        this.userRepository = userRepository;
+        this.rateLimiter = rateLimiter;
+    }
+
+    // Si el token no es válido se rechaza el SETUP y la conexión no se establece
+    @ConnectMapping
+    public Mono<Void> connect(@Payload(required = false) String token, RSocketRequester requester) {
+        if (token == null || token.isBlank()) {
+            return Mono.error(new IllegalArgumentException("Token requerido en el SETUP"));
+        }
+        String jwtToken = token.replace("Bearer ", "").trim();
+        return jwtUtil.validateToken(jwtToken)
+                .filter(Boolean.TRUE::equals)
+                .flatMap(valid -> jwtUtil.extractUsername(jwtToken))
+                .flatMap(userRepository::findByEmail)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("Token inválido")))
+                .doOnNext(user -> {
+                    principals.put(requester, user);
+                    requester.rsocket().onClose()
+                            .doFinally(signal -> principals.remove(requester))
+                            .subscribe(null, e -> { });
+                })
+                .then();
+    }
+
+    // request-stream: notificaciones no leídas de un usuario; el payload opcional es el último ID recibido
+    @MessageMapping("notifications.stream.{userId}")
+    public Flux<Notification> streamUserNotifications(@DestinationVariable String userId, @Payload(required = false) String afterId,
+                                                      RSocketRequester requester) {
+        return authorize(requester, userId)
+                .flatMapMany(user -> notificationSource.userStream(userId, afterId));
+    }
+
+    // request-stream: notificaciones no leídas de todos los usuarios
+    @MessageMapping("notifications.stream")
+    public Flux<Notification> streamUnreadNotifications(@Payload(required = false) String afterId) {
+        return notificationSource.globalStream(afterId);
+    }
+
+    // request-response: crear una notificación
+    @MessageMapping("notifications.create.{userId}")
+    public Mono<Notification> createNotification(@DestinationVariable String userId, @Payload NotificationRequestDto request,
+                                                 RSocketRequester requester) {
+        if (request.getMessage() == null || request.getMessage().isBlank()) {
+            return Mono.error(new IllegalArgumentException("El mensaje no puede estar vacío"));
+        }
+        // Misma admisión que POST /users/{userId}: un token del productor (usuario del JWT) y otro del usuario destino
+        return authorize(requester, userId)
+                .flatMap(user -> {
+                    RateLimitDecision decision = rateLimiter.tryAcquire(user.getEmail(), userId);
+                    if (!decision.allowed()) {
+                        return Mono.error(new RejectedException("Demasiadas notificaciones (límite por " + decision.limitedBy()
+                                + "), reintente en " + decision.retryAfterSeconds() + " s"));
+                    }
+                    return createAdmittedNotification(userId, request);
+                });
+    }
+
+    private Mono<Notification> createAdmittedNotification(String userId, NotificationRequestDto request) {
+        Notification notification = new Notification();
+        notification.setUserReferenceId(userId);
+        notification.setMessage(request.getMessage());
+        notification.setType(request.getType());
+        notification.setPriority(request.getPriority());
+        notification.setDeliverAt(request.getDeliverAt());
+        notification.setTimestamp(Instant.now());
+        notification.setRead(false);
+        return notificationService.createNotification(userId, notification);
+    }
+
+    // request-response: ack (marcar como leídas y eliminar); devuelve los IDs procesados
+    @MessageMapping("notifications.ack.{userId}")
+    public Mono<List<String>> acknowledge(@DestinationVariable String userId, @Payload List<String> notificationIds,
+                                          RSocketRequester requester) {
+        return authorize(requester, userId)
+                .flatMap(user -> notificationService.markNotificationsAsReadAndDelete(userId, notificationIds));
+    }
+
+    // El usuario de la ruta debe ser el de la conexión
+    private Mono<User> authorize(RSocketRequester requester, String userId) {
+        User user = principals.get(requester);
+        if (user == null) {
+            return Mono.error(new AccessDeniedException("Conexión sin autenticar"));
+        }
+        if (!user.getId().equals(userId)) {
+            return Mono.error(new AccessDeniedException("La ruta pertenece a otro usuario"));
+        }
+        return Mono.just(user);
+    }
+}
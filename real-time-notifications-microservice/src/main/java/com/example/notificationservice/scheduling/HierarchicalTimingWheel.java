@@ -0,0 +1,164 @@
+package com.example.notificationservice.scheduling;
+
+import reactor.util.concurrent.Queues;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Rueda de tiempo jerárquica (al estilo de Kafka/Netty) para millones de entregas pendientes.
+ * <ul>
+ *     <li>{@link #schedule} es O(1) y seguro desde cualquier hilo: solo encola en una cola MPSC.</li>
+ *     <li>{@link #advanceTo} lo llama un único hilo (el "ticker"): coloca lo encolado en su cubeta y
+ *     vacía las cubetas que vencen. Las cubetas de niveles superiores se redistribuyen hacia los inferiores
+ *     al vencer, así cada entrada se mueve como mucho una vez por nivel.</li>
+ *     <li>Nunca dispara antes de la fecha indicada y como mucho un tick después.</li>
+ * </ul>
+ */
+public final class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final Queue<Entry<T>> inbox = Queues.<Entry<T>>unboundedMultiproducer().get();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Level<T> root;
+    private long currentTime;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMillis debe ser > 0 y wheelSize >= 2");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTime = startMillis - (startMillis % tickMillis);
+        this.root = new Level<>(tickMillis, wheelSize, currentTime);
+    }
+
+    public void schedule(T item, long deadlineMillis) {
+        size.incrementAndGet();
+        inbox.offer(new Entry<>(item, deadlineMillis));
+    }
+
+    // Entradas pendientes, incluidas las que aún no se han colocado en su cubeta
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Avanza la rueda hasta {@code nowMillis} tick a tick y entrega a {@code expired} lo que vence.
+     * Solo debe llamarse desde un hilo a la vez.
+     */
+    public void advanceTo(long nowMillis, Consumer<T> expired) {
+        Entry<T> entry;
+        while ((entry = inbox.poll()) != null) {
+            add(entry, expired);
+        }
+        while (currentTime + tickMillis <= nowMillis) {
+            currentTime += tickMillis;
+            tick(currentTime, expired);
+        }
+    }
+
+    private void tick(long time, Consumer<T> expired) {
+        // Los niveles superiores solo avanzan cuando el tiempo es múltiplo de su tick
+        int ticked = 0;
+        for (Level<T> level = root; level != null && time % level.tickMillis == 0; level = level.overflow) {
+            level.currentTime = time;
+            ticked++;
+        }
+        // Primero se vacía la cubeta del nivel 0; si no, una entrada redistribuida a wheelSize ticks
+        // caería en esa misma cubeta y se dispararía antes de tiempo
+        ArrayDeque<Entry<T>> due = root.takeBucket(time / tickMillis);
+        if (due != null) {
+            for (Entry<T> entry : due) {
+                fire(entry, expired);
+            }
+        }
+        // Luego se redistribuyen las cubetas de los niveles superiores que vencen en este tick
+        for (int depth = ticked - 1; depth >= 1; depth--) {
+            Level<T> level = levelAt(depth);
+            ArrayDeque<Entry<T>> bucket = level.takeBucket(time / level.tickMillis);
+            if (bucket != null) {
+                for (Entry<T> entry : bucket) {
+                    add(entry, expired);
+                }
+            }
+        }
+    }
+
+    private void add(Entry<T> entry, Consumer<T> expired) {
+        if (entry.deadline <= currentTime) {
+            fire(entry, expired);
+            return;
+        }
+        // Nivel 0: cubeta del tick en que la fecha ya se cumplió (redondeo hacia arriba)
+        if (entry.deadline <= root.currentTime + root.interval) {
+            root.put(-Math.floorDiv(-entry.deadline, tickMillis), entry);
+            return;
+        }
+        // Niveles superiores: cubeta que vence antes de la fecha (redondeo hacia abajo) y luego se redistribuye
+        Level<T> level = root;
+        while (true) {
+            if (level.overflow == null) {
+                level.overflow = new Level<>(level.interval, wheelSize, currentTime - (currentTime % level.interval));
+            }
+            level = level.overflow;
+            if (entry.deadline < level.currentTime + level.interval) {
+                level.put(entry.deadline / level.tickMillis, entry);
+                return;
+            }
+        }
+    }
+
+    private void fire(Entry<T> entry, Consumer<T> expired) {
+        size.decrementAndGet();
+        expired.accept(entry.item);
+    }
+
+    private Level<T> levelAt(int depth) {
+        Level<T> level = root;
+        for (int i = 0; i < depth; i++) {
+            level = level.overflow;
+        }
+        return level;
+    }
+
+    private record Entry<T>(T item, long deadline) {
+    }
+
+    private static final class Level<T> {
+
+        private final long tickMillis;
+        private final long interval;
+        private final List<ArrayDeque<Entry<T>>> buckets;
+        private long currentTime;
+        private Level<T> overflow;
+
+        private Level(long tickMillis, int wheelSize, long currentTime) {
+            this.tickMillis = tickMillis;
+            this.interval = tickMillis * wheelSize;
+            this.buckets = new ArrayList<>(Collections.nCopies(wheelSize, null));
+            this.currentTime = currentTime;
+        }
+
+        private void put(long slot, Entry<T> entry) {
+            int index = (int) (slot % buckets.size());
+            ArrayDeque<Entry<T>> bucket = buckets.get(index);
+            if (bucket == null) {
+                bucket = new ArrayDeque<>();
+                buckets.set(index, bucket);
+            }
+            bucket.add(entry);
+        }
+
+        // Las cubetas vacías se liberan para que la memoria dependa solo de las entradas pendientes
+        private ArrayDeque<Entry<T>> takeBucket(long slot) {
+            return buckets.set((int) (slot % buckets.size()), null);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.notificationservice.scheduling;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.events.NotificationEventBus;
+import com.example.notificationservice.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Recordatorios de notificaciones no leídas según una política por tipo.
+ * <p>
+ * Cada notificación guarda su estado ({@code reminderCount}, {@code lastRemindedAt}, {@code nextReminderAt}).
+ * El siguiente recordatorio se programa en el {@link WheelTimer}; al vencer se reclama con un findAndModify que
+ * exige (de forma atómica en el repositorio) que siga sin leer y que nadie lo haya enviado ya, y solo entonces se vuelve a publicar en el bus.
+ * Los retrasos crecen exponencialmente hasta {@code max-delay} y se para tras {@code max-reminders}.
+ * Sin política para el tipo, la notificación se emite una sola vez al crearse.
+ */
+@Service
+public class ReminderEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ReminderEngine.class);
+
+    static final String ANY_TYPE = "*";
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationEventBus eventBus;
+    private final WheelTimer timer;
+    private final Map<String, ReminderPolicy> policies;
+    private final Duration orphanGrace;
+
+    private final Sinks.Many<Reminder> due = Sinks.many().unicast().onBackpressureBuffer();
+    private Disposable reminders;
+
+    public ReminderEngine(NotificationRepository notificationRepository,
+                          NotificationEventBus eventBus,
+                          WheelTimer timer,
+                          @Value("${notifications.reminders.policies:}") String policies,
+                          @Value("${notifications.scheduling.orphan-grace:30s}") Duration orphanGrace) {
+        this.notificationRepository = notificationRepository;
+        this.eventBus = eventBus;
+        this.timer = timer;
+        this.policies = parsePolicies(policies);
+        this.orphanGrace = orphanGrace;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reminders = due.asFlux()
+                .flatMap(reminder -> remind(reminder).onErrorResume(e -> {
+                    log.error("No se pudo enviar el recordatorio de la notificación {}", reminder.notificationId(), e);
+                    return Mono.empty();
+                }), 64)
+                .subscribe();
+        if (policies.isEmpty()) {
+            return;
+        }
+        notificationRepository.ensureReminderIndex()
+                .thenMany(notificationRepository.findByNextReminderAtAfter(Instant.EPOCH))
+                .doOnNext(this::schedule)
+                .count()
+                .subscribe(count -> log.info("Se reprogramaron {} recordatorios pendientes", count),
+                        e -> log.error("No se pudieron reprogramar los recordatorios pendientes", e));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reminders != null) {
+            reminders.dispose();
+        }
+    }
+
+    /**
+     * Calcula el primer recordatorio de una notificación nueva, contando desde su entrega.
+     * Devuelve null si su tipo no tiene política.
+     */
+    public Instant firstReminderAt(Notification notification) {
+        ReminderPolicy policy = policyFor(notification.getType());
+        if (policy == null) {
+            return null;
+        }
+        Instant deliveredAt = notification.getDeliverAt() != null ? notification.getDeliverAt() : notification.getTimestamp();
+        return deliveredAt.plus(policy.delayBefore(0));
+    }
+
+    public void schedule(Notification notification) {
+        if (notification.getNextReminderAt() == null) {
+            return;
+        }
+        Reminder reminder = new Reminder(notification.getId(), notification.getType(), notification.getReminderCount());
+        timer.schedule(notification.getNextReminderAt(), () -> due.tryEmitNext(reminder));
+    }
+
+    // Recordatorios vencidos que ninguna réplica tenía en su rueda (la que los programó se cayó)
+    @Scheduled(fixedDelayString = "${notifications.scheduling.orphan-sweep-interval-ms:30000}")
+    public void adoptOrphans() {
+        if (policies.isEmpty()) {
+            return;
+        }
+        notificationRepository.findByNextReminderAtBetween(Instant.EPOCH, Instant.now().minus(orphanGrace))
+                .flatMap(notification -> remind(new Reminder(notification.getId(), notification.getType(), notification.getReminderCount())), 64)
+                .count()
+                .subscribe(count -> {
+                    if (count > 0) {
+                        log.warn("Se enviaron {} recordatorios huérfanos", count);
+                    }
+                }, e -> log.error("Error al buscar recordatorios huérfanos", e));
+    }
+
+    /**
+     * Envía el recordatorio si la notificación sigue sin leer y nadie lo ha enviado ya (mismo reminderCount),
+     * y programa el siguiente si la política lo pide.
+     */
+    Mono<Notification> remind(Reminder reminder) {
+        ReminderPolicy policy = policyFor(reminder.type());
+        if (policy == null) {
+            return Mono.empty();
+        }
+        Instant now = Instant.now();
+        int sent = reminder.count() + 1;
+        Instant next = sent < policy.maxReminders() ? now.plus(policy.delayBefore(sent)) : null;
+        return notificationRepository.claimReminder(reminder.notificationId(), reminder.count(), now, next)
+                .flatMap(claimed -> eventBus.publish(claimed).thenReturn(claimed))
+                .doOnNext(this::schedule);
+    }
+
+    private ReminderPolicy policyFor(String type) {
+        ReminderPolicy policy = policies.get(type != null ? type : Notification.DEFAULT_TYPE);
+        return policy != null ? policy : policies.get(ANY_TYPE);
+    }
+
+    // Formato: "tipo:retraso-inicial:multiplicador:retraso-máximo:máximo-de-recordatorios", p. ej. "security:5m:2:6h:4"
+    static Map<String, ReminderPolicy> parsePolicies(String spec) {
+        Map<String, ReminderPolicy> parsed = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return parsed;
+        }
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 5) {
+                throw new IllegalArgumentException("Política de recordatorios inválida: '" + entry
+                        + "' (se espera tipo:retraso-inicial:multiplicador:retraso-máximo:máximo)");
+            }
+            Duration initialDelay = DurationStyle.detectAndParse(parts[1].trim());
+            double multiplier = Double.parseDouble(parts[2].trim());
+            Duration maxDelay = DurationStyle.detectAndParse(parts[3].trim());
+            int maxReminders = Integer.parseInt(parts[4].trim());
+            if (initialDelay.isNegative() || initialDelay.isZero() || multiplier < 1 || maxDelay.compareTo(initialDelay) < 0 || maxReminders < 1) {
+                throw new IllegalArgumentException("Política de recordatorios inválida: '" + entry + "'");
+            }
+            parsed.put(parts[0].trim(), new ReminderPolicy(initialDelay, multiplier, maxDelay, maxReminders));
+        }
+        return Map.copyOf(parsed);
+    }
+
+    record ReminderPolicy(Duration initialDelay, double multiplier, Duration maxDelay, int maxReminders) {
+
+        // Retraso antes del recordatorio número sent+1: inicial * multiplicador^sent, acotado por maxDelay
+        Duration delayBefore(int sent) {
+            double millis = initialDelay.toMillis() * Math.pow(multiplier, sent);
+            return millis >= maxDelay.toMillis() ? maxDelay : Duration.ofMillis((long) millis);
+        }
+    }
+
+    record Reminder(String notificationId, String type, int count) {
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.notificationservice.scheduling;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.events.NotificationEventBus;
+import com.example.notificationservice.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Entregas programadas ("entregar en T").
+ * <ul>
+ *     <li>Las pendientes viven en la rueda en memoria del {@link WheelTimer}; no hay escaneos periódicos de la colección.</li>
+ *     <li>Al arrancar, la rueda se reconstruye con una consulta sobre un índice parcial que solo contiene las pendientes.</li>
+ *     <li>Varias réplicas pueden tener la misma entrega en su rueda: al vencer, cada una intenta reclamarla con un
+ *     findAndModify atómico ({@code pendingDelivery: true -> false}) y solo la que gana la publica en el bus.</li>
+ *     <li>Si una réplica cae, sus entregas creadas después del arranque de las demás se recogen en un barrido
+ *     de las vencidas hace más de {@code orphan-grace}, que también usa el índice parcial.</li>
+ * </ul>
+ */
+@Service
+public class ScheduledDeliveryService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduledDeliveryService.class);
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationEventBus eventBus;
+    private final WheelTimer timer;
+    private final Duration orphanGrace;
+    private final int claimConcurrency;
+
+    // El hilo del temporizador es el único productor: un sink unicast basta para pasar los IDs vencidos a los reclamos
+    private final Sinks.Many<String> due = Sinks.many().unicast().onBackpressureBuffer();
+    private Disposable claims;
+
+    public ScheduledDeliveryService(NotificationRepository notificationRepository,
+                                    NotificationEventBus eventBus,
+                                    WheelTimer timer,
+                                    @Value("${notifications.scheduling.orphan-grace:30s}") Duration orphanGrace,
+                                    @Value("${notifications.scheduling.claim-concurrency:64}") int claimConcurrency) {
+        this.notificationRepository = notificationRepository;
+        this.eventBus = eventBus;
+        this.timer = timer;
+        this.orphanGrace = orphanGrace;
+        this.claimConcurrency = claimConcurrency;
+    }
+
+    // Arranca los reclamos y reconstruye la rueda con las entregas pendientes guardadas
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        claims = due.asFlux()
+                .flatMap(id -> claimAndPublish(id).onErrorResume(e -> {
+                    log.error("No se pudo entregar la notificación programada {}", id, e);
+                    return Mono.empty();
+                }), claimConcurrency)
+                .subscribe();
+
+        notificationRepository.ensurePendingDeliveryIndex()
+                .thenMany(notificationRepository.findByPendingDeliveryTrue())
+                .doOnNext(this::schedule)
+                .count()
+                .subscribe(count -> log.info("Rueda de entregas reconstruida con {} notificaciones pendientes", count),
+                        e -> log.error("No se pudo reconstruir la rueda de entregas programadas", e));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (claims != null) {
+            claims.dispose();
+        }
+    }
+
+    public void schedule(Notification notification) {
+        String id = notification.getId();
+        timer.schedule(notification.getDeliverAt(), () -> due.tryEmitNext(id));
+    }
+
+    // Adopta las entregas vencidas que ninguna réplica reclamó (p. ej. la que las creó se cayó)
+    @Scheduled(fixedDelayString = "${notifications.scheduling.orphan-sweep-interval-ms:30000}")
+    public void adoptOrphans() {
+        notificationRepository.findByPendingDeliveryTrueAndDeliverAtBefore(Instant.now().minus(orphanGrace))
+                .map(Notification::getId)
+                .flatMap(this::claimAndPublish, claimConcurrency)
+                .count()
+                .subscribe(count -> {
+                    if (count > 0) {
+                        log.warn("Se entregaron {} notificaciones programadas huérfanas", count);
+                    }
+                }, e -> log.error("Error al buscar entregas programadas huérfanas", e));
+    }
+
+    // Solo una réplica consigue pasar pendingDelivery de true a false; esa es la que publica
+    Mono<Notification> claimAndPublish(String notificationId) {
+        return notificationRepository.claimScheduledDelivery(notificationId)
+                .flatMap(claimed -> eventBus.publish(claimed).thenReturn(claimed));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.notificationservice.scheduling;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Temporizador compartido por las entregas programadas y los recordatorios: una sola
+ * {@link HierarchicalTimingWheel} avanzada por un único hilo.
+ * Las tareas se ejecutan en ese hilo, así que deben ser mínimas (normalmente emitir un ID a un sink).
+ */
+@Component
+public class WheelTimer {
+
+    private final long tickMillis;
+    private final HierarchicalTimingWheel<Runnable> wheel;
+    private final Scheduler ticker = Schedulers.newSingle("delivery-wheel", true);
+    private Disposable tickTask;
+
+    public WheelTimer(@Value("${notifications.scheduling.tick-ms:100}") long tickMillis,
+                      @Value("${notifications.scheduling.wheel-size:512}") int wheelSize) {
+        this.tickMillis = tickMillis;
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    @PostConstruct
+    public void start() {
+        tickTask = ticker.schedulePeriodically(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.dispose();
+        }
+        ticker.dispose();
+    }
+
+    public void schedule(Instant at, Runnable task) {
+        wheel.schedule(task, at.toEpochMilli());
+    }
+
+    public int getPending() {
+        return wheel.size();
+    }
+
+    void advance() {
+        wheel.advanceTo(System.currentTimeMillis(), Runnable::run);
+    }
+}
@@ -1,39 +1,79 @@
 package com.example.notificationservice.security;
 
 import com.example.notificationservice.entity.JwtSecret;
+import com.example.notificationservice.metrics.NotificationMetrics;
 import com.example.notificationservice.repository.JwtSecretRepository;
 import com.example.notificationservice.repository.UserRepository;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Deserializer;
+import io.jsonwebtoken.io.Serializer;
+import io.jsonwebtoken.jackson.io.JacksonDeserializer;
+import io.jsonwebtoken.jackson.io.JacksonSerializer;
 import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Map;
 
 @Component
 public class JwtUtil {
 
     private static final Logger log = LoggerFactory.getLogger(JwtUtil.class);
+    // Una sola instancia: crearla y sembrarla en cada llamada lee de /dev/urandom cada vez
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    // (De)serializadores JSON explícitos: sin ellos jjwt los busca con ServiceLoader, leyendo el jar, en cada
+    // token que firma o valida, y eso ocurre en el event loop
+    private static final Serializer<Map<String, ?>> JSON_SERIALIZER = new JacksonSerializer<>();
+    private static final Deserializer<Map<String, ?>> JSON_DESERIALIZER = new JacksonDeserializer<>();
     private final JwtSecretRepository jwtSecretRepository;
     private final UserRepository userRepository;
+    private final NotificationMetrics metrics;
+
+    // Clave de firma y parser construido con ella (inmutable y thread-safe): construir un parser por token
+    // vuelve a buscar los códecs de compresión con ServiceLoader
+    private record SigningKey(Key key, JwtParser parser, long loadedAt) {
+    }
+
+    // Clave de firma derivada del secreto guardado; se reutiliza durante keyCacheTtl en lugar de consultar Mongo
+    // en cada token, y pasado ese tiempo se vuelve a leer para que una rotación del secreto llegue a todas las réplicas
+    private volatile SigningKey signingKey;
+    private final long keyCacheTtlNanos;
+
+    // Carga compartida: las peticiones concurrentes del arranque esperan a la misma lectura en lugar de
+    // crear cada una su propio secreto (y firmar tokens que luego no validan). Un fallo no se cachea.
+    // El parser se construye fuera del event loop porque lee los descriptores de servicios de los jars.
+    private final Mono<SigningKey> keyLoader;
 
     @Autowired
-    public JwtUtil(JwtSecretRepository jwtSecretRepository, UserRepository userRepository) {
+    public JwtUtil(JwtSecretRepository jwtSecretRepository, UserRepository userRepository, NotificationMetrics metrics,
+                   @Value("${jwt.key-cache-ttl:5m}") Duration keyCacheTtl) {
         this.jwtSecretRepository = jwtSecretRepository;
         this.userRepository = userRepository;
+        this.metrics = metrics;
+        this.keyCacheTtlNanos = keyCacheTtl.toNanos();
+        this.keyLoader = Mono.defer(() -> getSecret()
+                        .publishOn(Schedulers.boundedElastic())
+                        .map(JwtUtil::signingKey))
+                .cache(key -> keyCacheTtl, error -> Duration.ZERO, () -> Duration.ZERO);
     }
 
     public Mono<Authentication> getAuthentication(String token) {
@@ -53,11 +93,12 @@ public class JwtUtil {
 
     // Método para permitir establecer la duración del token
     public Mono<String> generateToken(String username, long durationMillis) {
-        return getSecret().flatMap(secret -> {
+        return getSigningKey().flatMap(key -> {
             String token = Jwts.builder()
                     .setSubject(username)
                     .setExpiration(new Date(System.currentTimeMillis() + durationMillis)) // Expira según la duración especificada
-                    .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS512)
+                    .signWith(key, SignatureAlgorithm.HS512)
+                    .serializeToJsonWith(JSON_SERIALIZER)
                     .compact();
             return Mono.just(token);
         });
@@ -71,13 +112,9 @@ public class JwtUtil {
 
     // Método ajustado para renovar el token con una nueva duración
     public Mono<String> renewToken(String token) {
-        return getSecret().flatMap(secretKey -> {
+        return signing().flatMap(key -> {
             try {
-                Claims claims = Jwts.parserBuilder()
-                        .setSigningKey(Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8)))
-                        .build()
-                        .parseClaimsJws(token)
-                        .getBody();
+                Claims claims = key.parser().parseClaimsJws(token).getBody();
 
                 // Si los claims existen, generar un nuevo token basado en ellos
                 long renewedDurationMillis = 1000 * 60 * 5; // 5 minutos para el token renovado
@@ -97,17 +134,18 @@ public class JwtUtil {
     }
 
     public Mono<Boolean> validateToken(String token) {
-        return getSecret().flatMap(secretKey -> {
+        return signing().flatMap(key -> {
+            long start = System.nanoTime();
             try {
-                Jwts.parserBuilder()
-                        .setSigningKey(Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8)))
-                        .build()
-                        .parseClaimsJws(token);
+                key.parser().parseClaimsJws(token);
+                metrics.recordJwtValidation(start);
                 return Mono.just(true);
             } catch (ExpiredJwtException e) {
+                metrics.recordJwtValidation(start);
                 log.info("El token ha expirado: {}", e.getMessage());
                 return Mono.error(new ExpiredJwtException(null, null, "Token Expirado"));
             } catch (Exception e) {
+                metrics.recordJwtValidation(start);
                 log.error("Error al validar el token: {}", e.getMessage());
                 return Mono.just(false);
             }
@@ -115,13 +153,9 @@ public class JwtUtil {
     }
 
     public Mono<String> extractUsername(String token) {
-        return getSecret().flatMap(secret -> {
+        return signing().flatMap(key -> {
             try {
-                Claims claims = Jwts.parserBuilder()
-                        .setSigningKey(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
-                        .build()
-                        .parseClaimsJws(token)
-                        .getBody();
+                Claims claims = key.parser().parseClaimsJws(token).getBody();
                 return Mono.just(claims.getSubject());
             } catch (ExpiredJwtException e) {
                 log.info("El token ha expirado, pero se puede extraer el nombre de usuario: {}", e.getClaims().getSubject());
@@ -133,20 +167,48 @@ public class JwtUtil {
         });
     }
 
+    // Devuelve la clave cacheada; solo la primera llamada, la primera tras caducar o tras un fallo lee el secreto de Mongo
+    public Mono<Key> getSigningKey() {
+        return signing().map(SigningKey::key);
+    }
+
+    private Mono<SigningKey> signing() {
+        SigningKey key = signingKey;
+        if (key != null && System.nanoTime() - key.loadedAt() < keyCacheTtlNanos) {
+            metrics.recordJwtKeyCache(true);
+            return Mono.just(key);
+        }
+        metrics.recordJwtKeyCache(false);
+        return keyLoader.doOnNext(loaded -> signingKey = loaded);
+    }
+
+    private static SigningKey signingKey(String secret) {
+        Key key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        JwtParser parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .deserializeJsonWith(JSON_DESERIALIZER)
+                .build();
+        return new SigningKey(key, parser, System.nanoTime());
+    }
+
     public Mono<String> getSecret() {
         return jwtSecretRepository.findFirstByOrderByIdAsc()
                 .flatMap(jwtSecret -> Mono.just(jwtSecret.getSecret()))
-                .switchIfEmpty(Mono.defer(() -> {
-                    String secret = generateSecret();
-                    JwtSecret newJwtSecret = new JwtSecret(secret);
-                    return jwtSecretRepository.save(newJwtSecret).map(JwtSecret::getSecret);
-                }));
+                // SecureRandom puede leer de /dev/urandom (bloqueante): el secreto se genera fuera del event loop
+                .switchIfEmpty(Mono.fromCallable(JwtUtil::generateSecret)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMap(secret -> {
+                            JwtSecret newJwtSecret = new JwtSecret(secret);
+                            // Si otra réplica lo creó a la vez, todas se quedan con el primero guardado
+                            return jwtSecretRepository.save(newJwtSecret)
+                                    .then(jwtSecretRepository.findFirstByOrderByIdAsc())
+                                    .map(JwtSecret::getSecret);
+                        }));
     }
 
-    private String generateSecret() {
-        SecureRandom secureRandom = new SecureRandom();
+    private static String generateSecret() {
         byte[] secretBytes = new byte[64];
-        secureRandom.nextBytes(secretBytes);
+        SECURE_RANDOM.nextBytes(secretBytes);
         return Base64.getEncoder().encodeToString(secretBytes);
     }
 }
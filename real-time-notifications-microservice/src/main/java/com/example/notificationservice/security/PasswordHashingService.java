@@ -0,0 +1,118 @@
+package com.example.notificationservice.security;
+
+import com.example.notificationservice.metrics.NotificationMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hash y verificación de contraseñas (BCrypt, ~100 ms de CPU cada uno) fuera de los event loops de Netty.
+ * <p>
+ * Se ejecutan en un pool propio de {@code threads} hilos con una cola de {@code queue-capacity} tareas. Con la cola
+ * llena la petición se rechaza al momento con 503 en lugar de esperar: una ráfaga de logins solo puede ocupar
+ * este pool, nunca los hilos que escriben los flujos SSE. Una tarea cuyo cliente ya canceló no llega a calcularse.
+ * Se mide la espera en cola y el tiempo de hash por operación ({@code password.hash.*}).
+ */
+@Component
+public class PasswordHashingService {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    public enum Operation {
+        ENCODE, MATCHES
+    }
+
+    private final PasswordEncoder passwordEncoder;
+    private final NotificationMetrics metrics;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, NotificationMetrics metrics,
+                                  @Value("${notifications.password-hashing.threads:0}") int threads,
+                                  @Value("${notifications.password-hashing.queue-capacity:64}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        this.metrics = metrics;
+        // 0 = la mitad de los núcleos: el resto queda libre para los event loops aunque el pool esté saturado
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public Mono<String> encode(CharSequence rawPassword) {
+        return submit(Operation.ENCODE, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public Mono<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(Operation.MATCHES, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    private <T> Mono<T> submit(Operation operation, Callable<T> task) {
+        return Mono.defer(() -> {
+            long queuedAt = System.nanoTime();
+            CompletableFuture<T> result = new CompletableFuture<>();
+            try {
+                executor.execute(() -> {
+                    long startedAt = System.nanoTime();
+                    metrics.recordPasswordHashWait(operation, startedAt - queuedAt);
+                    if (result.isDone()) {
+                        return;  // Cancelada mientras esperaba en la cola
+                    }
+                    try {
+                        result.complete(task.call());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        metrics.recordPasswordHash(operation, System.nanoTime() - startedAt);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                log.warn("Pool de contraseñas saturado ({} en cola), se rechaza la operación {}", executor.getQueue().size(), operation);
+                return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "El servicio de contraseñas está saturado, inténtelo más tarde"));
+            }
+            // Cancelar el Mono cancela el future; el resto de la cadena sigue en parallel, el pool solo calcula hashes
+            return Mono.fromFuture(result).publishOn(Schedulers.parallel());
+        });
+    }
+
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    public int getActive() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
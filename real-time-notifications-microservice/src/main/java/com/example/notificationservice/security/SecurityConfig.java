@@ -35,6 +35,9 @@ public class SecurityConfig {
                         .pathMatchers(HttpMethod.GET,"/api-clients/v1.0/users/").permitAll()
                         .pathMatchers(HttpMethod.POST,"/api-clients/v1.0/users/").permitAll()
                         .pathMatchers("/api-clients/v1.0/notifications/**").authenticated()
+                        // Solo el health check es público: métricas y Prometheus exponen datos internos
+                        .pathMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .pathMatchers("/actuator/**").authenticated()
                         .anyExchange().permitAll()
                 )
                 .addFilterAt(jwtAuthenticationFilter, SecurityWebFiltersOrder.AUTHENTICATION)
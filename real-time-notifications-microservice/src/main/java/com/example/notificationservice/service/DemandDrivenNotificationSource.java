@@ -0,0 +1,102 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * Fuente de notificaciones no leídas guiada por la demanda del consumidor (Reactive Streams {@code request(n)}).
+ * En lugar de empujar eventos a un buffer, lee de MongoDB por páginas usando el ID (ordenado por tiempo)
+ * como cursor, y solo pide la siguiente página cuando el consumidor ha pedido más elementos.
+ * Los eventos del bus únicamente "despiertan" la lectura; si el consumidor es lento las señales se
+ * conflacionan en una sola y el servidor nunca acumula más de una página por suscriptor.
+ * Nota: IDs generados en el mismo milisegundo por réplicas distintas pueden insertarse fuera de orden;
+ * el sondeo periódico no los recupera si el cursor ya los pasó.
+ */
+@Component
+public class DemandDrivenNotificationSource {
+
+    // Cursor inicial: cualquier ID generado es mayor que la cadena vacía
+    private static final String FROM_START = "";
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationService notificationService;
+    private final int pageSize;
+    private final Duration pollInterval;
+
+    public DemandDrivenNotificationSource(NotificationRepository notificationRepository,
+                                          NotificationService notificationService,
+                                          @Value("${notifications.stream.page-size:128}") int pageSize,
+                                          @Value("${notifications.stream.poll-interval:30s}") Duration pollInterval) {
+        this.notificationRepository = notificationRepository;
+        this.notificationService = notificationService;
+        this.pageSize = pageSize;
+        this.pollInterval = pollInterval;
+    }
+
+    // Notificaciones no leídas de un usuario con ID mayor que afterId (null = desde el principio)
+    public Flux<Notification> userStream(String userId, String afterId) {
+        return stream(afterId,
+                (cursor, page) -> notificationRepository.findByUserReferenceIdAndReadFalseAndIdGreaterThanOrderByIdAsc(userId, cursor, page),
+                notification -> userId.equals(notification.getUserReferenceId()));
+    }
+
+    // Notificaciones no leídas de todos los usuarios con ID mayor que afterId (null = desde el principio)
+    public Flux<Notification> globalStream(String afterId) {
+        return stream(afterId, notificationRepository::findByReadFalseAndIdGreaterThanOrderByIdAsc, notification -> true);
+    }
+
+    private Flux<Notification> stream(String afterId,
+                                      BiFunction<String, Pageable, Flux<Notification>> pageQuery,
+                                      Predicate<Notification> matches) {
+        return Flux.defer(() -> {
+            AtomicReference<String> cursor = new AtomicReference<>(afterId != null ? afterId : FROM_START);
+            AtomicLong outstanding = new AtomicLong();
+            AtomicBoolean fullPage = new AtomicBoolean();
+
+            // Cada página se ajusta a la demanda pendiente, con un mínimo de 1 y un máximo de pageSize
+            Flux<Notification> drain = Flux.defer(() -> {
+                        int size = (int) Math.max(1, Math.min(pageSize, outstanding.get()));
+                        AtomicLong received = new AtomicLong();
+                        return pageQuery.apply(cursor.get(), Pageable.ofSize(size))
+                                .doOnNext(notification -> {
+                                    cursor.set(notification.getId());
+                                    received.incrementAndGet();
+                                })
+                                .doOnComplete(() -> fullPage.set(received.get() == size))
+                                // El cursor avanza también sobre las programadas, pero no se entregan antes de su hora
+                                .filter(notification -> !notification.isPendingDelivery());
+                    })
+                    // Mientras las páginas vengan llenas puede haber más datos pendientes
+                    .repeat(fullPage::get);
+
+            // Señales para volver a leer: eventos nuevos del bus o el sondeo de respaldo.
+            // onBackpressureLatest las reduce a una sola mientras se está leyendo
+            Flux<Object> wakeUps = Flux.merge(
+                            notificationService.getNotificationSink().asFlux().filter(matches),
+                            Flux.interval(pollInterval))
+                    .onBackpressureLatest();
+
+            return Flux.<Object>just(Boolean.TRUE)
+                    .concatWith(wakeUps)
+                    .concatMap(signal -> drain, 1)
+                    .doOnRequest(n -> outstanding.accumulateAndGet(n, DemandDrivenNotificationSource::addCap))
+                    .doOnNext(notification -> outstanding.decrementAndGet());
+        });
+    }
+
+    private static long addCap(long current, long requested) {
+        long sum = current + requested;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+}
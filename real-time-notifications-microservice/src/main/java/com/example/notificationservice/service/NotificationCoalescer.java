@@ -0,0 +1,107 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.dto.NotificationDigest;
+import com.example.notificationservice.entity.Notification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Agrupa las ráfagas de notificaciones de un usuario en la ruta de entrega.
+ * <p>
+ * Cada tipo puede tener su propia política {@code tipo:ventana:umbral:últimas}: las notificaciones de ese tipo
+ * se acumulan durante la ventana y, si en ella llegan más que el umbral, se entrega un único
+ * {@link NotificationDigest} con el total y las últimas N. Por debajo del umbral se entregan una a una.
+ * El tipo {@code *} aplica a los tipos sin política propia. Sin políticas configuradas no se agrupa nada.
+ */
+@Component
+public class NotificationCoalescer {
+
+    static final String ANY_TYPE = "*";
+
+    private final Map<String, Policy> policies;
+    private final int maxBufferSize;
+
+    public NotificationCoalescer(@Value("${notifications.coalescing.policies:}") String policies,
+                                 @Value("${notifications.coalescing.max-buffer-size:1000}") int maxBufferSize) {
+        this.policies = parsePolicies(policies);
+        this.maxBufferSize = maxBufferSize;
+    }
+
+    public boolean isEnabled() {
+        return !policies.isEmpty();
+    }
+
+    /**
+     * Aplica las políticas al flujo de un usuario. Los tipos sin política pasan sin retraso.
+     */
+    public <T> Flux<T> coalesce(Flux<Notification> notifications,
+                                Function<Notification, T> single,
+                                Function<NotificationDigest, T> digest) {
+        if (!isEnabled()) {
+            return notifications.map(single);
+        }
+        return notifications
+                .groupBy(this::typeOf)
+                .flatMap(group -> {
+                    Policy policy = policyFor(group.key());
+                    if (policy == null) {
+                        return group.map(single);
+                    }
+                    // La ventana empieza con la primera notificación; una ráfaga enorme se corta en bloques de maxBufferSize
+                    return group.bufferTimeout(maxBufferSize, policy.window())
+                            .flatMapIterable(burst -> burst.size() > policy.threshold()
+                                    ? List.of(digest.apply(toDigest(burst, policy)))
+                                    : burst.stream().map(single).toList());
+                });
+    }
+
+    private NotificationDigest toDigest(List<Notification> burst, Policy policy) {
+        Notification first = burst.get(0);
+        Notification last = burst.get(burst.size() - 1);
+        List<Notification> latest = List.copyOf(burst.subList(Math.max(0, burst.size() - policy.latest()), burst.size()));
+        return new NotificationDigest(last.getUserReferenceId(), typeOf(last), burst.size(),
+                first.getTimestamp(), last.getTimestamp(), latest);
+    }
+
+    private Policy policyFor(String type) {
+        Policy policy = policies.get(type);
+        return policy != null ? policy : policies.get(ANY_TYPE);
+    }
+
+    private String typeOf(Notification notification) {
+        return notification.getType() != null ? notification.getType() : Notification.DEFAULT_TYPE;
+    }
+
+    // Formato: "marketing:1s:10:5,general:500ms:20:3"
+    static Map<String, Policy> parsePolicies(String spec) {
+        Map<String, Policy> parsed = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return parsed;
+        }
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Política de agrupación inválida: '" + entry + "' (se espera tipo:ventana:umbral:últimas)");
+            }
+            Duration window = DurationStyle.detectAndParse(parts[1].trim());
+            int threshold = Integer.parseInt(parts[2].trim());
+            int latest = Integer.parseInt(parts[3].trim());
+            if (window.isZero() || window.isNegative() || threshold < 1 || latest < 1) {
+                throw new IllegalArgumentException("Política de agrupación inválida: '" + entry + "'");
+            }
+            parsed.put(parts[0].trim(), new Policy(window, threshold, latest));
+        }
+        return Map.copyOf(parsed);
+    }
+
+    record Policy(Duration window, int threshold, int latest) {
+    }
+}
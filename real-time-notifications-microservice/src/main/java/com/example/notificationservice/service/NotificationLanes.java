@@ -0,0 +1,131 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Carriles de ingesta por prioridad.
+ * <p>
+ * Cada carril tiene su propia cola acotada y su propio límite de escrituras concurrentes, de modo que un
+ * envío masivo en LOW solo puede llenar su cola y consumir sus permisos; HIGH nunca espera detrás de él.
+ * Si la cola de un carril está llena la petición se rechaza con 503 en lugar de acumularse sin límite.
+ */
+@Component
+public class NotificationLanes {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationLanes.class);
+
+    private final Map<NotificationPriority, Lane> lanes = new EnumMap<>(NotificationPriority.class);
+    private final int deliveryCapacity;
+    private final int deliveryMaxRetries;
+
+    public NotificationLanes(@Value("${notifications.lanes.high.queue-capacity:1000}") int highCapacity,
+                             @Value("${notifications.lanes.high.concurrency:64}") int highConcurrency,
+                             @Value("${notifications.lanes.normal.queue-capacity:10000}") int normalCapacity,
+                             @Value("${notifications.lanes.normal.concurrency:32}") int normalConcurrency,
+                             @Value("${notifications.lanes.low.queue-capacity:100000}") int lowCapacity,
+                             @Value("${notifications.lanes.low.concurrency:8}") int lowConcurrency,
+                             @Value("${notifications.lanes.delivery-capacity:10000}") int deliveryCapacity,
+                             @Value("${notifications.lanes.delivery-max-retries:100}") int deliveryMaxRetries) {
+        lanes.put(NotificationPriority.HIGH, new Lane(NotificationPriority.HIGH, highCapacity, highConcurrency));
+        lanes.put(NotificationPriority.NORMAL, new Lane(NotificationPriority.NORMAL, normalCapacity, normalConcurrency));
+        lanes.put(NotificationPriority.LOW, new Lane(NotificationPriority.LOW, lowCapacity, lowConcurrency));
+        this.deliveryCapacity = deliveryCapacity;
+        this.deliveryMaxRetries = deliveryMaxRetries;
+    }
+
+    /**
+     * Encola el trabajo en el carril de la prioridad indicada. El Mono resultante termina cuando el trabajo
+     * termina, o falla con 503 si el carril está lleno.
+     */
+    public <T> Mono<T> submit(NotificationPriority priority, Mono<T> work) {
+        Lane lane = lanes.get(NotificationPriority.orDefault(priority));
+        return Mono.create(sink -> lane.offer(new Task<>(work, sink)));
+    }
+
+    /**
+     * Cola de entrega con prioridad estricta delante del sink de notificaciones.
+     * {@code emitListener} recibe el resultado de cada tryEmitNext (métricas) y {@code dropListener} cada notificación
+     * descartada por cola llena o por sink atascado.
+     */
+    public PriorityDeliveryQueue deliveryQueue(Sinks.Many<Notification> target, Consumer<Sinks.EmitResult> emitListener,
+                                               Consumer<Notification> dropListener) {
+        return new PriorityDeliveryQueue(target, emitListener, dropListener, deliveryCapacity, deliveryMaxRetries);
+    }
+
+    public int getQueued(NotificationPriority priority) {
+        return lanes.get(priority).queued.get();
+    }
+
+    public long getRejected(NotificationPriority priority) {
+        return lanes.get(priority).rejected.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.values().forEach(lane -> lane.worker.dispose());
+    }
+
+    private static final class Lane {
+
+        private final NotificationPriority priority;
+        // Cola acotada: el sink unicast serializa a los productores, así que una cola SPSC es suficiente
+        private final Sinks.Many<Task<?>> queue;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong rejected = new AtomicLong();
+        private final Disposable worker;
+
+        private Lane(NotificationPriority priority, int capacity, int concurrency) {
+            this.priority = priority;
+            this.queue = Sinks.many().unicast().onBackpressureBuffer(Queues.<Task<?>>get(capacity).get());
+            this.worker = queue.asFlux()
+                    .doOnNext(task -> queued.decrementAndGet())
+                    .flatMap(Task::run, concurrency)
+                    .subscribe();
+        }
+
+        private void offer(Task<?> task) {
+            queued.incrementAndGet();
+            Sinks.EmitResult result;
+            while ((result = queue.tryEmitNext(task)) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+                Thread.onSpinWait();  // Otro hilo está encolando en este carril
+            }
+            if (result.isFailure()) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                log.warn("Carril {} lleno, se rechaza la notificación", priority);
+                task.sink.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "El carril de prioridad " + priority + " está lleno, inténtelo más tarde"));
+            }
+        }
+    }
+
+    private record Task<T>(Mono<T> work, MonoSink<T> sink) {
+
+        // Los errores se entregan a quien envió el trabajo; el carril sigue procesando
+        private Mono<Void> run() {
+            return work.doOnSuccess(sink::success)
+                    .doOnError(sink::error)
+                    .onErrorResume(e -> Mono.empty())
+                    .then();
+        }
+    }
+}
@@ -3,108 +3,124 @@ package com.example.notificationservice.service;
 
 import com.example.notificationservice.HttpResponse.CustomApiResponse;
 import com.example.notificationservice.HttpResponse.ResponseUtil;
+import com.example.notificationservice.delivery.RedeliveryQueue;
 import com.example.notificationservice.dto.NotificationResponseDto;
 import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import com.example.notificationservice.events.NotificationEventBus;
+import com.example.notificationservice.metrics.NotificationMetrics;
 import com.example.notificationservice.repository.NotificationRepository;
 import com.example.notificationservice.repository.UserRepository;
+import com.example.notificationservice.scheduling.ReminderEngine;
+import com.example.notificationservice.scheduling.ScheduledDeliveryService;
 
+import com.example.notificationservice.utils.IdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
 
-import java.time.Duration;
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.List;
-import java.util.UUID;
 
 
 @Service
 public class NotificationService {
 
+    private static final Logger log = LoggerFactory.getLogger(NotificationService.class);
+
     private final UserRepository userRepository;
     private final NotificationRepository notificationRepository;
+    private final IdGenerator idGenerator;
+    private final NotificationEventBus eventBus;
+    private final NotificationLanes lanes;
+    private final ScheduledDeliveryService scheduledDeliveryService;
+    private final ReminderEngine reminderEngine;
+    private final NotificationMetrics metrics;
+    private final RedeliveryQueue redeliveryQueue;
     // Método público para acceder al sink desde la clase de prueba
 
     @Getter
     // Sink para manejar múltiples suscriptores y emitir eventos de forma reactiva
-    private final Sinks.Many<Notification> notificationSink = Sinks.many().multicast().onBackpressureBuffer();
-
+    // autoCancel=false: si se desconecta el último cliente SSE el sink no se termina
+    private final Sinks.Many<Notification> notificationSink = Sinks.many().multicast().onBackpressureBuffer(Queues.SMALL_BUFFER_SIZE, false);
 
+    // Todo lo que se entrega al sink pasa por aquí para que HIGH salga antes que el tráfico masivo
+    @Getter
+    private final PriorityDeliveryQueue deliveryQueue;
 
+    // Suscripción única de esta réplica al bus de eventos
+    private Disposable busSubscription;
 
 
     @Autowired
-    public NotificationService(UserRepository userRepository, NotificationRepository notificationRepository) {
+    public NotificationService(UserRepository userRepository, NotificationRepository notificationRepository, IdGenerator idGenerator,
+                               NotificationEventBus eventBus, NotificationLanes lanes, ScheduledDeliveryService scheduledDeliveryService,
+                               ReminderEngine reminderEngine, NotificationMetrics metrics, RedeliveryQueue redeliveryQueue) {
         this.userRepository = userRepository;
         this.notificationRepository = notificationRepository;
+        this.idGenerator = idGenerator;
+        this.eventBus = eventBus;
+        this.lanes = lanes;
+        this.scheduledDeliveryService = scheduledDeliveryService;
+        this.reminderEngine = reminderEngine;
+        this.metrics = metrics;
+        this.redeliveryQueue = redeliveryQueue;
+        // Lo que la cola descarta por estar llena se reenvía a las conexiones con acks
+        this.deliveryQueue = lanes.deliveryQueue(notificationSink, metrics::recordEmit, redeliveryQueue::missed);
     }
 
-    // Flujo de notificaciones no leídas globalmente
-    public Flux<Notification> getUnreadNotificationStream() {
-        return notificationSink.asFlux();  // Retorna el flujo de notificaciones desde el Sink
+    // Cada réplica se suscribe una vez al bus y reparte los eventos a sus clientes locales
+    @PostConstruct
+    public void subscribeToEventBus() {
+        busSubscription = eventBus.events()
+                .subscribe(deliveryQueue::offer,
+                        e -> log.error("La suscripción al bus de notificaciones terminó con error", e));
     }
 
-    @Scheduled(fixedRate = 60000)
-    public void checkForUnreadNotifications() {
-        System.out.println("\n\n ================== Buscando notificaciones no leídas ================== \n");
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd 'de' MMMM 'de' yyyy 'a las' HH:mm")
-                .withZone(ZoneId.systemDefault());  // Zona horaria del sistema
-
-        // Obtener todas las notificaciones no leídas
-        Flux<Notification> unreadNotifications = notificationRepository.findAll()
-                .filter(notification -> !notification.isRead());  // Filtrar solo las no leídas
-
-        unreadNotifications
-                .filter(notification -> notification.getUserReferenceId() != null)  // Filtrar notificaciones sin userReferenceId
-                .groupBy(Notification::getUserReferenceId)  // Agrupar las notificaciones por usuario
-                .flatMap(groupedFlux -> groupedFlux.collectList()
-                        .flatMap(notifications -> {
-                            // Buscar el usuario por su ID
-                            return userRepository.findById(groupedFlux.key())
-                                    .map(user -> {
-                                        String userName = user.getName();
-                                        notifications.forEach(notification -> {
-                                            String formattedDate = formatter.format(notification.getTimestamp());
-                                            System.out.println("Notificación para " + userName + ": "
-                                                    + notification.getMessage() + " con la fecha " + formattedDate);
-                                        });
-
-                                        // Emitir las notificaciones agrupadas por nombre de usuario
-                                        notifications.forEach(notificationSink::tryEmitNext);
-
-                                        return notifications;
-                                    })
-                                    .onErrorResume(e -> {
-                                        System.err.println("Error al buscar el usuario para el ID: " + groupedFlux.key());
-                                        return Mono.empty();
-                                    });
-                        }))
-                .subscribe();
+    @PreDestroy
+    public void unsubscribeFromEventBus() {
+        if (busSubscription != null) {
+            busSubscription.dispose();
+        }
     }
 
+    // Flujo de notificaciones no leídas globalmente
+    public Flux<Notification> getUnreadNotificationStream() {
+        return notificationSink.asFlux();  // Retorna el flujo de notificaciones desde el Sink
+    }
 
     // Flujo de notificaciones para un usuario específico utilizando SSE
     public Flux<Notification> getNotificationsStream(String userId) {
-        return Flux.interval(Duration.ofMinutes(1))  // Emitir un evento cada minuto
-                .flatMap(tick -> notificationRepository.findByUserReferenceId(userId)  // Buscar notificaciones por ID de usuario
-                        .doOnNext(notification -> System.out.println("Emitida notificación: " + notification.getMessage())))
-                .repeat();  // Mantener el flujo activo
+        Flux<Notification> backlog = notificationRepository.findByUserReferenceId(userId)  // Buscar notificaciones por ID de usuario
+                .filter(notification -> !notification.isPendingDelivery());  // Las programadas no se muestran antes de su hora
+        Flux<Notification> live = notificationSink.asFlux()
+                .filter(notification -> userId.equals(notification.getUserReferenceId()));  // Nuevas notificaciones llegadas por el bus
+
+        // publish() se suscribe al flujo en vivo antes de leer el historial, así no se pierden
+        // las notificaciones creadas mientras se consulta la base de datos
+        return live.publish(shared -> backlog.concatWith(shared));
     }
 
 
     public Mono<String> markNotificationAsReadAndDelete(String notificationId) {
         // Encontrar la notificación por ID
         return notificationRepository.findById(notificationId)
+                // Leerla confirma la entrega: deja de reenviarse
+                .doOnNext(notification -> redeliveryQueue.acknowledge(notification.getUserReferenceId(), List.of(notificationId)))
                 .flatMap(notification -> {
                     if (!notification.isRead()) {
                         // Marcar como leída
@@ -135,17 +151,58 @@ public class NotificationService {
     }
 
 
+    // Versión masiva de markNotificationAsReadAndDelete para los acks que llegan en lote (WebSocket).
+    // Solo procesa las notificaciones que pertenecen al usuario y devuelve los IDs eliminados.
+    public Mono<List<String>> markNotificationsAsReadAndDelete(String userId, Collection<String> notificationIds) {
+        if (notificationIds.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return notificationRepository.findAllById(notificationIds)
+                .filter(notification -> userId.equals(notification.getUserReferenceId()))
+                .collectList()
+                .flatMap(notifications -> {
+                    if (notifications.isEmpty()) {
+                        return Mono.just(List.<String>of());
+                    }
+                    List<String> ids = notifications.stream().map(Notification::getId).toList();
+                    // Un solo guardado del usuario y un solo borrado masivo para todo el lote
+                    return userRepository.findById(userId)
+                            .flatMap(user -> {
+                                notifications.forEach(notification -> user.getNotifications().remove(notification.getMessage()));
+                                return userRepository.save(user);
+                            })
+                            .then(notificationRepository.deleteAllById(ids))
+                            .thenReturn(ids);
+                });
+    }
+
+
     // Crear una nueva notificación para un usuario
     public Mono<Notification> createNotification(String userId, Notification notification) {
         if (notification.getId() == null || notification.getId().isEmpty()) {
-            notification.setId(UUID.randomUUID().toString().substring(0, 6));  // Generar un ID único
+            notification.setId(idGenerator.nextId());  // Generar un ID único y ordenable por tiempo
         }
         notification.setUserReferenceId(userId);  // Establecer la referencia del usuario
         notification.setTimestamp(Instant.now());  // Establecer la marca de tiempo actual
         notification.setRead(false);  // La notificación es nueva, por lo tanto no está leída
-
-        // Guardar la notificación
-        return notificationRepository.save(notification)
+        if (notification.getType() == null || notification.getType().isBlank()) {
+            notification.setType(Notification.DEFAULT_TYPE);
+        }
+        notification.setPriority(NotificationPriority.orDefault(notification.getPriority()));
+        boolean scheduled = notification.getDeliverAt() != null && notification.getDeliverAt().isAfter(notification.getTimestamp());
+        notification.setPendingDelivery(scheduled);
+        // Se emite una vez al crearse (o al llegar su hora) y después solo los recordatorios que pida la política de su tipo
+        notification.setReminderCount(0);
+        notification.setNextReminderAt(reminderEngine.firstReminderAt(notification));
+
+        // Guardar la notificación en el carril de su prioridad (cola y concurrencia propias)
+        long start = System.nanoTime();
+        if (scheduled) {
+            notification.setIngestNanos(0);  // Las programadas no cuentan para la latencia de entrega: su retraso es intencionado
+        } else if (notification.getIngestNanos() == 0) {
+            notification.setIngestNanos(start);  // Si el transporte no marcó la llegada, se mide desde aquí
+        }
+        return lanes.submit(notification.getPriority(), Mono.defer(() -> notificationRepository.save(notification)
                 .flatMap(savedNotification -> {
                     // Buscar el usuario por su ID
                     return userRepository.findById(userId)
@@ -156,7 +213,14 @@ public class NotificationService {
                                 return userRepository.save(user)
                                         .thenReturn(savedNotification);  // Devolver la notificación guardada
                             });
-                });
+                })
+                // Publicar en el bus para que la reciban los clientes conectados a cualquier réplica,
+                // o dejarla en la rueda de entregas programadas si tiene fecha futura
+                .flatMap(savedNotification -> scheduled
+                        ? Mono.fromRunnable(() -> scheduledDeliveryService.schedule(savedNotification)).thenReturn(savedNotification)
+                        : eventBus.publish(savedNotification).thenReturn(savedNotification))
+                .doOnNext(reminderEngine::schedule)))
+                .doFinally(signal -> metrics.recordCreate(notification.getPriority(), start, signal == SignalType.ON_COMPLETE));
     }
 
 
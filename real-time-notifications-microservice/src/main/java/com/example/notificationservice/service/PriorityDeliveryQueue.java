@@ -0,0 +1,154 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Cola de entrega con una cola acotada por prioridad delante de un sink.
+ * <p>
+ * Un único drenador (patrón work-in-progress) emite siempre primero lo que haya en HIGH, luego NORMAL y luego LOW.
+ * Si el sink está lleno porque los clientes consumen despacio, el drenado se pausa y se reintenta más tarde,
+ * de modo que cuando se libera espacio lo primero que sale es lo urgente. Si sigue lleno tras {@code maxRetries}
+ * reintentos seguidos se da por atascado: lo que no entra se descarta (y pasa a {@code dropListener}) hasta que
+ * una emisión vuelva a salir bien.
+ */
+public final class PriorityDeliveryQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(PriorityDeliveryQueue.class);
+    private static final NotificationPriority[] PRIORITIES = NotificationPriority.values();
+    private static final long RETRY_DELAY_MILLIS = 10;
+
+    private final Sinks.Many<Notification> target;
+    private final Consumer<Sinks.EmitResult> emitListener;
+    private final Consumer<Notification> dropListener;
+    private final int capacity;
+    private final int maxRetries;
+    private final List<Queue<Notification>> queues;
+    private final AtomicInteger[] depths;
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean retryScheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    // Reintentos diferidos desde la última emisión que salió bien
+    private final AtomicInteger overflowRetries = new AtomicInteger();
+
+    PriorityDeliveryQueue(Sinks.Many<Notification> target, Consumer<Sinks.EmitResult> emitListener,
+                          Consumer<Notification> dropListener, int capacity, int maxRetries) {
+        this.target = target;
+        this.emitListener = emitListener;
+        this.dropListener = dropListener;
+        this.capacity = capacity;
+        this.maxRetries = maxRetries;
+        List<Queue<Notification>> queues = new ArrayList<>(PRIORITIES.length);
+        this.depths = new AtomicInteger[PRIORITIES.length];
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            queues.add(Queues.<Notification>unboundedMultiproducer().get());
+            depths[i] = new AtomicInteger();
+        }
+        this.queues = List.copyOf(queues);
+    }
+
+    public void offer(Notification notification) {
+        int lane = NotificationPriority.orDefault(notification.getPriority()).ordinal();
+        if (depths[lane].incrementAndGet() > capacity) {
+            depths[lane].decrementAndGet();
+            // Se descarta solo la entrega en vivo; la notificación sigue guardada y se recupera al reconectar
+            // (o antes, si su usuario tiene conexiones con acks: ver dropListener)
+            if (dropped.incrementAndGet() % 1000 == 1) {
+                log.warn("Cola de entrega {} llena, descartadas {} notificaciones en total", PRIORITIES[lane], dropped.get());
+            }
+            dropListener.accept(notification);
+            return;
+        }
+        queues.get(lane).offer(notification);
+        drain();
+    }
+
+    public int getDepth(NotificationPriority priority) {
+        return depths[priority.ordinal()].get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getOverflowed() {
+        return overflowed.get();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        while (true) {
+            if (!emitInPriorityOrder()) {
+                scheduleRetry();
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    // Devuelve false si el sink no acepta más elementos por ahora (lleno u ocupado por otro emisor)
+    private boolean emitInPriorityOrder() {
+        int lane = 0;
+        while (lane < queues.size()) {
+            Queue<Notification> queue = queues.get(lane);
+            Notification next = queue.peek();
+            if (next == null) {
+                lane++;
+                continue;
+            }
+            Sinks.EmitResult result = target.tryEmitNext(next);
+            emitListener.accept(result);
+            if (result == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+                return false;  // Otro emisor tiene el sink: se libera enseguida
+            }
+            if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+                if (overflowRetries.get() < maxRetries) {
+                    return false;
+                }
+                // Sink atascado: se descarta la entrega en vivo en lugar de reintentar sin fin
+                if (overflowed.incrementAndGet() % 1000 == 1) {
+                    log.warn("Sink de notificaciones lleno tras {} reintentos, descartadas {} entregas en total",
+                            maxRetries, overflowed.get());
+                }
+                dropListener.accept(next);
+            } else {
+                overflowRetries.set(0);
+            }
+            // OK, descartada, o sin suscriptores / sink terminado: en todos los casos el elemento sale de la cola
+            queue.poll();
+            depths[lane].decrementAndGet();
+            lane = 0;  // Después de cada emisión se vuelve a mirar primero el carril más prioritario
+        }
+        return true;
+    }
+
+    private void scheduleRetry() {
+        if (retryScheduled.compareAndSet(false, true)) {
+            Schedulers.parallel().schedule(() -> {
+                retryScheduled.set(false);
+                overflowRetries.incrementAndGet();
+                drain();
+            }, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
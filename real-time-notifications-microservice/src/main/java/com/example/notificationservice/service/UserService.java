@@ -7,16 +7,17 @@ import com.example.notificationservice.entity.User;
 import com.example.notificationservice.repository.NotificationRepository;
 import com.example.notificationservice.repository.UserRepository;
 import com.example.notificationservice.security.JwtUtil;
+import com.example.notificationservice.security.PasswordHashingService;
+import com.example.notificationservice.utils.IdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,15 +28,17 @@ public class UserService {
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
     private final UserRepository userRepository;
     private final NotificationRepository notificationRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashing;
     private final JwtUtil jwtUtil;
+    private final IdGenerator idGenerator;
 
     @Autowired
-    public UserService(UserRepository userRepository, NotificationRepository notificationRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public UserService(UserRepository userRepository, NotificationRepository notificationRepository, PasswordHashingService passwordHashing, JwtUtil jwtUtil, IdGenerator idGenerator) {
         this.userRepository = userRepository;
         this.notificationRepository = notificationRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashing = passwordHashing;
         this.jwtUtil = jwtUtil;
+        this.idGenerator = idGenerator;
     }
 
     public Flux<User> getAllUsersWithNotificationMessages() {
@@ -58,7 +61,7 @@ public class UserService {
     // Guardar un usuario y generar token
     public <S extends User> Mono<S> saveUser(S user) {
         if (user.getId() == null || user.getId().isEmpty()) {
-            user.setId(UUID.randomUUID().toString().substring(0, 6));  // Generar un ID único para el usuario
+            user.setId(idGenerator.nextId());  // Generar un ID único y ordenable por tiempo para el usuario
         }
         return userRepository.save(user)
                 .onErrorResume(e -> Mono.error(new RuntimeException("Error al guardar el usuario: " + e.getMessage())));
@@ -66,8 +69,9 @@ public class UserService {
 
     public Mono<ResponseEntity<CustomApiResponse<UserDto>>> authenticateUser(String email, String password) {
         return userRepository.findByEmail(email)
-                .flatMap(user -> {
-                    if (passwordEncoder.matches(password, user.getPassword())) {
+                // BCrypt se verifica en el pool de contraseñas, nunca en el event loop
+                .flatMap(user -> passwordHashing.matches(password, user.getPassword()).flatMap(matches -> {
+                    if (Boolean.TRUE.equals(matches)) {
                         // Renovar el token si la contraseña coincide
                         return jwtUtil.validateToken(user.getToken())
                                 .flatMap(isValid -> {
@@ -93,7 +97,7 @@ public class UserService {
                         );
                         return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse));
                     }
-                })
+                }))
                 .switchIfEmpty(Mono.defer(() -> {
                     CustomApiResponse<UserDto> errorResponse = new CustomApiResponse<>(
                             "error",
@@ -102,7 +106,17 @@ public class UserService {
                             HttpStatus.NOT_FOUND.value()
                     );
                     return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse));
-                }));
+                }))
+                // Pool de contraseñas saturado: 503 inmediato
+                .onErrorResume(ResponseStatusException.class, e -> {
+                    CustomApiResponse<UserDto> errorResponse = new CustomApiResponse<>(
+                            "error",
+                            e.getReason(),
+                            null,
+                            e.getStatusCode().value()
+                    );
+                    return Mono.just(ResponseEntity.status(e.getStatusCode()).body(errorResponse));
+                });
     }
 
     private Mono<ResponseEntity<CustomApiResponse<UserDto>>> buildAuthenticationResponse(User user, String token) {
@@ -0,0 +1,52 @@
+package com.example.notificationservice.sse;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Estado mínimo de una conexión SSE abierta: lo justo para poder detectarla inactiva y cerrarla
+final class SseConnection {
+
+    private final String endpoint;
+    private final String userId;
+    private final Sinks.Empty<Void> closeSignal = Sinks.empty();
+    private final AtomicBoolean released = new AtomicBoolean();
+    private volatile long lastActivity = System.nanoTime();
+
+    SseConnection(String endpoint, String userId) {
+        this.endpoint = endpoint;
+        this.userId = userId;
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    String userId() {
+        return userId;
+    }
+
+    long lastActivity() {
+        return lastActivity;
+    }
+
+    // Se llama cada vez que un evento (o heartbeat) sale hacia el cliente
+    void touch() {
+        lastActivity = System.nanoTime();
+    }
+
+    Mono<Void> closed() {
+        return closeSignal.asMono();
+    }
+
+    // Termina el flujo de la conexión; devuelve false si ya estaba cerrada
+    boolean kill() {
+        return closeSignal.tryEmitEmpty().isSuccess();
+    }
+
+    // Devuelve true solo la primera vez, para descontar la conexión una única vez
+    boolean release() {
+        return released.compareAndSet(false, true);
+    }
+}
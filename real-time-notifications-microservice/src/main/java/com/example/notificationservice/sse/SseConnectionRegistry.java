@@ -0,0 +1,231 @@
+package com.example.notificationservice.sse;
+
+import com.example.notificationservice.audit.DeliveryAuditLog;
+import com.example.notificationservice.dto.ConnectionStatsDto;
+import com.example.notificationservice.metrics.DeliveryLatencyTracker;
+import com.example.notificationservice.receipts.DeliveryReceiptTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Registro de las conexiones SSE abiertas en esta réplica.
+ * <ul>
+ *     <li>Repartido en shards por userId; cada usuario guarda un arreglo pequeño e inmutable de conexiones.</li>
+ *     <li>Un único tick programado envía los heartbeats (comentarios SSE) a todas las conexiones,
+ *     en lugar de un temporizador por conexión.</li>
+ *     <li>Las conexiones que no aceptan ningún evento durante {@code idle-timeout} (peers muertos o
+ *     con el buffer TCP lleno) se cierran en el siguiente barrido.</li>
+ *     <li>Limita las conexiones por usuario y en total; al superar el límite se responde 429.</li>
+ *     <li>Mide la latencia de creación a entrega de cada notificación al escribirla en la conexión
+ *     y la anota en el registro de auditoría de entregas y, si la conexión es de su usuario, como acuse de entrega.</li>
+ * </ul>
+ */
+@Component
+public class SseConnectionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(SseConnectionRegistry.class);
+
+    private static final ServerSentEvent<?> HEARTBEAT = ServerSentEvent.builder().comment("heartbeat").build();
+
+    private final List<ConcurrentHashMap<String, SseConnection[]>> shards;
+    private final int shardMask;
+    private final int maxConnections;
+    private final int maxConnectionsPerUser;
+    private final long idleTimeoutNanos;
+    private final DeliveryLatencyTracker latencyTracker;
+    private final DeliveryAuditLog auditLog;
+    private final DeliveryReceiptTracker receipts;
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ConcurrentHashMap<String, AtomicInteger> connectionsByEndpoint = new ConcurrentHashMap<>();
+    private final AtomicLong rejectedConnections = new AtomicLong();
+    private final AtomicLong reapedConnections = new AtomicLong();
+
+    // directBestEffort: las conexiones sin demanda simplemente se saltan el tick, no se acumula nada
+    private final Sinks.Many<Long> heartbeats = Sinks.many().multicast().directBestEffort();
+
+    public SseConnectionRegistry(@Value("${notifications.sse.shards:16}") int shardCount,
+                                 @Value("${notifications.sse.max-connections:60000}") int maxConnections,
+                                 @Value("${notifications.sse.max-connections-per-user:5}") int maxConnectionsPerUser,
+                                 @Value("${notifications.sse.idle-timeout-ms:45000}") long idleTimeoutMillis,
+                                 DeliveryLatencyTracker latencyTracker, DeliveryAuditLog auditLog,
+                                 DeliveryReceiptTracker receipts) {
+        int size = Integer.highestOneBit(Math.max(1, shardCount - 1) << 1);
+        List<ConcurrentHashMap<String, SseConnection[]>> shards = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            shards.add(new ConcurrentHashMap<>());
+        }
+        this.shards = List.copyOf(shards);
+        this.shardMask = size - 1;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.latencyTracker = latencyTracker;
+        this.auditLog = auditLog;
+        this.receipts = receipts;
+    }
+
+    /**
+     * Registra la conexión al suscribirse al flujo, le añade los heartbeats y la da de baja al terminar.
+     * Si se supera algún límite el flujo falla con 429 antes de escribir la respuesta.
+     */
+    public <T> Flux<ServerSentEvent<T>> register(String endpoint, String userId, Flux<ServerSentEvent<T>> events) {
+        return track(endpoint, userId, connection -> events, SseConnectionRegistry::heartbeat, ServerSentEvent::data);
+    }
+
+    /**
+     * Igual que {@link #register} para frames ya codificados y compartidos (ver {@link SseFrameBroadcaster}).
+     * Cada conexión acumula como mucho {@code maxBuffered} frames sin escribir; un cliente que no lee hasta
+     * desbordarlo se desconecta (se reconectará con Last-Event-ID) sin frenar a los demás. Los heartbeats también
+     * salen como bytes ({@code heartbeatFrame}, según el formato) y los frames que se quedan sin escribir al cerrar
+     * la conexión se liberan.
+     */
+    public Flux<DataBuffer> registerFrames(String endpoint, String userId, Flux<SseFrame> frames, byte[] heartbeatFrame,
+                                           DataBufferFactory bufferFactory, int maxBuffered) {
+        return track(endpoint, userId,
+                connection -> frames.onBackpressureBuffer(maxBuffered, frame -> {
+                    log.warn("Conexión SSE de {} cerrada en {}: no consumió {} eventos seguidos", userId, endpoint, maxBuffered);
+                    connection.kill();
+                }),
+                () -> new SseFrame(bufferFactory.wrap(heartbeatFrame), null), SseFrame::payload)
+                .map(SseFrame::buffer)
+                .doOnDiscard(SseFrame.class, SseFrame::release);
+    }
+
+    private <E> Flux<E> track(String endpoint, String userId, Function<SseConnection, Flux<E>> events,
+                              Supplier<E> heartbeat, Function<E, Object> payload) {
+        return Flux.defer(() -> {
+            SseConnection connection = open(endpoint, userId);
+            // Los heartbeats se paran cuando terminan los eventos, así la conexión se cierra con ellos
+            Sinks.Empty<Void> eventsDone = Sinks.empty();
+            return Flux.merge(events.apply(connection).doFinally(signal -> eventsDone.tryEmitEmpty()),
+                            heartbeats.asFlux().map(tick -> heartbeat.get()).takeUntilOther(eventsDone.asMono()))
+                    .doOnNext(event -> {
+                        connection.touch();
+                        Object delivered = payload.apply(event);
+                        latencyTracker.recordDelivery(endpoint, delivered);
+                        auditLog.recordDelivery(endpoint, userId, delivered);
+                        receipts.recordDelivery(userId, delivered);
+                    })
+                    .takeUntilOther(connection.closed())
+                    .doFinally(signal -> close(connection));
+        });
+    }
+
+    @Scheduled(fixedRateString = "${notifications.sse.heartbeat-interval-ms:15000}")
+    public void sendHeartbeats() {
+        heartbeats.tryEmitNext(System.nanoTime());
+    }
+
+    // Cierra las conexiones que llevan más de idle-timeout sin aceptar ni siquiera un heartbeat
+    @Scheduled(fixedDelayString = "${notifications.sse.reap-interval-ms:15000}")
+    public void reapIdleConnections() {
+        long now = System.nanoTime();
+        int reaped = 0;
+        for (ConcurrentHashMap<String, SseConnection[]> shard : shards) {
+            for (SseConnection[] connections : shard.values()) {
+                for (SseConnection connection : connections) {
+                    if (now - connection.lastActivity() > idleTimeoutNanos && connection.kill()) {
+                        reaped++;
+                    }
+                }
+            }
+        }
+        if (reaped > 0) {
+            reapedConnections.addAndGet(reaped);
+            log.info("Se cerraron {} conexiones SSE inactivas", reaped);
+        }
+    }
+
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public int getConnections(String endpoint) {
+        AtomicInteger counter = connectionsByEndpoint.get(endpoint);
+        return counter != null ? counter.get() : 0;
+    }
+
+    public ConnectionStatsDto getStats() {
+        int users = 0;
+        for (ConcurrentHashMap<String, SseConnection[]> shard : shards) {
+            users += shard.size();
+        }
+        Map<String, Integer> byEndpoint = connectionsByEndpoint.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().get()));
+        return new ConnectionStatsDto(totalConnections.get(), users, byEndpoint, maxConnections, maxConnectionsPerUser,
+                rejectedConnections.get(), reapedConnections.get());
+    }
+
+    private SseConnection open(String endpoint, String userId) {
+        if (totalConnections.incrementAndGet() > maxConnections) {
+            totalConnections.decrementAndGet();
+            rejectedConnections.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Se alcanzó el máximo de conexiones del servidor");
+        }
+        SseConnection connection = new SseConnection(endpoint, userId);
+        AtomicBoolean added = new AtomicBoolean();
+        shardFor(userId).compute(userId, (key, current) -> {
+            int size = current == null ? 0 : current.length;
+            if (size >= maxConnectionsPerUser) {
+                return current;
+            }
+            SseConnection[] next = current == null ? new SseConnection[1] : Arrays.copyOf(current, size + 1);
+            next[size] = connection;
+            added.set(true);
+            return next;
+        });
+        if (!added.get()) {
+            totalConnections.decrementAndGet();
+            rejectedConnections.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Se alcanzó el máximo de conexiones para el usuario " + userId);
+        }
+        connectionsByEndpoint.computeIfAbsent(endpoint, key -> new AtomicInteger()).incrementAndGet();
+        return connection;
+    }
+
+    private void close(SseConnection connection) {
+        if (!connection.release()) {
+            return;
+        }
+        shardFor(connection.userId()).computeIfPresent(connection.userId(), (key, current) -> {
+            SseConnection[] next = Arrays.stream(current).filter(c -> c != connection).toArray(SseConnection[]::new);
+            return next.length == 0 ? null : next;
+        });
+        totalConnections.decrementAndGet();
+        connectionsByEndpoint.get(connection.endpoint()).decrementAndGet();
+    }
+
+    private ConcurrentHashMap<String, SseConnection[]> shardFor(String userId) {
+        int hash = userId.hashCode();
+        return shards.get((hash ^ (hash >>> 16)) & shardMask);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ServerSentEvent<T> heartbeat() {
+        return (ServerSentEvent<T>) HEARTBEAT;
+    }
+}
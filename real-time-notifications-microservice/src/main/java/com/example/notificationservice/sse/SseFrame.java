@@ -0,0 +1,16 @@
+package com.example.notificationservice.sse;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+/**
+ * Evento SSE ya codificado para una conexión concreta. {@code buffer} suele ser una vista retenida de un frame
+ * compartido; {@code payload} es lo que se entregó (para medir la latencia), null en los heartbeats.
+ */
+public record SseFrame(DataBuffer buffer, Object payload) {
+
+    // Para los frames que se descartan sin llegar a escribirse (cancelación, desbordamiento del buffer)
+    void release() {
+        DataBufferUtils.release(buffer);
+    }
+}
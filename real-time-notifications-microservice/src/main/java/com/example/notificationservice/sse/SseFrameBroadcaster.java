@@ -0,0 +1,284 @@
+package com.example.notificationservice.sse;
+
+import com.example.notificationservice.codec.BinaryObjectMappers;
+import com.example.notificationservice.codec.LengthPrefixedCbor;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.service.NotificationService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Reparto del flujo global de no leídas a todas las conexiones SSE codificando cada notificación una sola vez.
+ * <p>
+ * El frame completo ({@code id:...\ndata:{json}\n\n}) se escribe en un ByteBuf del pool, de solo lectura, y se emite
+ * por un sink directo: cada conexión toma en su onNext una vista retenida ({@code retainedDuplicate}, sin copiar
+ * bytes) que Netty libera al escribirla, y el broadcaster suelta su referencia en cuanto el sink ha entregado el
+ * frame a todos. Lo que cuesta cada evento por conexión es esa vista; la serialización y los bytes no dependen
+ * del número de suscriptores.
+ * <p>
+ * Cada conexión tiene su propio buffer acotado ({@code frame-buffer-size}) en el registro: una conexión lenta no
+ * frena a las demás.
+ * <p>
+ * Las conexiones se agrupan en canales por {@link Format} y {@link SubscriptionFilter}: las que piden el mismo filtro
+ * comparten canal (un sink), así que el predicado compilado se evalúa una vez por notificación y canal, nunca por
+ * conexión. Los canales filtrados por usuario se indexan por usuario y solo se prueban con sus notificaciones. Cada
+ * notificación se codifica una vez por formato y solo si algún canal con conexiones la quiere.
+ */
+@Component
+public class SseFrameBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(SseFrameBroadcaster.class);
+
+    private static final byte[] ID_PREFIX = "id:".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DATA_PREFIX = "\ndata:".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EVENT_END = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    // Formatos del flujo global: SSE (por defecto) o frames CBOR con prefijo de longitud
+    public enum Format {
+        SSE(":heartbeat\n\n".getBytes(StandardCharsets.UTF_8)),
+        LENGTH_PREFIXED_CBOR(LengthPrefixedCbor.heartbeat());
+
+        private final byte[] heartbeat;
+
+        Format(byte[] heartbeat) {
+            this.heartbeat = heartbeat;
+        }
+    }
+
+    private record SharedFrame(ByteBuf content, Notification notification) {
+    }
+
+    private record ChannelKey(Format format, SubscriptionFilter filter) {
+    }
+
+    // directBestEffort: la entrega es síncrona dentro de tryEmitNext, así que al volver ya se puede liberar el frame
+    private static final class Channel {
+        private final ChannelKey key;
+        private final Predicate<Notification> predicate;
+        private final Sinks.Many<SharedFrame> sink = Sinks.many().multicast().directBestEffort();
+        private int connections;  // Protegido por el monitor de channels
+
+        private Channel(ChannelKey key) {
+            this.key = key;
+            this.predicate = key.filter().compile();
+        }
+    }
+
+    // Canales de un formato: los que aceptan cualquier usuario y los filtrados, indexados por cada uno de sus usuarios
+    private record Routing(List<Channel> anyUser, Map<String, List<Channel>> byUser) {
+    }
+
+    private final NotificationService notificationService;
+    private final SseConnectionRegistry connectionRegistry;
+    private final ObjectWriter writer;
+    private final ObjectWriter cborWriter;
+    private final ByteBufAllocator allocator;
+    private final int connectionBufferSize;
+
+    private final Map<ChannelKey, Channel> channels = new HashMap<>();
+    // Copia de solo lectura para el reparto; se rehace al crear o quitar un canal, nunca por evento
+    private volatile Map<Format, Routing> routes = Map.of();
+    private Disposable subscription;
+
+    @Autowired
+    public SseFrameBroadcaster(NotificationService notificationService, SseConnectionRegistry connectionRegistry,
+                               ObjectMapper objectMapper, BinaryObjectMappers binaryMappers,
+                               @Value("${notifications.sse.frame-buffer-size:256}") int connectionBufferSize) {
+        this(notificationService, connectionRegistry, objectMapper, binaryMappers.cbor(), PooledByteBufAllocator.DEFAULT,
+                connectionBufferSize);
+    }
+
+    SseFrameBroadcaster(NotificationService notificationService, SseConnectionRegistry connectionRegistry,
+                        ObjectMapper objectMapper, ObjectMapper cborMapper, ByteBufAllocator allocator,
+                        int connectionBufferSize) {
+        this.notificationService = notificationService;
+        this.connectionRegistry = connectionRegistry;
+        // El mismo ObjectMapper que usa el codec de WebFlux: el JSON es idéntico al de los demás endpoints
+        this.writer = objectMapper.writerFor(Notification.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.cborWriter = cborMapper.writerFor(LengthPrefixedCbor.Envelope.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.allocator = allocator;
+        this.connectionBufferSize = connectionBufferSize;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        subscription = notificationService.getUnreadNotificationStream()
+                .subscribe(this::broadcast, e -> log.error("El reparto de frames SSE terminó con error", e));
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    public Flux<DataBuffer> connect(String endpoint, String userId, Format format, DataBufferFactory bufferFactory) {
+        return connect(endpoint, userId, format, SubscriptionFilter.ALL, bufferFactory);
+    }
+
+    // Abre una conexión (con sus límites, heartbeats y métricas) que recibe los frames compartidos que pasan el filtro
+    public Flux<DataBuffer> connect(String endpoint, String userId, Format format, SubscriptionFilter filter,
+                                    DataBufferFactory bufferFactory) {
+        return connectionRegistry.registerFrames(endpoint, userId, frames(format, filter, bufferFactory), format.heartbeat,
+                bufferFactory, connectionBufferSize);
+    }
+
+    Flux<SseFrame> frames(Format format, DataBufferFactory bufferFactory) {
+        return frames(format, SubscriptionFilter.ALL, bufferFactory);
+    }
+
+    /**
+     * Frames como buffers de {@code bufferFactory}. Con Netty son vistas retenidas del frame compartido, tomadas
+     * dentro de tryEmitNext; con otro servidor (p. ej. en pruebas) se copian los bytes. El canal se toma al
+     * suscribirse y se suelta al terminar; el último en soltarlo lo quita.
+     */
+    Flux<SseFrame> frames(Format format, SubscriptionFilter filter, DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+                    Channel channel = acquire(new ChannelKey(format, filter));
+                    return channel.sink.asFlux().doFinally(signal -> release(channel));
+                })
+                .map(frame -> new SseFrame(bufferFactory instanceof NettyDataBufferFactory netty
+                        ? netty.wrap(frame.content().retainedDuplicate())
+                        : bufferFactory.wrap(ByteBufUtil.getBytes(frame.content())), frame.notification()));
+    }
+
+    private Channel acquire(ChannelKey key) {
+        synchronized (channels) {
+            Channel channel = channels.get(key);
+            if (channel == null) {
+                channel = new Channel(key);
+                channels.put(key, channel);
+                reroute();
+            }
+            channel.connections++;
+            return channel;
+        }
+    }
+
+    private void release(Channel channel) {
+        synchronized (channels) {
+            if (--channel.connections == 0) {
+                channels.remove(channel.key);
+                reroute();
+            }
+        }
+    }
+
+    // Con el monitor de channels
+    private void reroute() {
+        Map<Format, Routing> next = new EnumMap<>(Format.class);
+        for (Channel channel : channels.values()) {
+            Routing routing = next.computeIfAbsent(channel.key.format(), format -> new Routing(new ArrayList<>(), new HashMap<>()));
+            if (channel.key.filter().userIds().isEmpty()) {
+                routing.anyUser().add(channel);
+            } else {
+                channel.key.filter().userIds().forEach(userId ->
+                        routing.byUser().computeIfAbsent(userId, id -> new ArrayList<>()).add(channel));
+            }
+        }
+        routes = next;
+    }
+
+    // Canales distintos abiertos (formato + filtro)
+    public int getChannels() {
+        synchronized (channels) {
+            return channels.size();
+        }
+    }
+
+    // Solo lo llama la suscripción al sink de notificaciones, así que las emisiones nunca son concurrentes
+    void broadcast(Notification notification) {
+        routes.forEach((format, routing) -> {
+            List<Channel> matched = new ArrayList<>();
+            match(routing.anyUser(), notification, matched);
+            match(routing.byUser().get(notification.getUserReferenceId()), notification, matched);
+            if (matched.isEmpty()) {
+                return;  // Nadie en este formato la quiere: no se codifica nada
+            }
+            ByteBuf content;
+            try {
+                content = format == Format.SSE ? encode(notification) : encodeCbor(notification);
+            } catch (RuntimeException e) {
+                log.error("No se pudo codificar la notificación {} para el flujo {}", notification.getId(), format, e);
+                return;
+            }
+            try {
+                SharedFrame frame = new SharedFrame(content, notification);
+                matched.forEach(channel -> channel.sink.tryEmitNext(frame));
+            } finally {
+                content.release();
+            }
+        });
+    }
+
+    private static void match(List<Channel> candidates, Notification notification, List<Channel> matched) {
+        if (candidates == null) {
+            return;
+        }
+        for (Channel channel : candidates) {
+            if (channel.sink.currentSubscriberCount() > 0 && channel.predicate.test(notification)) {
+                matched.add(channel);
+            }
+        }
+    }
+
+    ByteBuf encode(Notification notification) {
+        ByteBuf buffer = allocator.buffer();
+        try (ByteBufOutputStream out = new ByteBufOutputStream(buffer)) {
+            out.write(ID_PREFIX);
+            out.write(notification.getId().getBytes(StandardCharsets.UTF_8));
+            out.write(DATA_PREFIX);
+            writer.writeValue((OutputStream) out, notification);
+            out.write(EVENT_END);
+        } catch (IOException e) {
+            buffer.release();
+            throw new UncheckedIOException(e);
+        }
+        return buffer.asReadOnly();
+    }
+
+    // Prefijo de longitud reservado al principio y rellenado cuando se conoce el tamaño del CBOR
+    ByteBuf encodeCbor(Notification notification) {
+        ByteBuf buffer = allocator.buffer();
+        buffer.writeInt(0);
+        try (ByteBufOutputStream out = new ByteBufOutputStream(buffer)) {
+            cborWriter.writeValue((OutputStream) out, new LengthPrefixedCbor.Envelope(notification.getId(), null, notification));
+        } catch (IOException e) {
+            buffer.release();
+            throw new UncheckedIOException(e);
+        }
+        buffer.setInt(0, buffer.writerIndex() - LengthPrefixedCbor.LENGTH_BYTES);
+        return buffer.asReadOnly();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.notificationservice.sse;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import org.springframework.util.MultiValueMap;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Filtro de una conexión al flujo global de no leídas. Un criterio sin valor no filtra; los indicados se cumplen
+ * todos: usuario destino en {@code userIds}, mensaje que empieza por {@code messagePrefix}, prioridad en
+ * {@code priorities} (sin prioridad cuenta como NORMAL) y creada en [{@code from}, {@code to}).
+ * <p>
+ * Se normaliza al construirlo, así que dos filtros con los mismos criterios son iguales: {@link SseFrameBroadcaster}
+ * los usa como clave para que compartan canal y el predicado se evalúe una vez por notificación.
+ */
+public record SubscriptionFilter(Set<String> userIds, String messagePrefix, Set<NotificationPriority> priorities,
+                                 Instant from, Instant to) {
+
+    public static final SubscriptionFilter ALL = new SubscriptionFilter(null, null, null, null, null);
+
+    public SubscriptionFilter {
+        userIds = userIds != null ? Set.copyOf(userIds) : Set.of();
+        messagePrefix = messagePrefix != null && !messagePrefix.isEmpty() ? messagePrefix : null;
+        priorities = priorities != null ? Set.copyOf(priorities) : Set.of();
+        if (from != null && to != null && !to.isAfter(from)) {
+            throw new IllegalArgumentException("La ventana de tiempo está vacía: 'to' debe ser posterior a 'from'");
+        }
+    }
+
+    /**
+     * Filtro a partir de los parámetros de la petición: {@code userId} y {@code priority} se pueden repetir o separar
+     * por comas, {@code prefix} es literal y {@code from}/{@code to} van en ISO-8601.
+     *
+     * @throws IllegalArgumentException si algún valor no es válido
+     */
+    public static SubscriptionFilter fromQuery(MultiValueMap<String, String> params) {
+        Set<NotificationPriority> priorities = new HashSet<>();
+        for (String priority : split(params.get("priority"))) {
+            priorities.add(NotificationPriority.valueOf(priority.toUpperCase(Locale.ROOT)));
+        }
+        return new SubscriptionFilter(new HashSet<>(split(params.get("userId"))), params.getFirst("prefix"), priorities,
+                instant(params.getFirst("from")), instant(params.getFirst("to")));
+    }
+
+    public boolean isAll() {
+        return equals(ALL);
+    }
+
+    /**
+     * Predicado con solo las comprobaciones de los criterios indicados, de la más barata a la más cara. Se compila
+     * una vez por canal, no por notificación ni por conexión.
+     */
+    public Predicate<Notification> compile() {
+        List<Predicate<Notification>> checks = new ArrayList<>();
+        if (userIds.size() == 1) {
+            String userId = userIds.iterator().next();
+            checks.add(notification -> userId.equals(notification.getUserReferenceId()));
+        } else if (!userIds.isEmpty()) {
+            Set<String> users = new HashSet<>(userIds);
+            checks.add(notification -> users.contains(notification.getUserReferenceId()));
+        }
+        if (!priorities.isEmpty()) {
+            Set<NotificationPriority> accepted = EnumSet.copyOf(priorities);
+            checks.add(notification -> accepted.contains(NotificationPriority.orDefault(notification.getPriority())));
+        }
+        if (from != null || to != null) {
+            Instant start = from;
+            Instant end = to;
+            checks.add(notification -> notification.getTimestamp() != null
+                    && (start == null || !notification.getTimestamp().isBefore(start))
+                    && (end == null || notification.getTimestamp().isBefore(end)));
+        }
+        if (messagePrefix != null) {
+            String prefix = messagePrefix;
+            checks.add(notification -> notification.getMessage() != null && notification.getMessage().startsWith(prefix));
+        }
+        return checks.stream().reduce(Predicate::and).orElse(notification -> true);
+    }
+
+    private static List<String> split(List<String> values) {
+        List<String> parts = new ArrayList<>();
+        if (values != null) {
+            for (String value : values) {
+                for (String part : value.split(",")) {
+                    if (!part.isBlank()) {
+                        parts.add(part.trim());
+                    }
+                }
+            }
+        }
+        return parts;
+    }
+
+    private static Instant instant(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Instant.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Instante no válido (ISO-8601): " + value, e);
+        }
+    }
+}
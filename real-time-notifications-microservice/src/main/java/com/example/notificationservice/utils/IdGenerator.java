@@ -0,0 +1,11 @@
+package com.example.notificationservice.utils;
+
+/**
+ * Estrategia para asignar el {@code _id} de los documentos nuevos (notificaciones y usuarios).
+ * Las implementaciones deben devolver identificadores únicos y ordenables lexicográficamente
+ * por tiempo, para poder usarlos como cursor de paginación y como id de evento SSE.
+ */
+public interface IdGenerator {
+
+    String nextId();
+}
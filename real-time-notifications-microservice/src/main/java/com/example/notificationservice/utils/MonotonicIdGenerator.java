@@ -0,0 +1,81 @@
+package com.example.notificationservice.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de IDs de 128 bits al estilo ULID, codificados en 26 caracteres Crockford base32:
+ * <ul>
+ *     <li>48 bits: milisegundos desde epoch</li>
+ *     <li>16 bits: secuencia dentro del mismo milisegundo</li>
+ *     <li>64 bits: identificador aleatorio de la instancia (se calcula una sola vez)</li>
+ * </ul>
+ * El reloj y la secuencia viven en un único {@link AtomicLong} que avanza con CAS, así que los IDs
+ * son estrictamente crecientes dentro del proceso sin usar locks ni {@link SecureRandom} en cada llamada.
+ * Si se agotan las 65536 secuencias de un milisegundo, el contador "toma prestado" el siguiente.
+ */
+@Component
+public class MonotonicIdGenerator implements IdGenerator {
+
+    public static final int ID_LENGTH = 26;
+
+    private static final int SEQUENCE_BITS = 16;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final long node;
+
+    public MonotonicIdGenerator() {
+        this(new SecureRandom().nextLong());
+    }
+
+    // Permite fijar el nodo en pruebas
+    MonotonicIdGenerator(long node) {
+        this.node = node;
+    }
+
+    @Override
+    public String nextId() {
+        long candidate = System.currentTimeMillis() << SEQUENCE_BITS;
+        long high = clock.accumulateAndGet(candidate, MonotonicIdGenerator::advance);
+        return encode(high, node);
+    }
+
+    // Devuelve el instante (en milisegundos) codificado en un ID generado por esta clase
+    public static long timestampOf(String id) {
+        if (id == null || id.length() != ID_LENGTH) {
+            throw new IllegalArgumentException("El ID no tiene el formato esperado: " + id);
+        }
+        long millis = 0;
+        // Los primeros 10 caracteres cubren 50 bits: 2 bits de relleno + 48 bits de tiempo
+        for (int i = 0; i < 10; i++) {
+            millis = (millis << 5) | decode(id.charAt(i));
+        }
+        return millis;
+    }
+
+    private static long advance(long previous, long candidate) {
+        return Math.max(previous + 1, candidate);
+    }
+
+    private static String encode(long high, long low) {
+        char[] chars = new char[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (low & 31)];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static int decode(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Carácter inválido en el ID: " + c);
+    }
+}
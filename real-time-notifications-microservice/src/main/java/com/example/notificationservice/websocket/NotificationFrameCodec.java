@@ -0,0 +1,85 @@
+package com.example.notificationservice.websocket;
+
+import com.example.notificationservice.entity.Notification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Formato compacto de los mensajes del WebSocket: una línea de texto por mensaje, campos separados por tabulador.
+ * <pre>
+ * servidor -> cliente   n\t&lt;id&gt;\t&lt;epochMillis&gt;\t&lt;mensaje&gt;   notificación
+ *                       k\t&lt;id&gt;,&lt;id&gt;,...                      confirmación de acks procesados
+ *                       e\t&lt;mensaje&gt;                            error
+ * cliente -> servidor   a\t&lt;id&gt;,&lt;id&gt;,...                      ack: marcar como leída y eliminar
+ *                       s\t&lt;id&gt;,&lt;id&gt;,...                      visto: el cliente las mostró (acuse, sin respuesta)
+ *                       r\t&lt;id&gt;,&lt;id&gt;,...                      recibido: confirma la entrega (sin respuesta)
+ * </pre>
+ * El mensaje de la notificación es el último campo, así que puede contener tabuladores.
+ * Con {@code acks=true} en el handshake, lo que no se confirma con {@code r}, {@code s} o {@code a} se reenvía.
+ */
+public final class NotificationFrameCodec {
+
+    public static final char NOTIFICATION = 'n';
+    public static final char ACKNOWLEDGED = 'k';
+    public static final char ERROR = 'e';
+    public static final char ACK = 'a';
+    public static final char SEEN = 's';
+    public static final char RECEIVED = 'r';
+
+    private static final char SEPARATOR = '\t';
+    private static final char ID_SEPARATOR = ',';
+
+    private NotificationFrameCodec() {
+    }
+
+    public static String encodeNotification(Notification notification) {
+        long millis = notification.getTimestamp() != null ? notification.getTimestamp().toEpochMilli() : 0L;
+        String message = notification.getMessage() != null ? notification.getMessage() : "";
+        return new StringBuilder(message.length() + 48)
+                .append(NOTIFICATION).append(SEPARATOR)
+                .append(notification.getId()).append(SEPARATOR)
+                .append(millis).append(SEPARATOR)
+                .append(message)
+                .toString();
+    }
+
+    public static String encodeAcknowledged(List<String> ids) {
+        return ACKNOWLEDGED + String.valueOf(SEPARATOR) + String.join(String.valueOf(ID_SEPARATOR), ids);
+    }
+
+    public static String encodeError(String message) {
+        return ERROR + String.valueOf(SEPARATOR) + message;
+    }
+
+    // Devuelve null si el mensaje no respeta el formato
+    public static ClientFrame decode(String text) {
+        if (text == null || text.length() < 2 || text.charAt(1) != SEPARATOR) {
+            return null;
+        }
+        return new ClientFrame(text.charAt(0), splitIds(text.substring(2)));
+    }
+
+    private static List<String> splitIds(String value) {
+        if (value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= value.length(); i++) {
+            if (i == value.length() || value.charAt(i) == ID_SEPARATOR) {
+                String id = value.substring(start, i).trim();
+                if (!id.isEmpty()) {
+                    ids.add(id);
+                }
+                start = i + 1;
+            }
+        }
+        return ids;
+    }
+
+    // Mensaje recibido del cliente
+    public record ClientFrame(char type, List<String> ids) {
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.notificationservice.websocket;
+
+import com.example.notificationservice.audit.DeliveryAuditLog;
+import com.example.notificationservice.delivery.RedeliveryQueue;
+import com.example.notificationservice.entity.User;
+import com.example.notificationservice.metrics.DeliveryLatencyTracker;
+import com.example.notificationservice.receipts.DeliveryReceiptTracker;
+import com.example.notificationservice.repository.UserRepository;
+import com.example.notificationservice.security.JwtUtil;
+import com.example.notificationservice.service.NotificationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Entrega de notificaciones por WebSocket. Por la misma conexión bajan las notificaciones del usuario
+ * y suben los acks, que se agrupan en lotes y se aplican con operaciones masivas en la base de datos, y los
+ * acuses de visto, que se combinan con los de entrega en {@link DeliveryReceiptTracker}. Con {@code acks=true} en el
+ * handshake lo que no se confirma se reenvía ({@link RedeliveryQueue}).
+ * El token JWT se envía en la cabecera Authorization o en el parámetro {@code access_token}
+ * (los navegadores no permiten cabeceras propias en el handshake).
+ */
+@Component
+public class NotificationWebSocketHandler implements WebSocketHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationWebSocketHandler.class);
+
+    private final NotificationService notificationService;
+    private final UserRepository userRepository;
+    private final JwtUtil jwtUtil;
+    private final DeliveryLatencyTracker latencyTracker;
+    private final DeliveryAuditLog auditLog;
+    private final DeliveryReceiptTracker receipts;
+    private final RedeliveryQueue redeliveryQueue;
+    private final int ackBatchSize;
+    private final Duration ackFlushInterval;
+
+    public NotificationWebSocketHandler(NotificationService notificationService,
+                                        UserRepository userRepository,
+                                        JwtUtil jwtUtil,
+                                        DeliveryLatencyTracker latencyTracker,
+                                        DeliveryAuditLog auditLog,
+                                        DeliveryReceiptTracker receipts,
+                                        RedeliveryQueue redeliveryQueue,
+                                        @Value("${notifications.websocket.ack-batch-size:256}") int ackBatchSize,
+                                        @Value("${notifications.websocket.ack-flush-interval:200ms}") Duration ackFlushInterval) {
+        this.notificationService = notificationService;
+        this.userRepository = userRepository;
+        this.jwtUtil = jwtUtil;
+        this.latencyTracker = latencyTracker;
+        this.auditLog = auditLog;
+        this.receipts = receipts;
+        this.redeliveryQueue = redeliveryQueue;
+        this.ackBatchSize = ackBatchSize;
+        this.ackFlushInterval = ackFlushInterval;
+    }
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        String token = extractToken(session.getHandshakeInfo());
+        if (token == null) {
+            return session.close(CloseStatus.POLICY_VIOLATION.withReason("Token requerido"));
+        }
+        return authenticate(token)
+                .flatMap(user -> Mono.using(() -> redeliveryQueue.open(user.getId(), acksRequested(session.getHandshakeInfo())),
+                        deliveries -> serve(session, user.getId(), deliveries),
+                        RedeliveryQueue.Session::close))
+                .switchIfEmpty(Mono.defer(() -> session.close(CloseStatus.POLICY_VIOLATION.withReason("Token inválido"))))
+                .onErrorResume(e -> {
+                    log.info("Conexión WebSocket rechazada: {}", e.getMessage());
+                    return session.close(CloseStatus.POLICY_VIOLATION.withReason("Token inválido"));
+                });
+    }
+
+    private Mono<Void> serve(WebSocketSession session, String userId, RedeliveryQueue.Session deliveries) {
+        // Confirmaciones y errores generados al procesar los mensajes del cliente
+        Sinks.Many<String> replies = Sinks.many().unicast().onBackpressureBuffer();
+
+        Mono<Void> inbound = session.receive()
+                .map(WebSocketMessage::getPayloadAsText)
+                .flatMapIterable(text -> {
+                    NotificationFrameCodec.ClientFrame frame = NotificationFrameCodec.decode(text);
+                    if (frame == null || (frame.type() != NotificationFrameCodec.ACK && frame.type() != NotificationFrameCodec.SEEN
+                            && frame.type() != NotificationFrameCodec.RECEIVED)) {
+                        replies.tryEmitNext(NotificationFrameCodec.encodeError("Mensaje no soportado"));
+                        return List.<String>of();
+                    }
+                    // Recibida, vista o leída: en los tres casos deja de reenviarse
+                    redeliveryQueue.acknowledge(userId, frame.ids());
+                    if (frame.type() == NotificationFrameCodec.SEEN) {
+                        receipts.seen(userId, frame.ids());
+                    }
+                    return frame.type() == NotificationFrameCodec.ACK ? frame.ids() : List.<String>of();
+                })
+                // Los acks se acumulan y se aplican en una sola operación masiva por lote
+                .bufferTimeout(ackBatchSize, ackFlushInterval)
+                .concatMap(ids -> notificationService.markNotificationsAsReadAndDelete(userId, ids)
+                        .doOnNext(acknowledged -> {
+                            if (!acknowledged.isEmpty()) {
+                                replies.tryEmitNext(NotificationFrameCodec.encodeAcknowledged(acknowledged));
+                            }
+                        })
+                        .onErrorResume(e -> {
+                            replies.tryEmitNext(NotificationFrameCodec.encodeError("No se pudieron procesar los acks: " + e.getMessage()));
+                            return Mono.empty();
+                        }))
+                .then();
+
+        Flux<WebSocketMessage> outbound = Flux.merge(
+                        Flux.merge(notificationService.getNotificationsStream(userId), deliveries.redeliveries())
+                                .doOnNext(notification -> {
+                                    latencyTracker.record("websocket", notification);
+                                    auditLog.record("websocket", userId, notification);
+                                    receipts.delivered(userId, notification);
+                                    deliveries.sent(notification);
+                                })
+                                .map(NotificationFrameCodec::encodeNotification),
+                        replies.asFlux())
+                .map(session::textMessage);
+
+        // La conexión termina cuando el cliente cierra o cuando falla el envío
+        return Mono.firstWithSignal(inbound, session.send(outbound));
+    }
+
+    private Mono<User> authenticate(String token) {
+        return jwtUtil.validateToken(token)
+                .filter(Boolean.TRUE::equals)
+                .flatMap(valid -> jwtUtil.extractUsername(token))
+                .flatMap(userRepository::findByEmail);
+    }
+
+    private static boolean acksRequested(HandshakeInfo handshakeInfo) {
+        return Boolean.parseBoolean(UriComponentsBuilder.fromUri(handshakeInfo.getUri()).build().getQueryParams().getFirst("acks"));
+    }
+
+    private String extractToken(HandshakeInfo handshakeInfo) {
+        String header = handshakeInfo.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith("Bearer ")) {
+            return header.substring(7).trim();
+        }
+        return UriComponentsBuilder.fromUri(handshakeInfo.getUri()).build().getQueryParams().getFirst("access_token");
+    }
+}
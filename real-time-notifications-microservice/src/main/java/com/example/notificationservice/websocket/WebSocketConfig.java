@@ -0,0 +1,20 @@
+package com.example.notificationservice.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+
+import java.util.Map;
+
+@Configuration
+public class WebSocketConfig {
+
+    // Orden -1 para que se evalúe antes que los @RequestMapping de los controladores
+    @Bean
+    public HandlerMapping notificationWebSocketMapping(NotificationWebSocketHandler handler,
+                                                       @Value("${notifications.websocket.path:/ws/notifications}") String path) {
+        return new SimpleUrlHandlerMapping(Map.of(path, handler), -1);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.notificationservice.audit;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeliveryAuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    private DeliveryAuditLog auditLog(int ringSize, int segmentSize, int maxSegments, double sampleRate, String always) {
+        // Intervalo largo: las pruebas vacían la cola a mano
+        return new DeliveryAuditLog(true, directory.toString(), ringSize, Duration.ofHours(1), segmentSize, maxSegments,
+                sampleRate, always);
+    }
+
+    private static Notification notification(String id, NotificationPriority priority) {
+        Notification notification = new Notification(id, "user1", "Mensaje " + id, Instant.now(), false);
+        notification.setPriority(priority);
+        return notification;
+    }
+
+    @Test
+    void testWritesDeliveriesThatTheReaderReadsBack() throws IOException {
+        DeliveryAuditLog auditLog = auditLog(1024, 1 << 20, 4, 1.0, "");
+
+        auditLog.record("user-stream", "user1", notification("n1", NotificationPriority.NORMAL));
+        auditLog.record("websocket", "user2", notification("n2", NotificationPriority.HIGH));
+        auditLog.drain();
+        auditLog.close();
+
+        List<DeliveryAuditRecord> records = DeliveryAuditReader.read(directory);
+        assertEquals(2, records.size());
+        assertEquals("user-stream", records.get(0).endpoint());
+        assertEquals("user1", records.get(0).userId());
+        assertEquals("n1", records.get(0).notificationId());
+        assertEquals(NotificationPriority.NORMAL, records.get(0).priority());
+        assertEquals("user2", records.get(1).userId());
+        assertEquals(NotificationPriority.HIGH, records.get(1).priority());
+        assertEquals(2, auditLog.getWritten());
+    }
+
+    @Test
+    void testRotatesSegmentsAndKeepsOnlyTheNewest() throws IOException {
+        // Segmentos mínimos: caben pocos registros en cada uno
+        DeliveryAuditLog auditLog = auditLog(4096, 0, 2, 1.0, "");
+
+        for (int i = 0; i < 500; i++) {
+            auditLog.record("user-stream", "user1", notification("n" + i, NotificationPriority.NORMAL));
+        }
+        auditLog.drain();
+        auditLog.close();
+
+        assertEquals(2, AuditSegmentWriter.segments(directory).size());
+        List<DeliveryAuditRecord> records = DeliveryAuditReader.read(directory);
+        assertTrue(records.size() < 500);
+        assertEquals("n499", records.get(records.size() - 1).notificationId());
+    }
+
+    @Test
+    void testSamplesByNotificationAndAlwaysKeepsConfiguredPriorities() throws IOException {
+        DeliveryAuditLog auditLog = auditLog(4096, 1 << 20, 4, 0.1, "HIGH");
+
+        for (int i = 0; i < 1000; i++) {
+            Notification normal = notification("n" + i, NotificationPriority.NORMAL);
+            // La misma notificación en dos endpoints: se audita en los dos o en ninguno
+            auditLog.record("user-stream", "user1", normal);
+            auditLog.record("websocket", "user1", normal);
+        }
+        auditLog.record("user-stream", "user1", notification("urgent", NotificationPriority.HIGH));
+        auditLog.drain();
+        auditLog.close();
+
+        List<DeliveryAuditRecord> records = DeliveryAuditReader.read(directory);
+        long sampled = records.stream().filter(r -> r.priority() == NotificationPriority.NORMAL).count();
+        assertTrue(sampled > 100 && sampled < 300, "muestreadas: " + sampled);
+        assertEquals(0, sampled % 2);
+        assertTrue(records.stream().anyMatch(r -> r.notificationId().equals("urgent")));
+    }
+
+    @Test
+    void testDropsWhenTheRingIsFull() {
+        DeliveryAuditLog auditLog = auditLog(4, 1 << 20, 4, 1.0, "");
+
+        for (int i = 0; i < 10; i++) {
+            auditLog.record("user-stream", "user1", notification("n" + i, NotificationPriority.NORMAL));
+        }
+
+        assertEquals(4, auditLog.getBacklog());
+        assertEquals(6, auditLog.getDropped());
+        auditLog.close();
+        assertEquals(4, auditLog.getWritten());
+    }
+}
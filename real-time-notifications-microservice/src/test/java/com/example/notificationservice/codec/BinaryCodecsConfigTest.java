@@ -0,0 +1,126 @@
+package com.example.notificationservice.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryCodecsConfigTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BinaryObjectMappers binaryMappers = BinaryObjectMappers.standalone();
+
+    private WebTestClient webTestClient;
+
+    @RestController
+    static class SampleController {
+
+        @GetMapping("/sample")
+        public Mono<Map<String, Object>> sample() {
+            return Mono.just(Map.of("id", "01ABC", "message", "Hola"));
+        }
+
+        @GetMapping("/list")
+        public Flux<Map<String, Object>> list() {
+            return Flux.just(Map.of("id", "a"), Map.of("id", "b"));
+        }
+
+        @GetMapping(value = "/events", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, LengthPrefixedCbor.MEDIA_TYPE_VALUE})
+        public Flux<ServerSentEvent<Object>> events() {
+            return Flux.just(ServerSentEvent.<Object>builder(Map.of("message", "Hola")).id("01ABC").build(),
+                    ServerSentEvent.builder().comment("heartbeat").build(),
+                    ServerSentEvent.<Object>builder(Map.of("count", 2)).id("01ABD").event("digest").build());
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToController(new SampleController())
+                .httpMessageCodecs(configurer -> BinaryCodecsConfig.configure(configurer, objectMapper, binaryMappers))
+                .build();
+    }
+
+    @Test
+    void testJsonStaysTheDefault() {
+        webTestClient.get().uri("/sample").accept(MediaType.ALL)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody().jsonPath("$.message").isEqualTo("Hola");
+
+        webTestClient.get().uri("/events").accept(MediaType.ALL)
+                .exchange()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM);
+    }
+
+    @Test
+    void testCborAndSmileAreNegotiated() throws Exception {
+        byte[] cbor = webTestClient.get().uri("/sample").accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        assertEquals("Hola", binaryMappers.cbor().readTree(cbor).get("message").asText());
+
+        byte[] smile = webTestClient.get().uri("/sample").accept(SMILE)
+                .exchange()
+                .expectHeader().contentTypeCompatibleWith(SMILE)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        assertEquals("Hola", binaryMappers.smile().readTree(smile).get("message").asText());
+
+        byte[] list = webTestClient.get().uri("/list").accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        assertEquals(List.of(Map.of("id", "a"), Map.of("id", "b")), binaryMappers.cbor().readValue(list, List.class));
+
+        byte[] json = objectMapper.writeValueAsBytes(Map.of("id", "01ABC", "message", "Hola"));
+        assertTrue(cbor.length < json.length);
+        assertTrue(smile.length < json.length);
+    }
+
+    @Test
+    void testStreamAsLengthPrefixedCborFrames() throws Exception {
+        byte[] body = webTestClient.get().uri("/events").accept(LengthPrefixedCbor.MEDIA_TYPE)
+                .exchange()
+                .expectHeader().contentTypeCompatibleWith(LengthPrefixedCbor.MEDIA_TYPE)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+
+        ByteBuffer frames = ByteBuffer.wrap(body);
+        JsonNode first = readFrame(frames);
+        assertEquals("01ABC", first.get("id").asText());
+        assertEquals("Hola", first.get("data").get("message").asText());
+        assertTrue(first.get("event") == null);
+        assertEquals(0, frames.getInt());  // Heartbeat
+        JsonNode digest = readFrame(frames);
+        assertEquals("digest", digest.get("event").asText());
+        assertEquals(2, digest.get("data").get("count").asInt());
+        assertEquals(0, frames.remaining());
+        assertTrue(Arrays.equals(new byte[4], LengthPrefixedCbor.heartbeat()));
+        assertTrue(!new String(body, StandardCharsets.ISO_8859_1).contains("data:"));
+    }
+
+    private JsonNode readFrame(ByteBuffer frames) throws Exception {
+        byte[] frame = new byte[frames.getInt()];
+        frames.get(frame);
+        return binaryMappers.cbor().readTree(frame);
+    }
+}
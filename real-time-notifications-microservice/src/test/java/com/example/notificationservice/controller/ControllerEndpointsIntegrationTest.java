@@ -0,0 +1,313 @@
+package com.example.notificationservice.controller;
+
+import com.example.notificationservice.audit.DeliveryAuditLog;
+import com.example.notificationservice.audit.DeliveryAuditReader;
+import com.example.notificationservice.delivery.RedeliveryQueue;
+import com.example.notificationservice.receipts.DeliveryReceiptTracker;
+import com.example.notificationservice.repository.NotificationRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.rsocket.server.LocalRSocketServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.FluxExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Todos los endpoints de los controladores contra el servidor Netty real (perfil "memory", sin MongoDB).
+ * Con {@code mvn -Pblockhound test} BlockHound está instalado: cualquier llamada bloqueante que hagan en un
+ * event loop o en un scheduler no bloqueante hace fallar la prueba.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.rsocket.server.port=0",
+        "notifications.sse.heartbeat-interval-ms=200"
+})
+@ActiveProfiles("memory")
+class ControllerEndpointsIntegrationTest {
+
+    private static final String USERS = "/api-clients/v1.0/users";
+    private static final String NOTIFICATIONS = "/api-clients/v1.0/notifications";
+    private static final Duration STREAM_TIMEOUT = Duration.ofSeconds(10);
+
+    @TempDir
+    static Path storageDirectory;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) {
+        registry.add("notifications.storage.memory.directory", () -> storageDirectory.toString());
+        registry.add("notifications.audit.directory", () -> storageDirectory.resolve("audit").toString());
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DeliveryAuditLog auditLog;
+
+    @Autowired
+    private DeliveryReceiptTracker receipts;
+
+    @Autowired
+    private RedeliveryQueue redeliveryQueue;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private RSocketRequester.Builder rsocketRequesterBuilder;
+
+    @LocalRSocketServerPort
+    private int rsocketPort;
+
+    private record Account(String id, String token) {
+    }
+
+    // POST /users: el hash de la contraseña y la firma del JWT
+    private Account signUp() {
+        JsonNode body = webTestClient.post().uri(USERS)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("name", "Prueba", "email", UUID.randomUUID() + "@example.com", "password", "secret123"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JsonNode.class).returnResult().getResponseBody();
+        assertNotNull(body);
+        return new Account(body.get("data").get("id").asText(), body.get("data").get("token").asText());
+    }
+
+    private String createNotification(Account account, String message) {
+        JsonNode body = webTestClient.post().uri(NOTIFICATIONS + "/users/{userId}", account.id())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + account.token())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("message", message))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JsonNode.class).returnResult().getResponseBody();
+        assertNotNull(body);
+        return body.get("data").get("id").asText();
+    }
+
+    @Test
+    void testUserEndpoints() {
+        Account account = signUp();
+
+        webTestClient.get().uri(USERS).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.data").isArray();
+
+        webTestClient.get().uri(USERS + "/{userId}", account.id()).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.data.email").exists();
+
+        webTestClient.post().uri(USERS + "/refresh-token/{userId}", account.id())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + account.token())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.data.refreshToken").exists();
+
+        webTestClient.delete().uri(USERS + "/{id}", account.id()).exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri(USERS + "/{userId}", account.id()).exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testNotificationEndpoints() {
+        Account account = signUp();
+        String notificationId = createNotification(account, "Hola");
+
+        for (String path : new String[]{"/rate-limits", "/latency", "/connections"}) {
+            webTestClient.get().uri(NOTIFICATIONS + path)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + account.token())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody().jsonPath("$.status").isEqualTo("success");
+        }
+
+        webTestClient.put().uri(NOTIFICATIONS + "/{notificationId}/read-and-delete", notificationId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + account.token())
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    // POST /seen: el acuse se acepta sin esperar a la base de datos y se escribe en el siguiente vaciado
+    @Test
+    void testSeenReceipts() {
+        Account account = signUp();
+        String notificationId = createNotification(account, "Vista");
+
+        webTestClient.post().uri(NOTIFICATIONS + "/seen")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + account.token())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("notificationIds", List.of(notificationId)))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody().jsonPath("$.status").isEqualTo("success");
+
+        StepVerifier.create(receipts.flushPending()).expectNextCount(1).verifyComplete();
+        StepVerifier.create(notificationRepository.findById(notificationId))
+                .assertNext(notification -> assertNotNull(notification.getSeenAt()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testUserStream() throws IOException {
+        Account account = signUp();
+        // El heartbeat (cada 200 ms) envía las cabeceras antes de que haya eventos
+        FluxExchangeResult<ServerSentEvent<JsonNode>> result = webTestClient.get()
+                .uri(NOTIFICATIONS + "/stream/{userId}", account.id())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + account.token())
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<>() {
+                });
+
+        StepVerifier.create(result.getResponseBody().filter(event -> event.data() != null))
+                .then(() -> createNotification(account, "En directo"))
+                .assertNext(event -> assertEquals("En directo", event.data().get("message").asText()))
+                .thenCancel()
+                .verify(STREAM_TIMEOUT);
+
+        // La entrega queda en el registro de auditoría
+        auditLog.drain();
+        assertTrue(DeliveryAuditReader.read(storageDirectory.resolve("audit")).stream()
+                .anyMatch(record -> record.endpoint().equals("user-stream") && record.userId().equals(account.id())));
+    }
+
+    // Con acks=true lo escrito queda en vuelo hasta que el cliente lo confirma con POST /acks
+    @Test
+    void testDeliveryAcks() throws InterruptedException {
+        Account account = signUp();
+        FluxExchangeResult<ServerSentEvent<JsonNode>> result = webTestClient.get()
+                .uri(NOTIFICATIONS + "/stream/{userId}?acks=true", account.id())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + account.token())
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<>() {
+                });
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        Disposable stream = result.getResponseBody()
+                .filter(event -> event.data() != null)
+                .subscribe(event -> received.add(event.id()));
+        try {
+            createNotification(account, "Confirmar");
+            String notificationId = received.poll(STREAM_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            assertNotNull(notificationId);
+            long acknowledged = redeliveryQueue.getAcknowledged();
+
+            webTestClient.post().uri(NOTIFICATIONS + "/acks")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + account.token())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(Map.of("notificationIds", List.of(notificationId)))
+                    .exchange()
+                    .expectStatus().isAccepted()
+                    .expectBody().jsonPath("$.status").isEqualTo("success");
+            assertEquals(acknowledged + 1, redeliveryQueue.getAcknowledged());
+        } finally {
+            stream.dispose();
+        }
+    }
+
+    @Test
+    void testUnreadStream() {
+        Account account = signUp();
+        FluxExchangeResult<ServerSentEvent<JsonNode>> result = webTestClient.get()
+                .uri(NOTIFICATIONS + "/users/unread-stream")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + account.token())
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<>() {
+                });
+
+        StepVerifier.create(result.getResponseBody().filter(event -> event.data() != null))
+                .then(() -> createNotification(account, "Para todos"))
+                .assertNext(event -> assertEquals("Para todos", event.data().get("message").asText()))
+                .thenCancel()
+                .verify(STREAM_TIMEOUT);
+    }
+
+    // Las rutas con {userId} solo se aceptan para el usuario del token del SETUP
+    @Test
+    void testRSocketRoutesAreLimitedToTheConnectionUser() {
+        Account account = signUp();
+        Account other = signUp();
+        RSocketRequester requester = rsocketRequesterBuilder
+                .setupData("Bearer " + account.token())
+                .tcp("localhost", rsocketPort);
+        try {
+            StepVerifier.create(requester.route("notifications.create.{userId}", account.id())
+                            .data(Map.of("message", "Por RSocket"))
+                            .retrieveMono(JsonNode.class))
+                    .assertNext(notification -> assertEquals("Por RSocket", notification.get("message").asText()))
+                    .verifyComplete();
+            StepVerifier.create(requester.route("notifications.create.{userId}", other.id())
+                            .data(Map.of("message", "Ajena"))
+                            .retrieveMono(JsonNode.class))
+                    .expectError()
+                    .verify(STREAM_TIMEOUT);
+            StepVerifier.create(requester.route("notifications.ack.{userId}", other.id())
+                            .data(List.of(createNotification(other, "Ajena")))
+                            .retrieveMono(List.class))
+                    .expectError()
+                    .verify(STREAM_TIMEOUT);
+        } finally {
+            requester.dispose();
+        }
+    }
+
+    // De Actuator solo el health check es público
+    @Test
+    void testActuatorRequiresTokenExceptHealth() {
+        webTestClient.get().uri("/actuator/health").exchange()
+                .expectStatus().isOk();
+        webTestClient.get().uri("/actuator/prometheus").exchange()
+                .expectStatus().isUnauthorized();
+
+        Account account = signUp();
+        webTestClient.get().uri("/actuator/metrics")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + account.token())
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void testOpenApiDocument() {
+        webTestClient.get().uri("/openapi.yaml").exchange()
+                .expectStatus().isOk();
+    }
+
+    // Documento generado por springdoc: se genera con esta petición, fuera del event loop (GeneratedApiDocsFilter)
+    @Test
+    void testGeneratedApiDocs() {
+        webTestClient.get().uri("/v1/api-docs").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.paths").exists();
+    }
+}
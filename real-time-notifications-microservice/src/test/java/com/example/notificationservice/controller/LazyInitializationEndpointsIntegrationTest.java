@@ -0,0 +1,11 @@
+package com.example.notificationservice.controller;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Los mismos endpoints con la inicialización diferida del arranque rápido (Dockerfile). También con
+ * {@code mvn -Pblockhound test}: lo que atiende una petición se crea al arrancar, nunca en el event loop.
+ */
+@TestPropertySource(properties = "spring.main.lazy-initialization=true")
+class LazyInitializationEndpointsIntegrationTest extends ControllerEndpointsIntegrationTest {
+}
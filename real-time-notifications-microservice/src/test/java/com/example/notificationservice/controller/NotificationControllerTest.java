@@ -1,11 +1,19 @@
 package com.example.notificationservice.controller;
 
 import com.example.notificationservice.HttpResponse.CustomApiResponse;
+import com.example.notificationservice.delivery.RedeliveryQueue;
 import com.example.notificationservice.dto.NotificationRequestDto;
 import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.metrics.DeliveryLatencyTracker;
+import com.example.notificationservice.ratelimit.NotificationRateLimiter;
+import com.example.notificationservice.ratelimit.NotificationRateLimiter.RateLimitDecision;
+import com.example.notificationservice.receipts.DeliveryReceiptTracker;
 import com.example.notificationservice.repository.NotificationRepository;
 import com.example.notificationservice.security.JwtUtil;
+import com.example.notificationservice.service.NotificationCoalescer;
 import com.example.notificationservice.service.NotificationService;
+import com.example.notificationservice.sse.SseConnectionRegistry;
+import com.example.notificationservice.sse.SseFrameBroadcaster;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -18,6 +26,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.Instant;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -37,12 +46,33 @@ class NotificationControllerTest {
     @MockBean
     private JwtUtil jwtUtil;
 
+    @MockBean
+    private SseConnectionRegistry connectionRegistry;
+
+    @MockBean
+    private NotificationCoalescer notificationCoalescer;
+
+    @MockBean
+    private NotificationRateLimiter rateLimiter;
+
+    @MockBean
+    private DeliveryLatencyTracker latencyTracker;
+
+    @MockBean
+    private SseFrameBroadcaster frameBroadcaster;
+
+    @MockBean
+    private DeliveryReceiptTracker deliveryReceiptTracker;
+
+    @MockBean
+    private RedeliveryQueue redeliveryQueue;
+
     private WebTestClient webTestClient;
 
     @BeforeEach
     void setUp() {
         webTestClient = WebTestClient.bindToController(
-                new NotificationController(notificationService, notificationRepository, jwtUtil)
+                new NotificationController(notificationService, notificationRepository, jwtUtil, connectionRegistry, notificationCoalescer, rateLimiter, latencyTracker, frameBroadcaster, deliveryReceiptTracker, redeliveryQueue)
         ).build();
     }
 
@@ -54,6 +84,8 @@ class NotificationControllerTest {
 
         // Simular la validación del token y la creación de la notificación
         when(jwtUtil.validateToken(anyString())).thenReturn(Mono.just(true));
+        when(jwtUtil.extractUsername(anyString())).thenReturn(Mono.just("producer@example.com"));
+        when(rateLimiter.tryAcquire("producer@example.com", "user1")).thenReturn(new RateLimitDecision(true, null, Duration.ZERO));
         when(notificationService.createNotification(anyString(), any(Notification.class))).thenReturn(Mono.just(notification));
 
         // Ejecuta la petición POST
@@ -74,6 +106,25 @@ class NotificationControllerTest {
 
 
 
+    @Test
+    void shouldReturnTooManyRequestsWhenProducerIsRateLimited() {
+        when(jwtUtil.validateToken(anyString())).thenReturn(Mono.just(true));
+        when(jwtUtil.extractUsername(anyString())).thenReturn(Mono.just("producer@example.com"));
+        when(rateLimiter.tryAcquire("producer@example.com", "user1"))
+                .thenReturn(new RateLimitDecision(false, NotificationRateLimiter.PRODUCER, Duration.ofMillis(1500)));
+
+        webTestClient.post()
+                .uri("/api-clients/v1.0/notifications/users/{userId}", "user1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer valid_token")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new NotificationRequestDto("Notification message"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2");
+
+        Mockito.verify(notificationService, Mockito.never()).createNotification(anyString(), any(Notification.class));
+    }
+
     @Test
     void shouldMarkNotificationAsReadAndDelete() {
         // Datos de prueba
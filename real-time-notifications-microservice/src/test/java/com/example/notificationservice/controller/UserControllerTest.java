@@ -6,6 +6,7 @@ import com.example.notificationservice.entity.User;
 import com.example.notificationservice.repository.NotificationRepository;
 import com.example.notificationservice.repository.UserRepository;
 import com.example.notificationservice.security.JwtUtil;
+import com.example.notificationservice.security.PasswordHashingService;
 import com.example.notificationservice.service.NotificationService;
 import com.example.notificationservice.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,9 +14,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -27,6 +29,8 @@ import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(UserController.class)
@@ -48,14 +52,14 @@ class UserControllerTest {
     private JwtUtil jwtUtil;
 
     @MockBean
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashing;
 
     private WebTestClient webTestClient;
 
     @BeforeEach
     void setUp() {
         webTestClient = WebTestClient.bindToController(
-                new UserController(userService, userRepository, notificationService, jwtUtil, passwordEncoder)
+                new UserController(userService, userRepository, notificationService, jwtUtil, passwordHashing)
         ).build();
     }
 
@@ -103,7 +107,8 @@ class UserControllerTest {
         user.setEmail("testuser@example.com");
         user.setPassword("password123");
 
-        // Simula el servicio de guardar usuario
+        // Simula el hash de la contraseña y el servicio de guardar usuario
+        when(passwordHashing.encode(anyString())).thenReturn(Mono.just("$2a$10$hash"));
         when(userService.saveUser(any(User.class))).thenReturn(Mono.just(user));
 
         // Simula la generación del token JWT
@@ -124,6 +129,26 @@ class UserControllerTest {
                 });
     }
 
+    @Test
+    void testSaveUserWhenPasswordHashingIsSaturated() {
+        User user = new User();
+        user.setName("Test User");
+        user.setEmail("testuser@example.com");
+        user.setPassword("password123");
+
+        // El pool de contraseñas rechaza la operación: no se guarda nada y se responde 503
+        when(passwordHashing.encode(anyString())).thenReturn(Mono.error(
+                new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "El servicio de contraseñas está saturado, inténtelo más tarde")));
+
+        webTestClient.post().uri("/api-clients/v1.0/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        verify(userService, never()).saveUser(any(User.class));
+    }
+
 
     @Test
     void testDeleteUser() {
@@ -0,0 +1,214 @@
+package com.example.notificationservice.delivery;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.repository.NotificationRepository;
+import com.example.notificationservice.scheduling.WheelTimer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RedeliveryQueueTest {
+
+    private final NotificationRepository repository = mock(NotificationRepository.class);
+    private final WheelTimer timer = mock(WheelTimer.class);
+    // Vencimientos programados en la rueda; se disparan a mano
+    private final List<Runnable> timeouts = new ArrayList<>();
+    private final List<List<RedeliveryMark>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> timeouts.add(invocation.getArgument(1))).when(timer).schedule(any(), any());
+        when(repository.applyRedeliveryMarks(any())).thenAnswer(invocation -> {
+            Collection<RedeliveryMark> batch = invocation.getArgument(0);
+            batches.add(List.copyOf(batch));
+            return Mono.just((long) batch.size());
+        });
+        when(repository.claimRedeliveries(any(), any(), anyInt())).thenReturn(Flux.empty());
+    }
+
+    private RedeliveryQueue queue(int maxAttempts, int maxInFlightPerUser) {
+        return new RedeliveryQueue(repository, timer, true, Duration.ofSeconds(10), maxAttempts, maxInFlightPerUser);
+    }
+
+    private void fireTimeouts() {
+        List<Runnable> due = List.copyOf(timeouts);
+        timeouts.clear();
+        due.forEach(Runnable::run);
+    }
+
+    private static List<Notification> received(RedeliveryQueue.Session session) {
+        List<Notification> received = new ArrayList<>();
+        session.redeliveries().subscribe(received::add);
+        return received;
+    }
+
+    private static Notification notification(String id, String userId) {
+        return new Notification(id, userId, "Mensaje " + id, Instant.now(), false);
+    }
+
+    @Test
+    void testUnconfirmedIsRedeliveredToAnotherConnectionUntilAcknowledged() {
+        RedeliveryQueue queue = queue(5, 10);
+        RedeliveryQueue.Session phone = queue.open("user1", true);
+        RedeliveryQueue.Session laptop = queue.open("user1", true);
+        List<Notification> toPhone = received(phone);
+        List<Notification> toLaptop = received(laptop);
+
+        phone.sent(notification("1", "user1"));
+        phone.sent(notification("2", "user2"));  // De otro usuario: no queda en vuelo
+        assertEquals(1, queue.getInFlight());
+
+        fireTimeouts();
+        assertEquals(List.of(), toPhone);
+        assertEquals(List.of("1"), toLaptop.stream().map(Notification::getId).toList());
+        laptop.sent(toLaptop.get(0));  // Escribir el reenvío no crea otra entrada
+
+        queue.acknowledge("user1", List.of("1"));
+        fireTimeouts();
+        assertEquals(1, toLaptop.size());
+        assertEquals(0, queue.getInFlight());
+        assertEquals(1, queue.getAcknowledged());
+        assertEquals(1, queue.getRedelivered());
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        RedeliveryQueue queue = queue(3, 10);
+        RedeliveryQueue.Session session = queue.open("user1", true);
+        List<Notification> redelivered = received(session);
+
+        session.sent(notification("1", "user1"));
+        for (int i = 0; i < 5; i++) {
+            fireTimeouts();
+        }
+
+        assertEquals(2, redelivered.size());  // Tres escrituras en total
+        assertEquals(1, queue.getExpired());
+        assertEquals(0, queue.getInFlight());
+    }
+
+    @Test
+    void testClosingConnectionHandsInFlightToTheRemainingOne() {
+        RedeliveryQueue queue = queue(5, 10);
+        RedeliveryQueue.Session phone = queue.open("user1", true);
+        RedeliveryQueue.Session laptop = queue.open("user1", true);
+        List<Notification> toLaptop = new ArrayList<>();
+        AtomicBoolean completed = new AtomicBoolean();
+        laptop.redeliveries().subscribe(toLaptop::add, e -> { }, () -> completed.set(true));
+
+        phone.sent(notification("1", "user1"));
+        phone.close();
+        assertEquals(List.of("1"), toLaptop.stream().map(Notification::getId).toList());
+
+        // La última conexión se lleva lo pendiente: sigue sin leer y llega con el historial al reconectar
+        laptop.close();
+        assertTrue(completed.get());
+        assertEquals(0, queue.getInFlight());
+        fireTimeouts();
+        assertEquals(1, queue.getRedelivered());
+    }
+
+    @Test
+    void testOverflowSpillsToStorageAndSweepClaimsItBack() {
+        RedeliveryQueue queue = queue(5, 2);
+        RedeliveryQueue.Session session = queue.open("user1", true);
+        List<Notification> redelivered = received(session);
+        Notification oldest = notification("1", "user1");
+        oldest.setRedeliveries(1);
+        when(repository.claimRedeliveries(eq("user1"), any(), anyInt())).thenReturn(Flux.just(oldest)).thenReturn(Flux.empty());
+
+        session.sent(notification("1", "user1"));
+        session.sent(notification("2", "user1"));
+        session.sent(notification("3", "user1"));
+        assertEquals(2, queue.getInFlight());
+        assertEquals(1, queue.getSpilled());
+
+        queue.acknowledge("user1", List.of("2", "3"));
+        StepVerifier.create(queue.sweepPending()).verifyComplete();
+
+        assertEquals(1, batches.size());
+        RedeliveryMark spill = batches.get(0).stream().filter(mark -> mark.notificationId().equals("1")).findFirst().orElseThrow();
+        assertNotNull(spill.redeliverAt());
+        assertEquals(1, spill.redeliveries());
+        // Las confirmadas pueden tener la marca escrita: se borra
+        assertTrue(batches.get(0).stream().filter(mark -> !mark.notificationId().equals("1")).allMatch(mark -> mark.redeliverAt() == null));
+        assertEquals(List.of("1"), redelivered.stream().map(Notification::getId).toList());
+        assertEquals(1, queue.getInFlight());
+
+        queue.acknowledge("user1", List.of("1"));
+        StepVerifier.create(queue.sweepPending()).verifyComplete();
+        assertNull(batches.get(1).get(0).redeliverAt());
+    }
+
+    @Test
+    void testDeliveryQueueDropsAreRedeliveredToConnectedUsers() {
+        RedeliveryQueue queue = queue(5, 10);
+        RedeliveryQueue.Session session = queue.open("user1", true);
+        List<Notification> redelivered = received(session);
+
+        queue.missed(notification("1", "user1"));
+        queue.missed(notification("2", "user2"));  // Sin conexiones con acks en esta réplica
+
+        assertEquals(List.of("1"), redelivered.stream().map(Notification::getId).toList());
+        assertEquals(1, queue.getInFlight());
+    }
+
+    @Test
+    void testConnectionsWithoutAcksAreNotTracked() {
+        RedeliveryQueue queue = queue(5, 10);
+        RedeliveryQueue.Session session = queue.open("user1", false);
+
+        session.sent(notification("1", "user1"));
+        queue.missed(notification("2", "user1"));
+        session.close();
+
+        StepVerifier.create(session.redeliveries()).verifyComplete();
+        assertEquals(0, queue.getInFlight());
+        assertTrue(timeouts.isEmpty());
+    }
+
+    // Las marcas de un usuario que se desconecta antes del barrido se escriben igual y se reclaman al reconectar
+    @Test
+    void testSpilledMarksSurviveLastConnectionClosing() {
+        RedeliveryQueue queue = queue(5, 2);
+        RedeliveryQueue.Session session = queue.open("user1", true);
+        session.sent(notification("1", "user1"));
+        session.sent(notification("2", "user1"));
+        session.sent(notification("3", "user1"));
+        session.close();
+
+        StepVerifier.create(queue.sweepPending()).verifyComplete();
+        assertEquals(List.of("1"), batches.get(0).stream().map(RedeliveryMark::notificationId).toList());
+        assertNotNull(batches.get(0).get(0).redeliverAt());
+
+        Notification spilled = notification("1", "user1");
+        spilled.setRedeliveries(1);
+        when(repository.claimRedeliveries(eq("user1"), any(), anyInt())).thenReturn(Flux.just(spilled));
+        RedeliveryQueue.Session reconnected = queue.open("user1", true);
+        List<Notification> redelivered = received(reconnected);
+
+        StepVerifier.create(queue.sweepPending()).verifyComplete();
+        assertEquals(List.of("1"), redelivered.stream().map(Notification::getId).toList());
+        assertEquals(1, queue.getInFlight());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.notificationservice.metrics;
+
+import com.example.notificationservice.dto.LatencyStatsDto;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeliveryLatencyTrackerTest {
+
+    @Test
+    void testPublishesIntervalAndCumulativePercentiles() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DeliveryLatencyTracker tracker = new DeliveryLatencyTracker(registry, 3);
+
+        for (int i = 1; i <= 1000; i++) {
+            tracker.record("user-stream", NotificationPriority.HIGH, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        tracker.rollInterval();
+
+        LatencyStatsDto stats = tracker.getStats().get(0);
+        assertEquals("user-stream", stats.getEndpoint());
+        assertEquals("HIGH", stats.getPriority());
+        assertEquals(1000, stats.getIntervalCount());
+        assertEquals(500, stats.getIntervalP50Micros() / 1000);
+        assertEquals(990, stats.getIntervalP99Micros() / 1000);
+        assertEquals(999, stats.getIntervalP999Micros() / 1000);
+        assertEquals(0.5, registry.get("notifications.delivery.latency").tag("quantile", "0.5").gauge().value(), 0.001);
+
+        // El siguiente intervalo empieza vacío, el acumulado conserva lo anterior
+        tracker.record("user-stream", NotificationPriority.HIGH, TimeUnit.MILLISECONDS.toNanos(2));
+        tracker.rollInterval();
+
+        stats = tracker.getStats().get(0);
+        assertEquals(1, stats.getIntervalCount());
+        assertEquals(1001, stats.getTotalCount());
+    }
+
+    @Test
+    void testIgnoresNotificationsWithoutIngestStamp() {
+        DeliveryLatencyTracker tracker = new DeliveryLatencyTracker(new SimpleMeterRegistry(), 3);
+
+        // Llegada de otra réplica, programada o recordatorio: sin marca no se mide
+        tracker.recordDelivery("user-stream", new Notification("1", "user1", "Sin marca", Instant.now(), false));
+        Notification stamped = new Notification("2", "user1", "Con marca", Instant.now(), false);
+        stamped.setIngestNanos(System.nanoTime());
+        tracker.recordDelivery("websocket", stamped);
+        tracker.rollInterval();
+
+        List<LatencyStatsDto> stats = tracker.getStats();
+        assertEquals(1, stats.size());
+        assertEquals("websocket", stats.get(0).getEndpoint());
+        assertEquals("NORMAL", stats.get(0).getPriority());
+        assertTrue(stats.get(0).getIntervalMaxMicros() < TimeUnit.SECONDS.toMicros(5));
+    }
+}
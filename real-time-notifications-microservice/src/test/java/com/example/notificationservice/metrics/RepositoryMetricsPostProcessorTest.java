@@ -0,0 +1,48 @@
+package com.example.notificationservice.metrics;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.User;
+import com.example.notificationservice.repository.NotificationRepository;
+import com.example.notificationservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RepositoryMetricsPostProcessorTest {
+
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void testTimesReactiveCallsPerRepositoryAndMethod() {
+        when(provider.getObject()).thenReturn(registry);
+        RepositoryMetricsPostProcessor postProcessor = new RepositoryMetricsPostProcessor(provider);
+
+        NotificationRepository notifications = mock(NotificationRepository.class);
+        UserRepository users = mock(UserRepository.class);
+        when(notifications.findById("1")).thenReturn(Mono.just(new Notification()));
+        when(users.findById("1")).thenReturn(Mono.just(new User()));
+
+        NotificationRepository timedNotifications = (NotificationRepository) postProcessor.postProcessAfterInitialization(notifications, "notificationRepository");
+        UserRepository timedUsers = (UserRepository) postProcessor.postProcessAfterInitialization(users, "userRepository");
+
+        Mono<Notification> lookup = timedNotifications.findById("1");
+        // Llamar al método no cuenta: solo la suscripción
+        assertEquals(0, registry.get("mongo.repository").tag("repository", "notificationRepository").tag("method", "findById").timer().count());
+
+        StepVerifier.create(lookup).expectNextCount(1).verifyComplete();
+        StepVerifier.create(timedUsers.findById("1")).expectNextCount(1).verifyComplete();
+
+        // findById es el mismo Method heredado en ambos repositorios, pero cada uno tiene su timer
+        assertEquals(1, registry.get("mongo.repository").tag("repository", "notificationRepository").tag("method", "findById").timer().count());
+        assertEquals(1, registry.get("mongo.repository").tag("repository", "userRepository").tag("method", "findById").timer().count());
+    }
+}
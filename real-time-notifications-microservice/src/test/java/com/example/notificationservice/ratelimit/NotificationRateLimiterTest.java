@@ -0,0 +1,72 @@
+package com.example.notificationservice.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationRateLimiterTest {
+
+    @Test
+    void testTokenBucketAllowsBurstThenRefillsAtRate() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter();
+        RateLimit limit = new RateLimit(10, 3);  // Un token cada 100 ms, ráfaga de 3
+        long now = 1_000_000_000L;
+
+        assertEquals(0, limiter.tryAcquire("a", limit, now));
+        assertEquals(0, limiter.tryAcquire("a", limit, now));
+        assertEquals(0, limiter.tryAcquire("a", limit, now));
+        assertEquals(100_000_000L, limiter.tryAcquire("a", limit, now));
+        // Otra clave tiene su propio bucket
+        assertEquals(0, limiter.tryAcquire("b", limit, now));
+        // A los 100 ms hay un token nuevo
+        assertEquals(0, limiter.tryAcquire("a", limit, now + 100_000_000L));
+        assertEquals(1, limiter.getRejected("a"));
+
+        // Al rato los buckets están llenos otra vez y se pueden eliminar
+        assertEquals(2, limiter.evictIdle(now + 1_000_000_000L));
+    }
+
+    @Test
+    void testLimitsProducersAndTargetsIndependently() {
+        NotificationRateLimiter limiter = new NotificationRateLimiter(true, "1,2", "1,100", "");
+
+        assertTrue(limiter.tryAcquire("ruidoso", "user1").allowed());
+        assertTrue(limiter.tryAcquire("ruidoso", "user2").allowed());
+        NotificationRateLimiter.RateLimitDecision rejected = limiter.tryAcquire("ruidoso", "user3");
+        assertFalse(rejected.allowed());
+        assertEquals(NotificationRateLimiter.PRODUCER, rejected.limitedBy());
+        assertEquals(1, rejected.retryAfterSeconds());
+
+        // Los demás productores no se ven afectados
+        assertTrue(limiter.tryAcquire("tranquilo", "user3").allowed());
+        assertEquals(1, limiter.getStats().getRejectedByProducer());
+    }
+
+    @Test
+    void testReloadsOverridesWhenFileChanges(@TempDir Path dir) throws Exception {
+        Path overrides = dir.resolve("rate-limits.properties");
+        Files.writeString(overrides, "producer.batch-job=1000,1000\n");
+        NotificationRateLimiter limiter = new NotificationRateLimiter(true, "1,1", "1000,1000", overrides.toString());
+
+        assertTrue(limiter.tryAcquire("batch-job", "user1").allowed());
+        assertTrue(limiter.tryAcquire("batch-job", "user1").allowed());
+        assertTrue(limiter.tryAcquire("otro", "user1").allowed());
+        assertFalse(limiter.tryAcquire("otro", "user1").allowed());
+
+        Files.writeString(overrides, "producer.default=1000,1000\n");
+        Files.setLastModifiedTime(overrides, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        limiter.reloadOverrides();
+
+        // Un productor sin historial, para no depender de cuánto tarda en pagarse la deuda del límite anterior
+        assertTrue(limiter.tryAcquire("tercero", "user1").allowed());
+        assertTrue(limiter.tryAcquire("tercero", "user1").allowed());
+        assertEquals("1000.0,1000", limiter.getStats().getProducerLimit());
+    }
+}
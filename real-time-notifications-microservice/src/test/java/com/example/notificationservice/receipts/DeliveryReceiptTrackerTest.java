@@ -0,0 +1,124 @@
+package com.example.notificationservice.receipts;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DeliveryReceiptTrackerTest {
+
+    private final NotificationRepository repository = mock(NotificationRepository.class);
+    // Lotes que recibe la base de datos, en orden
+    private final List<List<DeliveryReceipt>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(repository.applyReceipts(any())).thenAnswer(invocation -> {
+            Collection<DeliveryReceipt> batch = invocation.getArgument(0);
+            batches.add(List.copyOf(batch));
+            return Mono.just((long) batch.size());
+        });
+    }
+
+    private static Notification notification(String id, String userId) {
+        return new Notification(id, userId, "Mensaje " + id, Instant.now(), false);
+    }
+
+    @Test
+    void testDeliveriesToManyConnectionsAreOneWrite() {
+        DeliveryReceiptTracker tracker = new DeliveryReceiptTracker(repository, true, 100, 1000);
+        Notification notification = notification("1", "user1");
+
+        for (int i = 0; i < 50; i++) {
+            tracker.delivered("user1", notification);
+        }
+        tracker.seen("user1", List.of("1"));
+        tracker.delivered("user2", notification);  // Flujo de otro usuario: no es una entrega
+
+        StepVerifier.create(tracker.flushPending()).expectNext(1L).verifyComplete();
+        assertEquals(1, batches.size());
+        DeliveryReceipt receipt = batches.get(0).get(0);
+        assertEquals("user1", receipt.userReferenceId());
+        assertNotNull(receipt.seenAt());
+        assertFalse(receipt.deliveredAt().isAfter(receipt.seenAt()));  // Se queda la primera entrega
+        assertEquals(51, tracker.getEvents());
+        assertEquals(0, tracker.getPending());
+    }
+
+    @Test
+    void testSeenByAnotherUserDoesNotMergeWithOwner() {
+        DeliveryReceiptTracker tracker = new DeliveryReceiptTracker(repository, true, 100, 1000);
+        tracker.delivered("user1", notification("1", "user1"));
+        tracker.seen("user2", List.of("1"));
+
+        StepVerifier.create(tracker.flushPending()).expectNext(2L).verifyComplete();
+        DeliveryReceipt owner = batches.get(0).stream().filter(r -> r.userReferenceId().equals("user1")).findFirst().orElseThrow();
+        assertNull(owner.seenAt());
+    }
+
+    @Test
+    void testPendingIsWrittenInBatchesAndCapped() {
+        DeliveryReceiptTracker tracker = new DeliveryReceiptTracker(repository, true, 4, 10);
+        for (int i = 0; i < 12; i++) {
+            tracker.delivered("user1", notification(String.valueOf(i), "user1"));
+        }
+        assertEquals(10, tracker.getPending());
+        assertEquals(2, tracker.getDropped());
+
+        StepVerifier.create(tracker.flushPending()).expectNext(10L).verifyComplete();
+        assertEquals(List.of(4, 4, 2), batches.stream().map(List::size).toList());
+        assertEquals(3, tracker.getWrites());
+    }
+
+    @Test
+    void testFailedBatchIsRetriedOnNextFlush() {
+        DeliveryReceiptTracker tracker = new DeliveryReceiptTracker(repository, true, 100, 1000);
+        doReturn(Mono.error(new IllegalStateException("sin conexión")))
+                .doAnswer(invocation -> Mono.just((long) invocation.<Collection<?>>getArgument(0).size()))
+                .when(repository).applyReceipts(any());
+        tracker.delivered("user1", notification("1", "user1"));
+        tracker.seen("user1", List.of("2", "3"));
+
+        StepVerifier.create(tracker.flushPending()).expectNext(0L).verifyComplete();
+        assertEquals(3, tracker.getPending());
+
+        StepVerifier.create(tracker.flushPending()).expectNext(3L).verifyComplete();
+        assertEquals(0, tracker.getPending());
+        assertEquals(3, tracker.getUpdated());
+    }
+
+    // Un vaciado cancelado con un lote escribiéndose (cierre, tiempo agotado) no pierde ese lote
+    @Test
+    void testCancelledFlushPutsInFlightBatchBack() {
+        DeliveryReceiptTracker tracker = new DeliveryReceiptTracker(repository, true, 2, 1000);
+        doReturn(Mono.never())
+                .doAnswer(invocation -> Mono.just((long) invocation.<Collection<?>>getArgument(0).size()))
+                .when(repository).applyReceipts(any());
+        tracker.seen("user1", List.of("1", "2", "3"));
+
+        Disposable flush = tracker.flushPending().subscribe();
+        assertEquals(1, tracker.getPending());
+        flush.dispose();
+        assertEquals(3, tracker.getPending());
+
+        StepVerifier.create(tracker.flushPending()).expectNext(3L).verifyComplete();
+        assertEquals(0, tracker.getPending());
+    }
+}
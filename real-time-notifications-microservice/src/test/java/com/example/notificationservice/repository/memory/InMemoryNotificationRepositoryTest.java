@@ -0,0 +1,211 @@
+package com.example.notificationservice.repository.memory;
+
+import com.example.notificationservice.delivery.RedeliveryMark;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.receipts.DeliveryReceipt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class InMemoryNotificationRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private MemoryStore store;
+    private InMemoryNotificationRepository repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new MemoryStore(directory.toString(), Duration.ofMillis(10), false);
+        repository = new InMemoryNotificationRepository(store);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void testSaveAssignsIdAndReturnsCopies() {
+        Notification notification = new Notification(null, "user1", "Hola", Instant.now(), false);
+        repository.save(notification).block();
+        assertNotNull(notification.getId());
+
+        // Modificar lo leído no toca lo almacenado ni sus índices
+        Notification read = repository.findById(notification.getId()).block();
+        read.setRead(true);
+        StepVerifier.create(repository.findByReadFalseAndIdGreaterThanOrderByIdAsc("", Pageable.ofSize(10)))
+                .expectNextMatches(n -> n.getId().equals(notification.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testUnreadKeysetPaginationFollowsIndexUpdates() {
+        Flux.range(1, 5)
+                .map(i -> new Notification("id" + i, i % 2 == 0 ? "user2" : "user1", "Mensaje " + i, Instant.now(), false))
+                .concatMap(repository::save)
+                .blockLast();
+        Notification third = repository.findById("id3").block();
+        third.setRead(true);
+        repository.save(third).block();
+
+        StepVerifier.create(repository.findByUserReferenceIdAndReadFalseAndIdGreaterThanOrderByIdAsc("user1", "id1", Pageable.ofSize(10)))
+                .expectNextMatches(n -> n.getId().equals("id5"))
+                .verifyComplete();
+        StepVerifier.create(repository.findByReadFalseAndIdGreaterThanOrderByIdAsc("", Pageable.ofSize(2)))
+                .expectNextMatches(n -> n.getId().equals("id1"))
+                .expectNextMatches(n -> n.getId().equals("id2"))
+                .verifyComplete();
+        StepVerifier.create(repository.findByMessage("Mensaje 2"))
+                .expectNextMatches(n -> n.getId().equals("id2"))
+                .verifyComplete();
+    }
+
+    @Test
+    void testScheduledDeliveryIsClaimedOnlyOnce() {
+        Notification scheduled = new Notification("1", "user1", "Más tarde", Instant.now(), false);
+        scheduled.setDeliverAt(Instant.now().minusSeconds(60));
+        scheduled.setPendingDelivery(true);
+        repository.save(scheduled).block();
+
+        StepVerifier.create(repository.findByPendingDeliveryTrueAndDeliverAtBefore(Instant.now()))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(repository.claimScheduledDelivery("1"))
+                .expectNextMatches(n -> !n.isPendingDelivery())
+                .verifyComplete();
+        StepVerifier.create(repository.claimScheduledDelivery("1")).verifyComplete();
+        StepVerifier.create(repository.findByPendingDeliveryTrue()).verifyComplete();
+    }
+
+    @Test
+    void testClaimReminderRequiresSameCountAndDueTime() {
+        Instant now = Instant.now();
+        Notification notification = new Notification("1", "user1", "Alerta", now, false);
+        notification.setNextReminderAt(now.minusSeconds(1));
+        repository.save(notification).block();
+
+        StepVerifier.create(repository.claimReminder("1", 1, now, null)).verifyComplete();
+        Notification claimed = repository.claimReminder("1", 0, now, now.plusSeconds(60)).block();
+        assertEquals(1, claimed.getReminderCount());
+        assertEquals(now, claimed.getLastRemindedAt());
+        StepVerifier.create(repository.claimReminder("1", 1, now, null)).verifyComplete();
+
+        // After/Between excluyen los extremos, como $gt/$lt en Mongo
+        StepVerifier.create(repository.findByNextReminderAtBetween(Instant.EPOCH, now.plusSeconds(60))).verifyComplete();
+        StepVerifier.create(repository.findByNextReminderAtAfter(Instant.EPOCH))
+                .expectNextMatches(n -> n.getNextReminderAt().equals(now.plusSeconds(60)))
+                .verifyComplete();
+
+        repository.claimReminder("1", 1, now.plusSeconds(60), null).block();
+        StepVerifier.create(repository.findByNextReminderAtAfter(Instant.EPOCH)).verifyComplete();
+        assertFalse(repository.findById("1").block().isRead());
+    }
+
+    @Test
+    void testReceiptsKeepEarliestInstantAndRequireOwner() {
+        Instant now = Instant.now();
+        repository.save(new Notification("1", "user1", "Hola", now, false)).block();
+
+        StepVerifier.create(repository.applyReceipts(List.of(
+                        DeliveryReceipt.delivered("1", "user1", now.plusSeconds(5)),
+                        DeliveryReceipt.seen("1", "user2", now.plusSeconds(1)))))
+                .expectNext(1L)
+                .verifyComplete();
+        StepVerifier.create(repository.applyReceipts(List.of(
+                        DeliveryReceipt.delivered("1", "user1", now.plusSeconds(9)),
+                        DeliveryReceipt.seen("1", "user1", now.plusSeconds(3)))))
+                .expectNext(1L)
+                .verifyComplete();
+
+        Notification stored = repository.findById("1").block();
+        assertEquals(now.plusSeconds(3), stored.getDeliveredAt());  // El visto implica entrega y es anterior
+        assertEquals(now.plusSeconds(3), stored.getSeenAt());
+        // Un acuse posterior no cambia nada
+        StepVerifier.create(repository.applyReceipts(List.of(DeliveryReceipt.delivered("1", "user1", now.plusSeconds(60)))))
+                .expectNext(0L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testRedeliveryMarksAreClaimedOnceWhenDue() {
+        Instant now = Instant.now();
+        repository.save(new Notification("1", "user1", "Hola", now, false)).block();
+        repository.save(new Notification("2", "user1", "Adiós", now, false)).block();
+
+        StepVerifier.create(repository.applyRedeliveryMarks(List.of(
+                        RedeliveryMark.spill("1", "user1", now, 2),
+                        RedeliveryMark.spill("2", "user1", now.plusSeconds(60), 1),
+                        RedeliveryMark.spill("2", "user2", now, 1))))  // De otro usuario: no cambia nada
+                .expectNext(2L)
+                .verifyComplete();
+
+        StepVerifier.create(repository.claimRedeliveries("user1", now, 10).map(Notification::getRedeliveries))
+                .expectNext(2)
+                .verifyComplete();
+        // Reclamada una vez: la marca se quita al reclamarla
+        StepVerifier.create(repository.claimRedeliveries("user1", now, 10)).verifyComplete();
+
+        StepVerifier.create(repository.applyRedeliveryMarks(List.of(RedeliveryMark.clear("2", "user1"))))
+                .expectNext(1L)
+                .verifyComplete();
+        StepVerifier.create(repository.claimRedeliveries("user1", now.plusSeconds(120), 10)).verifyComplete();
+    }
+
+    @Test
+    void testExampleAndSortQueriesScanTheCollection() {
+        Flux.range(1, 4)
+                .map(i -> new Notification("id" + i, i % 2 == 0 ? "user2" : "user1", "Mensaje " + i, Instant.now(), false))
+                .concatMap(repository::save)
+                .blockLast();
+        Notification probe = new Notification(null, "user1", null, null, false);
+
+        StepVerifier.create(repository.findAll(Example.of(probe), Sort.by(Sort.Direction.DESC, "id")).map(Notification::getId))
+                .expectNext("id3", "id1")
+                .verifyComplete();
+        StepVerifier.create(repository.count(Example.of(probe))).expectNext(2L).verifyComplete();
+        StepVerifier.create(repository.findOne(Example.of(probe)))
+                .expectError(IncorrectResultSizeDataAccessException.class)
+                .verify();
+        // Los primitivos de la sonda cuentan, como en Mongo: read=true no coincide con ninguna
+        StepVerifier.create(repository.exists(Example.of(new Notification(null, "user1", null, null, true))))
+                .expectNext(false)
+                .verifyComplete();
+
+        Notification byPrefix = new Notification(null, null, "mensaje 4", null, false);
+        ExampleMatcher prefix = ExampleMatcher.matching().withIgnoreCase()
+                .withMatcher("message", ExampleMatcher.GenericPropertyMatchers.startsWith());
+        StepVerifier.create(repository.findOne(Example.of(byPrefix, prefix)).map(Notification::getId))
+                .expectNext("id4")
+                .verifyComplete();
+
+        StepVerifier.create(repository.findAll(Sort.by("userReferenceId", "id")).map(Notification::getId))
+                .expectNext("id1", "id3", "id2", "id4")
+                .verifyComplete();
+        StepVerifier.create(repository.findBy(Example.of(probe), query -> query.sortBy(Sort.by("id")).page(PageRequest.of(1, 1))))
+                .assertNext(page -> {
+                    assertEquals(2, page.getTotalElements());
+                    assertEquals(List.of("id3"), page.map(Notification::getId).getContent());
+                })
+                .verifyComplete();
+    }
+}
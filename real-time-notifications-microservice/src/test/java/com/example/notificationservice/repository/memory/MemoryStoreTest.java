@@ -0,0 +1,88 @@
+package com.example.notificationservice.repository.memory;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private MemoryStore open() throws IOException {
+        return new MemoryStore(directory.toString(), Duration.ofSeconds(60), false);
+    }
+
+    @Test
+    void testRecoversSnapshotPlusJournal() throws IOException {
+        Instant timestamp = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        MemoryStore store = open();
+        InMemoryNotificationRepository notifications = new InMemoryNotificationRepository(store);
+        InMemoryUserRepository users = new InMemoryUserRepository(store);
+        notifications.save(new Notification("1", "user1", "Antes", timestamp, false)).block();
+        notifications.save(new Notification("2", "user1", "Se borra", timestamp, false)).block();
+        users.save(new User("user1", "Ana", "ana@example.com", "hash", null, null, List.of("1"))).block();
+
+        store.snapshot(List.of(notifications, users));
+        notifications.save(new Notification("3", "user1", "Después", timestamp, false)).block();
+        notifications.deleteById("2").block();
+        store.flush();  // Sin close(): simula una caída después del último volcado del diario
+
+        MemoryStore recovered = open();
+        InMemoryNotificationRepository recoveredNotifications = new InMemoryNotificationRepository(recovered);
+        InMemoryUserRepository recoveredUsers = new InMemoryUserRepository(recovered);
+
+        StepVerifier.create(recoveredNotifications.findByUserReferenceId("user1").map(Notification::getId))
+                .expectNext("1", "3")
+                .verifyComplete();
+        assertEquals(timestamp, recoveredNotifications.findById("1").block().getTimestamp());
+        StepVerifier.create(recoveredUsers.findByEmail("ana@example.com"))
+                .expectNextMatches(user -> user.getNotifications().equals(List.of("1")))
+                .verifyComplete();
+        recovered.close();
+        store.close();
+    }
+
+    @Test
+    void testSnapshotDropsCoveredJournalsAndTornLineIsIgnored() throws IOException {
+        MemoryStore store = open();
+        InMemoryNotificationRepository notifications = new InMemoryNotificationRepository(store);
+        notifications.save(new Notification("1", "user1", "Hola", Instant.now(), false)).block();
+        store.snapshot(List.of(notifications));
+        notifications.save(new Notification("2", "user1", "Adiós", Instant.now(), false)).block();
+        store.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> journals = files.filter(file -> file.getFileName().toString().startsWith("journal-")).toList();
+            assertEquals(1, journals.size());
+            Files.writeString(journals.get(0), "{\"c\": \"notifications\", \"i\": \"3\", \"d\": {\"_i",
+                    StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+
+        MemoryStore recovered = open();
+        InMemoryNotificationRepository recoveredNotifications = new InMemoryNotificationRepository(recovered);
+        StepVerifier.create(recoveredNotifications.count()).expectNext(2L).verifyComplete();
+        StepVerifier.create(recoveredNotifications.insert(new Notification("1", "user1", "Repetida", Instant.now(), false)))
+                .expectError(DuplicateKeyException.class)
+                .verify();
+        assertTrue(Files.exists(directory.resolve(MemoryStore.SNAPSHOT_FILE)));
+        recovered.close();
+    }
+}
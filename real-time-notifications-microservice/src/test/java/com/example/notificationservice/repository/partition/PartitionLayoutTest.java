@@ -0,0 +1,56 @@
+package com.example.notificationservice.repository.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionLayoutTest {
+
+    @Test
+    void testSinglePartitionIsTheOriginalCollection() {
+        PartitionLayout layout = PartitionLayout.single();
+
+        assertEquals(0, layout.partitionOf("user1"));
+        assertEquals("notifications", layout.collection(0));
+        assertNull(layout.database(0));
+    }
+
+    @Test
+    void testPartitionsAreSpreadOverCollectionsAndDatabases() {
+        PartitionLayout layout = PartitionLayout.of(4, " tenants-a, tenants-b ");
+
+        assertEquals(List.of("tenants-a", "tenants-b"), layout.databases());
+        assertEquals("notifications_p3", layout.collection(3));
+        assertEquals("tenants-a", layout.database(2));
+        assertEquals("tenants-b", layout.database(3));
+
+        int[] users = new int[4];
+        for (int i = 0; i < 40_000; i++) {
+            users[layout.partitionOf("user-" + i)]++;
+        }
+        for (int count : users) {
+            assertTrue(count > 9_000 && count < 11_000, "reparto desigual: " + count);
+        }
+        assertEquals(layout.partitionOf("user-7"), PartitionLayout.of(4, "").partitionOf("user-7"));
+    }
+
+    @Test
+    void testGrowingMovesOnlyTheUsersOfTheNewPartition() {
+        PartitionLayout four = PartitionLayout.of(4, "");
+        PartitionLayout five = PartitionLayout.of(5, "");
+
+        int moved = 0;
+        for (int i = 0; i < 50_000; i++) {
+            String user = "user-" + i;
+            if (four.partitionOf(user) != five.partitionOf(user)) {
+                assertEquals(4, five.partitionOf(user));  // Solo cambian de sitio hacia la partición nueva
+                moved++;
+            }
+        }
+        assertTrue(moved > 9_000 && moved < 11_000, "movidos: " + moved);  // ~1/5
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.notificationservice.repository.partition;
+
+import com.example.notificationservice.entity.Notification;
+import com.mongodb.client.result.DeleteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PartitionedNotificationRepositoryTest {
+
+    private final ReactiveMongoTemplate template = mock(ReactiveMongoTemplate.class);
+    private final ReactiveIndexOperations indexOps = mock(ReactiveIndexOperations.class);
+    // IDs con marca de borrado
+    private final Set<String> buried = new HashSet<>();
+    // Lo que devuelve cada colección a cualquier find
+    private final Map<String, List<Notification>> collections = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        when(template.find(any(Query.class), eq(Notification.class), anyString()))
+                .thenAnswer(invocation -> Flux.fromIterable(collections.getOrDefault(invocation.<String>getArgument(2), List.of())));
+        when(template.insert(any(Notification.class), anyString())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(template.save(any(Notification.class), anyString())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(template.remove(any(Query.class), eq(Notification.class), anyString()))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+        when(template.save(any(Document.class), anyString())).thenAnswer(invocation -> {
+            buried.add(invocation.<Document>getArgument(0).getString("_id"));
+            return Mono.just(invocation.getArgument(0));
+        });
+        when(template.exists(any(Query.class), anyString())).thenAnswer(invocation ->
+                Mono.just(buried.contains(invocation.<Query>getArgument(0).getQueryObject().getString("_id"))));
+        when(template.indexOps(anyString())).thenReturn(indexOps);
+        when(indexOps.ensureIndex(any())).thenReturn(Mono.just("deletedAt_1"));
+    }
+
+    private List<NotificationPartition> partitions(PartitionLayout layout) {
+        return IntStream.range(0, layout.partitions())
+                .mapToObj(i -> new NotificationPartition(layout.database(i), layout.collection(i), template))
+                .toList();
+    }
+
+    private PartitionedNotificationRepository repository(PartitionLayout layout, PartitionLayout previous) {
+        return new PartitionedNotificationRepository(layout, partitions(layout), previous,
+                previous != null ? partitions(previous) : null, 4);
+    }
+
+    private static Notification notification(String id, String userId) {
+        return new Notification(id, userId, "Mensaje " + id, Instant.now(), false);
+    }
+
+    @Test
+    void testUserReadsHitOnlyItsPartition() {
+        PartitionLayout layout = PartitionLayout.of(4, "");
+        String collection = layout.collection(layout.partitionOf("user-42"));
+        collections.put(collection, List.of(notification("01", "user-42")));
+        PartitionedNotificationRepository repository = repository(layout, null);
+
+        StepVerifier.create(repository.findByUserReferenceId("user-42")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.findByUserReferenceIdAndReadFalseAndIdGreaterThanOrderByIdAsc("user-42", "00", Pageable.ofSize(10)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(template, times(2)).find(any(Query.class), eq(Notification.class), anyString());
+        verify(template, times(2)).find(any(Query.class), eq(Notification.class), eq(collection));
+    }
+
+    @Test
+    void testGlobalUnreadPageMergesPartitionsInIdOrder() {
+        PartitionLayout layout = PartitionLayout.of(3, "");
+        collections.put("notifications_p0", List.of(notification("01", "a"), notification("04", "a"), notification("07", "a")));
+        collections.put("notifications_p1", List.of(notification("02", "b"), notification("05", "b")));
+        collections.put("notifications_p2", List.of(notification("03", "c"), notification("06", "c"), notification("08", "c")));
+
+        StepVerifier.create(repository(layout, null).findByReadFalseAndIdGreaterThanOrderByIdAsc("00", Pageable.ofSize(4))
+                        .map(Notification::getId))
+                .expectNext("01", "02", "03", "04")
+                .verifyComplete();
+    }
+
+    @Test
+    void testSaveDuringRepartitioningWritesNewLayoutAndRemovesOldCopy() {
+        PartitionLayout layout = PartitionLayout.of(4, "");
+        Notification notification = notification("01", "user-7");
+        String target = layout.collection(layout.partitionOf("user-7"));
+        // Sin leer: la copia antigua y la nueva se entregan una vez
+        collections.put("notifications", List.of(notification));
+        collections.put(target, List.of(notification));
+        PartitionedNotificationRepository repository = repository(layout, PartitionLayout.single());
+
+        StepVerifier.create(repository.findByUserReferenceId("user-7")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(repository.save(notification)).expectNext(notification).verifyComplete();
+
+        verify(template).save(notification, target);
+        verify(template).remove(any(Query.class), eq(Notification.class), eq("notifications"));
+    }
+
+    @Test
+    void testRepartitioningMovesOnlyMisplacedNotifications() {
+        PartitionLayout two = PartitionLayout.of(2, "");
+        PartitionLayout four = PartitionLayout.of(4, "");
+        List<Notification> stored = IntStream.range(0, 20)
+                .mapToObj(i -> notification(String.format("%02d", i), "user-" + i))
+                .filter(n -> two.partitionOf(n.getUserReferenceId()) == 0)
+                .toList();
+        collections.put("notifications_p0", stored);
+        long misplaced = stored.stream().filter(n -> four.partitionOf(n.getUserReferenceId()) != 0).count();
+
+        PartitionMigration migration = new PartitionMigration(two, partitions(two), four, partitions(four), 2);
+
+        StepVerifier.create(migration.moveAll(100)).expectNext(misplaced).verifyComplete();
+        for (Notification notification : stored) {
+            int partition = four.partitionOf(notification.getUserReferenceId());
+            verify(template, times(partition != 0 ? 1 : 0)).insert(notification, four.collection(partition));
+        }
+        verify(template, times((int) misplaced)).remove(any(Query.class), eq(Notification.class), eq("notifications_p0"));
+        assertEquals(List.of("notifications_p0", "notifications_p1", "notifications_p2", "notifications_p3"),
+                migration.places().stream().map(NotificationPartition::collection).toList());
+    }
+
+    // Borrada mientras se copiaba: la marca hace que la copia en la disposición nueva se retire
+    @Test
+    void testNotificationDeletedDuringCopyIsNotResurrected() {
+        PartitionLayout four = PartitionLayout.of(4, "");
+        Notification notification = IntStream.range(0, 20)
+                .mapToObj(i -> notification(String.format("%02d", i), "user-" + i))
+                .filter(n -> four.partitionOf(n.getUserReferenceId()) != 0)
+                .findFirst()
+                .orElseThrow();
+        String target = four.collection(four.partitionOf(notification.getUserReferenceId()));
+        collections.put("notifications", List.of(notification));
+        PartitionedNotificationRepository repository = repository(four, PartitionLayout.single());
+        PartitionMigration migration = new PartitionMigration(PartitionLayout.single(), partitions(PartitionLayout.single()),
+                four, partitions(four), 2);
+
+        StepVerifier.create(repository.deleteById(notification.getId())).verifyComplete();
+        assertEquals(Set.of(notification.getId()), buried);
+        verify(template).save(any(Document.class), eq("notifications_deleted"));
+        clearInvocations(template);
+
+        // La copia leyó la notificación antes del borrado
+        StepVerifier.create(migration.moveAll(100)).expectNext(0L).verifyComplete();
+        verify(template).insert(notification, target);
+        verify(template).remove(any(Query.class), eq(Notification.class), eq(target));
+    }
+
+    @Test
+    void testExampleQueriesMergePartitionsInSortOrder() {
+        PartitionLayout layout = PartitionLayout.of(3, "");
+        collections.put("notifications_p0", List.of(notification("01", "a"), notification("04", "a")));
+        collections.put("notifications_p1", List.of(notification("02", "b"), notification("05", "b")));
+        collections.put("notifications_p2", List.of(notification("03", "c")));
+        PartitionedNotificationRepository repository = repository(layout, null);
+        Example<Notification> unread = Example.of(new Notification(null, null, null, null, false));
+
+        StepVerifier.create(repository.findAll(unread, Sort.by("id")).map(Notification::getId))
+                .expectNext("01", "02", "03", "04", "05")
+                .verifyComplete();
+        StepVerifier.create(repository.findBy(unread, query -> query.sortBy(Sort.by("id")).limit(2).all()).map(Notification::getId))
+                .expectNext("01", "02")
+                .verifyComplete();
+        StepVerifier.create(repository.findOne(unread))
+                .expectError(IncorrectResultSizeDataAccessException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.notificationservice.rsocket;
+
+import com.example.notificationservice.dto.NotificationRequestDto;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.User;
+import com.example.notificationservice.ratelimit.NotificationRateLimiter;
+import com.example.notificationservice.ratelimit.NotificationRateLimiter.RateLimitDecision;
+import com.example.notificationservice.repository.UserRepository;
+import com.example.notificationservice.security.JwtUtil;
+import com.example.notificationservice.service.DemandDrivenNotificationSource;
+import com.example.notificationservice.service.NotificationService;
+import io.rsocket.RSocket;
+import io.rsocket.exceptions.RejectedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.security.access.AccessDeniedException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationRSocketControllerTest {
+
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final JwtUtil jwtUtil = mock(JwtUtil.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final NotificationRateLimiter rateLimiter = mock(NotificationRateLimiter.class);
+    private final RSocketRequester requester = mock(RSocketRequester.class);
+    private final Sinks.Empty<Void> closed = Sinks.empty();
+
+    private final NotificationRSocketController controller = new NotificationRSocketController(notificationService,
+            mock(DemandDrivenNotificationSource.class), jwtUtil, userRepository, rateLimiter);
+
+    @BeforeEach
+    void setUp() {
+        RSocket rsocket = mock(RSocket.class);
+        when(rsocket.onClose()).thenReturn(closed.asMono());
+        when(requester.rsocket()).thenReturn(rsocket);
+        when(jwtUtil.validateToken("token")).thenReturn(Mono.just(true));
+        when(jwtUtil.extractUsername("token")).thenReturn(Mono.just("ana@example.com"));
+        when(userRepository.findByEmail("ana@example.com"))
+                .thenReturn(Mono.just(new User("user1", "Ana", "ana@example.com", null, null, null, new ArrayList<>())));
+        when(notificationService.markNotificationsAsReadAndDelete(anyString(), any())).thenReturn(Mono.just(List.of("n1")));
+        when(notificationService.createNotification(anyString(), any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+    }
+
+    private static NotificationRequestDto request(String message) {
+        NotificationRequestDto request = new NotificationRequestDto();
+        request.setMessage(message);
+        return request;
+    }
+
+    @Test
+    void testRoutesOfAnotherUserAreRejected() {
+        StepVerifier.create(controller.connect("Bearer token", requester)).verifyComplete();
+
+        StepVerifier.create(controller.acknowledge("user1", List.of("n1"), requester)).expectNext(List.of("n1")).verifyComplete();
+        StepVerifier.create(controller.acknowledge("user2", List.of("n1"), requester)).verifyError(AccessDeniedException.class);
+        StepVerifier.create(controller.createNotification("user2", request("Hola"), requester)).verifyError(AccessDeniedException.class);
+        StepVerifier.create(controller.streamUserNotifications("user2", null, requester)).verifyError(AccessDeniedException.class);
+        verify(notificationService, never()).markNotificationsAsReadAndDelete("user2", List.of("n1"));
+    }
+
+    @Test
+    void testClosedConnectionLosesItsPrincipal() {
+        StepVerifier.create(controller.connect("token", requester)).verifyComplete();
+        closed.tryEmitEmpty();
+
+        StepVerifier.create(controller.acknowledge("user1", List.of("n1"), requester)).verifyError(AccessDeniedException.class);
+    }
+
+    @Test
+    void testCreateGoesThroughTheRateLimiter() {
+        StepVerifier.create(controller.connect("token", requester)).verifyComplete();
+        when(rateLimiter.tryAcquire("ana@example.com", "user1"))
+                .thenReturn(new RateLimitDecision(true, null, Duration.ZERO))
+                .thenReturn(new RateLimitDecision(false, "producer", Duration.ofSeconds(3)));
+
+        StepVerifier.create(controller.createNotification("user1", request("Hola"), requester).map(Notification::getMessage))
+                .expectNext("Hola")
+                .verifyComplete();
+        StepVerifier.create(controller.createNotification("user1", request("Otra"), requester))
+                .verifyErrorSatisfies(e -> {
+                    assertInstanceOf(RejectedException.class, e);
+                    assertTrue(e.getMessage().contains("producer"));
+                });
+        verify(notificationService).createNotification(anyString(), any());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.notificationservice.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void testFiresEveryEntryOnTimeAcrossLevels() {
+        long start = 1_000_000L;
+        // Rueda pequeña (8 cubetas) para forzar varios niveles de desbordamiento
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(100, 8, start);
+        Random random = new Random(42);
+        Map<Long, Long> firedAt = new HashMap<>();
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            long deadline = start + random.nextInt(3_600_000);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+        assertEquals(5000, wheel.size());
+
+        for (long now = start; now <= start + 3_700_000; now += 37) {
+            long current = now;
+            wheel.advanceTo(now, deadline -> firedAt.put(deadline, current));
+        }
+
+        assertEquals(0, wheel.size());
+        for (Long deadline : deadlines) {
+            long fired = firedAt.get(deadline);
+            // Nunca antes de la fecha y como mucho un tick (más el paso del reloj de la prueba) después
+            assertTrue(fired >= deadline, "disparada antes de tiempo: " + deadline);
+            assertTrue(fired - deadline < 100 + 37, "disparada tarde: " + deadline + " -> " + fired);
+        }
+    }
+
+    @Test
+    void testPastDeadlinesFireOnNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(100, 512, 10_000);
+        List<String> fired = new ArrayList<>();
+
+        wheel.schedule("vencida", 5_000);
+        wheel.advanceTo(10_000, fired::add);
+
+        assertEquals(List.of("vencida"), fired);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.notificationservice.scheduling;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.events.NotificationEventBus;
+import com.example.notificationservice.repository.NotificationRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReminderEngineTest {
+
+    private final NotificationRepository notificationRepository = mock(NotificationRepository.class);
+    private final NotificationEventBus eventBus = mock(NotificationEventBus.class);
+    private final WheelTimer timer = mock(WheelTimer.class);
+
+    private ReminderEngine engine(String policies) {
+        return new ReminderEngine(notificationRepository, eventBus, timer, policies, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void testExponentialBackoffIsCappedAtMaxDelay() {
+        ReminderEngine.ReminderPolicy policy = ReminderEngine.parsePolicies("security:1m:2:5m:6").get("security");
+
+        assertEquals(Duration.ofMinutes(1), policy.delayBefore(0));
+        assertEquals(Duration.ofMinutes(2), policy.delayBefore(1));
+        assertEquals(Duration.ofMinutes(4), policy.delayBefore(2));
+        assertEquals(Duration.ofMinutes(5), policy.delayBefore(3));
+        assertThrows(IllegalArgumentException.class, () -> ReminderEngine.parsePolicies("security:1m:2:5m"));
+    }
+
+    @Test
+    void testNoRemindersWithoutPolicy() {
+        Notification notification = new Notification("1", "user1", "Mensaje", Instant.now(), false);
+        notification.setType("marketing");
+
+        assertNull(engine("security:1m:2:5m:3").firstReminderAt(notification));
+    }
+
+    @Test
+    void testRemindPublishesClaimedNotificationAndSchedulesNext() {
+        Notification claimed = new Notification("1", "user1", "Alerta", Instant.now(), false);
+        claimed.setType("security");
+        claimed.setReminderCount(1);
+        claimed.setNextReminderAt(Instant.now().plusSeconds(120));
+        when(notificationRepository.claimReminder(eq("1"), eq(0), any(Instant.class), any(Instant.class)))
+                .thenReturn(Mono.just(claimed));
+        when(eventBus.publish(claimed)).thenReturn(Mono.empty());
+
+        StepVerifier.create(engine("security:1m:2:5m:3").remind(new ReminderEngine.Reminder("1", "security", 0)))
+                .expectNext(claimed)
+                .verifyComplete();
+
+        verify(eventBus).publish(claimed);
+        verify(timer).schedule(eq(claimed.getNextReminderAt()), any(Runnable.class));
+    }
+
+    @Test
+    void testRemindDoesNothingWhenAlreadyReadOrSentByAnotherReplica() {
+        when(notificationRepository.claimReminder(eq("1"), eq(0), any(Instant.class), any(Instant.class)))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(engine("security:1m:2:5m:3").remind(new ReminderEngine.Reminder("1", "security", 0)))
+                .verifyComplete();
+
+        verifyNoInteractions(eventBus, timer);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.notificationservice.security;
+
+import com.example.notificationservice.entity.JwtSecret;
+import com.example.notificationservice.metrics.NotificationMetrics;
+import com.example.notificationservice.repository.JwtSecretRepository;
+import com.example.notificationservice.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtUtilTest {
+
+    private static final String FIRST_SECRET = "a".repeat(64);
+    private static final String ROTATED_SECRET = "b".repeat(64);
+
+    private final JwtSecretRepository secrets = mock(JwtSecretRepository.class);
+    private final AtomicReference<String> stored = new AtomicReference<>(FIRST_SECRET);
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private JwtUtil jwtUtil(Duration keyCacheTtl) {
+        when(secrets.findFirstByOrderByIdAsc()).thenReturn(Mono.fromSupplier(() -> {
+            reads.incrementAndGet();
+            return new JwtSecret(stored.get());
+        }));
+        return new JwtUtil(secrets, mock(UserRepository.class), new NotificationMetrics(new SimpleMeterRegistry()), keyCacheTtl);
+    }
+
+    @Test
+    void testSigningKeyIsReadOncePerTtl() {
+        JwtUtil jwtUtil = jwtUtil(Duration.ofHours(1));
+        String token = jwtUtil.generateToken("user@example.com").block();
+
+        StepVerifier.create(jwtUtil.validateToken(token)).expectNext(true).verifyComplete();
+        StepVerifier.create(jwtUtil.extractUsername(token)).expectNext("user@example.com").verifyComplete();
+        assertEquals(1, reads.get());
+    }
+
+    // Caducada la clave se relee el secreto: tras una rotación los tokens firmados con el anterior dejan de validar
+    @Test
+    void testRotatedSecretIsPickedUpAfterTtl() {
+        JwtUtil jwtUtil = jwtUtil(Duration.ZERO);
+        String oldToken = jwtUtil.generateToken("user@example.com").block();
+
+        stored.set(ROTATED_SECRET);
+        StepVerifier.create(jwtUtil.validateToken(oldToken)).expectNext(false).verifyComplete();
+        String newToken = jwtUtil.generateToken("user@example.com").block();
+        StepVerifier.create(jwtUtil.validateToken(newToken)).expectNext(true).verifyComplete();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.notificationservice.security;
+
+import com.example.notificationservice.metrics.NotificationMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger hashed = new AtomicInteger();
+    private final AtomicReference<String> hashingThread = new AtomicReference<>();
+
+    // Codificador que se queda bloqueado hasta que el test lo suelta, como un BCrypt muy lento
+    private final PasswordEncoder slowEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            hashingThread.set(Thread.currentThread().getName());
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            hashed.incrementAndGet();
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    };
+
+    private final PasswordHashingService service =
+            new PasswordHashingService(slowEncoder, new NotificationMetrics(registry), 1, 1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void testSaturatedPoolRejectsImmediately() {
+        // Un hilo ocupado y una tarea en cola: la siguiente se rechaza sin esperar
+        service.encode("a").subscribe();
+        service.encode("b").subscribe();
+
+        StepVerifier.create(service.encode("c"))
+                .expectErrorSatisfies(e -> {
+                    assertTrue(e instanceof ResponseStatusException);
+                    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ((ResponseStatusException) e).getStatusCode());
+                })
+                .verify(Duration.ofMillis(500));
+        assertEquals(1, service.getRejected());
+        assertEquals(1, service.getQueued());
+    }
+
+    @Test
+    void testHashingRunsOnThePoolAndIsMeasured() {
+        release.countDown();
+
+        StepVerifier.create(service.encode("secret"))
+                .expectNext("hash:secret")
+                .verifyComplete();
+        StepVerifier.create(service.matches("secret", "hash:secret"))
+                .expectNext(true)
+                .verifyComplete();
+
+        assertTrue(hashingThread.get().startsWith("password-hash-"));
+        assertEquals(1, registry.get("password.hash").tag("operation", "encode").timer().count());
+        assertEquals(1, registry.get("password.hash").tag("operation", "matches").timer().count());
+        assertEquals(1, registry.get("password.hash.queue.wait").tag("operation", "encode").timer().count());
+    }
+
+    @Test
+    void testCancelledTaskIsNotHashed() {
+        PasswordHashingService pool = new PasswordHashingService(slowEncoder, new NotificationMetrics(registry), 1, 2);
+        try {
+            // La primera ocupa el hilo; la segunda espera en cola y se cancela antes de empezar
+            pool.encode("first").subscribe();
+            pool.encode("second").subscribe().dispose();
+            Mono<String> third = pool.encode("third");
+
+            release.countDown();
+            StepVerifier.create(third)
+                    .expectNext("hash:third")
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(5));
+            assertEquals(2, hashed.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DemandDrivenNotificationSourceTest {
+
+    @Mock
+    private NotificationRepository notificationRepository;
+
+    @Mock
+    private NotificationService notificationService;
+
+    private final Sinks.Many<Notification> sink = Sinks.many().multicast().directBestEffort();
+
+    private DemandDrivenNotificationSource notificationSource;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(notificationService.getNotificationSink()).thenReturn(sink);
+        notificationSource = new DemandDrivenNotificationSource(notificationRepository, notificationService, 128, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void testPageSizeFollowsDownstreamDemand() {
+        Notification n1 = new Notification("id1", "user1", "Primera", Instant.now(), false);
+        Notification n2 = new Notification("id2", "user1", "Segunda", Instant.now(), false);
+        Notification n3 = new Notification("id3", "user1", "Tercera", Instant.now(), false);
+
+        // Con demanda 2 solo se leen 2 documentos
+        when(notificationRepository.findByUserReferenceIdAndReadFalseAndIdGreaterThanOrderByIdAsc("user1", "", Pageable.ofSize(2)))
+                .thenReturn(Flux.just(n1, n2));
+        // Sin demanda pendiente la página es de 1 documento; al principio no hay nada nuevo y luego llega n3
+        when(notificationRepository.findByUserReferenceIdAndReadFalseAndIdGreaterThanOrderByIdAsc("user1", "id2", Pageable.ofSize(1)))
+                .thenReturn(Flux.empty())
+                .thenReturn(Flux.just(n3));
+
+        StepVerifier.create(notificationSource.userStream("user1", null), 0)
+                .thenRequest(2)
+                .expectNext(n1, n2)
+                // Un evento del bus despierta la lectura, pero n3 solo se entrega cuando el consumidor lo pide
+                .then(() -> sink.tryEmitNext(n3))
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenRequest(1)
+                .expectNext(n3)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        verify(notificationRepository).findByUserReferenceIdAndReadFalseAndIdGreaterThanOrderByIdAsc("user1", "", Pageable.ofSize(2));
+    }
+
+    @Test
+    void testGlobalStreamResumesAfterGivenId() {
+        Notification n5 = new Notification("id5", "user2", "Quinta", Instant.now(), false);
+        when(notificationRepository.findByReadFalseAndIdGreaterThanOrderByIdAsc("id4", Pageable.ofSize(10)))
+                .thenReturn(Flux.just(n5));
+
+        StepVerifier.create(notificationSource.globalStream("id4"), 10)
+                .expectNext(n5)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.dto.NotificationDigest;
+import com.example.notificationservice.entity.Notification;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NotificationCoalescerTest {
+
+    private static Notification notification(String id, String type) {
+        Notification notification = new Notification(id, "user1", "Mensaje " + id, Instant.now(), false);
+        notification.setType(type);
+        return notification;
+    }
+
+    @Test
+    void testPassesThroughWhenDisabled() {
+        NotificationCoalescer coalescer = new NotificationCoalescer("", 1000);
+
+        StepVerifier.create(coalescer.coalesce(Flux.just(notification("1", "marketing"), notification("2", "marketing")),
+                        Notification::getId, digest -> "digest"))
+                .expectNext("1", "2")
+                .verifyComplete();
+    }
+
+    @Test
+    void testCollapsesBurstAboveThresholdIntoDigest() {
+        NotificationCoalescer coalescer = new NotificationCoalescer("marketing:1s:10:3", 1000);
+        Flux<Notification> burst = Flux.range(1, 200).map(i -> notification(String.valueOf(i), "marketing"));
+
+        StepVerifier.withVirtualTime(() -> coalescer.<Object>coalesce(burst.concatWith(Flux.never()), n -> n, digest -> digest))
+                .thenAwait(Duration.ofSeconds(1))
+                .assertNext(event -> {
+                    NotificationDigest digest = (NotificationDigest) event;
+                    assertEquals(200, digest.getCount());
+                    assertEquals("marketing", digest.getType());
+                    assertEquals("user1", digest.getUserReferenceId());
+                    assertEquals(3, digest.getLatest().size());
+                    assertEquals("200", digest.getLatest().get(2).getId());
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testDeliversIndividuallyBelowThresholdAndForTypesWithoutPolicy() {
+        NotificationCoalescer coalescer = new NotificationCoalescer("marketing:1s:10:3", 1000);
+        Flux<Notification> notifications = Flux.concat(
+                Flux.fromStream(IntStream.rangeClosed(1, 3).mapToObj(i -> notification("m" + i, "marketing"))),
+                Flux.just(notification("g1", null)));
+
+        StepVerifier.withVirtualTime(() -> coalescer.coalesce(notifications.concatWith(Flux.never()), Notification::getId, digest -> "digest"))
+                .expectNext("g1")  // Sin política: se entrega sin esperar la ventana
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNext("m1", "m2", "m3")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testRejectsInvalidPolicies() {
+        assertThrows(IllegalArgumentException.class, () -> NotificationCoalescer.parsePolicies("marketing:1s:10"));
+        assertThrows(IllegalArgumentException.class, () -> NotificationCoalescer.parsePolicies("marketing:0s:10:3"));
+        assertEquals(2, NotificationCoalescer.parsePolicies("marketing:1s:10:3, *:500ms:50:1").size());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.notificationservice.service;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationLanesTest {
+
+    private static Notification notification(String id, NotificationPriority priority) {
+        Notification notification = new Notification(id, "user1", "Mensaje " + id, Instant.now(), false);
+        notification.setPriority(priority);
+        return notification;
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Test
+    void testRejectsWhenLaneIsFullWithoutAffectingOtherLanes() {
+        // LOW: una escritura concurrente y cola de 1
+        NotificationLanes lanes = new NotificationLanes(10, 4, 10, 4, 1, 1, 100, 100);
+        Sinks.One<String> blocked = Sinks.one();
+
+        lanes.submit(NotificationPriority.LOW, blocked.asMono()).subscribe();   // Ocupa el único permiso
+        lanes.submit(NotificationPriority.LOW, Mono.just("en cola")).subscribe();  // Ocupa la cola
+
+        StepVerifier.create(lanes.submit(NotificationPriority.LOW, Mono.just("rechazada")))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException
+                        && ((ResponseStatusException) e).getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE)
+                .verify();
+        assertEquals(1, lanes.getRejected(NotificationPriority.LOW));
+
+        // HIGH no espera detrás del carril LOW saturado
+        StepVerifier.create(lanes.submit(NotificationPriority.HIGH, Mono.just("urgente")))
+                .expectNext("urgente")
+                .verifyComplete();
+
+        blocked.tryEmitValue("liberada");
+        lanes.shutdown();
+    }
+
+    @Test
+    void testDeliversHighPriorityFirstWhenSinkIsBackedUp() {
+        NotificationLanes lanes = new NotificationLanes(10, 4, 10, 4, 10, 4, 100, 100);
+        Sinks.Many<Notification> sink = Sinks.many().multicast().onBackpressureBuffer(1, false);
+        PriorityDeliveryQueue queue = lanes.deliveryQueue(sink, result -> { }, notification -> { });
+
+        StepVerifier.create(sink.asFlux().map(Notification::getId), 0)
+                .then(() -> {
+                    queue.offer(notification("low-1", NotificationPriority.LOW));  // Llena el buffer del sink
+                    queue.offer(notification("low-2", NotificationPriority.LOW));
+                    queue.offer(notification("normal-1", null));
+                    queue.offer(notification("high-1", NotificationPriority.HIGH));
+                })
+                .thenRequest(4)
+                .expectNext("low-1", "high-1", "normal-1", "low-2")
+                .thenCancel()
+                .verify();
+        lanes.shutdown();
+    }
+
+    @Test
+    void testDropsLiveDeliveryWhenSinkStaysFullAfterRetries() {
+        NotificationLanes lanes = new NotificationLanes(10, 4, 10, 4, 10, 4, 100, 3);
+        Sinks.Many<Notification> sink = Sinks.many().multicast().onBackpressureBuffer(1, false);
+        List<String> dropped = new CopyOnWriteArrayList<>();
+        CountDownLatch bothDropped = new CountDownLatch(2);
+        PriorityDeliveryQueue queue = lanes.deliveryQueue(sink, result -> { }, notification -> {
+            dropped.add(notification.getId());
+            bothDropped.countDown();
+        });
+
+        StepVerifier.create(sink.asFlux().map(Notification::getId), 0)
+                .then(() -> {
+                    queue.offer(notification("1", null));  // Llena el buffer del sink
+                    queue.offer(notification("2", null));
+                    queue.offer(notification("3", null));
+                })
+                .then(() -> assertTrue(await(bothDropped)))  // Nadie pide: se agotan los reintentos
+                .thenRequest(1)
+                .expectNext("1")
+                .thenCancel()
+                .verify();
+
+        assertEquals(List.of("2", "3"), dropped);
+        assertEquals(2, queue.getOverflowed());
+        assertEquals(0, queue.getDepth(NotificationPriority.NORMAL));
+        lanes.shutdown();
+    }
+}
@@ -1,14 +1,24 @@
 package com.example.notificationservice.service;
 
+import com.example.notificationservice.delivery.RedeliveryQueue;
 import com.example.notificationservice.entity.Notification;
 import com.example.notificationservice.entity.User;
+import com.example.notificationservice.events.InMemoryNotificationEventBus;
+import com.example.notificationservice.events.NotificationEventBus;
+import com.example.notificationservice.metrics.NotificationMetrics;
 import com.example.notificationservice.repository.NotificationRepository;
 import com.example.notificationservice.repository.UserRepository;
+import com.example.notificationservice.scheduling.ReminderEngine;
+import com.example.notificationservice.scheduling.ScheduledDeliveryService;
+import com.example.notificationservice.utils.IdGenerator;
+import com.example.notificationservice.utils.MonotonicIdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -18,6 +28,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -30,6 +42,27 @@ class NotificationServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Spy
+    private IdGenerator idGenerator = new MonotonicIdGenerator();
+
+    @Spy
+    private NotificationEventBus eventBus = new InMemoryNotificationEventBus();
+
+    @Spy
+    private NotificationLanes lanes = new NotificationLanes(10, 4, 10, 4, 10, 4, 100, 100);
+
+    @Mock
+    private ScheduledDeliveryService scheduledDeliveryService;
+
+    @Mock
+    private ReminderEngine reminderEngine;
+
+    @Spy
+    private NotificationMetrics metrics = new NotificationMetrics(new SimpleMeterRegistry());
+
+    @Mock
+    private RedeliveryQueue redeliveryQueue;
+
     @InjectMocks
     private NotificationService notificationService;
 
@@ -67,6 +100,65 @@ class NotificationServiceTest {
         verify(notificationRepository).save(notification);
         verify(userRepository).findById("user1");
         verify(userRepository).save(user);
+        verify(eventBus).publish(notification);
+    }
+
+    @Test
+    void testCreateScheduledNotificationIsNotPublishedUntilDue() {
+        Notification notification = new Notification(null, "user1", "Recordatorio", null, false);
+        notification.setDeliverAt(Instant.now().plusSeconds(3600));
+        User user = new User();
+        user.setId("user1");
+        user.setNotifications(new ArrayList<>());
+
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(userRepository.findById("user1")).thenReturn(Mono.just(user));
+        when(userRepository.save(any(User.class))).thenReturn(Mono.just(user));
+
+        StepVerifier.create(notificationService.createNotification("user1", notification))
+                .assertNext(saved -> assertTrue(saved.isPendingDelivery()))
+                .verifyComplete();
+
+        // Queda en la rueda de entregas programadas en lugar de ir al bus
+        verify(scheduledDeliveryService).schedule(notification);
+        verify(eventBus, never()).publish(any(Notification.class));
+    }
+
+    @Test
+    void testNotificationsFromEventBusReachLocalSubscribers() {
+        Notification notification = new Notification("1", "user1", "From another replica", Instant.now(), false);
+
+        // La réplica se suscribe al bus al iniciar
+        notificationService.subscribeToEventBus();
+
+        // Una notificación publicada en el bus (por cualquier réplica) llega al flujo global local
+        StepVerifier.create(notificationService.getUnreadNotificationStream())
+                .then(() -> eventBus.publish(notification).block())
+                .expectNext(notification)
+                .thenCancel()
+                .verify();
+
+        notificationService.unsubscribeFromEventBus();
+    }
+
+    @Test
+    void testGetNotificationsStream_EmitsBacklogThenLiveNotifications() {
+        Notification stored = new Notification("1", "user1", "Stored notification", Instant.now(), false);
+        Notification live = new Notification("2", "user1", "Live notification", Instant.now(), false);
+        Notification otherUser = new Notification("3", "user2", "Other user", Instant.now(), false);
+
+        when(notificationRepository.findByUserReferenceId("user1")).thenReturn(Flux.just(stored));
+
+        // Primero el historial guardado y después solo las notificaciones nuevas del usuario
+        StepVerifier.create(notificationService.getNotificationsStream("user1"))
+                .expectNext(stored)
+                .then(() -> {
+                    notificationService.getNotificationSink().tryEmitNext(otherUser);
+                    notificationService.getNotificationSink().tryEmitNext(live);
+                })
+                .expectNext(live)
+                .thenCancel()
+                .verify();
     }
 
     @Test
@@ -127,6 +219,30 @@ class NotificationServiceTest {
         verify(notificationRepository).deleteById(notificationId);
     }
 
+    @Test
+    void testMarkNotificationsAsReadAndDelete_ProcessesOnlyTheUserNotifications() {
+        Notification own1 = new Notification("n1", "user1", "Primera", Instant.now(), false);
+        Notification own2 = new Notification("n2", "user1", "Segunda", Instant.now(), false);
+        Notification foreign = new Notification("n3", "user2", "Ajena", Instant.now(), false);
+        User user = new User("user1", "Test User", "test.user@example.com", null, null, null,
+                new ArrayList<>(Arrays.asList("Primera", "Segunda", "Otra")));
+
+        List<String> requested = List.of("n1", "n2", "n3");
+        when(notificationRepository.findAllById(requested)).thenReturn(Flux.just(own1, own2, foreign));
+        when(userRepository.findById("user1")).thenReturn(Mono.just(user));
+        when(userRepository.save(user)).thenReturn(Mono.just(user));
+        when(notificationRepository.deleteAllById(List.of("n1", "n2"))).thenReturn(Mono.empty());
+
+        StepVerifier.create(notificationService.markNotificationsAsReadAndDelete("user1", requested))
+                .expectNext(List.of("n1", "n2"))
+                .verifyComplete();
+
+        // Un solo guardado del usuario y un solo borrado masivo
+        assertEquals(List.of("Otra"), user.getNotifications());
+        verify(userRepository, times(1)).save(user);
+        verify(notificationRepository).deleteAllById(List.of("n1", "n2"));
+    }
+
     @Test
     void testGetUnreadNotificationStream() {
         // Crear notificaciones
@@ -4,11 +4,14 @@ import com.example.notificationservice.entity.Notification;
 import com.example.notificationservice.entity.User;
 import com.example.notificationservice.repository.NotificationRepository;
 import com.example.notificationservice.repository.UserRepository;
+import com.example.notificationservice.utils.IdGenerator;
+import com.example.notificationservice.utils.MonotonicIdGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -29,6 +32,9 @@ class UserServiceTest {
     @Mock
     private NotificationRepository notificationRepository;
 
+    @Spy
+    private IdGenerator idGenerator = new MonotonicIdGenerator();
+
     @InjectMocks
     private UserService userService;
 
@@ -0,0 +1,66 @@
+package com.example.notificationservice.sse;
+
+import com.example.notificationservice.audit.DeliveryAuditLog;
+import com.example.notificationservice.metrics.DeliveryLatencyTracker;
+import com.example.notificationservice.receipts.DeliveryReceiptTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SseConnectionRegistryTest {
+
+    @Test
+    void testRejectsConnectionsOverPerUserLimit() {
+        SseConnectionRegistry registry = new SseConnectionRegistry(4, 100, 1, 45000,
+                new DeliveryLatencyTracker(new SimpleMeterRegistry(), 3), DeliveryAuditLog.disabled(),
+                DeliveryReceiptTracker.disabled());
+
+        StepVerifier.create(registry.register("user-stream", "user1", Flux.<ServerSentEvent<String>>never()))
+                .then(() -> StepVerifier.create(registry.register("user-stream", "user1", Flux.<ServerSentEvent<String>>never()))
+                        .expectErrorMatches(error -> error instanceof ResponseStatusException
+                                && ((ResponseStatusException) error).getStatusCode() == HttpStatus.TOO_MANY_REQUESTS)
+                        .verify())
+                .then(() -> assertEquals(1, registry.getTotalConnections()))
+                .thenCancel()
+                .verify();
+
+        // Al cancelar la conexión se libera el hueco del usuario
+        assertEquals(0, registry.getTotalConnections());
+        assertEquals(1, registry.getStats().getRejectedConnections());
+    }
+
+    @Test
+    void testSendsHeartbeatsAsComments() {
+        SseConnectionRegistry registry = new SseConnectionRegistry(4, 100, 5, 45000,
+                new DeliveryLatencyTracker(new SimpleMeterRegistry(), 3), DeliveryAuditLog.disabled(),
+                DeliveryReceiptTracker.disabled());
+
+        StepVerifier.create(registry.register("user-stream", "user1", Flux.<ServerSentEvent<String>>never()))
+                .then(registry::sendHeartbeats)
+                .expectNextMatches(event -> "heartbeat".equals(event.comment()) && event.data() == null)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testReapsIdleConnections() {
+        // idle-timeout 0: cualquier conexión sin actividad se considera muerta en el siguiente barrido
+        SseConnectionRegistry registry = new SseConnectionRegistry(4, 100, 5, 0,
+                new DeliveryLatencyTracker(new SimpleMeterRegistry(), 3), DeliveryAuditLog.disabled(),
+                DeliveryReceiptTracker.disabled());
+
+        StepVerifier.create(registry.register("unread-stream", "user1", Flux.<ServerSentEvent<String>>never()))
+                .then(registry::reapIdleConnections)
+                .verifyComplete();
+
+        assertEquals(0, registry.getTotalConnections());
+        assertEquals(0, registry.getConnections("unread-stream"));
+        assertEquals(1, registry.getStats().getReapedConnections());
+    }
+}
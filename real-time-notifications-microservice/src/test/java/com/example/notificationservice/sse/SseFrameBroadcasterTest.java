@@ -0,0 +1,184 @@
+package com.example.notificationservice.sse;
+
+import com.example.notificationservice.audit.DeliveryAuditLog;
+import com.example.notificationservice.codec.BinaryObjectMappers;
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.metrics.DeliveryLatencyTracker;
+import com.example.notificationservice.receipts.DeliveryReceiptTracker;
+import com.example.notificationservice.service.NotificationService;
+import com.example.notificationservice.sse.SseFrameBroadcaster.Format;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.AbstractByteBufAllocator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledHeapByteBuf;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SseFrameBroadcasterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    // Frames compartidos que ha creado el broadcaster, para comprobar que acaban liberados
+    private final List<ByteBuf> encoded = new ArrayList<>();
+
+    private final SseConnectionRegistry registry = new SseConnectionRegistry(4, 100, 5, 45000,
+            new DeliveryLatencyTracker(new SimpleMeterRegistry(), 3), DeliveryAuditLog.disabled(),
+            DeliveryReceiptTracker.disabled());
+
+    private SseFrameBroadcaster broadcaster() {
+        NotificationService notificationService = mock(NotificationService.class);
+        when(notificationService.getUnreadNotificationStream()).thenReturn(Flux.never());
+        ByteBufAllocator allocator = new AbstractByteBufAllocator(false) {
+            @Override
+            protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+                ByteBuf buffer = new UnpooledHeapByteBuf(this, initialCapacity, maxCapacity);
+                encoded.add(buffer);
+                return buffer;
+            }
+
+            @Override
+            protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+                return newHeapBuffer(initialCapacity, maxCapacity);
+            }
+
+            @Override
+            public boolean isDirectBufferPooled() {
+                return false;
+            }
+        };
+        return new SseFrameBroadcaster(notificationService, registry, objectMapper,
+                BinaryObjectMappers.standalone().cbor(), allocator, 4);
+    }
+
+    @Test
+    void testFrameIsEncodedOnceAndSharedAcrossConnections() {
+        SseFrameBroadcaster broadcaster = broadcaster();
+        NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        List<SseFrame> first = new ArrayList<>();
+        List<SseFrame> second = new ArrayList<>();
+        broadcaster.frames(Format.SSE, bufferFactory).subscribe(first::add);
+        broadcaster.frames(Format.SSE, bufferFactory).subscribe(second::add);
+
+        Notification notification = new Notification("01ABC", "user1", "Hola", Instant.parse("2024-01-01T00:00:00Z"), false);
+        broadcaster.broadcast(notification);
+
+        ByteBuf a = ((NettyDataBuffer) first.get(0).buffer()).getNativeBuffer();
+        ByteBuf b = ((NettyDataBuffer) second.get(0).buffer()).getNativeBuffer();
+        assertSame(a.unwrap(), b.unwrap());  // Misma memoria, vistas distintas
+        assertEquals(2, a.refCnt());  // El broadcaster ya soltó la suya; queda una por conexión
+        assertSame(notification, first.get(0).payload());
+        String frame = a.toString(StandardCharsets.UTF_8);
+        assertTrue(frame.startsWith("id:01ABC\ndata:{\"id\":\"01ABC\",\"userReferenceId\":\"user1\""));
+        assertTrue(frame.endsWith("}\n\n"));
+
+        DataBufferUtils.release(first.get(0).buffer());
+        DataBufferUtils.release(second.get(0).buffer());
+        assertEquals(0, a.refCnt());
+        assertEquals(1, encoded.size());
+    }
+
+    @Test
+    void testIdenticalFiltersShareOneChannelAndUnwantedIsNotEncoded() {
+        SseFrameBroadcaster broadcaster = broadcaster();
+        NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        SubscriptionFilter team = new SubscriptionFilter(Set.of("user1", "user2"), null, null, null, null);
+        List<SseFrame> first = new ArrayList<>();
+        List<SseFrame> second = new ArrayList<>();
+        List<SseFrame> alerts = new ArrayList<>();
+        var firstConnection = broadcaster.frames(Format.SSE, team, bufferFactory).subscribe(first::add);
+        broadcaster.frames(Format.SSE, new SubscriptionFilter(Set.of("user2", "user1"), "", null, null, null), bufferFactory)
+                .subscribe(second::add);
+        broadcaster.frames(Format.SSE, new SubscriptionFilter(null, "ALERTA", null, null, null), bufferFactory)
+                .subscribe(alerts::add);
+        assertEquals(2, broadcaster.getChannels());
+
+        broadcaster.broadcast(new Notification("01", "user3", "Hola", Instant.now(), false));
+        assertEquals(0, encoded.size());  // Nadie la quiere: no se codifica
+
+        broadcaster.broadcast(new Notification("02", "user1", "Hola", Instant.now(), false));
+        broadcaster.broadcast(new Notification("03", "user3", "ALERTA: disco lleno", Instant.now(), false));
+        assertEquals(2, encoded.size());
+        assertEquals(List.of("02"), first.stream().map(f -> ((Notification) f.payload()).getId()).toList());
+        assertEquals(1, second.size());
+        assertEquals(List.of("03"), alerts.stream().map(f -> ((Notification) f.payload()).getId()).toList());
+
+        firstConnection.dispose();
+        assertEquals(2, broadcaster.getChannels());  // La otra conexión del equipo sigue usando el canal
+        Flux.concat(Flux.fromIterable(first), Flux.fromIterable(second), Flux.fromIterable(alerts))
+                .subscribe(f -> DataBufferUtils.release(f.buffer()));
+        encoded.forEach(buffer -> assertEquals(0, buffer.refCnt()));
+    }
+
+    @Test
+    void testEachFormatIsEncodedOncePerNotification() throws Exception {
+        SseFrameBroadcaster broadcaster = broadcaster();
+        NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        List<SseFrame> sse = new ArrayList<>();
+        List<SseFrame> binary = new ArrayList<>();
+        broadcaster.frames(Format.SSE, bufferFactory).subscribe(sse::add);
+        broadcaster.frames(Format.LENGTH_PREFIXED_CBOR, bufferFactory).subscribe(binary::add);
+        broadcaster.frames(Format.LENGTH_PREFIXED_CBOR, bufferFactory).subscribe(binary::add);
+
+        broadcaster.broadcast(new Notification("01ABC", "user1", "Hola", Instant.parse("2024-01-01T00:00:00Z"), false));
+
+        assertEquals(2, encoded.size());  // Uno por formato, no por conexión
+        ByteBuf frame = ((NettyDataBuffer) binary.get(0).buffer()).getNativeBuffer();
+        assertEquals(frame.readableBytes() - 4, frame.getInt(frame.readerIndex()));
+        byte[] body = new byte[frame.readableBytes() - 4];
+        frame.getBytes(frame.readerIndex() + 4, body);
+        JsonNode envelope = BinaryObjectMappers.standalone().cbor().readTree(body);
+        assertEquals("01ABC", envelope.get("id").asText());
+        assertEquals("Hola", envelope.get("data").get("message").asText());
+        assertTrue(frame.readableBytes() < ((NettyDataBuffer) sse.get(0).buffer()).getNativeBuffer().readableBytes());
+
+        sse.forEach(f -> DataBufferUtils.release(f.buffer()));
+        binary.forEach(f -> DataBufferUtils.release(f.buffer()));
+        encoded.forEach(buffer -> assertEquals(0, buffer.refCnt()));
+    }
+
+    @Test
+    void testOverflowingConnectionIsClosedAndItsFramesReleased() {
+        SseFrameBroadcaster broadcaster = broadcaster();
+        NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+        // Sin demanda: los frames llenan la precarga del merge y el buffer de la conexión (4) hasta desbordarlo,
+        // y entonces la conexión se cierra y se liberan los que quedaban sin escribir
+        StepVerifier.create(broadcaster.connect("unread-stream", "user1", Format.SSE, bufferFactory), 0)
+                .then(() -> {
+                    for (int i = 0; i < 64; i++) {
+                        broadcaster.broadcast(new Notification("id" + i, "user1", "Mensaje", Instant.now(), false));
+                    }
+                })
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, registry.getTotalConnections());
+        assertTrue(encoded.size() < 64);  // Cerrada la conexión ya no se codifica nada
+        encoded.forEach(buffer -> assertEquals(0, buffer.refCnt()));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.notificationservice.sse;
+
+import com.example.notificationservice.entity.Notification;
+import com.example.notificationservice.entity.NotificationPriority;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubscriptionFilterTest {
+
+    private static Notification notification(String userId, String message, NotificationPriority priority, Instant timestamp) {
+        Notification notification = new Notification("01", userId, message, timestamp, false);
+        notification.setPriority(priority);
+        return notification;
+    }
+
+    @Test
+    void testQueryIsNormalizedSoIdenticalFiltersAreEqual() {
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("userId", "b,a");
+        params.add("priority", "high");
+        MultiValueMap<String, String> reordered = new LinkedMultiValueMap<>();
+        reordered.add("userId", "a");
+        reordered.add("userId", "b");
+        reordered.add("priority", "HIGH");
+        reordered.add("prefix", "");
+
+        assertEquals(SubscriptionFilter.fromQuery(params), SubscriptionFilter.fromQuery(reordered));
+        assertEquals(Set.of("a", "b"), SubscriptionFilter.fromQuery(params).userIds());
+        assertTrue(SubscriptionFilter.fromQuery(new LinkedMultiValueMap<>()).isAll());
+    }
+
+    @Test
+    void testCompiledPredicateRequiresEveryGivenCriterion() {
+        Instant from = Instant.parse("2024-01-01T00:00:00Z");
+        Instant to = Instant.parse("2024-01-02T00:00:00Z");
+        Predicate<Notification> predicate = new SubscriptionFilter(Set.of("team1", "team2"), "[deploy]",
+                Set.of(NotificationPriority.NORMAL), from, to).compile();
+        Instant inside = from.plusSeconds(60);
+
+        assertTrue(predicate.test(notification("team1", "[deploy] v2", null, inside)));  // Sin prioridad es NORMAL
+        assertFalse(predicate.test(notification("team3", "[deploy] v2", null, inside)));
+        assertFalse(predicate.test(notification("team1", "otro", null, inside)));
+        assertFalse(predicate.test(notification("team1", "[deploy] v2", NotificationPriority.HIGH, inside)));
+        assertFalse(predicate.test(notification("team1", "[deploy] v2", null, to)));  // Fin exclusivo
+        assertTrue(SubscriptionFilter.ALL.compile().test(notification(null, null, null, null)));
+    }
+
+    @Test
+    void testInvalidValuesAreRejected() {
+        MultiValueMap<String, String> priority = new LinkedMultiValueMap<>();
+        priority.add("priority", "urgent");
+        MultiValueMap<String, String> window = new LinkedMultiValueMap<>();
+        window.add("from", "2024-01-02T00:00:00Z");
+        window.add("to", "2024-01-01T00:00:00Z");
+        MultiValueMap<String, String> instant = new LinkedMultiValueMap<>();
+        instant.add("from", "ayer");
+
+        assertThrows(IllegalArgumentException.class, () -> SubscriptionFilter.fromQuery(priority));
+        assertThrows(IllegalArgumentException.class, () -> SubscriptionFilter.fromQuery(window));
+        assertThrows(IllegalArgumentException.class, () -> SubscriptionFilter.fromQuery(instant));
+    }
+}
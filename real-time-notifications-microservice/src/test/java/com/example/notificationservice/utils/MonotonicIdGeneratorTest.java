@@ -0,0 +1,68 @@
+package com.example.notificationservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MonotonicIdGeneratorTest {
+
+    @Test
+    void testIdsAreStrictlyIncreasing() {
+        MonotonicIdGenerator generator = new MonotonicIdGenerator(42L);
+
+        String previous = generator.nextId();
+        // Más de 65536 IDs para forzar el desborde de la secuencia dentro del mismo milisegundo
+        for (int i = 0; i < 200_000; i++) {
+            String current = generator.nextId();
+            assertEquals(MonotonicIdGenerator.ID_LENGTH, current.length());
+            assertTrue(current.compareTo(previous) > 0, "El ID " + current + " no es mayor que " + previous);
+            previous = current;
+        }
+    }
+
+    @Test
+    void testIdsAreUniqueAcrossThreads() throws Exception {
+        MonotonicIdGenerator generator = new MonotonicIdGenerator();
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50_000; i++) {
+                        ids.add(generator.nextId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Ninguna colisión entre hilos
+        assertEquals(8 * 50_000, ids.size());
+    }
+
+    @Test
+    void testTimestampCanBeDecoded() {
+        MonotonicIdGenerator generator = new MonotonicIdGenerator();
+        long before = System.currentTimeMillis();
+        String id = generator.nextId();
+        long after = System.currentTimeMillis();
+
+        long timestamp = MonotonicIdGenerator.timestampOf(id);
+        // La secuencia puede adelantar el reloj como máximo unos milisegundos
+        assertTrue(timestamp >= before && timestamp <= after + 1);
+    }
+}
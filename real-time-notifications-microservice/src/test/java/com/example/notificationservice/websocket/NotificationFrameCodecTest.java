@@ -0,0 +1,40 @@
+package com.example.notificationservice.websocket;
+
+import com.example.notificationservice.entity.Notification;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NotificationFrameCodecTest {
+
+    @Test
+    void testEncodeNotification() {
+        Notification notification = new Notification("01J9ZK", "user1", "Hola\tmundo", Instant.ofEpochMilli(1700000000000L), false);
+
+        // El mensaje va al final, por eso puede contener tabuladores
+        assertEquals("n\t01J9ZK\t1700000000000\tHola\tmundo", NotificationFrameCodec.encodeNotification(notification));
+    }
+
+    @Test
+    void testDecodeAckWithSeveralIds() {
+        NotificationFrameCodec.ClientFrame frame = NotificationFrameCodec.decode("a\tid1,id2, ,id3");
+
+        assertEquals(NotificationFrameCodec.ACK, frame.type());
+        assertEquals(List.of("id1", "id2", "id3"), frame.ids());
+    }
+
+    @Test
+    void testDecodeInvalidFrame() {
+        assertNull(NotificationFrameCodec.decode("ack id1"));
+        assertNull(NotificationFrameCodec.decode(""));
+    }
+
+    @Test
+    void testEncodeAcknowledged() {
+        assertEquals("k\tid1,id2", NotificationFrameCodec.encodeAcknowledged(List.of("id1", "id2")));
+    }
+}